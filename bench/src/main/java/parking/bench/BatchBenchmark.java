@@ -0,0 +1,94 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+
+/**
+ * Benchmark comparing the batch operations with a loop on the single car operations.
+ * <p>A burst of cars, spread over all car types, is parked and then unparked either car per car through {@link Parking#park(Car)} and
+ * {@link Parking#unparkAndBill(Car)} or at once through {@link Parking#parkAll(java.util.Collection)} and {@link Parking#unparkAndBillAll(java.util.Collection)}.
+ * Scores are bursts per second.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+	/** The number of cars in a burst. */
+	@Param({"16", "256"})
+	public int burstSize;
+	
+	private Parking parking;
+	private List<Car> cars;
+	
+	/**
+	 * Create the parking and the burst.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		for (Car.Type carType: Car.Type.values()) {
+			carTypeToSlotsCount.put(carType, this.burstSize);
+		}
+		
+		this.parking = Parking.create(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f));
+		this.cars = new ArrayList<Car>();
+		for (int carIndex = 0; carIndex < this.burstSize; carIndex++) {
+			this.cars.add(new DefaultCar("AB-" + carIndex + "-CD", Car.Type.values()[carIndex % Car.Type.values().length]));
+		}
+	}
+	
+	/**
+	 * Park and unpark the burst car per car.
+	 * @param blackhole the blackhole consuming the bills
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Benchmark
+	public void perCar(Blackhole blackhole) throws ParkingException {
+		for (Car car: this.cars) {
+			blackhole.consume(this.parking.park(car));
+		}
+		for (Car car: this.cars) {
+			blackhole.consume(this.parking.unparkAndBill(car));
+		}
+	}
+	
+	/**
+	 * Park and unpark the burst at once.
+	 * @param blackhole the blackhole consuming the results
+	 */
+	@Benchmark
+	public void batch(Blackhole blackhole) {
+		blackhole.consume(this.parking.parkAll(this.cars));
+		blackhole.consume(this.parking.unparkAndBillAll(this.cars));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Clock;
+
+/**
+ * Benchmark of the clocks provided by the library, as read by the parking on each arrival and departure.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClockBenchmark {
+	/** The clock mode. */
+	@Param({"SYSTEM", "CACHED", "MONOTONIC"})
+	public Clock.Mode mode;
+	
+	private Clock clock;
+	
+	/**
+	 * Get the clock to benchmark.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.clock = Clock.create(this.mode);
+	}
+	
+	/**
+	 * Read the clock from a single thread.
+	 * @return the current instant in milliseconds from the epoch
+	 */
+	@Benchmark
+	@Threads(1)
+	public long millisOneThread() {
+		return this.clock.millis();
+	}
+	
+	/**
+	 * Read the clock from as many threads as available processors.
+	 * @return the current instant in milliseconds from the epoch
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public long millisAllThreads() {
+		return this.clock.millis();
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingEvent;
+import parking.api.ParkingException;
+
+/**
+ * Benchmark of the event stream overhead on the {@link Parking#park(Car)} and {@link Parking#unparkAndBill(Car)} hot paths.
+ * <p>The same park and unpark cycle is measured without event stream, which must be as fast as the hot path of the ParkingBenchmark,
+ * with the events published to the ring without subscriber, which is the cost paid by the gates, and with a subscriber receiving all the events
+ * from its own thread, which also competes with the gate for the processors.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventsBenchmark {
+	/** Whether the events are not published, published without subscriber or published to a subscriber. */
+	@Param({"none", "published", "subscribed"})
+	public String events;
+	
+	private final Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+	private Parking parking;
+	private Flow.Subscription subscription;
+	
+	/**
+	 * Create the parking, with the slots counts of the LargeParkingTest unittest, and publish or subscribe to its events if requested.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		carTypeToSlotsCount.put(Car.Type.GASOLINE, 1000);
+		carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 200);
+		carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 150);
+		this.parking = Parking.create(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f));
+		if ("published".equals(this.events)) {
+			this.parking.events();
+		} else if ("subscribed".equals(this.events)) {
+			this.parking.events().subscribe(new Flow.Subscriber<ParkingEvent>() {
+				@Override
+				public void onSubscribe(Flow.Subscription subscription) {
+					EventsBenchmark.this.subscription = subscription;
+					subscription.request(Long.MAX_VALUE);
+				}
+				
+				@Override
+				public void onNext(ParkingEvent event) {
+					// Events are only received
+				}
+				
+				@Override
+				public void onError(Throwable throwable) {
+					throw new IllegalStateException(throwable);
+				}
+				
+				@Override
+				public void onComplete() {
+					// Parking events never complete
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Cancel the subscription to the events, if any.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (this.subscription != null) {
+			this.subscription.cancel();
+		}
+	}
+	
+	/**
+	 * Park and then unpark the car.
+	 * @return the bill
+	 * @throws ParkingException if the car cannot be unparked
+	 */
+	@Benchmark
+	public float parkAndUnparkAndBill() throws ParkingException {
+		this.parking.park(this.car);
+		
+		return this.parking.unparkAndBill(this.car);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.JournaledParking;
+import parking.api.Parking;
+import parking.api.ParkingException;
+
+/**
+ * Benchmark of the write-ahead journal overhead on the {@link Parking#park(Car)} and {@link Parking#unparkAndBill(Car)} hot paths.
+ * <p>The same park and unpark cycle is measured on an in-memory parking and on a journaled parking, whose journal file is created in the temporary directory.
+ * The group commits forcing the journal to the disk run in the background during the measurement.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+	/** Whether or not the parking is journaled. */
+	@Param({"false", "true"})
+	public boolean journaled;
+	
+	private final Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+	private Path journalPath;
+	private Parking parking;
+	
+	/**
+	 * Create the parking, with the slots counts of the LargeParkingTest unittest.
+	 * @throws IOException if the journal file cannot be created
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		carTypeToSlotsCount.put(Car.Type.GASOLINE, 1000);
+		carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 200);
+		carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 150);
+		if (this.journaled) {
+			this.journalPath = Files.createTempFile("parking", ".journal");
+			this.parking = Parking.createJournaled(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f), null, this.journalPath);
+		} else {
+			this.parking = Parking.create(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f));
+		}
+	}
+	
+	/**
+	 * Close the parking and delete its journal file, if the parking is journaled.
+	 * @throws IOException if the journal file cannot be closed or deleted
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		if (this.journaled) {
+			((JournaledParking) this.parking).close();
+			Files.delete(this.journalPath);
+		}
+	}
+	
+	/**
+	 * Park and then unpark the car.
+	 * @return the bill
+	 * @throws ParkingException if the car cannot be unparked
+	 */
+	@Benchmark
+	public float parkAndUnparkAndBill() throws ParkingException {
+		this.parking.park(this.car);
+		
+		return this.parking.unparkAndBill(this.car);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+
+/**
+ * Benchmark of the instrumentation overhead on the {@link Parking#park(Car)} and {@link Parking#unparkAndBill(Car)} hot paths.
+ * <p>The same park and unpark cycle is measured with the instrumentation disabled, which must be as fast as the uninstrumented hot path
+ * of the ParkingBenchmark, and enabled.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+	/** Whether or not the instrumentation is enabled. */
+	@Param({"false", "true"})
+	public boolean metricsEnabled;
+	
+	private final Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+	private Parking parking;
+	
+	/**
+	 * Create the parking, with the slots counts of the LargeParkingTest unittest.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		carTypeToSlotsCount.put(Car.Type.GASOLINE, 1000);
+		carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 200);
+		carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 150);
+		this.parking = Parking.create(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f));
+		this.parking.metrics().setEnabled(this.metricsEnabled);
+	}
+	
+	/**
+	 * Park and then unpark the car.
+	 * @return the bill
+	 * @throws ParkingException if the car cannot be unparked
+	 */
+	@Benchmark
+	public float parkAndUnparkAndBill() throws ParkingException {
+		this.parking.park(this.car);
+		
+		return this.parking.unparkAndBill(this.car);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Occupancy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+
+/**
+ * Benchmark of the occupancy queries polled by display boards while gates park and unpark cars.
+ * <p>The gates only group measures gates alone, the gates with board group adds a board thread polling the parking occupancy as fast as it can:
+ * comparing the gates throughput of both groups shows whether or not reading the occupancy slows down the gates.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class OccupancyBenchmark {
+	/** Whether or not the parking is sharded. */
+	@Param({"false", "true"})
+	public boolean sharded;
+	
+	private Parking parking;
+	
+	/**
+	 * The state of a gate.
+	 */
+	@State(Scope.Thread)
+	public static class Gate {
+		/** The car parked and unparked by the gate. */
+		Car car;
+		
+		/**
+		 * Create the gate car.
+		 */
+		@Setup(Level.Trial)
+		public void setUp() {
+			this.car = new DefaultCar("GATE-" + Thread.currentThread().getId(), Car.Type.GASOLINE);
+		}
+	}
+	
+	/**
+	 * Create the parking, with the slots counts of the LargeParkingTest unittest.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		carTypeToSlotsCount.put(Car.Type.GASOLINE, 1000);
+		carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 200);
+		carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 150);
+		if (this.sharded) {
+			this.parking = Parking.createSharded(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f), null, 0);
+		} else {
+			this.parking = Parking.create(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f));
+		}
+	}
+	
+	/**
+	 * Park and then unpark the gate car.
+	 * @param gate the gate
+	 * @return the bill
+	 * @throws ParkingException if the gate car cannot be unparked
+	 */
+	private float parkAndUnparkAndBill(Gate gate) throws ParkingException {
+		this.parking.park(gate.car);
+		
+		return this.parking.unparkAndBill(gate.car);
+	}
+	
+	/**
+	 * Gates alone.
+	 * @param gate the gate
+	 * @return the bill
+	 * @throws ParkingException if the gate car cannot be unparked
+	 */
+	@Benchmark
+	@Group("gatesOnly")
+	@GroupThreads(3)
+	public float gatesOnlyGate(Gate gate) throws ParkingException {
+		return parkAndUnparkAndBill(gate);
+	}
+	
+	/**
+	 * Gates while a board polls the occupancy.
+	 * @param gate the gate
+	 * @return the bill
+	 * @throws ParkingException if the gate car cannot be unparked
+	 */
+	@Benchmark
+	@Group("gatesWithBoard")
+	@GroupThreads(3)
+	public float gatesWithBoardGate(Gate gate) throws ParkingException {
+		return parkAndUnparkAndBill(gate);
+	}
+	
+	/**
+	 * A board polling the number of available gasoline slots.
+	 * @return the number of available slots
+	 */
+	@Benchmark
+	@Group("gatesWithBoard")
+	@GroupThreads(1)
+	public int gatesWithBoardAvailableSlots() {
+		return this.parking.availableSlots(Car.Type.GASOLINE);
+	}
+	
+	/**
+	 * A board taking an occupancy snapshot.
+	 * @return the snapshot
+	 */
+	@Benchmark
+	@Group("gatesWithSnapshotBoard")
+	@GroupThreads(1)
+	public Occupancy gatesWithSnapshotBoardOccupancy() {
+		return this.parking.occupancy();
+	}
+	
+	/**
+	 * Gates while a board takes occupancy snapshots.
+	 * @param gate the gate
+	 * @return the bill
+	 * @throws ParkingException if the gate car cannot be unparked
+	 */
+	@Benchmark
+	@Group("gatesWithSnapshotBoard")
+	@GroupThreads(3)
+	public float gatesWithSnapshotBoardGate(Gate gate) throws ParkingException {
+		return parkAndUnparkAndBill(gate);
+	}
+}
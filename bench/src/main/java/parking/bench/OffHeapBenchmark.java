@@ -0,0 +1,97 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+
+/**
+ * Benchmark of a parking of a million occupied slots held on or off the heap.
+ * <p>Measures the duration of a full garbage collection, which walks the whole heap, and the park and unpark cycle on the only free slot.
+ * The heap used by the parking once filled is printed by the setup.</p>
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Thread)
+public class OffHeapBenchmark {
+	static private final int occupiedSlotsCount = 1_000_000;
+	
+	/** Whether the parking is created by {@link Parking#createOffHeap} or by {@link Parking#create}. */
+	@Param({"false", "true"})
+	public boolean offHeap;
+	
+	private final Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+	private Parking parking;
+	
+	/**
+	 * Create the parking and fill all its slots but one, then print the heap it uses.
+	 * @throws ParkingException if a car cannot be parked
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws ParkingException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		System.gc();
+		
+		long usedHeapBytes = memory.getHeapMemoryUsage().getUsed();
+		
+		carTypeToSlotsCount.put(Car.Type.GASOLINE, occupiedSlotsCount + 1);
+		this.parking = (this.offHeap ? Parking.createOffHeap(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f), null) :
+			Parking.create(carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f)));
+		for (int carIndex = 0; carIndex < occupiedSlotsCount; carIndex++) {
+			this.parking.park(new DefaultCar("AB-" + carIndex, Car.Type.GASOLINE));
+		}
+		System.gc();
+		System.out.println();
+		System.out.println("Heap used by the parking: " + (memory.getHeapMemoryUsage().getUsed() - usedHeapBytes) / (1024 * 1024) + " MB");
+	}
+	
+	/**
+	 * Run a full garbage collection.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void fullGc() {
+		System.gc();
+	}
+	
+	/**
+	 * Park and then unpark the car on the only free slot.
+	 * @return the bill
+	 * @throws ParkingException if the car cannot be unparked
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public float parkAndUnparkAndBill() throws ParkingException {
+		this.parking.park(this.car);
+		
+		return this.parking.unparkAndBill(this.car);
+	}
+}
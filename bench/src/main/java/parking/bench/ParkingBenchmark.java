@@ -0,0 +1,181 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+
+/**
+ * Benchmark of the {@link Parking#park(Car)} and {@link Parking#unparkAndBill(Car)} hot paths.
+ * <p>Each gate (i.e. each benchmark thread) parks and then unparks its own car on a parking shared by all the gates.
+ * The parking is pre-filled with other cars, so that the operations are measured on an empty, half full and nearly full parking.
+ * The number of cars pre-filled for each car type is rounded up: the nearly full small parking is full, its gates measuring rejected parks,
+ * while the nearly full large parking keeps at least one free slot for each car type.</p>
+ * <p>Running the same operation with 1, 4 and all available gates shows whether or not the throughput scales with the number of cores.
+ * Both the default parking and the sharded parking (one shard per available processor) are measured.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParkingBenchmark {
+	/**
+	 * The parking sizes.
+	 * <p>Slots counts are the ones of the small and large parking unittests.</p>
+	 */
+	public enum ParkingSize {
+		/** Same slots counts as the SmallParkingTest unittest. */
+		SMALL(5, 2, 2),
+		
+		/** Same slots counts as the LargeParkingTest unittest. */
+		LARGE(1000, 200, 150);
+		
+		/** The number of slots for each car type. */
+		final Map<Car.Type, Integer> carTypeToSlotsCount;
+		
+		/**
+		 * Instantiates a new parking size.
+		 * @param gasolineSlotsCount the number of gasoline slots
+		 * @param electricWith20kWPowerSupplySlotsCount the number of slots with a 20kW power supply
+		 * @param electricWith50kWPowerSupplySlotsCount the number of slots with a 50kW power supply
+		 */
+		private ParkingSize(int gasolineSlotsCount, int electricWith20kWPowerSupplySlotsCount, int electricWith50kWPowerSupplySlotsCount) {
+			this.carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+			this.carTypeToSlotsCount.put(Car.Type.GASOLINE, gasolineSlotsCount);
+			this.carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, electricWith20kWPowerSupplySlotsCount);
+			this.carTypeToSlotsCount.put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, electricWith50kWPowerSupplySlotsCount);
+		}
+	}
+	
+	/**
+	 * The state of a gate.
+	 * <p>Each gate has its own car, gates being spread over all car types.</p>
+	 */
+	@State(Scope.Thread)
+	public static class Gate {
+		static private final AtomicInteger gatesCount = new AtomicInteger();
+		
+		/** The car parked and unparked by the gate. */
+		Car car;
+		
+		/**
+		 * Create the gate car.
+		 */
+		@Setup(Level.Trial)
+		public void setUp() {
+			int gateIndex = gatesCount.getAndIncrement();
+			
+			this.car = new DefaultCar("GATE-" + gateIndex, Car.Type.values()[gateIndex % Car.Type.values().length]);
+		}
+	}
+	
+	/** The parking size. */
+	@Param({"SMALL", "LARGE"})
+	public ParkingSize parkingSize;
+	
+	/** The percentage of slots occupied before the gates start, for each car type, the number of occupied slots being rounded up. */
+	@Param({"0", "50", "99"})
+	public int fillPercentage;
+	
+	/** Whether or not the parking is sharded, see {@link Parking#createSharded(Map, parking.api.PricingPolicy, parking.api.Clock, int)}. */
+	@Param({"false", "true"})
+	public boolean sharded;
+	
+	private Parking parking;
+	
+	/**
+	 * Create and pre-fill the parking.
+	 * @throws ParkingException if the parking cannot be filled
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws ParkingException {
+		if (this.sharded) {
+			this.parking = Parking.createSharded(this.parkingSize.carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f), null, 0);
+		} else {
+			this.parking = Parking.create(this.parkingSize.carTypeToSlotsCount, new DefaultPricingPolicy(0.0f, 1.5f));
+		}
+		
+		for (Map.Entry<Car.Type, Integer> carTypeAndSlotsCount: this.parkingSize.carTypeToSlotsCount.entrySet()) {
+			int parkedCarsCount = (carTypeAndSlotsCount.getValue() * this.fillPercentage + 99) / 100;
+			
+			for (int carIndex = 0; carIndex < parkedCarsCount; carIndex++) {
+				this.parking.park(new DefaultCar("FILL-" + carTypeAndSlotsCount.getKey().name() + "-" + carIndex, carTypeAndSlotsCount.getKey()));
+			}
+		}
+	}
+	
+	/**
+	 * Park and then unpark the gate car.
+	 * @param car the gate car
+	 * @return the bill, to be consumed by the benchmark
+	 * @throws ParkingException if the gate car cannot be unparked
+	 */
+	private float parkAndUnparkAndBill(Car car) throws ParkingException {
+		if (this.parking.park(car) == null) {
+			return -1.0f;
+		}
+		
+		return this.parking.unparkAndBill(car);
+	}
+	
+	/**
+	 * Park and unpark on a single gate.
+	 * @param gate the gate
+	 * @return the bill
+	 * @throws ParkingException if the gate car cannot be unparked
+	 */
+	@Benchmark
+	@Threads(1)
+	public float parkAndUnparkAndBillOneGate(Gate gate) throws ParkingException {
+		return parkAndUnparkAndBill(gate.car);
+	}
+	
+	/**
+	 * Park and unpark on four concurrent gates.
+	 * @param gate the gate
+	 * @return the bill
+	 * @throws ParkingException if the gate car cannot be unparked
+	 */
+	@Benchmark
+	@Threads(4)
+	public float parkAndUnparkAndBillFourGates(Gate gate) throws ParkingException {
+		return parkAndUnparkAndBill(gate.car);
+	}
+	
+	/**
+	 * Park and unpark on as many concurrent gates as available processors.
+	 * @param gate the gate
+	 * @return the bill
+	 * @throws ParkingException if the gate car cannot be unparked
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public float parkAndUnparkAndBillAllGates(Gate gate) throws ParkingException {
+		return parkAndUnparkAndBill(gate.car);
+	}
+}
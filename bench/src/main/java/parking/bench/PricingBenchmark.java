@@ -0,0 +1,197 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.EpochMillisPricingPolicy;
+import parking.api.PricingPolicy;
+import parking.api.Tariff;
+import parking.api.TariffPricingPolicy;
+
+/**
+ * Benchmark of the pricing policies billing a car leaving the parking.
+ * <p>Covers {@link DefaultPricingPolicy} and a policy shaped like the custom pricing policy of the CustomPricingParkingTest unittest,
+ * which works directly on instants and branches on the car type. Both are also measured through {@link EpochMillisPricingPolicy}, as called by the
+ * default parking implementation: the default pricing policy natively and the custom shaped one ported to primitive instants.
+ * The custom shaped policy is also measured as compiled tariffs, see {@link TariffPricingPolicy}.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingBenchmark {
+	/**
+	 * The pricing policy billing gasoline and electrical cars differently.
+	 * <p>Same algorithm as the CustomPricingParkingTest unittest pricing policy.</p>
+	 */
+	static final class CustomShapedPricingPolicy implements PricingPolicy {
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public float bill(Car car, Instant arrivalInstant, Instant departureInstant) {
+			float occupationAmount;
+			
+			if (arrivalInstant.plus(Duration.ofMinutes(30)).isAfter(departureInstant)) {
+				occupationAmount = 0.0f;
+			} else {
+				occupationAmount = 5.0f;
+			}
+			
+			float electricalAmountPerSecond;
+			
+			switch (car.getType()) {
+			case ELECTRIC_WITH_20kW_POWER_SUPPLY:
+				electricalAmountPerSecond = 0.0005f;
+				break;
+			case ELECTRIC_WITH_50kW_POWER_SUPPLY:
+				electricalAmountPerSecond = 0.001f;
+				break;
+			default: // GASOLINE
+				electricalAmountPerSecond = 0.0f;
+			}
+			
+			return occupationAmount + Duration.between(arrivalInstant, departureInstant).toSeconds() * electricalAmountPerSecond;
+		}
+	}
+	
+	/**
+	 * The custom shaped pricing policy working on primitive instants.
+	 */
+	static final class EpochMillisCustomShapedPricingPolicy implements EpochMillisPricingPolicy {
+		static private final long freeMillis = Duration.ofMinutes(30).toMillis();
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public float bill(Car car, long arrivalEpochMillis, long departureEpochMillis) {
+			long parkingDurationMillis = departureEpochMillis - arrivalEpochMillis;
+			float occupationAmount = (parkingDurationMillis < freeMillis ? 0.0f : 5.0f);
+			float electricalAmountPerSecond;
+			
+			switch (car.getType()) {
+			case ELECTRIC_WITH_20kW_POWER_SUPPLY:
+				electricalAmountPerSecond = 0.0005f;
+				break;
+			case ELECTRIC_WITH_50kW_POWER_SUPPLY:
+				electricalAmountPerSecond = 0.001f;
+				break;
+			default: // GASOLINE
+				electricalAmountPerSecond = 0.0f;
+			}
+			
+			return occupationAmount + (parkingDurationMillis / 1000L) * electricalAmountPerSecond;
+		}
+	}
+	
+	/** The parking duration in minutes. */
+	@Param({"5", "90", "1440"})
+	public int parkingDurationInMinutes;
+	
+	private final Car car = new DefaultCar("AI-241-SP", Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY);
+	private final PricingPolicy defaultPricingPolicy = new DefaultPricingPolicy(4.3f, 1.5f);
+	private final PricingPolicy customShapedPricingPolicy = new CustomShapedPricingPolicy();
+	private final EpochMillisPricingPolicy epochMillisDefaultPricingPolicy = new DefaultPricingPolicy(4.3f, 1.5f);
+	private final EpochMillisPricingPolicy epochMillisCustomShapedPricingPolicy = new EpochMillisCustomShapedPricingPolicy();
+	private final EpochMillisPricingPolicy tariffCustomShapedPricingPolicy = createTariffCustomShapedPricingPolicy();
+	private Instant arrivalInstant;
+	private Instant departureInstant;
+	private long arrivalEpochMillis;
+	private long departureEpochMillis;
+	
+	/**
+	 * Create the tariffs equivalent to the custom shaped pricing policy.
+	 * @return the tariff pricing policy, not null
+	 */
+	static private EpochMillisPricingPolicy createTariffCustomShapedPricingPolicy() {
+		Tariff gasolineTariff = Tariff.free.withFee(Duration.ofMinutes(30), 5.0f);
+		Map<Car.Type, Tariff> carTypeToTariff = new EnumMap<Car.Type, Tariff>(Car.Type.class);
+		
+		carTypeToTariff.put(Car.Type.GASOLINE, gasolineTariff);
+		carTypeToTariff.put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, gasolineTariff.withRate(Duration.ZERO, null, Duration.ofSeconds(1), 0.0005f, false));
+		carTypeToTariff.put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, gasolineTariff.withRate(Duration.ZERO, null, Duration.ofSeconds(1), 0.001f, false));
+		
+		return new TariffPricingPolicy(carTypeToTariff);
+	}
+	
+	/**
+	 * Compute the arrival and departure instants.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.arrivalInstant = Instant.now();
+		this.departureInstant = this.arrivalInstant.plus(Duration.ofMinutes(this.parkingDurationInMinutes));
+		this.arrivalEpochMillis = this.arrivalInstant.toEpochMilli();
+		this.departureEpochMillis = this.departureInstant.toEpochMilli();
+	}
+	
+	/**
+	 * Bill with the default pricing policy.
+	 * @return the bill
+	 */
+	@Benchmark
+	public float defaultPricingPolicy() {
+		return this.defaultPricingPolicy.bill(this.car, this.arrivalInstant, this.departureInstant);
+	}
+	
+	/**
+	 * Bill with the custom shaped pricing policy.
+	 * @return the bill
+	 */
+	@Benchmark
+	public float customShapedPricingPolicy() {
+		return this.customShapedPricingPolicy.bill(this.car, this.arrivalInstant, this.departureInstant);
+	}
+	
+	/**
+	 * Bill with the default pricing policy from primitive instants.
+	 * @return the bill
+	 */
+	@Benchmark
+	public float epochMillisDefaultPricingPolicy() {
+		return this.epochMillisDefaultPricingPolicy.bill(this.car, this.arrivalEpochMillis, this.departureEpochMillis);
+	}
+	
+	/**
+	 * Bill with the custom shaped pricing policy ported to primitive instants.
+	 * @return the bill
+	 */
+	@Benchmark
+	public float epochMillisCustomShapedPricingPolicy() {
+		return this.epochMillisCustomShapedPricingPolicy.bill(this.car, this.arrivalEpochMillis, this.departureEpochMillis);
+	}
+	
+	/**
+	 * Bill with the tariffs equivalent to the custom shaped pricing policy.
+	 * @return the bill
+	 */
+	@Benchmark
+	public float tariffCustomShapedPricingPolicy() {
+		return this.tariffCustomShapedPricingPolicy.bill(this.car, this.arrivalEpochMillis, this.departureEpochMillis);
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.PricingPolicy;
+
+/**
+ * Benchmark of {@link Parking#snapshot(Path)} and {@link Parking#restore(Path, PricingPolicy, parking.api.Clock)} on a full parking.
+ * <p>The parking has as many gasoline slots as parked cars, the snapshot file is created in the temporary directory.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+	/** The number of parked cars. */
+	@Param({"10000", "100000"})
+	public int carsCount;
+	
+	private final PricingPolicy pricingPolicy = new DefaultPricingPolicy(0.0f, 1.5f);
+	private Path snapshotPath;
+	private Parking parking;
+	
+	/**
+	 * Create and fill the parking, then write a first snapshot for the restore benchmark.
+	 * @throws IOException if the snapshot file cannot be written
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		List<Car> cars = new ArrayList<Car>(this.carsCount);
+		
+		carTypeToSlotsCount.put(Car.Type.GASOLINE, this.carsCount);
+		this.parking = Parking.create(carTypeToSlotsCount, this.pricingPolicy);
+		for (int carIndex = 0; carIndex < this.carsCount; carIndex++) {
+			cars.add(new DefaultCar(String.format("AA-%03d-%02d", carIndex / 100, carIndex % 100), Car.Type.GASOLINE));
+		}
+		this.parking.parkAll(cars);
+		this.snapshotPath = Files.createTempFile("parking", ".snapshot");
+		this.parking.snapshot(this.snapshotPath);
+	}
+	
+	/**
+	 * Delete the snapshot file.
+	 * @throws IOException if the snapshot file cannot be deleted
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.delete(this.snapshotPath);
+	}
+	
+	/**
+	 * Write a snapshot of the parking.
+	 * @throws IOException if the snapshot file cannot be written
+	 */
+	@Benchmark
+	public void snapshot() throws IOException {
+		this.parking.snapshot(this.snapshotPath);
+	}
+	
+	/**
+	 * Restore the parking from its snapshot.
+	 * @return the restored parking
+	 * @throws IOException if the snapshot file cannot be read
+	 */
+	@Benchmark
+	public Parking restore() throws IOException {
+		return Parking.restore(this.snapshotPath, this.pricingPolicy, null);
+	}
+}
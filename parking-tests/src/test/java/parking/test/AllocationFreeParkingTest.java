@@ -0,0 +1,148 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import parking.api.Car;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+
+/**
+ * Perform unittests checking that parking and unparking cars does not allocate memory once the parking has warmed up.
+ * <p>Memory allocated by the test thread is measured with the HotSpot specific {@link com.sun.management.ThreadMXBean}; tests are skipped on JVMs not supporting it.</p>
+ */
+final class AllocationFreeParkingTest {
+	static private final int warmUpCyclesCount = 20_000;
+	static private final int measuredCyclesCount = 100_000;
+	
+	/* Measuring the allocated memory may itself allocate a few bytes, way less than one byte per cycle */
+	static private final long toleratedAllocatedBytes = 1024;
+	
+	private final com.sun.management.ThreadMXBean threadMXBean;
+	private final Car[] cars;
+	private Parking parking;
+	
+	/**
+	 * Instantiates a new allocation free parking test.
+	 */
+	AllocationFreeParkingTest() {
+		this.threadMXBean = (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null);
+		this.cars = new Car[] {
+			new DefaultCar("AI-241-SP", Car.Type.GASOLINE),
+			new DefaultCar("8545 TY 68", Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY),
+			new DefaultCar(null, Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY),
+			new DefaultCar("NG-289-SP", Car.Type.GASOLINE)
+		};
+		this.parking = null;
+	}
+	
+	/**
+	 * Called just before each test method.
+	 * <p>Create or recreate the parking to test, with the default clock and the default pricing policy.</p>
+	 */
+	@BeforeEach
+	void setUp() throws Exception {
+		assumeTrue((this.threadMXBean != null) && this.threadMXBean.isThreadAllocatedMemorySupported());
+		this.threadMXBean.setThreadAllocatedMemoryEnabled(true);
+		
+		this.parking = Parking.create(new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 1000);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 200);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 150);
+		}}, new DefaultPricingPolicy(0.0f, 1.5f));
+	}
+	
+	/**
+	 * Called just after each test method.
+	 * <p>Dispose the parking to test.</p>
+	 */
+	@AfterEach
+	final void tearDown() throws Exception {
+		this.parking = null;
+	}
+	
+	/**
+	 * Park, check and unpark all the cars once.
+	 * @param returnSlotId true to park cars with {@link Parking#park(Car)}, false to park them with {@link Parking#parkAndGetSlot(Car)}
+	 * @return the total bill, to make sure nothing is optimized away
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	private float cycle(boolean returnSlotId) throws ParkingException {
+		float totalBill = 0.0f;
+		
+		for (Car car: this.cars) {
+			Object slot = (returnSlotId ? this.parking.park(car) : this.parking.parkAndGetSlot(car));
+			
+			if ((slot != null) && this.parking.isParked(car)) {
+				totalBill += this.parking.unparkAndBill(car);
+			}
+		}
+		
+		return totalBill;
+	}
+	
+	/**
+	 * Measure the memory allocated by the current thread while cycling.
+	 * @param returnSlotId true to park cars with {@link Parking#park(Car)}, false to park them with {@link Parking#parkAndGetSlot(Car)}
+	 * @return the allocated bytes
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	private long measureAllocatedBytes(boolean returnSlotId) throws ParkingException {
+		long threadId = Thread.currentThread().getId();
+		float totalBill = 0.0f;
+		
+		for (int cycleIndex = 0; cycleIndex < warmUpCyclesCount; cycleIndex++) {
+			totalBill += cycle(returnSlotId);
+		}
+		
+		long allocatedBytesBefore = this.threadMXBean.getThreadAllocatedBytes(threadId);
+		
+		for (int cycleIndex = 0; cycleIndex < measuredCyclesCount; cycleIndex++) {
+			totalBill += cycle(returnSlotId);
+		}
+		
+		long allocatedBytes = this.threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+		
+		assertEquals(0.0f, totalBill); // Cars are parked less than one hour
+		
+		return allocatedBytes;
+	}
+	
+	/**
+	 * Test checking that parking with {@link Parking#parkAndGetSlot(Car)}, checking and unparking cars does not allocate memory.
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Test
+	void parkAndGetSlotDoesNotAllocateTest() throws ParkingException {
+		long allocatedBytes = measureAllocatedBytes(false);
+		
+		assertTrue(allocatedBytes <= toleratedAllocatedBytes, allocatedBytes + " bytes allocated for " + measuredCyclesCount + " cycles");
+	}
+	
+	/**
+	 * Test checking that parking with {@link Parking#park(Car)}, checking and unparking cars does not allocate memory once the slot ids have been built.
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Test
+	void parkDoesNotAllocateTest() throws ParkingException {
+		long allocatedBytes = measureAllocatedBytes(true);
+		
+		assertTrue(allocatedBytes <= toleratedAllocatedBytes, allocatedBytes + " bytes allocated for " + measuredCyclesCount + " cycles");
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.AsyncParking;
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.PricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a parking, plus unittests on its asynchronous facade.
+ * @see AsyncParking#create(Parking, java.util.concurrent.Executor)
+ */
+final class AsyncParkingTest extends ParkingTestBase {
+	static private final String slowRegistrationNumber = "SL-000-OW";
+	static private final int orderedOperationsCount = 1_000;
+	static private final long timeoutSeconds = 10;
+	
+	/**
+	 * The pricing policy blocking the billing of the car with the slow registration number until it is released.
+	 * <p>The test instance, and so the pricing policy, is shared by all the test methods: the policy is reset each time the parking to test is created.</p>
+	 */
+	static private final class SlowPricingPolicy implements PricingPolicy {
+		private final PricingPolicy pricingPolicy;
+		private volatile CountDownLatch releaseLatch;
+		private volatile CountDownLatch billingLatch;
+		
+		/**
+		 * Instantiates a new slow pricing policy.
+		 */
+		SlowPricingPolicy() {
+			this.pricingPolicy = new DefaultPricingPolicy(0.0f, 0.7f);
+			reset();
+		}
+		
+		/**
+		 * Reset the policy so that the next billing of the car with the slow registration number blocks again.
+		 */
+		void reset() {
+			this.releaseLatch = new CountDownLatch(1);
+			this.billingLatch = new CountDownLatch(1);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * <p>Blocks until {@link #release()} is called if the car has the slow registration number.</p>
+		 */
+		@Override
+		public float bill(Car car, Instant arrivalInstant, Instant departureInstant) {
+			if (slowRegistrationNumber.equals(car.getRegistrationNumber())) {
+				this.billingLatch.countDown();
+				try {
+					this.releaseLatch.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			
+			return this.pricingPolicy.bill(car, arrivalInstant, departureInstant);
+		}
+		
+		/**
+		 * Wait for the car with the slow registration number to be billed.
+		 * @throws InterruptedException if the current thread is interrupted while waiting
+		 */
+		void awaitBilling() throws InterruptedException {
+			assertTrue(this.billingLatch.await(timeoutSeconds, TimeUnit.SECONDS));
+		}
+		
+		/**
+		 * Release the billing of the car with the slow registration number.
+		 */
+		void release() {
+			this.releaseLatch.countDown();
+		}
+	}
+	
+	private SlowPricingPolicy pricingPolicy;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new SlowPricingPolicy();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Parking createParking(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, ClockMock clock) {
+		this.pricingPolicy = (SlowPricingPolicy) pricingPolicy;
+		this.pricingPolicy.reset();
+		
+		return super.createParking(carTypeToSlotsCount, pricingPolicy, clock);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Wait for an operation to complete.
+	 * @param <V> the operation result type
+	 * @param operation the future result of the operation, not null
+	 * @return the operation result
+	 * @throws Exception if the operation failed or has not completed in time
+	 */
+	static private <V> V await(CompletableFuture<V> operation) throws Exception {
+		return operation.get(timeoutSeconds, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Test parking, testing and unparking cars asynchronously, including the failures of the parking operations.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void asyncNominalTest() throws Exception {
+		AsyncParking asyncParking = AsyncParking.create(this.parking);
+		Car car = new DefaultCar("AI-241-SP", Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY);
+		
+		assertEquals(this.parking, asyncParking.getParking());
+		assertNotNull(await(asyncParking.park(car)));
+		assertTrue(await(asyncParking.isParked(car)));
+		
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> await(asyncParking.park(car)));
+		
+		assertInstanceOf(ParkingException.class, exception.getCause());
+		for (int registrationIndex = 0; registrationIndex < getSlotsCountForCarType(car.getType()) - 1; registrationIndex++) {
+			assertNotNull(await(asyncParking.park(new DefaultCar(Integer.toString(registrationIndex), car.getType()))));
+		}
+		assertNull(await(asyncParking.park(new DefaultCar(null, car.getType()))));
+		
+		this.clock.increment(Duration.ofHours(2));
+		assertEquals(1.4f, await(asyncParking.unparkAndBill(car)));
+		assertFalse(await(asyncParking.isParked(car)));
+		exception = assertThrows(ExecutionException.class, () -> await(asyncParking.unparkAndBill(car)));
+		assertInstanceOf(ParkingException.class, exception.getCause());
+	}
+	
+	/**
+	 * Test checking that operations on the same registration number run in the order they are submitted, even on an executor with many threads.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void orderedOperationsTest() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		
+		try {
+			AsyncParking asyncParking = AsyncParking.create(this.parking, executor);
+			Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+			List<CompletableFuture<?>> operations = new ArrayList<CompletableFuture<?>>();
+			
+			// Each park would fail if it were run before the previous unpark, and each unpark if it were run before the previous park
+			for (int operationIndex = 0; operationIndex < orderedOperationsCount; operationIndex++) {
+				operations.add(asyncParking.park(car));
+				operations.add(asyncParking.isParked(car));
+				operations.add(asyncParking.unparkAndBill(car));
+			}
+			for (int operationIndex = 0; operationIndex < operations.size(); operationIndex += 3) {
+				assertNotNull(await(operations.get(operationIndex)));
+				assertEquals(Boolean.TRUE, await(operations.get(operationIndex + 1)));
+				assertEquals(0.0f, await(operations.get(operationIndex + 2)));
+			}
+			assertFalse(await(asyncParking.isParked(car)));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Test checking that cancelling an operation while it runs does not start the next operation on the same registration number early.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void cancelledOperationOrderingTest() throws Exception {
+		AsyncParking asyncParking = AsyncParking.create(this.parking);
+		Car slowCar = new DefaultCar(slowRegistrationNumber, Car.Type.GASOLINE);
+		
+		try {
+			assertNotNull(await(asyncParking.park(slowCar)));
+			
+			CompletableFuture<Float> slowBilling = asyncParking.unparkAndBill(slowCar);
+			
+			this.pricingPolicy.awaitBilling();
+			assertTrue(slowBilling.cancel(false));
+			
+			// The park would fail if it were run before the unpark still blocked in the pricing policy
+			CompletableFuture<String> slowParking = asyncParking.park(slowCar);
+			
+			assertThrows(TimeoutException.class, () -> slowParking.get(100, TimeUnit.MILLISECONDS));
+			
+			this.pricingPolicy.release();
+			assertNotNull(await(slowParking));
+			assertTrue(await(asyncParking.isParked(slowCar)));
+		} finally {
+			this.pricingPolicy.release();
+		}
+	}
+	
+	/**
+	 * Test checking that a car whose billing is slow only holds up the operations on its own registration number.
+	 * @param asyncParking the async parking to test, not null
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	private void slowPricingTest(AsyncParking asyncParking) throws Exception {
+		Car slowCar = new DefaultCar(slowRegistrationNumber, Car.Type.GASOLINE);
+		
+		assertNotNull(await(asyncParking.park(slowCar)));
+		
+		CompletableFuture<Float> slowBilling = asyncParking.unparkAndBill(slowCar);
+		CompletableFuture<String> slowParking = asyncParking.park(slowCar);
+		
+		this.pricingPolicy.awaitBilling();
+		for (int registrationIndex = 0; registrationIndex < 20; registrationIndex++) {
+			Car car = new DefaultCar(Integer.toString(registrationIndex), Car.Type.values()[registrationIndex % 3]);
+			
+			assertNotNull(await(asyncParking.park(car)));
+			assertEquals(0.0f, await(asyncParking.unparkAndBill(car)));
+		}
+		assertFalse(slowBilling.isDone());
+		assertFalse(slowParking.isDone());
+		
+		this.pricingPolicy.release();
+		assertEquals(0.0f, await(slowBilling));
+		assertNotNull(await(slowParking));
+	}
+	
+	/**
+	 * Test checking that a car whose billing is slow does not hold up the other cars on the default executor.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void slowPricingOnDefaultExecutorTest() throws Exception {
+		try {
+			slowPricingTest(AsyncParking.create(this.parking));
+		} finally {
+			this.pricingPolicy.release();
+		}
+	}
+	
+	/**
+	 * Test checking that a car whose billing is slow does not hold up the other cars on a custom executor.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void slowPricingOnCustomExecutorTest() throws Exception {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		
+		try {
+			slowPricingTest(AsyncParking.create(this.parking, executor));
+		} finally {
+			this.pricingPolicy.release();
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.BillTicket;
+import parking.api.BillingPipeline;
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.PricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a parking, plus unittests on the unparking of cars billed later by a billing pipeline.
+ * @see BillingPipeline#create(Parking, int, int)
+ * @see Parking#unpark(Car)
+ */
+final class BillingPipelineParkingTest extends ParkingTestBase {
+	static private final String slowRegistrationNumber = "SL-000-OW";
+	static private final long timeoutSeconds = 10;
+	
+	/**
+	 * The pricing policy blocking the billing of the car with the slow registration number until it is released.
+	 * <p>The test instance, and so the pricing policy, is shared by all the test methods: the policy is reset each time the parking to test is created.</p>
+	 */
+	static private final class SlowPricingPolicy implements PricingPolicy {
+		private final PricingPolicy pricingPolicy;
+		private volatile CountDownLatch releaseLatch;
+		private volatile CountDownLatch billingLatch;
+		
+		/**
+		 * Instantiates a new slow pricing policy.
+		 */
+		SlowPricingPolicy() {
+			this.pricingPolicy = new DefaultPricingPolicy(0.0f, 0.7f);
+			reset();
+		}
+		
+		/**
+		 * Reset the policy so that the next billing of the car with the slow registration number blocks again.
+		 */
+		void reset() {
+			this.releaseLatch = new CountDownLatch(1);
+			this.billingLatch = new CountDownLatch(1);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * <p>Blocks until {@link #release()} is called if the car has the slow registration number.</p>
+		 */
+		@Override
+		public float bill(Car car, Instant arrivalInstant, Instant departureInstant) {
+			if (slowRegistrationNumber.equals(car.getRegistrationNumber())) {
+				this.billingLatch.countDown();
+				try {
+					this.releaseLatch.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			
+			return this.pricingPolicy.bill(car, arrivalInstant, departureInstant);
+		}
+		
+		/**
+		 * Wait for the car with the slow registration number to be billed.
+		 * @throws InterruptedException if the current thread is interrupted while waiting
+		 */
+		void awaitBilling() throws InterruptedException {
+			assertTrue(this.billingLatch.await(timeoutSeconds, TimeUnit.SECONDS));
+		}
+		
+		/**
+		 * Release the billing of the car with the slow registration number.
+		 */
+		void release() {
+			this.releaseLatch.countDown();
+		}
+	}
+	
+	private SlowPricingPolicy pricingPolicy;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new SlowPricingPolicy();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Parking createParking(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, ClockMock clock) {
+		this.pricingPolicy = (SlowPricingPolicy) pricingPolicy;
+		this.pricingPolicy.reset();
+		
+		return super.createParking(carTypeToSlotsCount, pricingPolicy, clock);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Wait for the price of a ticket.
+	 * @param ticket the ticket, not null
+	 * @return the price
+	 * @throws Exception if billing failed or the ticket has not been billed in time
+	 */
+	static private float await(BillTicket ticket) throws Exception {
+		return ticket.getPrice().get(timeoutSeconds, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Test unparking cars then billing their tickets, on a plain and on a sharded parking, including tickets billed twice, forged tickets
+	 * and a departure occurring before the arrival.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void unparkThenBillTest() throws Exception {
+		for (Parking parking: new Parking[] { this.parking, Parking.createSharded(computeCarTypeToSlotsCount(), this.pricingPolicy, this.clock, 4) }) {
+			Car car = new DefaultCar("AI-241-SP", Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY);
+			
+			assertNotNull(parking.park(car));
+			this.clock.increment(Duration.ofHours(2));
+			
+			BillTicket ticket = parking.unpark(car);
+			
+			assertFalse(parking.isParked(car));
+			assertEquals(car, ticket.getCar());
+			assertEquals(Duration.ofHours(2).toMillis(), ticket.getDepartureEpochMillis() - ticket.getArrivalEpochMillis());
+			assertFalse(ticket.getPrice().isDone());
+			assertThrows(ParkingException.class, () -> parking.unpark(car));
+			assertEquals(1.4f, parking.bill(ticket));
+			assertEquals(1.4f, await(ticket));
+			assertThrows(ParkingException.class, () -> parking.bill(ticket));
+			assertEquals(1.4f, await(ticket));
+			
+			BillTicket forgedTicket = new BillTicket(new Object(), car, car.getRegistrationNumber(), ticket.getArrivalEpochMillis(), ticket.getDepartureEpochMillis());
+			
+			assertThrows(ParkingException.class, () -> parking.bill(forgedTicket));
+			assertFalse(forgedTicket.getPrice().isDone());
+			
+			// The departure occurs before the arrival when the clock goes backward
+			assertNotNull(parking.park(car));
+			this.clock.increment(Duration.ofHours(-1));
+			
+			BillTicket backwardTicket = parking.unpark(car);
+			
+			this.clock.increment(Duration.ofHours(1));
+			assertThrows(ParkingException.class, () -> parking.bill(backwardTicket));
+			
+			ExecutionException exception = assertThrows(ExecutionException.class, () -> await(backwardTicket));
+			
+			assertInstanceOf(ParkingException.class, exception.getCause());
+		}
+	}
+	
+	/**
+	 * Test checking that the tickets of the cars unparked through a pipeline are all billed, the pending ones being billed when the pipeline is closed.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void pipelineNominalTest() throws Exception {
+		List<BillTicket> tickets = new ArrayList<BillTicket>();
+		BillingPipeline billingPipeline = BillingPipeline.create(this.parking, 16, 4);
+		
+		try {
+			assertEquals(this.parking, billingPipeline.getParking());
+			for (int registrationIndex = 0; registrationIndex < 100; registrationIndex++) {
+				assertNotNull(this.parking.park(new DefaultCar(Integer.toString(registrationIndex), Car.Type.GASOLINE)));
+			}
+			this.clock.increment(Duration.ofMinutes(90));
+			for (int registrationIndex = 0; registrationIndex < 100; registrationIndex++) {
+				tickets.add(billingPipeline.unpark(new DefaultCar(Integer.toString(registrationIndex), Car.Type.GASOLINE)));
+			}
+			assertThrows(ParkingException.class, () -> billingPipeline.unpark(new DefaultCar("0", Car.Type.GASOLINE)));
+		} finally {
+			billingPipeline.close();
+		}
+		
+		for (BillTicket ticket: tickets) {
+			assertTrue(ticket.getPrice().isDone());
+			assertEquals(0.7f, await(ticket));
+		}
+		assertEquals(0, billingPipeline.getPendingTicketsCount());
+		assertThrows(IllegalStateException.class, () -> billingPipeline.unpark(new DefaultCar("0", Car.Type.GASOLINE)));
+		billingPipeline.close();
+		assertThrows(IllegalArgumentException.class, () -> BillingPipeline.create(this.parking, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> BillingPipeline.create(this.parking, 1, 0));
+	}
+	
+	/**
+	 * Test checking that a gate interrupted while waiting for room in the pipeline rejects the ticket instead of billing it.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void interruptedGateTest() throws Exception {
+		BillingPipeline billingPipeline = BillingPipeline.create(this.parking, 1, 1);
+		
+		try {
+			Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+			
+			assertNotNull(this.parking.park(car));
+			Thread.currentThread().interrupt();
+			
+			BillTicket ticket = billingPipeline.unpark(car);
+			
+			assertTrue(Thread.interrupted());
+			assertFalse(this.parking.isParked(car));
+			
+			ExecutionException exception = assertThrows(ExecutionException.class, () -> await(ticket));
+			
+			assertInstanceOf(InterruptedException.class, exception.getCause());
+		} finally {
+			billingPipeline.close();
+		}
+	}
+	
+	/**
+	 * Test checking that a slow pricing policy does not hold up the exit of the cars until the pipeline is full, then slows down the exits.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void slowPricingBackpressureTest() throws Exception {
+		BillingPipeline billingPipeline = BillingPipeline.create(this.parking, 1, 1);
+		
+		try {
+			Car slowCar = new DefaultCar(slowRegistrationNumber, Car.Type.GASOLINE);
+			Car queuedCar = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+			Car blockedCar = new DefaultCar("8545 TY 68", Car.Type.GASOLINE);
+			
+			assertNotNull(this.parking.park(slowCar));
+			assertNotNull(this.parking.park(queuedCar));
+			assertNotNull(this.parking.park(blockedCar));
+			
+			BillTicket slowTicket = billingPipeline.unpark(slowCar);
+			
+			// The pricing thread is stuck on the slow car while its slot is already released
+			this.pricingPolicy.awaitBilling();
+			assertFalse(this.parking.isParked(slowCar));
+			
+			BillTicket queuedTicket = billingPipeline.unpark(queuedCar);
+			
+			assertEquals(1, billingPipeline.getPendingTicketsCount());
+			
+			CompletableFuture<BillTicket> blockedUnpark = CompletableFuture.supplyAsync(() -> {
+				try {
+					return billingPipeline.unpark(blockedCar);
+				} catch (ParkingException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			
+			// The blocked car slot is released before its ticket waits for room in the pipeline
+			while (this.parking.isParked(blockedCar)) {
+				Thread.sleep(1L);
+			}
+			Thread.sleep(50L);
+			assertFalse(blockedUnpark.isDone());
+			assertFalse(slowTicket.getPrice().isDone());
+			
+			this.pricingPolicy.release();
+			assertEquals(0.0f, await(slowTicket));
+			assertEquals(0.0f, await(queuedTicket));
+			assertEquals(0.0f, await(blockedUnpark.get(timeoutSeconds, TimeUnit.SECONDS)));
+		} finally {
+			this.pricingPolicy.release();
+			billingPipeline.close();
+		}
+	}
+}
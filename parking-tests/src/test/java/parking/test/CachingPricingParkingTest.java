@@ -0,0 +1,147 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.CachingPricingPolicy;
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.PricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a parking whose pricing policy is memoized, plus unittests on the memoization.
+ * @see CachingPricingPolicy
+ */
+final class CachingPricingParkingTest extends ParkingTestBase {
+	static private final long millisPerHour = Duration.ofHours(1).toMillis();
+	
+	/**
+	 * The pricing policy billing a fixed amount per started hour and counting its calls.
+	 * <p>Declares a one hour granularity: the price is the same for all the durations in the same hour bucket except for the exact hours,
+	 * which makes the durations billed by the policy and the memoized ones distinguishable.</p>
+	 */
+	static private final class CountingPricingPolicy implements PricingPolicy {
+		private final AtomicInteger callsCount = new AtomicInteger();
+		
+		/**
+		 * {@inheritDoc}
+		 * <p>Bills one per completed hour plus one if the duration is not an exact number of hours.</p>
+		 */
+		@Override
+		public float bill(Car car, Instant arrivalInstant, Instant departureInstant) {
+			long parkingDurationMillis = Duration.between(arrivalInstant, departureInstant).toMillis();
+			
+			this.callsCount.incrementAndGet();
+			return (parkingDurationMillis / millisPerHour) + ((parkingDurationMillis % millisPerHour) == 0L ? 0.0f : 1.0f) + 10.0f * car.getType().ordinal();
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long getBillingGranularityMillis() {
+			return millisPerHour;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new CachingPricingPolicy(new DefaultPricingPolicy(0.0f, 0.7f), 64);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Test checking that the prices of the same car type and duration bucket are only billed once by the decorated policy.
+	 */
+	@Test
+	void memoizedPricesTest() {
+		CountingPricingPolicy countingPricingPolicy = new CountingPricingPolicy();
+		CachingPricingPolicy cachingPricingPolicy = new CachingPricingPolicy(countingPricingPolicy, 1000);
+		Car gasolineCar = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		Car electricCar = new DefaultCar("8545 TY 68", Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY);
+		
+		assertEquals(1024, cachingPricingPolicy.getCapacity());
+		assertEquals(millisPerHour, cachingPricingPolicy.getBillingGranularityMillis());
+		assertEquals(2.0f, cachingPricingPolicy.bill(gasolineCar, 0L, millisPerHour + 1L));
+		assertEquals(2.0f, cachingPricingPolicy.bill(gasolineCar, 10L, 2 * millisPerHour));
+		assertEquals(2.0f, cachingPricingPolicy.bill(gasolineCar, Instant.EPOCH, Instant.EPOCH.plusMillis(millisPerHour)));
+		assertEquals(22.0f, cachingPricingPolicy.bill(electricCar, 0L, millisPerHour + 1L));
+		assertEquals(0.0f, cachingPricingPolicy.bill(gasolineCar, 0L, 0L));
+		assertEquals(0.0f, cachingPricingPolicy.bill(gasolineCar, 0L, 0L));
+		
+		assertEquals(3, countingPricingPolicy.callsCount.get());
+		assertEquals(3, cachingPricingPolicy.getHitsCount());
+		assertEquals(3, cachingPricingPolicy.getMissesCount());
+		assertEquals(0, cachingPricingPolicy.getEvictionsCount());
+	}
+	
+	/**
+	 * Test checking that the memoized prices are bounded by the capacity, older prices being evicted.
+	 */
+	@Test
+	void evictedPricesTest() {
+		CountingPricingPolicy countingPricingPolicy = new CountingPricingPolicy();
+		CachingPricingPolicy cachingPricingPolicy = new CachingPricingPolicy(countingPricingPolicy, 4);
+		Car car = new DefaultCar("AI-241-SP", Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY);
+		int bucketsCount = 100;
+		
+		for (int roundIndex = 0; roundIndex < 2; roundIndex++) {
+			for (int bucketIndex = 0; bucketIndex < bucketsCount; bucketIndex++) {
+				assertEquals(bucketIndex + 11.0f, cachingPricingPolicy.bill(car, 0L, bucketIndex * millisPerHour + 1L));
+			}
+		}
+		
+		assertEquals(2 * bucketsCount, cachingPricingPolicy.getHitsCount() + cachingPricingPolicy.getMissesCount());
+		assertEquals(cachingPricingPolicy.getMissesCount(), countingPricingPolicy.callsCount.get());
+		// Each miss fills an empty entry or evicts a memoized price
+		assertTrue(cachingPricingPolicy.getMissesCount() - cachingPricingPolicy.getEvictionsCount() <= cachingPricingPolicy.getCapacity());
+		assertTrue(cachingPricingPolicy.getMissesCount() >= 2 * (bucketsCount - cachingPricingPolicy.getCapacity()));
+	}
+	
+	/**
+	 * Test checking that pricing policies which do not declare their billing granularity cannot be memoized.
+	 */
+	@Test
+	void invalidCachingPricingPolicyTest() {
+		assertThrows(IllegalArgumentException.class, () -> new CachingPricingPolicy((car, arrivalInstant, departureInstant) -> 1.0f, 16));
+		assertThrows(IllegalArgumentException.class, () -> new CachingPricingPolicy(new DefaultPricingPolicy(0.0f, 0.7f), 0));
+	}
+}
@@ -17,6 +17,12 @@ final class ClockMock implements Clock {
 	/** The instant. */
 	private Instant instant;
 	
+	/** The exception thrown once the successful reads are exhausted, null if the clock does not fail. */
+	private RuntimeException failure;
+	
+	/** The number of reads which still succeed before the failure is thrown. */
+	private int successfulReadsCount;
+	
 	/**
 	 * Instantiates a new clock mock.
 	 */
@@ -27,12 +33,26 @@ final class ClockMock implements Clock {
 	/**
 	 * The current instant.
 	 * @return the instant, not null
+	 * @throws RuntimeException the failure of the clock, once its successful reads are exhausted
 	 */
 	@Override
 	public Instant instant() {
+		if ((this.failure != null) && (this.successfulReadsCount-- <= 0)) {
+			throw this.failure;
+		}
 		return this.instant;
 	}
 	
+	/**
+	 * Make the clock fail after a number of successful reads.
+	 * @param failure the exception thrown by the reads following the successful ones, null for the clock not to fail anymore
+	 * @param successfulReadsCount the number of reads which still succeed
+	 */
+	public void setFailure(RuntimeException failure, int successfulReadsCount) {
+		this.failure = failure;
+		this.successfulReadsCount = successfulReadsCount;
+	}
+	
 	/**
 	 * Sets the current instant.
 	 * @param  the new current instant, not null
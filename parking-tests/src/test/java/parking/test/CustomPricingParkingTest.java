@@ -17,7 +17,7 @@ import parking.api.PricingPolicy;
  * @see CustomPricingPolicy#bill(Car, Instant, Instant)
  */
 final class CustomPricingParkingTest extends ParkingTestBase {
-	static private final Map<Car.Type, Map<Duration, Float>> carTypeToparkingDurationToExpectedPrice = new HashMap<Car.Type, Map<Duration, Float>>() {
+	static final Map<Car.Type, Map<Duration, Float>> carTypeToparkingDurationToExpectedPrice = new HashMap<Car.Type, Map<Duration, Float>>() {
 		private static final long serialVersionUID = 1L;
 	{
 		put(Car.Type.GASOLINE, new HashMap<Duration, Float>() {
@@ -0,0 +1,85 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.EpochMillisPricingPolicy;
+import parking.api.PricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a parking with a custom pricing policy working on primitive instants.
+ * <p>The pricing policy bills cars as the one of {@link CustomPricingParkingTest}, so the same prices are expected.</p>
+ * @see EpochMillisCustomPricingPolicy#bill(Car, long, long)
+ */
+final class EpochMillisPricingParkingTest extends ParkingTestBase {
+	/**
+	 * The pricing policy billing gasoline and electrical cars differently, from the arrival and departure epoch milliseconds.
+	 */
+	static final class EpochMillisCustomPricingPolicy implements EpochMillisPricingPolicy {
+		static private final long freeMillis = Duration.ofMinutes(30).toMillis();
+		
+		/**
+		 * Bill a car according its arrival and departure instants.
+		 * <p>Same algorithm as {@link CustomPricingParkingTest.CustomPricingPolicy#bill(Car, java.time.Instant, java.time.Instant)}.</p>
+		 * @param car the car to bill
+		 * @param arrivalEpochMillis the arrival instant in milliseconds from the epoch, before the departure instant
+		 * @param departureEpochMillis the departure instant in milliseconds from the epoch, after the arrival instant
+		 * @return the price to pay to leave the parking
+		 */
+		@Override
+		public float bill(Car car, long arrivalEpochMillis, long departureEpochMillis) {
+			long parkingDurationMillis = departureEpochMillis - arrivalEpochMillis;
+			float occupationAmount = (parkingDurationMillis < freeMillis ? 0.0f : 5.0f);
+			float electricalAmountPerSecond;
+			
+			switch (car.getType()) {
+			case ELECTRIC_WITH_20kW_POWER_SUPPLY:
+				electricalAmountPerSecond = 0.0005f;
+				break;
+			case ELECTRIC_WITH_50kW_POWER_SUPPLY:
+				electricalAmountPerSecond = 0.001f;
+				break;
+			default: // GASOLINE
+				electricalAmountPerSecond = 0.0f;
+			}
+			
+			return occupationAmount + (parkingDurationMillis / 1000L) * electricalAmountPerSecond;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 42);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 11);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new EpochMillisCustomPricingPolicy();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return CustomPricingParkingTest.carTypeToparkingDurationToExpectedPrice.get(car.getType()).getOrDefault(parkingDuration, -1.0f);
+	}
+}
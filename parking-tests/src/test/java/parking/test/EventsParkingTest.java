@@ -0,0 +1,335 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.BillTicket;
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingEvent;
+import parking.api.PricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a parking, plus unittests on the stream of its events.
+ * @see Parking#events()
+ */
+final class EventsParkingTest extends ParkingTestBase {
+	static private final long timeoutSeconds = 10;
+	
+	/**
+	 * The subscriber recording the events it receives, requesting a given number of events when subscribing.
+	 */
+	static private final class RecordingSubscriber implements Flow.Subscriber<ParkingEvent> {
+		private final long initialRequest;
+		private final BlockingQueue<ParkingEvent> events;
+		private final CompletableFuture<Flow.Subscription> subscription;
+		private final CompletableFuture<Throwable> error;
+		
+		/**
+		 * Instantiates a new recording subscriber.
+		 * @param initialRequest the number of events requested when subscribing
+		 */
+		RecordingSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+			this.events = new LinkedBlockingQueue<ParkingEvent>();
+			this.subscription = new CompletableFuture<Flow.Subscription>();
+			this.error = new CompletableFuture<Throwable>();
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription.complete(subscription);
+			subscription.request(this.initialRequest);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onNext(ParkingEvent event) {
+			this.events.add(event);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onError(Throwable throwable) {
+			this.error.complete(throwable);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onComplete() {
+			this.error.completeExceptionally(new IllegalStateException("Parking events must never complete"));
+		}
+		
+		/**
+		 * Wait for the subscription.
+		 * @return the subscription, not null
+		 * @throws Exception if the subscriber has not been subscribed in time
+		 */
+		Flow.Subscription awaitSubscription() throws Exception {
+			return this.subscription.get(timeoutSeconds, TimeUnit.SECONDS);
+		}
+		
+		/**
+		 * Wait for the next event.
+		 * @return the event, not null
+		 * @throws InterruptedException if the current thread is interrupted while waiting
+		 */
+		ParkingEvent awaitEvent() throws InterruptedException {
+			ParkingEvent event = this.events.poll(timeoutSeconds, TimeUnit.SECONDS);
+			
+			assertNotNull(event);
+			
+			return event;
+		}
+		
+		/**
+		 * Wait for the error.
+		 * @return the error, not null
+		 * @throws Exception if no error has been received in time
+		 */
+		Throwable awaitError() throws Exception {
+			return this.error.get(timeoutSeconds, TimeUnit.SECONDS);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new DefaultPricingPolicy(0.0f, 0.7f);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Test checking that a subscriber receives the park, unpark and billing events published after it subscribed, in order.
+	 * @param parking the parking to test, not null
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	private void eventsNominalTest(Parking parking) throws Exception {
+		Car earlyCar = new DefaultCar("8545 TY 68", Car.Type.GASOLINE);
+		Car car = new DefaultCar("AI-241-SP", Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY);
+		
+		assertNotNull(parking.park(earlyCar));
+		assertSame(parking.events(), parking.events());
+		
+		RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+		
+		parking.events().subscribe(subscriber);
+		subscriber.awaitSubscription();
+		
+		long arrivalEpochMillis = this.clock.millis();
+		String slotId = parking.park(car);
+		ParkingEvent parkedEvent = subscriber.awaitEvent();
+		
+		assertEquals(ParkingEvent.Type.PARKED, parkedEvent.getType());
+		assertEquals(car.getRegistrationNumber(), parkedEvent.getRegistrationNumber());
+		assertEquals(car.getType(), parkedEvent.getCarType());
+		assertEquals(slotId, parkedEvent.getSlotId());
+		assertEquals(arrivalEpochMillis, parkedEvent.getArrivalEpochMillis());
+		assertEquals(0L, parkedEvent.getSkippedEventsCount());
+		
+		this.clock.increment(Duration.ofHours(2));
+		assertEquals(1.4f, parking.unparkAndBill(car));
+		
+		ParkingEvent unparkedEvent = subscriber.awaitEvent();
+		ParkingEvent billedEvent = subscriber.awaitEvent();
+		
+		assertEquals(ParkingEvent.Type.UNPARKED, unparkedEvent.getType());
+		assertEquals(parkedEvent.getSequence() + 1, unparkedEvent.getSequence());
+		assertEquals(slotId, unparkedEvent.getSlotId());
+		assertEquals(arrivalEpochMillis + Duration.ofHours(2).toMillis(), unparkedEvent.getDepartureEpochMillis());
+		assertTrue(Float.isNaN(unparkedEvent.getAmount()));
+		assertEquals(ParkingEvent.Type.BILLED, billedEvent.getType());
+		assertNull(billedEvent.getSlot());
+		assertEquals(unparkedEvent.getDepartureEpochMillis(), billedEvent.getDepartureEpochMillis());
+		assertEquals(1.4f, billedEvent.getAmount());
+		
+		// Unparking and billing later publishes the same events, the billing one when the ticket is billed
+		BillTicket ticket = parking.unpark(earlyCar);
+		
+		assertEquals(ParkingEvent.Type.UNPARKED, subscriber.awaitEvent().getType());
+		parking.bill(ticket);
+		assertEquals(earlyCar.getRegistrationNumber(), subscriber.awaitEvent().getRegistrationNumber());
+		subscriber.awaitSubscription().cancel();
+	}
+	
+	/**
+	 * Test checking that a subscriber receives the events published after it subscribed, in order.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void eventsNominalTest() throws Exception {
+		eventsNominalTest(this.parking);
+	}
+	
+	/**
+	 * Test checking that a subscriber receives the events of all the shards of a sharded parking.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void shardedEventsNominalTest() throws Exception {
+		eventsNominalTest(Parking.createSharded(computeCarTypeToSlotsCount(), computePricingPolicy(), this.clock, 4));
+	}
+	
+	/**
+	 * Test checking that a subscriber which does not request events does not hold up the gates, and skips the events overwritten in the meantime.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void slowSubscriberTest() throws Exception {
+		RecordingSubscriber subscriber = new RecordingSubscriber(1L);
+		Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		
+		this.parking.events().subscribe(subscriber);
+		subscriber.awaitSubscription();
+		assertNotNull(this.parking.park(car));
+		assertEquals(0L, subscriber.awaitEvent().getSequence());
+		
+		// Three events per car, far more than the ring keeps
+		for (int carIndex = 0; carIndex < 10000; carIndex++) {
+			this.parking.unparkAndBill(car);
+			this.parking.park(car);
+		}
+		subscriber.awaitSubscription().request(1L);
+		
+		ParkingEvent event = subscriber.awaitEvent();
+		
+		assertTrue(event.getSkippedEventsCount() > 0L);
+		assertEquals(event.getSequence() - 1L, event.getSkippedEventsCount());
+		subscriber.awaitSubscription().cancel();
+	}
+	
+	/**
+	 * Test checking that a subscriber throwing from onNext is cancelled without being called again, not even by onError, the exception being left to
+	 * the uncaught exception handler of the subscription thread.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void throwingSubscriberTest() throws Exception {
+		Thread.UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+		CompletableFuture<Throwable> uncaughtException = new CompletableFuture<Throwable>();
+		
+		Thread.setDefaultUncaughtExceptionHandler((thread, exception) -> uncaughtException.complete(exception));
+		try {
+			throwingSubscriberTest(uncaughtException);
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+		}
+	}
+	
+	/**
+	 * Test checking that a subscriber throwing from onNext is cancelled without being called again, not even by onError.
+	 * @param uncaughtException the exception left to the uncaught exception handler, not null
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	private void throwingSubscriberTest(CompletableFuture<Throwable> uncaughtException) throws Exception {
+		AtomicInteger eventsCount = new AtomicInteger();
+		CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<Flow.Subscription>();
+		CompletableFuture<Throwable> error = new CompletableFuture<Throwable>();
+		
+		this.parking.events().subscribe(new Flow.Subscriber<ParkingEvent>() {
+			@Override
+			public void onSubscribe(Flow.Subscription newSubscription) {
+				subscription.complete(newSubscription);
+				newSubscription.request(Long.MAX_VALUE);
+			}
+			
+			@Override
+			public void onNext(ParkingEvent event) {
+				eventsCount.incrementAndGet();
+				throw new IllegalStateException("Subscriber failure");
+			}
+			
+			@Override
+			public void onError(Throwable throwable) {
+				error.complete(throwable);
+			}
+			
+			@Override
+			public void onComplete() {
+				error.complete(null);
+			}
+		});
+		subscription.get(timeoutSeconds, TimeUnit.SECONDS);
+		
+		assertNotNull(this.parking.park(new DefaultCar("AI-241-SP", Car.Type.GASOLINE)));
+		while (eventsCount.get() == 0) {
+			Thread.sleep(1L);
+		}
+		assertNotNull(this.parking.park(new DefaultCar("8545 TY 68", Car.Type.GASOLINE)));
+		Thread.sleep(50L);
+		assertEquals(1, eventsCount.get());
+		assertFalse(error.isDone());
+		
+		Throwable exception = uncaughtException.get(timeoutSeconds, TimeUnit.SECONDS);
+		
+		assertInstanceOf(IllegalStateException.class, exception);
+		assertEquals("Subscriber failure", exception.getMessage());
+	}
+	
+	/**
+	 * Test checking that requesting a non positive number of events fails the subscription.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void invalidRequestTest() throws Exception {
+		RecordingSubscriber subscriber = new RecordingSubscriber(0L);
+		
+		this.parking.events().subscribe(subscriber);
+		assertInstanceOf(IllegalArgumentException.class, subscriber.awaitError());
+	}
+}
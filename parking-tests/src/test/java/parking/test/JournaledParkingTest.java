@@ -0,0 +1,278 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.JournaledParking;
+import parking.api.Occupancy;
+import parking.api.Parking;
+import parking.api.PricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a journaled parking, plus unittests rebuilding the parking from its journal.
+ * @see Parking#createJournaled(Map, PricingPolicy, parking.api.Clock, Path)
+ */
+final class JournaledParkingTest extends ParkingTestBase {
+	/* Enough park and unpark records for the journal to span several segments */
+	static private final int manyCyclesCount = 50_000;
+	
+	/* Enough cycles to append more than 12 MB to the journal, which is compacted every 8 segments of 1 MB */
+	static private final int compactionCyclesCount = 300_000;
+	static private final long maxJournalSize = 8L << 20;
+	
+	@TempDir
+	Path journalDirectory;
+	
+	private Map<Car.Type, Integer> carTypeToSlotsCount;
+	private PricingPolicy pricingPolicy;
+	private Path journalPath;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new DefaultPricingPolicy(0.0f, 0.7f);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Each test gets its own journal file.</p>
+	 */
+	@Override
+	protected Parking createParking(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, ClockMock clock) {
+		this.carTypeToSlotsCount = carTypeToSlotsCount;
+		this.pricingPolicy = pricingPolicy;
+		try {
+			this.journalPath = Files.createTempFile(this.journalDirectory, "parking", ".journal");
+			
+			return Parking.createJournaled(carTypeToSlotsCount, pricingPolicy, clock, this.journalPath);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Called just after each test method, before the parking is disposed.
+	 * <p>Close the parking to test.</p>
+	 */
+	@AfterEach
+	void closeParking() throws IOException {
+		((JournaledParking) this.parking).close();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Rebuild the parking to test from its journal file.
+	 * @param closeFirst true to close the parking before rebuilding it, false to rebuild it as after a crash
+	 * @throws IOException if the journal cannot be replayed
+	 */
+	private void restart(boolean closeFirst) throws IOException {
+		JournaledParking crashedParking = (JournaledParking) this.parking;
+		
+		if (closeFirst) {
+			crashedParking.close();
+		}
+		this.parking = Parking.createJournaled(this.carTypeToSlotsCount, this.pricingPolicy, this.clock, this.journalPath);
+		if (!closeFirst) {
+			// Only stops the group commits of the crashed parking, its journal file has already been replaced
+			crashedParking.close();
+		}
+	}
+	
+	/**
+	 * Park some cars, unpark a part of them and rebuild the parking, checking that the rebuilt parking holds the cars still parked,
+	 * in their slots and with their arrival instants.
+	 * @param closeFirst true to close the parking before rebuilding it, false to rebuild it as after a crash
+	 * @throws Exception if a car cannot be parked or unparked or the parking cannot be rebuilt
+	 */
+	private void restartTest(boolean closeFirst) throws Exception {
+		Map<String, String> registrationNumberToSlotId = fillParkingAndReturnsRegistrationNumberToSlotId(Car.Type.GASOLINE, 0, 40);
+		
+		assertNotNull(this.parking.park(new DefaultCar(null, Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY)));
+		for (int registrationIndex = 0; registrationIndex < 40; registrationIndex += 2) {
+			this.parking.unparkAndBill(new DefaultCar(Integer.toString(registrationIndex), Car.Type.GASOLINE));
+			registrationNumberToSlotId.remove(Integer.toString(registrationIndex));
+		}
+		
+		Occupancy occupancy = this.parking.occupancy();
+		
+		this.clock.increment(Duration.ofHours(1));
+		restart(closeFirst);
+		
+		assertEquals(occupancy, this.parking.occupancy());
+		assertTrue(this.parking.isParked(new DefaultCar(null, Car.Type.GASOLINE)));
+		for (int registrationIndex = 0; registrationIndex < 40; registrationIndex++) {
+			assertEquals(registrationIndex % 2 != 0, this.parking.isParked(new DefaultCar(Integer.toString(registrationIndex), Car.Type.GASOLINE)));
+		}
+		
+		// Cars parked after the restart must not get the slots of the cars parked before it
+		Set<String> slotIds = new HashSet<String>(registrationNumberToSlotId.values());
+		
+		for (String slotId: fillParkingAndReturnsRegistrationNumberToSlotId(Car.Type.GASOLINE, 100, 100 + getSlotsCountForCarType(Car.Type.GASOLINE) - 20).values()) {
+			assertTrue(slotIds.add(slotId));
+		}
+		assertNull(this.parking.park(new DefaultCar("AI-241-SP", Car.Type.GASOLINE)));
+		
+		// Arrival instants are kept: cars are billed for the time spent in the parking before and after the restart
+		this.clock.increment(Duration.ofHours(1));
+		assertEquals(1.4f, this.parking.unparkAndBill(new DefaultCar("1", Car.Type.GASOLINE)));
+		assertEquals(1.4f, this.parking.unparkAndBill(new DefaultCar(null, Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY)));
+		assertEquals(0.7f, this.parking.unparkAndBill(new DefaultCar("100", Car.Type.GASOLINE)));
+	}
+	
+	/**
+	 * Test rebuilding the parking after it has been closed.
+	 * @throws Exception if a car cannot be parked or unparked or the parking cannot be rebuilt
+	 */
+	@Test
+	void restartAfterCloseTest() throws Exception {
+		restartTest(true);
+	}
+	
+	/**
+	 * Test rebuilding the parking while it has not been closed, as after a crash of the JVM.
+	 * @throws Exception if a car cannot be parked or unparked or the parking cannot be rebuilt
+	 */
+	@Test
+	void restartAfterCrashTest() throws Exception {
+		restartTest(false);
+	}
+	
+	/**
+	 * Test rebuilding the parking from a journal spanning several segments, then rebuilding it again from the compacted journal.
+	 * @throws Exception if a car cannot be parked or unparked or the parking cannot be rebuilt
+	 */
+	@Test
+	void restartAfterManyCyclesTest() throws Exception {
+		for (int cycleIndex = 0; cycleIndex < manyCyclesCount; cycleIndex++) {
+			Car car = new DefaultCar(Integer.toString(cycleIndex), Car.Type.values()[cycleIndex % 3]);
+			
+			this.parking.park(car);
+			if (cycleIndex < manyCyclesCount - 3) {
+				this.parking.unparkAndBill(car);
+			}
+		}
+		
+		for (int restartIndex = 0; restartIndex < 2; restartIndex++) {
+			restart(false);
+			
+			assertEquals(3, this.parking.occupancy().getTotalOccupiedSlots());
+			for (int cycleIndex = manyCyclesCount - 4; cycleIndex < manyCyclesCount; cycleIndex++) {
+				assertEquals(cycleIndex >= manyCyclesCount - 3, this.parking.isParked(new DefaultCar(Integer.toString(cycleIndex), Car.Type.GASOLINE)));
+			}
+		}
+	}
+	
+	/**
+	 * Test checking that the journal file is compacted while running, without losing the parked cars.
+	 * @throws Exception if a car cannot be parked or unparked or the parking cannot be rebuilt
+	 */
+	@Test
+	void compactionWhileRunningTest() throws Exception {
+		Car firstCar = new DefaultCar("first", Car.Type.GASOLINE);
+		
+		this.parking.park(firstCar);
+		for (int cycleIndex = 0; cycleIndex < compactionCyclesCount; cycleIndex++) {
+			Car car = new DefaultCar(Integer.toString(cycleIndex), Car.Type.values()[cycleIndex % 3]);
+			
+			this.parking.park(car);
+			if (cycleIndex < compactionCyclesCount - 2) {
+				this.parking.unparkAndBill(car);
+			}
+			if (cycleIndex % 10_000 == 0) {
+				assertTrue(Files.size(this.journalPath) <= maxJournalSize);
+			}
+		}
+		assertTrue(Files.size(this.journalPath) <= maxJournalSize);
+		
+		restart(false);
+		
+		assertEquals(3, this.parking.occupancy().getTotalOccupiedSlots());
+		assertTrue(this.parking.isParked(firstCar));
+		for (int cycleIndex = compactionCyclesCount - 3; cycleIndex < compactionCyclesCount; cycleIndex++) {
+			assertEquals(cycleIndex >= compactionCyclesCount - 2, this.parking.isParked(new DefaultCar(Integer.toString(cycleIndex), Car.Type.GASOLINE)));
+		}
+	}
+	
+	/**
+	 * Test checking that a parking cannot be rebuilt from a journal recording slots it does not provide.
+	 * @throws Exception if a car cannot be parked
+	 */
+	@Test
+	void restartWithLessSlotsTest() throws Exception {
+		fillParkingAndReturnsRegistrationNumberToSlotId(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 0, 10);
+		((JournaledParking) this.parking).commit();
+		
+		Map<Car.Type, Integer> carTypeToLessSlotsCount = new HashMap<Car.Type, Integer>(this.carTypeToSlotsCount);
+		
+		carTypeToLessSlotsCount.put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 5);
+		assertThrows(IOException.class, () -> Parking.createJournaled(carTypeToLessSlotsCount, this.pricingPolicy, this.clock, this.journalPath).close());
+		
+		// Journal is left untouched
+		restart(true);
+		assertEquals(10, this.parking.occupiedSlots(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY));
+	}
+	
+	/**
+	 * Test checking that cars can neither be parked nor unparked once the parking is closed.
+	 * @throws Exception if a car cannot be parked or the parking cannot be closed
+	 */
+	@Test
+	void closedParkingTest() throws Exception {
+		Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		
+		this.parking.park(car);
+		((JournaledParking) this.parking).close();
+		
+		assertThrows(IllegalStateException.class, () -> this.parking.park(new DefaultCar("8545 TY 68", Car.Type.GASOLINE)));
+		assertFalse(this.parking.isParked(new DefaultCar("8545 TY 68", Car.Type.GASOLINE)));
+		assertThrows(IllegalStateException.class, () -> this.parking.unparkAndBill(car));
+	}
+}
@@ -16,7 +16,7 @@ import parking.api.PricingPolicy;
  * Perform nominal and duration unittests on a large parking.
  */
 final class LargeParkingTest extends ParkingTestBase {
-	static private final Map<Duration, Float> parkingDurationToExpectedPrice = new HashMap<Duration, Float>() {
+	static final Map<Duration, Float> parkingDurationToExpectedPrice = new HashMap<Duration, Float>() {
 		private static final long serialVersionUID = 1L;
 	{
 		put(Duration.ofSeconds(0), 0.0f);
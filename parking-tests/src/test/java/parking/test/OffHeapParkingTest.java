@@ -0,0 +1,129 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.PricingPolicy;
+import parking.api.Slot;
+
+/**
+ * Perform nominal and duration unittests on a parking held off the heap, plus a unittest filling a large off-heap parking.
+ * @see Parking#createOffHeap(Map, PricingPolicy, parking.api.Clock)
+ */
+final class OffHeapParkingTest extends ParkingTestBase {
+	static private final int largeSlotsCount = 50000;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new DefaultPricingPolicy(0.0f, 0.7f);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Parking createParking(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, ClockMock clock) {
+		return Parking.createOffHeap(carTypeToSlotsCount, pricingPolicy, clock);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean keepsSlotHandles() {
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Test filling then emptying a large off-heap parking, with registration numbers kept off the heap and registration numbers which cannot be.
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Test
+	void fillAndEmptyLargeParkingTest() throws ParkingException {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new HashMap<Car.Type, Integer>();
+		
+		carTypeToSlotsCount.put(Car.Type.GASOLINE, largeSlotsCount);
+		
+		Parking parking = createParking(carTypeToSlotsCount, computePricingPolicy(), this.clock);
+		List<Car> cars = new ArrayList<Car>();
+		Set<String> slotIds = new HashSet<String>();
+		
+		for (int registrationIndex = 0; registrationIndex < largeSlotsCount; registrationIndex++) {
+			// One registration number out of ten is too long to be encoded
+			Car car = new DefaultCar((registrationIndex % 10 == 0 ? "LONG-REGISTRATION-" : "AB-") + registrationIndex, Car.Type.GASOLINE);
+			
+			assertTrue(slotIds.add(parking.park(car)));
+			cars.add(car);
+		}
+		assertNull(parking.park(new DefaultCar("REJECTED", Car.Type.GASOLINE)));
+		assertEquals(0, parking.availableSlots(Car.Type.GASOLINE));
+		
+		this.clock.increment(Duration.ofHours(1));
+		for (Car car: cars) {
+			assertTrue(parking.isParked(car));
+			assertEquals(0.7f, parking.unparkAndBill(car));
+			assertFalse(parking.isParked(car));
+		}
+		assertEquals(largeSlotsCount, parking.availableSlots(Car.Type.GASOLINE));
+		
+		// Slot handles are not kept: the same slot is handed out as equal but distinct handles
+		Car car = cars.get(0);
+		Slot slot = parking.parkAndGetSlot(car);
+		
+		assertNotNull(slot);
+		parking.unparkAndBill(car);
+		
+		Slot sameSlot = parking.parkAndGetSlot(car);
+		
+		assertEquals(slot, sameSlot);
+		assertNotSame(slot, sameSlot);
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.OverstayWatch;
+import parking.api.ParkedCar;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.PricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a parking, plus unittests on the lookup and the watch of the cars parked for too long.
+ * @see Parking#parkedBefore(Instant)
+ * @see Parking#watchOverstays(Duration, java.util.function.Consumer)
+ */
+final class OverstayParkingTest extends ParkingTestBase {
+	static private final long timeoutSeconds = 10;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new DefaultPricingPolicy(0.0f, 0.7f);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Test checking that the cars parked before an instant are returned oldest first, whatever their type, and can be unparked.
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Test
+	void parkedBeforeTest() throws ParkingException {
+		Car oldCar = new DefaultCar("8545 TY 68", Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY);
+		Car exoticCar = new DefaultCar("CORPS-DIPLOMATIQUE-42", Car.Type.GASOLINE);
+		Car recentCar = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		Instant start = this.clock.instant();
+		
+		assertNotNull(this.parking.park(oldCar));
+		this.clock.increment(Duration.ofHours(1));
+		
+		String exoticSlotId = this.parking.park(exoticCar);
+		
+		this.clock.increment(Duration.ofHours(1));
+		assertNotNull(this.parking.park(recentCar));
+		
+		assertTrue(this.parking.parkedBefore(start).isEmpty());
+		assertEquals(1, this.parking.parkedBefore(start.plusMillis(1)).size());
+		
+		List<ParkedCar> parkedCars = this.parking.parkedBefore(start.plus(Duration.ofHours(2)));
+		
+		assertEquals(2, parkedCars.size());
+		assertEquals(oldCar.getRegistrationNumber(), parkedCars.get(0).getRegistrationNumber());
+		assertEquals(oldCar.getType(), parkedCars.get(0).getSlot().getCarType());
+		assertEquals(start.toEpochMilli(), parkedCars.get(0).getArrivalEpochMillis());
+		assertEquals(exoticCar.getRegistrationNumber(), parkedCars.get(1).getRegistrationNumber());
+		assertEquals(exoticSlotId, parkedCars.get(1).getSlot().getId());
+		
+		// Towing the oldest car away
+		assertEquals(1.4f, this.parking.unparkAndBill(parkedCars.get(0).getCar()));
+		assertFalse(this.parking.isParked(oldCar));
+		assertEquals(2, this.parking.parkedBefore(this.clock.instant().plusMillis(1)).size());
+		assertEquals(exoticCar.getRegistrationNumber(), this.parking.parkedBefore(this.clock.instant()).get(0).getRegistrationNumber());
+	}
+	
+	/**
+	 * Test checking that a car parked with an earlier arrival than the last parked car, when the clock goes backward, is kept in arrival order.
+	 * @throws ParkingException if a car cannot be parked
+	 */
+	@Test
+	void clockGoingBackwardTest() throws ParkingException {
+		Car lateCar = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		Car earlyCar = new DefaultCar("8545 TY 68", Car.Type.GASOLINE);
+		Instant start = this.clock.instant();
+		
+		this.clock.increment(Duration.ofHours(1));
+		assertNotNull(this.parking.park(lateCar));
+		this.clock.setInstant(start);
+		assertNotNull(this.parking.park(earlyCar));
+		
+		List<ParkedCar> parkedCars = this.parking.parkedBefore(start.plus(Duration.ofHours(2)));
+		
+		assertEquals(2, parkedCars.size());
+		assertEquals(earlyCar.getRegistrationNumber(), parkedCars.get(0).getRegistrationNumber());
+		assertEquals(lateCar.getRegistrationNumber(), parkedCars.get(1).getRegistrationNumber());
+	}
+	
+	/**
+	 * Test checking that the cars parked for longer than the maximum duration are reported once, oldest first.
+	 * @param parking the parking to test, not null
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	private void watchOverstaysTest(Parking parking) throws Exception {
+		BlockingQueue<ParkedCar> overstayingCars = new LinkedBlockingQueue<ParkedCar>();
+		Car firstCar = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		Car secondCar = new DefaultCar("8545 TY 68", Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY);
+		Car thirdCar = new DefaultCar("CORPS-DIPLOMATIQUE-42", Car.Type.GASOLINE);
+		
+		assertNotNull(parking.park(firstCar));
+		this.clock.increment(Duration.ofMinutes(10));
+		assertNotNull(parking.park(secondCar));
+		this.clock.increment(Duration.ofMinutes(10));
+		assertNotNull(parking.park(thirdCar));
+		
+		try (OverstayWatch watch = parking.watchOverstays(Duration.ofHours(2), overstayingCars::add)) {
+			assertEquals(Duration.ofHours(2), watch.getMaxDuration());
+			
+			// Two cars exceed the maximum duration at once, the third one has left before
+			this.clock.increment(Duration.ofHours(2));
+			parking.unparkAndBill(thirdCar);
+			assertEquals(firstCar.getRegistrationNumber(), overstayingCars.poll(timeoutSeconds, TimeUnit.SECONDS).getRegistrationNumber());
+			assertEquals(secondCar.getRegistrationNumber(), overstayingCars.poll(timeoutSeconds, TimeUnit.SECONDS).getRegistrationNumber());
+			
+			// A car parked again is watched again, cars already reported are not reported twice
+			parking.unparkAndBill(firstCar);
+			assertNotNull(parking.park(firstCar));
+			this.clock.increment(Duration.ofHours(2).plusMillis(1));
+			
+			ParkedCar overstayingCar = overstayingCars.poll(timeoutSeconds, TimeUnit.SECONDS);
+			
+			assertEquals(firstCar.getRegistrationNumber(), overstayingCar.getRegistrationNumber());
+			assertEquals(this.clock.millis() - Duration.ofHours(2).plusMillis(1).toMillis(), overstayingCar.getArrivalEpochMillis());
+			assertNull(overstayingCars.poll(3 * 100, TimeUnit.MILLISECONDS));
+		}
+	}
+	
+	/**
+	 * Test checking that the cars parked for longer than the maximum duration are reported once, oldest first.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void watchOverstaysTest() throws Exception {
+		watchOverstaysTest(this.parking);
+	}
+	
+	/**
+	 * Test checking that the cars parked for longer than the maximum duration in all the shards of a sharded parking are reported.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void shardedWatchOverstaysTest() throws Exception {
+		watchOverstaysTest(Parking.createSharded(computeCarTypeToSlotsCount(), computePricingPolicy(), this.clock, 4));
+	}
+	
+	/**
+	 * Test checking that a car linked after the watch has read past its arrival instant, as when the clock of its gate is late, is still reported.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void lateLinkedOverstayTest() throws Exception {
+		BlockingQueue<ParkedCar> overstayingCars = new LinkedBlockingQueue<ParkedCar>();
+		Car firstCar = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		Car lateCar = new DefaultCar("8545 TY 68", Car.Type.GASOLINE);
+		Instant start = this.clock.instant();
+		
+		assertNotNull(this.parking.park(firstCar));
+		try (OverstayWatch watch = this.parking.watchOverstays(Duration.ofHours(1), overstayingCars::add)) {
+			this.clock.increment(Duration.ofHours(2));
+			assertEquals(firstCar.getRegistrationNumber(), overstayingCars.poll(timeoutSeconds, TimeUnit.SECONDS).getRegistrationNumber());
+			
+			// The late car arrives at the same instant as the first car, but is linked after the watch has read past that instant
+			this.clock.setInstant(start);
+			assertNotNull(this.parking.park(lateCar));
+			this.clock.setInstant(start.plus(Duration.ofHours(2)));
+			assertEquals(lateCar.getRegistrationNumber(), overstayingCars.poll(timeoutSeconds, TimeUnit.SECONDS).getRegistrationNumber());
+			assertNull(overstayingCars.poll(3 * 100, TimeUnit.MILLISECONDS));
+		}
+	}
+	
+	/**
+	 * Test checking that a maximum duration which is not strictly positive is rejected.
+	 */
+	@Test
+	void invalidMaxDurationTest() {
+		assertThrows(IllegalArgumentException.class, () -> this.parking.watchOverstays(Duration.ZERO, parkedCar -> {}));
+	}
+}
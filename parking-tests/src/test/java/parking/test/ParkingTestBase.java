@@ -7,13 +7,20 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -22,6 +29,7 @@ import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.junit.jupiter.api.extension.ExtensionContext;
@@ -32,9 +40,14 @@ import org.junit.jupiter.params.provider.ArgumentsSource;
 
 import parking.api.Car;
 import parking.api.DefaultCar;
+import parking.api.MetricsSnapshot;
+import parking.api.Occupancy;
 import parking.api.Parking;
 import parking.api.ParkingException;
+import parking.api.ParkingMetrics;
+import parking.api.ParkingResult;
 import parking.api.PricingPolicy;
+import parking.api.Slot;
 
 /**
  * The base abstract class of many unittest.
@@ -126,9 +139,30 @@ abstract class ParkingTestBase {
 	 */
 	@BeforeEach
 	void setUp() throws Exception {
-		this.parking = Parking.create(this.carTypeToSlotsCount, this.pricingPolicy, this.clock);
+		this.parking = createParking(this.carTypeToSlotsCount, this.pricingPolicy, this.clock);
+	}
+	
+	/**
+	 * Create the parking to test.
+	 * <p>Called before each test method. Default implementation calls {@link Parking#create(Map, PricingPolicy, parking.api.Clock)}.</p>
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, not null
+	 * @return the parking, not null
+	 */
+	protected Parking createParking(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, ClockMock clock) {
+		return Parking.create(carTypeToSlotsCount, pricingPolicy, clock);
 	}
 
+	/**
+	 * Tell whether the parking to test hands out the same {@link Slot} handle each time a slot is allocated.
+	 * <p>Default implementation returns true, as documented by {@link Parking#parkAndGetSlot(Car)}.</p>
+	 * @return true if slot handles are kept and reused
+	 */
+	protected boolean keepsSlotHandles() {
+		return true;
+	}
+	
 	/**
 	 * Called just after each test method.
 	 * <p>Dispose the parking to test.</p>
@@ -208,6 +242,41 @@ abstract class ParkingTestBase {
 		assertFalse(this.parking.isParked(car));
 	}
 	
+	/**
+	 * Nominal parameterized test checking that the slot handle returned by {@link Parking#parkAndGetSlot(Car)} describes the allocated slot.
+	 * <p>Test also checks that the same handle is returned when the slot is allocated again.</p>
+	 * @param car the car
+	 */
+	@ParameterizedTest
+	@ArgumentsSource(CarArgumentProvider.class)
+	void parkAndGetSlotTest(Car car) {
+		assertFalse(this.parking.isParked(car));
+		try {
+			Slot slot = this.parking.parkAndGetSlot(car);
+			
+			assertNotNull(slot);
+			assertEquals(car.getType(), slot.getCarType());
+			assertTrue(this.parking.isParked(car));
+			
+			this.parking.unparkAndBill(car);
+			
+			assertFalse(this.parking.isParked(car));
+			
+			Slot sameSlot = this.parking.parkAndGetSlot(car);
+			
+			assertEquals(slot, sameSlot);
+			if (keepsSlotHandles()) {
+				assertSame(slot, sameSlot);
+			}
+			assertTrue(this.parking.isParked(car));
+			this.parking.unparkAndBill(car);
+			assertEquals(slot.getId(), this.parking.park(car));
+		} catch (ParkingException e) {
+			fail(e);
+		}
+		assertTrue(this.parking.isParked(car));
+	}
+	
 	/**
 	 * Nominal parameterized test checking that a car cannot be parked if it is already parked.
 	 * @param car the car
@@ -384,6 +453,290 @@ abstract class ParkingTestBase {
 		assertFalse(this.parking.isParked(car));
 	}
 	
+	/**
+	 * Registration numbers of various shapes, each one followed by a look-alike registration number.
+	 * <p>Mixes registration numbers the parking may store in a compact form and registration numbers too long or with unusual characters.</p>
+	 */
+	static private final String[][] registrationNumberAndLookAlikes = new String[][] {
+		{"", " "},
+		{"AI-241-SP", "ai-241-sp"},
+		{"8545 TY 68", "8545 TY 680"},
+		{"AI-241-SP-75", "AI-241-SP-57"},
+		{"AI_241_SP", "AI-241-SP"},
+		{"A\u00CF-241-SP", "AI-241-SP"}
+	};
+	
+	/**
+	 * Nominal parameterized test checking that cars are told apart by their whole registration number, whatever its shape.
+	 * @param car the car, only its type is used
+	 */
+	@ParameterizedTest
+	@ArgumentsSource(CarArgumentProvider.class)
+	void registrationNumberShapesTest(Car car) {
+		try {
+			for (String[] registrationNumberAndLookAlike: registrationNumberAndLookAlikes) {
+				Car parkedCar = new DefaultCar(registrationNumberAndLookAlike[0], car.getType());
+				Car lookAlikeCar = new DefaultCar(registrationNumberAndLookAlike[1], car.getType());
+				
+				if (this.parking.park(parkedCar) == null) {
+					assertEquals(0, this.parking.availableSlots(car.getType()));
+					continue;
+				}
+				assertTrue(this.parking.isParked(parkedCar));
+				assertFalse(this.parking.isParked(lookAlikeCar));
+				assertThrows(ParkingException.class, () -> this.parking.unparkAndBill(lookAlikeCar));
+				this.parking.unparkAndBill(parkedCar);
+				assertFalse(this.parking.isParked(parkedCar));
+			}
+		} catch (ParkingException e) {
+			fail(e);
+		}
+	}
+	
+	/**
+	 * Nominal test checking that the nominal cars can be parked, unparked and billed in batch.
+	 * <p>Nominal cars sharing the same registration number are all in the same batch: only the first of them can be parked or unparked.</p>
+	 */
+	@Test
+	void parkAllAndUnparkAndBillAllTest() {
+		Duration parkingDuration = Duration.ofHours(2);
+		List<Car> cars = new ArrayList<Car>(this.nominalTestsCars);
+		Set<String> registrationNumbers = new HashSet<String>();
+		List<Boolean> firstOccurrences = new ArrayList<Boolean>();
+		
+		for (Car car: cars) {
+			firstOccurrences.add(registrationNumbers.add(car.getRegistrationNumber()));
+		}
+		
+		List<ParkingResult<String>> parkResults = this.parking.parkAll(cars);
+		
+		assertEquals(cars.size(), parkResults.size());
+		for (int position = 0; position < cars.size(); position++) {
+			ParkingResult<String> parkResult = parkResults.get(position);
+			
+			assertSame(cars.get(position), parkResult.getCar());
+			assertEquals(firstOccurrences.get(position), parkResult.isSuccessful());
+			if (firstOccurrences.get(position)) {
+				try {
+					assertNotNull(parkResult.get());
+				} catch (ParkingException e) {
+					fail(e);
+				}
+			} else {
+				assertTrue(parkResult.getException() instanceof ParkingException);
+			}
+			assertTrue(this.parking.isParked(cars.get(position)));
+		}
+		
+		this.clock.increment(parkingDuration);
+		
+		List<ParkingResult<Float>> unparkResults = this.parking.unparkAndBillAll(cars);
+		
+		assertEquals(cars.size(), unparkResults.size());
+		for (int position = 0; position < cars.size(); position++) {
+			ParkingResult<Float> unparkResult = unparkResults.get(position);
+			
+			assertEquals(firstOccurrences.get(position), unparkResult.isSuccessful());
+			if (firstOccurrences.get(position)) {
+				try {
+					assertEquals(getExpectedPrice(cars.get(position), parkingDuration), unparkResult.get(), priceTolerance);
+				} catch (ParkingException e) {
+					fail(e);
+				}
+			} else {
+				assertTrue(unparkResult.getException() instanceof ParkingException);
+			}
+			assertFalse(this.parking.isParked(cars.get(position)));
+		}
+	}
+	
+	/**
+	 * Nominal parameterized test checking the available and occupied slots counts and the occupancy snapshot while the parking fills and empties.
+	 * @param car the car
+	 */
+	@ParameterizedTest
+	@ArgumentsSource(CarArgumentProvider.class)
+	void availableAndOccupiedSlotsTest(Car car) {
+		Car.Type carType = car.getType();
+		int slotsCount = Math.max(getSlotsCountForCarType(carType), 0);
+		
+		assertEquals(slotsCount, this.parking.availableSlots(carType));
+		assertEquals(0, this.parking.occupiedSlots(carType));
+		assertEquals(slotsCount, this.parking.occupancy().getSlotsCount(carType));
+		
+		Map<String, String> registrationNumberToSlotId = fillParkingAndReturnsRegistrationNumberToSlotId(carType, 0, (slotsCount + 1) / 2);
+		int parkedCarsCount = registrationNumberToSlotId.size();
+		Occupancy occupancy = this.parking.occupancy();
+		
+		assertEquals(slotsCount - parkedCarsCount, this.parking.availableSlots(carType));
+		assertEquals(parkedCarsCount, this.parking.occupiedSlots(carType));
+		assertEquals(slotsCount - parkedCarsCount, occupancy.getAvailableSlots(carType));
+		assertEquals(parkedCarsCount, occupancy.getOccupiedSlots(carType));
+		assertEquals(parkedCarsCount, occupancy.getTotalOccupiedSlots());
+		
+		try {
+			for (String registrationNumber: registrationNumberToSlotId.keySet()) {
+				this.parking.unparkAndBill(new DefaultCar(registrationNumber, carType));
+			}
+		} catch (ParkingException e) {
+			fail(e);
+		}
+		
+		assertEquals(slotsCount, this.parking.availableSlots(carType));
+		assertEquals(0, this.parking.occupiedSlots(carType));
+		assertEquals(0, this.parking.occupancy().getTotalOccupiedSlots());
+	}
+	
+	/**
+	 * Nominal parameterized test checking the counters and the latency histograms recorded when the instrumentation is enabled,
+	 * and that nothing is recorded while it is disabled.
+	 * @param car the car
+	 */
+	@ParameterizedTest
+	@ArgumentsSource(CarArgumentProvider.class)
+	void metricsTest(Car car) {
+		ParkingMetrics metrics = this.parking.metrics();
+		boolean parkable = (getSlotsCountForCarType(car.getType()) > 0);
+		
+		assertFalse(metrics.isEnabled());
+		try {
+			this.parking.unparkAndBill(car);
+			fail("Car should not be parked");
+		} catch (ParkingException e) {
+			// Expected, not recorded
+		}
+		
+		metrics.setEnabled(true);
+		assertTrue(metrics.isEnabled());
+		try {
+			this.parking.park(car);
+			this.parking.park(car);
+		} catch (ParkingException e) {
+			// Already parked or unknown car type
+		}
+		assertEquals(parkable, this.parking.isParked(car));
+		try {
+			this.parking.unparkAndBill(car);
+			this.parking.unparkAndBill(car);
+		} catch (ParkingException e) {
+			// Not parked
+		}
+		metrics.setEnabled(false);
+		this.parking.isParked(car);
+		
+		List<MetricsSnapshot> exportedSnapshots = new ArrayList<MetricsSnapshot>();
+		
+		metrics.export(exportedSnapshots::add);
+		assertEquals(1, exportedSnapshots.size());
+		
+		MetricsSnapshot snapshot = exportedSnapshots.get(0);
+		
+		assertEquals(parkable ? 1 : 0, snapshot.getCount(ParkingMetrics.Counter.PARKED));
+		assertEquals(parkable ? 1 : 0, snapshot.getCount(ParkingMetrics.Counter.ALREADY_PARKED));
+		assertEquals(parkable ? 0 : 1, snapshot.getCount(ParkingMetrics.Counter.UNKNOWN_CAR_TYPE));
+		assertEquals(0, snapshot.getCount(ParkingMetrics.Counter.NO_SLOT));
+		assertEquals(parkable ? 1 : 0, snapshot.getCount(ParkingMetrics.Counter.UNPARKED));
+		assertEquals(1, snapshot.getCount(ParkingMetrics.Counter.NOT_PARKED));
+		assertEquals(0, snapshot.getCount(ParkingMetrics.Counter.BILLING_FAILED));
+		assertEquals(parkable ? 2 : 1, snapshot.getLatency(ParkingMetrics.Operation.PARK).getCount());
+		assertEquals(parkable ? 2 : 1, snapshot.getLatency(ParkingMetrics.Operation.UNPARK_AND_BILL).getCount());
+		assertEquals(1, snapshot.getLatency(ParkingMetrics.Operation.IS_PARKED).getCount());
+		assertEquals(parkable ? 1 : 0, snapshot.getLatency(ParkingMetrics.Operation.BILL).getCount());
+		assertEquals(parkable ? 2 : 0, snapshot.getLatency(ParkingMetrics.Operation.SLOT_ALLOCATOR_LOCK).getCount());
+		assertTrue(snapshot.getLatency(ParkingMetrics.Operation.PARK).getPercentileNanos(100.0) <= snapshot.getLatency(ParkingMetrics.Operation.PARK).getMaxNanos());
+	}
+	
+	/**
+	 * Nominal parameterized test checking that a batch of cars exceeding the parking capacity is only partially parked.
+	 * <p>Test also checks that all parked cars get a different parking slot and that the cars are served in the batch order.</p>
+	 * @param car the car
+	 */
+	@ParameterizedTest
+	@ArgumentsSource(CarArgumentProvider.class)
+	void parkAllIfCapacityExceededTest(Car car) {
+		Car.Type carType = car.getType();
+		int slotsCount = getSlotsCountForCarType(carType);
+		List<Car> cars = new ArrayList<Car>();
+		
+		for (int registrationIndex = 0; registrationIndex < slotsCount; registrationIndex++) {
+			cars.add(new DefaultCar(Integer.toString(registrationIndex), carType));
+		}
+		cars.add(car);
+		
+		List<ParkingResult<String>> results = this.parking.parkAll(cars);
+		Set<String> slotIds = new HashSet<String>();
+		
+		try {
+			for (int position = 0; position < slotsCount; position++) {
+				assertTrue(slotIds.add(results.get(position).get()));
+				assertTrue(this.parking.isParked(cars.get(position)));
+			}
+			assertNull(results.get(slotsCount).get());
+		} catch (ParkingException e) {
+			fail(e);
+		}
+		assertFalse(this.parking.isParked(car));
+	}
+	
+	/**
+	 * Test writing a snapshot of a half full parking and restoring it, checking that the restored parking holds the same cars,
+	 * in the same slots and with the same arrival instants.
+	 * @throws Exception if a car cannot be parked or unparked or the snapshot cannot be written or read
+	 */
+	@Test
+	void snapshotAndRestoreTest() throws Exception {
+		Path snapshotPath = Files.createTempFile("parking", ".snapshot");
+		
+		try {
+			Map<Car.Type, Map<String, String>> carTypeToRegistrationNumberToSlotId = new HashMap<Car.Type, Map<String, String>>();
+			
+			// Registration numbers are made unique across car types
+			for (Car.Type carType: Car.Type.values()) {
+				int firstRegistrationIndex = 1_000_000 * carType.ordinal();
+				
+				carTypeToRegistrationNumberToSlotId.put(carType,
+					fillParkingAndReturnsRegistrationNumberToSlotId(carType, firstRegistrationIndex, firstRegistrationIndex + (Math.max(getSlotsCountForCarType(carType), 0) + 1) / 2));
+			}
+			this.parking.snapshot(snapshotPath);
+			
+			Occupancy occupancy = this.parking.occupancy();
+			
+			this.clock.increment(Duration.ofMinutes(15));
+			this.parking = Parking.restore(snapshotPath, this.pricingPolicy, this.clock);
+			
+			assertEquals(occupancy, this.parking.occupancy());
+			for (Car.Type carType: Car.Type.values()) {
+				Set<String> slotIds = new HashSet<String>(carTypeToRegistrationNumberToSlotId.get(carType).values());
+				int firstRegistrationIndex = 1_000_000 * carType.ordinal() + 500_000;
+				
+				for (String registrationNumber: carTypeToRegistrationNumberToSlotId.get(carType).keySet()) {
+					assertTrue(this.parking.isParked(new DefaultCar(registrationNumber, carType)));
+				}
+				
+				// Cars parked in the restored parking must not get the slots of the restored cars
+				for (String slotId: fillParkingAndReturnsRegistrationNumberToSlotId(carType, firstRegistrationIndex, firstRegistrationIndex + this.parking.availableSlots(carType)).values()) {
+					assertTrue(slotIds.add(slotId));
+				}
+				assertEquals(0, this.parking.availableSlots(carType));
+			}
+			
+			// Restored cars are billed from their original arrival instant
+			this.clock.increment(Duration.ofMinutes(45));
+			for (Car.Type carType: Car.Type.values()) {
+				for (String registrationNumber: carTypeToRegistrationNumberToSlotId.get(carType).keySet()) {
+					Car car = new DefaultCar(registrationNumber, carType);
+					
+					assertEquals(getExpectedPrice(car, Duration.ofHours(1)), this.parking.unparkAndBill(car), priceTolerance);
+				}
+			}
+			
+			Files.write(snapshotPath, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+			assertThrows(IOException.class, () -> Parking.restore(snapshotPath, this.pricingPolicy, this.clock));
+		} finally {
+			Files.delete(snapshotPath);
+		}
+	}
+	
 	/** The default durations to inspect. */
 	static protected final Duration[] defaultParkingDurations = new Duration[] {
 		Duration.ofSeconds(0),
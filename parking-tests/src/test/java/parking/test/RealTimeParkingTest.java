@@ -5,6 +5,7 @@ package parking.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.time.Duration;
@@ -15,9 +16,11 @@ import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import parking.api.Car;
+import parking.api.Clock;
 import parking.api.DefaultCar;
 import parking.api.DurationPricingPolicy;
 import parking.api.Parking;
@@ -25,6 +28,7 @@ import parking.api.PricingPolicy;
 
 /**
  * Perform unittests on a parking using a real time based clock.
+ * <p>The default clock is tested, as well as all the clocks provided through {@link Clock#create(Clock.Mode)}.</p>
  * @see parking.impl.DefaultClock
  */
 final class RealTimeParkingTest {
@@ -49,6 +53,17 @@ final class RealTimeParkingTest {
 		}
 	}
 	
+	/**
+	 * Custom pricing policy billing the car for the parking duration in milliseconds.
+	 * <p>Allows checking the duration measured by a clock.</p>
+	 */
+	static private final class PerMillisecondPricingPolicy extends DurationPricingPolicy {
+		@Override
+		public float bill(Duration duration) {
+			return duration.toMillis();
+		}
+	}
+	
 	private final Map<Car.Type, Integer> carTypeToSlotsCount;
 	private final PricingPolicy pricingPolicy;
 	private Parking parking;
@@ -103,4 +118,49 @@ final class RealTimeParkingTest {
 			fail(e);
 		}
 	}
+	
+	/**
+	 * Parameterized test checking that the clocks provided by the library never go backwards and follow the system time.
+	 * @param mode the clock mode
+	 */
+	@ParameterizedTest
+	@EnumSource(Clock.Mode.class)
+	void clockFollowsSystemTime(Clock.Mode mode) {
+		Clock clock = Clock.create(mode);
+		long previousMillis = clock.millis();
+		
+		for (int callIndex = 0; callIndex < 100_000; callIndex++) {
+			long millis = clock.millis();
+			
+			assertTrue(millis >= previousMillis, mode + " clock went backwards from " + previousMillis + " to " + millis);
+			previousMillis = millis;
+		}
+		
+		assertTrue(Math.abs(System.currentTimeMillis() - clock.millis()) < 1000, mode + " clock does not follow the system time");
+		assertTrue(Math.abs(clock.instant().toEpochMilli() - clock.millis()) < 1000, mode + " clock instant and milliseconds differ");
+	}
+	
+	/**
+	 * Parameterized test parking a car with each of the clocks provided by the library, sleeping and verifying the parking duration.
+	 * <p>The cached clock may be late by a few milliseconds at arrival and departure, the measured duration is thus checked with a tolerance.</p>
+	 * @param mode the clock mode
+	 */
+	@ParameterizedTest
+	@EnumSource(Clock.Mode.class)
+	void parkForDurationWithClock(Clock.Mode mode) {
+		Parking parking = Parking.create(this.carTypeToSlotsCount, new PerMillisecondPricingPolicy(), Clock.create(mode));
+		Car car = new DefaultCar("AQ-289-SP", Car.Type.GASOLINE);
+		
+		try {
+			assertNotNull(parking.park(car));
+			
+			TimeUnit.MILLISECONDS.sleep(500);
+			
+			float parkingDurationInMillis = parking.unparkAndBill(car);
+			
+			assertTrue((parkingDurationInMillis >= 450.0f) && (parkingDurationInMillis < 5000.0f), mode + " clock measured " + parkingDurationInMillis + " ms");
+		} catch (Exception e) {
+			fail(e);
+		}
+	}
 }
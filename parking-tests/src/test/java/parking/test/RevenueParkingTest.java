@@ -0,0 +1,172 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.BillTicket;
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.PricingPolicy;
+import parking.api.RevenueSnapshot;
+import parking.api.RevenueTotals;
+
+/**
+ * Perform nominal and duration unittests on a parking, plus unittests on its revenue aggregates.
+ * @see Parking#revenue()
+ */
+final class RevenueParkingTest extends ParkingTestBase {
+	static private final double delta = 1e-6;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new DefaultPricingPolicy(0.0f, 0.7f);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Test checking the totals and the windows of the cars billed by a parking.
+	 * @param parking the parking to test, not null
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	private void revenueNominalTest(Parking parking) throws ParkingException {
+		Car firstCar = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		Car secondCar = new DefaultCar("8545 TY 68", Car.Type.GASOLINE);
+		Car electricCar = new DefaultCar("CORPS-DIPLOMATIQUE-42", Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY);
+		
+		assertEquals(0L, parking.revenue().getTotal().getBilledCarsCount());
+		assertNotNull(parking.park(firstCar));
+		assertNotNull(parking.park(secondCar));
+		assertNotNull(parking.park(electricCar));
+		this.clock.increment(Duration.ofHours(1));
+		assertEquals(0.7f, parking.unparkAndBill(firstCar));
+		this.clock.increment(Duration.ofHours(1));
+		assertEquals(1.4f, parking.unparkAndBill(secondCar));
+		this.clock.increment(Duration.ofMinutes(1));
+		
+		float electricPrice = parking.bill(parking.unpark(electricCar));
+		
+		RevenueSnapshot snapshot = parking.revenue();
+		RevenueTotals gasolineTotal = snapshot.getTotal(Car.Type.GASOLINE);
+		
+		assertEquals(2L, gasolineTotal.getBilledCarsCount());
+		assertEquals(2.1, gasolineTotal.getRevenue(), delta);
+		assertEquals(Duration.ofMinutes(90), gasolineTotal.getAverageStay());
+		assertEquals(3L, snapshot.getTotal().getBilledCarsCount());
+		assertEquals(2.1 + electricPrice, snapshot.getTotal().getRevenue(), delta);
+		assertEquals(101, snapshot.getSlotsCount(Car.Type.GASOLINE));
+		
+		// The first car left an hour ago, its window has left the ring of the last 60 windows of one minute
+		assertEquals(Duration.ofMinutes(1), snapshot.getWindowDuration());
+		assertEquals(60, snapshot.getWindowsCount());
+		assertTrue(!snapshot.getWindowStart(0).isAfter(this.clock.instant()));
+		assertEquals(1L, snapshot.getWindow(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 0).getBilledCarsCount());
+		assertEquals(1L, snapshot.getWindow(Car.Type.GASOLINE, 1).getBilledCarsCount());
+		assertEquals(1.4, snapshot.getWindow(Car.Type.GASOLINE, 1).getRevenue(), delta);
+		assertEquals(Duration.ofHours(2), snapshot.getWindow(Car.Type.GASOLINE, 1).getAverageStay());
+		assertEquals(0L, snapshot.getWindow(Car.Type.GASOLINE, 0).getBilledCarsCount());
+		assertEquals(1L, snapshot.getLastWindows(Car.Type.GASOLINE, 60).getBilledCarsCount());
+		assertEquals(1.0 / 101, snapshot.getTurnover(Car.Type.GASOLINE, 2), delta);
+		assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getWindow(Car.Type.GASOLINE, 60));
+		
+		// Windows slide with the clock, totals do not
+		this.clock.increment(Duration.ofMinutes(59));
+		assertEquals(0L, parking.revenue().getLastWindows(Car.Type.GASOLINE, 60).getBilledCarsCount());
+		assertEquals(2L, parking.revenue().getTotal(Car.Type.GASOLINE).getBilledCarsCount());
+	}
+	
+	/**
+	 * Test checking the totals and the windows of the cars billed by a parking.
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Test
+	void revenueNominalTest() throws ParkingException {
+		revenueNominalTest(this.parking);
+	}
+	
+	/**
+	 * Test checking that the revenue of a sharded parking is the revenue of all its shards.
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Test
+	void shardedRevenueNominalTest() throws ParkingException {
+		revenueNominalTest(Parking.createSharded(computeCarTypeToSlotsCount(), computePricingPolicy(), this.clock, 4));
+	}
+	
+	/**
+	 * Test checking that a car whose departure is earlier than its arrival is not accounted for.
+	 * @throws ParkingException if a car cannot be parked
+	 */
+	@Test
+	void billingFailedRevenueTest() throws ParkingException {
+		Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		Instant start = this.clock.instant();
+		
+		this.clock.increment(Duration.ofHours(1));
+		assertNotNull(this.parking.park(car));
+		this.clock.setInstant(start);
+		assertThrows(ParkingException.class, () -> this.parking.unparkAndBill(car));
+		assertEquals(0L, this.parking.revenue().getTotal().getBilledCarsCount());
+	}
+	
+	/**
+	 * Test checking that a ticket billed twice is only accounted for once.
+	 * @throws ParkingException if a car cannot be parked, unparked or billed
+	 */
+	@Test
+	void billedTwiceRevenueTest() throws ParkingException {
+		Car car = new DefaultCar("AI-241-SP", Car.Type.GASOLINE);
+		
+		assertNotNull(this.parking.park(car));
+		this.clock.increment(Duration.ofHours(2));
+		
+		BillTicket ticket = this.parking.unpark(car);
+		
+		assertEquals(1.4f, this.parking.bill(ticket));
+		
+		RevenueTotals total = this.parking.revenue().getTotal();
+		
+		assertThrows(ParkingException.class, () -> this.parking.bill(ticket));
+		assertEquals(1L, this.parking.revenue().getTotal().getBilledCarsCount());
+		assertEquals(total.getRevenue(), this.parking.revenue().getTotal().getRevenue(), delta);
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.ParkedCar;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.ParkingResult;
+import parking.api.PricingPolicy;
+import parking.api.Slot;
+
+/**
+ * Perform nominal and duration unittests on a sharded parking.
+ * <p>Slots counts are not multiples of the shards count, so that shards have different capacities and cars spill from full shards to the others.</p>
+ * @see Parking#createSharded(Map, PricingPolicy, parking.api.Clock, int)
+ */
+final class ShardedParkingTest extends ParkingTestBase {
+	static private final int shardsCount = 4;
+	static private final int threadsCount = 8;
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new DefaultPricingPolicy(0.0f, 0.7f);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Parking createParking(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, ClockMock clock) {
+		return Parking.createSharded(carTypeToSlotsCount, pricingPolicy, clock, shardsCount);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Test checking that a slot is freed in the right shard when unparking, so that the parking can be filled again after having been emptied.
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Test
+	void fillEmptyAndFillAgainTest() throws ParkingException {
+		for (int round = 0; round < 3; round++) {
+			Map<String, String> registrationNumberToSlotId = fillParkingAndReturnsRegistrationNumberToSlotId(Car.Type.GASOLINE, 0, getSlotsCountForCarType(Car.Type.GASOLINE));
+			
+			assertNull(this.parking.park(new DefaultCar("AI-241-SP", Car.Type.GASOLINE)));
+			
+			for (String registrationNumber: registrationNumberToSlotId.keySet()) {
+				this.parking.unparkAndBill(new DefaultCar(registrationNumber, Car.Type.GASOLINE));
+			}
+		}
+	}
+	
+	/**
+	 * Test parking the same cars concurrently from several threads, checking that each car is parked once and that no slot is given twice.
+	 */
+	@Test
+	void concurrentParkTest() {
+		int carsCount = getSlotsCountForCarType(Car.Type.GASOLINE);
+		ExecutorService executorService = Executors.newFixedThreadPool(threadsCount);
+		List<Callable<List<String>>> gates = new ArrayList<Callable<List<String>>>();
+		
+		for (int threadIndex = 0; threadIndex < threadsCount; threadIndex++) {
+			gates.add(() -> {
+				List<String> slotIds = new ArrayList<String>();
+				
+				for (int registrationIndex = 0; registrationIndex < carsCount; registrationIndex++) {
+					try {
+						slotIds.add(this.parking.park(new DefaultCar(Integer.toString(registrationIndex), Car.Type.GASOLINE)));
+					} catch (ParkingException e) {
+						// Already parked through another gate
+					}
+				}
+				
+				return slotIds;
+			});
+		}
+		
+		try {
+			Set<String> slotIds = new HashSet<String>();
+			int parkedCarsCount = 0;
+			
+			for (Future<List<String>> gateSlotIds: executorService.invokeAll(gates)) {
+				for (String slotId: gateSlotIds.get()) {
+					assertNotNull(slotId);
+					assertTrue(slotIds.add(slotId));
+					parkedCarsCount++;
+				}
+			}
+			
+			assertEquals(carsCount, parkedCarsCount);
+			for (int registrationIndex = 0; registrationIndex < carsCount; registrationIndex++) {
+				assertTrue(this.parking.isParked(new DefaultCar(Integer.toString(registrationIndex), Car.Type.GASOLINE)));
+			}
+			assertNull(this.parking.park(new DefaultCar(Integer.toString(carsCount), Car.Type.GASOLINE)));
+			assertFalse(this.parking.isParked(new DefaultCar(Integer.toString(carsCount), Car.Type.GASOLINE)));
+		} catch (Exception e) {
+			fail(e);
+		} finally {
+			executorService.shutdown();
+		}
+	}
+	
+	/**
+	 * Test parking cars whose type changes each time it is read: each car is placed under the type its slot has been reserved for, so that the slots
+	 * counted by the sharded parking stay consistent with the slots of its shards.
+	 * @throws ParkingException if a car cannot be parked or unparked
+	 */
+	@Test
+	void typeChangingWhileParkingTest() throws ParkingException {
+		Car.Type[] carTypes = {Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY};
+		List<Car> cars = new ArrayList<Car>();
+		
+		for (int registrationIndex = 0; registrationIndex < 6; registrationIndex++) {
+			String registrationNumber = "AB-" + registrationIndex;
+			AtomicInteger readsCount = new AtomicInteger(registrationIndex);
+			
+			cars.add(new Car() {
+				@Override
+				public String getRegistrationNumber() {
+					return registrationNumber;
+				}
+				
+				@Override
+				public Type getType() {
+					return carTypes[readsCount.getAndIncrement() % 2];
+				}
+			});
+		}
+		
+		// Half of the cars are parked one by one, the other half as a batch, each car reading first the type of its index parity
+		for (Car car: cars.subList(0, 3)) {
+			Slot slot = this.parking.parkAndGetSlot(car);
+			
+			assertNotNull(slot);
+			assertEquals(carTypes[cars.indexOf(car) % 2], slot.getCarType());
+		}
+		for (ParkingResult<String> result: this.parking.parkAll(cars.subList(3, 6))) {
+			assertNotNull(result.getValue());
+		}
+		for (ParkedCar parkedCar: this.parking.parkedBefore(this.clock.instant().plusMillis(1L))) {
+			assertEquals(carTypes[Integer.parseInt(parkedCar.getRegistrationNumber().substring(3)) % 2], parkedCar.getSlot().getCarType());
+		}
+		for (Car.Type carType: carTypes) {
+			assertEquals(3, this.parking.occupiedSlots(carType));
+		}
+		
+		this.clock.increment(Duration.ofHours(1));
+		for (Car car: cars) {
+			this.parking.unparkAndBill(car);
+		}
+		for (Car.Type carType: carTypes) {
+			assertEquals(getSlotsCountForCarType(carType), this.parking.availableSlots(carType));
+			assertEquals(0, this.parking.occupancy().getOccupiedSlots(carType));
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.Car;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.PricingPolicy;
+import parking.simulator.PoissonTraffic;
+import parking.simulator.Simulation;
+import parking.simulator.SimulationReport;
+import parking.simulator.StayDistribution;
+import parking.simulator.TraceTraffic;
+import parking.simulator.Traffic;
+
+/**
+ * Perform unittests on the discrete-event simulator, replaying recorded and synthetic traffics on parkings.
+ * @see Simulation
+ */
+final class SimulationTest {
+	static private final PricingPolicy pricingPolicy = new DefaultPricingPolicy(0.0f, 0.7f);
+	static private final Instant start = Instant.parse("2024-01-01T00:00:00Z");
+	
+	/**
+	 * Create a simulation of a parking with gasoline slots only.
+	 * @param gasolineSlotsCount the number of gasoline slots
+	 * @param shardsCount the number of shards, 1 for a parking which is not sharded
+	 * @return the simulation, not null
+	 */
+	static private Simulation createSimulation(int gasolineSlotsCount, int shardsCount) {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		carTypeToSlotsCount.put(Car.Type.GASOLINE, gasolineSlotsCount);
+		
+		return new Simulation(clock -> (shardsCount == 1 ? Parking.create(carTypeToSlotsCount, pricingPolicy, clock) :
+			Parking.createSharded(carTypeToSlotsCount, pricingPolicy, clock, shardsCount)), Duration.ofMinutes(30));
+	}
+	
+	/**
+	 * Create a synthetic traffic of gasoline cars.
+	 * @param duration how long cars keep arriving, not null
+	 * @param arrivalsPerHour the mean number of cars arriving per hour
+	 * @param seed the seed of the traffic
+	 * @return the traffic, not null
+	 */
+	static private Traffic createPoissonTraffic(Duration duration, double arrivalsPerHour, long seed) {
+		Map<Car.Type, Double> carTypeToArrivalsPerHour = new EnumMap<Car.Type, Double>(Car.Type.class);
+		
+		carTypeToArrivalsPerHour.put(Car.Type.GASOLINE, arrivalsPerHour);
+		
+		return new PoissonTraffic(start, duration, carTypeToArrivalsPerHour, StayDistribution.logNormal(Duration.ofMinutes(90), 0.8), seed);
+	}
+	
+	/**
+	 * Test replaying a small recorded trace on a parking of a single slot: a car arriving while the slot is occupied is rejected, a car arriving when the
+	 * previous one leaves is not.
+	 * @throws IOException if the trace cannot be read
+	 * @throws ParkingException if the parking rejects a visit with an exception
+	 */
+	@Test
+	void traceTest() throws IOException, ParkingException {
+		String trace = "# arrival,departure,carType,registrationNumber\n" +
+			"2024-03-01T08:00:00Z,2024-03-01T10:00:00Z,GASOLINE,AI-241-SP\n" +
+			"2024-03-01T09:00:00Z,2024-03-01T09:30:00Z,GASOLINE,8545 TY 68\n" +
+			"\n" +
+			"1709287200000,1709290800000,GASOLINE\n";
+		SimulationReport report;
+		
+		try (Traffic traffic = new TraceTraffic(new StringReader(trace))) {
+			report = createSimulation(1, 1).run(traffic);
+		}
+		assertEquals(Instant.parse("2024-03-01T08:00:00Z"), report.getStart());
+		assertEquals(Duration.ofHours(3), report.getSimulatedDuration());
+		assertEquals(5L, report.getEventsCount());
+		assertEquals(3L, report.getArrivalsCount(Car.Type.GASOLINE));
+		assertEquals(1L, report.getRejectedCount(Car.Type.GASOLINE));
+		assertEquals(1.0 / 3, report.getRejectionRate(), 1e-9);
+		assertEquals(2L, report.getBilled(Car.Type.GASOLINE).getBilledCarsCount());
+		assertEquals(2.1, report.getBilled().getRevenue(), 1e-6);
+		assertEquals(Duration.ofMinutes(90), report.getBilled(Car.Type.GASOLINE).getAverageStay());
+		assertEquals(1, report.getPeakOccupiedSlots(Car.Type.GASOLINE));
+		assertEquals(7, report.getSamplesCount());
+		assertEquals(Instant.parse("2024-03-01T11:00:00Z"), report.getSampleInstant(6));
+		assertArrayEquals(new int[] {0, 1, 1, 1, 1, 1, 1}, report.getOccupancyCurve(Car.Type.GASOLINE));
+		assertTrue(Double.isNaN(report.getRejectionRate(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY)));
+	}
+	
+	/**
+	 * Test malformed and unsorted traces are rejected with the number of the faulty line.
+	 */
+	@Test
+	void invalidTraceTest() {
+		String[] traces = {
+			"2024-03-01T08:00:00Z,2024-03-01T10:00:00Z\n",
+			"2024-03-01T08:00:00Z,2024-03-01T10:00:00Z,DIESEL\n",
+			"2024-03-01T10:00:00Z,2024-03-01T08:00:00Z,GASOLINE\n",
+			"2024-03-01T08:00:00Z,2024-03-01T10:00:00Z,GASOLINE\n2024-03-01T07:00:00Z,2024-03-01T10:00:00Z,GASOLINE\n"
+		};
+		
+		for (String trace: traces) {
+			IOException e = assertThrows(IOException.class, () -> createSimulation(1, 1).run(new TraceTraffic(new StringReader(trace))));
+			
+			assertTrue(e.getMessage().startsWith("Line " + trace.split("\n").length + " "), e.getMessage());
+		}
+	}
+	
+	/**
+	 * Test a synthetic traffic is replayed the same way for the same seed, on a parking sharded or not, and gives the expected arrival rate.
+	 * @throws IOException if the traffic cannot be read
+	 * @throws ParkingException if the parking rejects a visit with an exception
+	 */
+	@Test
+	void poissonTest() throws IOException, ParkingException {
+		SimulationReport report = createSimulation(200, 1).run(createPoissonTraffic(Duration.ofDays(30), 60.0, 42L));
+		SimulationReport shardedReport = createSimulation(200, 4).run(createPoissonTraffic(Duration.ofDays(30), 60.0, 42L));
+		long arrivalsCount = report.getArrivalsCount(Car.Type.GASOLINE);
+		
+		// 43200 arrivals expected over 30 days, the standard deviation being about 208
+		assertTrue(Math.abs(arrivalsCount - 43200L) < 1000L, "Arrivals count " + arrivalsCount);
+		assertEquals(arrivalsCount, shardedReport.getArrivalsCount(Car.Type.GASOLINE));
+		assertEquals(report.getBilled().getStayMillis(), shardedReport.getBilled().getStayMillis());
+		assertEquals(report.getSamplesCount(), shardedReport.getSamplesCount());
+		assertEquals(arrivalsCount - report.getRejectedCount(Car.Type.GASOLINE), report.getBilled(Car.Type.GASOLINE).getBilledCarsCount());
+		assertEquals(arrivalsCount + report.getBilled().getBilledCarsCount(), report.getEventsCount());
+		assertTrue(report.getPeakOccupiedSlots(Car.Type.GASOLINE) <= 200);
+		assertTrue(report.getAverageOccupancy(Car.Type.GASOLINE) > 0.4 && report.getAverageOccupancy(Car.Type.GASOLINE) < 0.8,
+			"Average occupancy " + report.getAverageOccupancy(Car.Type.GASOLINE));
+		
+		// Halving the slots rejects cars, whose departures are then never replayed
+		SimulationReport smallReport = createSimulation(100, 1).run(createPoissonTraffic(Duration.ofDays(30), 60.0, 42L));
+		
+		assertEquals(arrivalsCount, smallReport.getArrivalsCount(Car.Type.GASOLINE));
+		assertTrue(smallReport.getRejectionRate() > report.getRejectionRate());
+		assertEquals(100, smallReport.getPeakOccupiedSlots(Car.Type.GASOLINE));
+		assertEquals(arrivalsCount - smallReport.getRejectedCount(Car.Type.GASOLINE), smallReport.getBilled().getBilledCarsCount());
+	}
+}
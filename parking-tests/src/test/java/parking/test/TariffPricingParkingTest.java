@@ -0,0 +1,143 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.CompiledTariff;
+import parking.api.PricingPolicy;
+import parking.api.Tariff;
+import parking.api.TariffPricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a parking whose pricing policy is made of tariffs, plus unittests on compiled tariffs.
+ * <p>Tariffs of the parking are the declarative equivalent of the CustomPricingParkingTest unittest pricing policy.</p>
+ * @see TariffPricingPolicy
+ */
+final class TariffPricingParkingTest extends ParkingTestBase {
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 42);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 11);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The first 30 minutes are free, then a fixed amount is due whatever time the car stays. Electrical cars are also billed for each completed second.</p>
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		Tariff gasolineTariff = Tariff.free.withFee(Duration.ofMinutes(30), 5.0f);
+		Map<Car.Type, Tariff> carTypeToTariff = new EnumMap<Car.Type, Tariff>(Car.Type.class);
+		
+		carTypeToTariff.put(Car.Type.GASOLINE, gasolineTariff);
+		carTypeToTariff.put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, gasolineTariff.withRate(Duration.ZERO, null, Duration.ofSeconds(1), 0.0005f, false));
+		carTypeToTariff.put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, gasolineTariff.withRate(Duration.ZERO, null, Duration.ofSeconds(1), 0.001f, false));
+		
+		return new TariffPricingPolicy(carTypeToTariff);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return CustomPricingParkingTest.carTypeToparkingDurationToExpectedPrice.get(car.getType()).getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Test a step tariff billed per started hour with a daily cap.
+	 */
+	@Test
+	void stepTariffWithDailyCapTest() {
+		CompiledTariff tariff = Tariff.free
+			.withRate(Duration.ofMinutes(30), Duration.ofMinutes(210), Duration.ofHours(1), 2.5f, true)
+			.withRate(Duration.ofMinutes(210), null, Duration.ofHours(1), 1.5f, true)
+			.withDailyCap(20.0f)
+			.compile();
+		
+		assertEquals(3, tariff.getSegmentsCount());
+		assertEquals(0.0f, tariff.bill(Duration.ZERO));
+		assertEquals(0.0f, tariff.bill(Duration.ofMinutes(30)));
+		assertEquals(2.5f, tariff.bill(Duration.ofMinutes(30).plusMillis(1)));
+		assertEquals(2.5f, tariff.bill(Duration.ofMinutes(90)));
+		assertEquals(5.0f, tariff.bill(Duration.ofMinutes(91)));
+		assertEquals(7.5f, tariff.bill(Duration.ofMinutes(210)));
+		assertEquals(9.0f, tariff.bill(Duration.ofMinutes(211)));
+		assertEquals(13.5f, tariff.bill(Duration.ofHours(7)));
+		assertEquals(20.0f, tariff.bill(Duration.ofHours(12)));
+		assertEquals(20.0f, tariff.bill(Duration.ofDays(1)));
+		assertEquals(22.5f, tariff.bill(Duration.ofHours(25)));
+		assertEquals(40.0f, tariff.bill(Duration.ofDays(2)));
+		assertEquals(40.0f, tariff.bill(Duration.ofDays(2).plusMinutes(30)));
+	}
+	
+	/**
+	 * Test checking that a daily capped tariff with an arrival fee does not charge the fee again for a stay of whole days.
+	 */
+	@Test
+	void dailyCapAtWholeDaysTest() {
+		CompiledTariff tariff = Tariff.free
+			.withFee(Duration.ZERO, 1.0f)
+			.withRate(Duration.ZERO, null, Duration.ofHours(1), 1.0f, true)
+			.withDailyCap(10.0f)
+			.compile();
+		
+		assertEquals(1.0f, tariff.bill(Duration.ZERO));
+		assertEquals(10.0f, tariff.bill(Duration.ofDays(1).minusMillis(1)));
+		assertEquals(10.0f, tariff.bill(Duration.ofDays(1)));
+		assertEquals(12.0f, tariff.bill(Duration.ofDays(1).plusMillis(1)));
+		assertEquals(20.0f, tariff.bill(Duration.ofDays(2)));
+	}
+	
+	/**
+	 * Test overlapping fees and rates, with rates billed per completed period.
+	 */
+	@Test
+	void overlappingTariffTest() {
+		CompiledTariff tariff = Tariff.free
+			.withFee(Duration.ZERO, 1.0f)
+			.withRate(Duration.ZERO, Duration.ofHours(2), Duration.ofMinutes(15), 0.5f, false)
+			.withRate(Duration.ofHours(1), null, Duration.ofHours(1), 3.0f, false)
+			.withFee(Duration.ofHours(1), 2.0f)
+			.compile();
+		
+		assertEquals(1.0f, tariff.bill(Duration.ofMinutes(14)));
+		assertEquals(2.5f, tariff.bill(Duration.ofMinutes(45)));
+		assertEquals(5.0f, tariff.bill(Duration.ofHours(1)));
+		assertEquals(6.5f, tariff.bill(Duration.ofMinutes(119)));
+		assertEquals(10.0f, tariff.bill(Duration.ofHours(2)));
+		assertEquals(13.0f, tariff.bill(Duration.ofHours(3)));
+		assertEquals(0.0f, Tariff.free.compile().bill(Duration.ofDays(1)));
+	}
+	
+	/**
+	 * Test checking that invalid tariffs and tariff pricing policies are rejected.
+	 */
+	@Test
+	void invalidTariffTest() {
+		assertThrows(IllegalArgumentException.class, () -> Tariff.free.withFee(Duration.ofMinutes(-1), 1.0f));
+		assertThrows(IllegalArgumentException.class, () -> Tariff.free.withRate(Duration.ofHours(1), Duration.ofHours(1), Duration.ofHours(1), 1.0f, true));
+		assertThrows(IllegalArgumentException.class, () -> Tariff.free.withRate(Duration.ZERO, null, Duration.ZERO, 1.0f, true));
+		assertThrows(IllegalArgumentException.class, () -> new TariffPricingPolicy(Map.of(Car.Type.GASOLINE, Tariff.free)));
+	}
+}
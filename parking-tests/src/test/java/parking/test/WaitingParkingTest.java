@@ -0,0 +1,330 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import parking.api.Car;
+import parking.api.Car.Type;
+import parking.api.DefaultCar;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.ParkingMetrics;
+import parking.api.PricingPolicy;
+
+/**
+ * Perform nominal and duration unittests on a parking, plus unittests on the cars waiting for a slot.
+ * @see Parking#park(Car, Duration)
+ * @see Parking#parkWhenAvailable(Car, Duration)
+ */
+final class WaitingParkingTest extends ParkingTestBase {
+	static private final Car.Type waitingCarType = Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY;
+	static private final Duration longTimeout = Duration.ofSeconds(10);
+	static private final Duration shortTimeout = Duration.ofMillis(20);
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<Type, Integer> computeCarTypeToSlotsCount() {
+		return new HashMap<Car.Type, Integer>() {
+			private static final long serialVersionUID = 1L;
+		{
+			put(Car.Type.GASOLINE, 101);
+			put(Car.Type.ELECTRIC_WITH_20kW_POWER_SUPPLY, 23);
+			put(Car.Type.ELECTRIC_WITH_50kW_POWER_SUPPLY, 3);
+		}};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PricingPolicy computePricingPolicy() {
+		return new DefaultPricingPolicy(0.0f, 0.7f);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected float getExpectedPrice(Car car, Duration parkingDuration) {
+		return LargeParkingTest.parkingDurationToExpectedPrice.getOrDefault(parkingDuration, -1.0f);
+	}
+	
+	/**
+	 * Wait for the slot id of a car waiting for a slot.
+	 * @param parking the future slot id, not null
+	 * @return the slot id
+	 * @throws Exception if the car could not be parked or has not been given a slot in time
+	 */
+	static private String await(CompletableFuture<String> parking) throws Exception {
+		return parking.get(longTimeout.toSeconds(), TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Fill all the slots of the waiting car type.
+	 * @param parking the parking, not null
+	 * @return the parked cars, in the order they were parked
+	 * @throws ParkingException if a car cannot be parked
+	 */
+	private List<Car> fillSlots(Parking parking) throws ParkingException {
+		List<Car> cars = new ArrayList<Car>();
+		
+		for (int registrationIndex = 0; registrationIndex < getSlotsCountForCarType(waitingCarType); registrationIndex++) {
+			Car car = new DefaultCar("FULL-" + registrationIndex, waitingCarType);
+			
+			assertNotNull(parking.park(car));
+			cars.add(car);
+		}
+		assertNull(parking.park(new DefaultCar("REJECTED", waitingCarType)));
+		
+		return cars;
+	}
+	
+	/**
+	 * Test checking that waiting cars are given the released slots in the order they arrived, ahead of the cars which do not wait.
+	 * @param parking the parking to test, not null
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	private void fairWaitingTest(Parking parking) throws Exception {
+		List<Car> parkedCars = fillSlots(parking);
+		Car firstCar = new DefaultCar("AI-241-SP", waitingCarType);
+		Car secondCar = new DefaultCar("8545 TY 68", waitingCarType);
+		Car thirdCar = new DefaultCar("NG-289-SP", waitingCarType);
+		CompletableFuture<String> firstParking = parking.parkWhenAvailable(firstCar, longTimeout);
+		CompletableFuture<String> secondParking = parking.parkWhenAvailable(secondCar, longTimeout);
+		CompletableFuture<String> thirdParking = parking.parkWhenAvailable(thirdCar, longTimeout);
+		
+		assertFalse(firstParking.isDone());
+		assertFalse(parking.isParked(firstCar));
+		
+		// The released slot is given to the first waiting car by the unparking thread
+		this.clock.increment(Duration.ofHours(1));
+		parking.unparkAndBill(parkedCars.get(0));
+		assertTrue(firstParking.isDone());
+		assertNotNull(await(firstParking));
+		assertTrue(parking.isParked(firstCar));
+		assertFalse(secondParking.isDone());
+		assertNull(parking.park(new DefaultCar("BARGING", waitingCarType)));
+		
+		// A cancelled car leaves the queue, the next slot is given to the car behind it
+		assertTrue(secondParking.cancel(false));
+		parking.unparkAndBill(parkedCars.get(1));
+		assertNotNull(await(thirdParking));
+		assertFalse(parking.isParked(secondCar));
+		assertFalse(thirdParking.cancel(false));
+		
+		// Waiting cars arrive when they are given a slot
+		this.clock.increment(Duration.ofHours(1));
+		assertEquals(0.7f, parking.unparkAndBill(firstCar));
+		
+		// No car is waiting anymore: the slot is available again
+		assertEquals(1, parking.availableSlots(waitingCarType));
+		assertNotNull(parking.park(secondCar));
+	}
+	
+	/**
+	 * Test checking that waiting cars are served in the order they arrived.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void fairWaitingTest() throws Exception {
+		fairWaitingTest(this.parking);
+	}
+	
+	/**
+	 * Test checking that waiting cars are served in the order they arrived by a sharded parking.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void shardedFairWaitingTest() throws Exception {
+		fairWaitingTest(Parking.createSharded(computeCarTypeToSlotsCount(), computePricingPolicy(), this.clock, 2));
+	}
+	
+	/**
+	 * Test checking that a car waiting in a blocked thread is woken when a slot is released, and that a car gives up waiting after its timeout.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void blockingWaitTest() throws Exception {
+		List<Car> parkedCars = fillSlots(this.parking);
+		Car car = new DefaultCar("AI-241-SP", waitingCarType);
+		
+		this.parking.metrics().setEnabled(true);
+		assertNull(this.parking.park(car, shortTimeout));
+		assertNull(this.parking.park(car, Duration.ZERO));
+		assertNull(await(this.parking.parkWhenAvailable(car, shortTimeout)));
+		assertEquals(3, this.parking.metrics().snapshot().getCount(ParkingMetrics.Counter.NO_SLOT));
+		assertFalse(this.parking.isParked(car));
+		
+		CompletableFuture<String> blockedParking = CompletableFuture.supplyAsync(() -> {
+			try {
+				return this.parking.park(car, longTimeout);
+			} catch (ParkingException | InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		
+		// The blocked car is queued at some point, the slot released before that is taken when it is queued
+		Thread.sleep(50L);
+		this.parking.unparkAndBill(parkedCars.get(0));
+		assertNotNull(blockedParking.get(longTimeout.toSeconds(), TimeUnit.SECONDS));
+		assertTrue(this.parking.isParked(car));
+		assertThrows(ParkingException.class, () -> this.parking.park(car, shortTimeout));
+		
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> await(this.parking.parkWhenAvailable(car, shortTimeout)));
+		
+		assertInstanceOf(ParkingException.class, exception.getCause());
+	}
+	
+	/**
+	 * Test checking that the parks waiting for a slot record the latency of the slot occupation, and nothing when they are not given a slot.
+	 * @param parking the parking to test, not null
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	private void waitingLatencyTest(Parking parking) throws Exception {
+		List<Car> parkedCars = fillSlots(parking);
+		Car car = new DefaultCar("AI-241-SP", waitingCarType);
+		Car otherCar = new DefaultCar("8545 TY 68", waitingCarType);
+		
+		parking.metrics().setEnabled(true);
+		assertNull(parking.park(car, Duration.ZERO));
+		assertEquals(0L, parking.metrics().snapshot().getLatency(ParkingMetrics.Operation.PARK).getCount());
+		
+		CompletableFuture<String> waitingParking = parking.parkWhenAvailable(car, longTimeout);
+		
+		parking.unparkAndBill(parkedCars.get(0));
+		assertNotNull(await(waitingParking));
+		assertEquals(1L, parking.metrics().snapshot().getLatency(ParkingMetrics.Operation.PARK).getCount());
+		
+		parking.unparkAndBill(parkedCars.get(1));
+		assertNotNull(parking.park(otherCar, longTimeout));
+		assertEquals(2L, parking.metrics().snapshot().getLatency(ParkingMetrics.Operation.PARK).getCount());
+	}
+	
+	/**
+	 * Test checking that the parks waiting for a slot record the latency of the slot occupation.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void waitingLatencyTest() throws Exception {
+		waitingLatencyTest(this.parking);
+	}
+	
+	/**
+	 * Test checking that the parks waiting for a slot of a sharded parking record the latency of the slot occupation.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void shardedWaitingLatencyTest() throws Exception {
+		waitingLatencyTest(Parking.createSharded(computeCarTypeToSlotsCount(), computePricingPolicy(), this.clock, 2));
+	}
+	
+	/**
+	 * Test checking that a slot granted to waiting cars is given back when the clock fails while they occupy it.
+	 * @param parking the parking to test, not null
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	private void throwingClockWaitTest(Parking parking) throws Exception {
+		List<Car> parkedCars = fillSlots(parking);
+		Car car = new DefaultCar("AI-241-SP", waitingCarType);
+		Car blockedCar = new DefaultCar("8545 TY 68", waitingCarType);
+		CompletableFuture<String> waitingParking = parking.parkWhenAvailable(car, longTimeout);
+		CompletableFuture<String> blockedParking = CompletableFuture.supplyAsync(() -> {
+			try {
+				return parking.park(blockedCar, longTimeout);
+			} catch (ParkingException | InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		
+		// The blocked car is queued behind the waiting car
+		Thread.sleep(50L);
+		
+		// The departure is read, then the arrivals of both waiting cars fail
+		this.clock.setFailure(new IllegalStateException("Clock failure"), 1);
+		try {
+			parking.unparkAndBill(parkedCars.get(0));
+		} finally {
+			this.clock.setFailure(null, 0);
+		}
+		
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> await(waitingParking));
+		
+		assertInstanceOf(IllegalStateException.class, exception.getCause());
+		assertThrows(ExecutionException.class, () -> await(blockedParking));
+		assertFalse(parking.isParked(car));
+		assertFalse(parking.isParked(blockedCar));
+		
+		// The slot is available again
+		assertEquals(1, parking.availableSlots(waitingCarType));
+		assertNotNull(parking.park(car));
+	}
+	
+	/**
+	 * Test checking that a slot granted to waiting cars is given back when the clock fails while they occupy it.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void throwingClockWaitTest() throws Exception {
+		throwingClockWaitTest(this.parking);
+	}
+	
+	/**
+	 * Test checking that a slot granted to waiting cars by a sharded parking is given back when the clock fails while they occupy it.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void shardedThrowingClockWaitTest() throws Exception {
+		throwingClockWaitTest(Parking.createSharded(computeCarTypeToSlotsCount(), computePricingPolicy(), this.clock, 2));
+	}
+	
+	/**
+	 * Test checking that a thread interrupted while waiting for a slot withdraws its car.
+	 * @throws Exception if an operation fails unexpectedly
+	 */
+	@Test
+	void interruptedWaitTest() throws Exception {
+		List<Car> parkedCars = fillSlots(this.parking);
+		Car car = new DefaultCar("AI-241-SP", waitingCarType);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread waitingThread = new Thread(() -> {
+			try {
+				this.parking.park(car, longTimeout);
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		});
+		
+		waitingThread.start();
+		Thread.sleep(50L);
+		waitingThread.interrupt();
+		waitingThread.join(longTimeout.toMillis());
+		
+		assertInstanceOf(InterruptedException.class, failure.get());
+		this.parking.unparkAndBill(parkedCars.get(0));
+		assertFalse(this.parking.isParked(car));
+		assertEquals(1, this.parking.availableSlots(waitingCarType));
+	}
+}
@@ -0,0 +1,11 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+
+/**
+ * The 'Parking toll library' module.
+ * <p>Only the {@link parking.api} package is exported, the implementation being reached through {@link parking.api.Parking#create(java.util.Map, parking.api.PricingPolicy)}.</p>
+ */
+module parking {
+	exports parking.api;
+}
@@ -0,0 +1,75 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The Interface AsyncParking.
+ * <p>An asynchronous facade of a {@link Parking}, for gate services which must not block: each operation is run on an executor and its result
+ * is delivered through a {@link CompletableFuture}. A {@link ParkingException} the parking operation throws completes the future exceptionally.</p>
+ * <p>Operations on cars with the same registration number are run one after the other, in the order they are submitted, whatever the executor:
+ * an operation only starts once the previous operation on the same registration number has completed. Operations on different registration numbers
+ * run concurrently, so that a slow pricing policy billing a car does not hold up the gates serving the other cars.</p>
+ * <p>Creating an async parking must be done through one of the static create methods.</p>
+ */
+public interface AsyncParking {
+	/**
+	 * Create a new AsyncParking object running its operations on a given executor.
+	 * <p>The executor should not have a small bounded number of threads: operations may block on the locks of the parking and run
+	 * an arbitrary pricing policy.</p>
+	 * @param parking the parking the operations are delegated to, not null
+	 * @param executor the executor running the operations, null for the default executor
+	 * @return the async parking, not null
+	 */
+	static AsyncParking create(Parking parking, Executor executor) {
+		return ParkingFactory.Singleton.getInstance().createAsync(parking, executor);
+	}
+	
+	/**
+	 * Create a new AsyncParking object running its operations on the default executor.
+	 * <p>The default executor runs each operation on its own virtual thread when the Java runtime provides them (Java 21 or later),
+	 * on a cached pool of daemon threads otherwise. It is shared by all the async parkings.</p>
+	 * @see AsyncParking#create(Parking, Executor)
+	 * @param parking the parking the operations are delegated to, not null
+	 * @return the async parking, not null
+	 */
+	static AsyncParking create(Parking parking) {
+		return AsyncParking.create(parking, null);
+	}
+	
+	/**
+	 * Get the parking the operations are delegated to.
+	 * @return the parking, not null
+	 */
+	Parking getParking();
+	
+	/**
+	 * Park a car asynchronously.
+	 * <p>Same as {@link Parking#park(Car)}: the returned future completes with the slot id, null if there is no slot left for the car type.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param car the car to park, not null
+	 * @return the future slot id, not null
+	 */
+	CompletableFuture<String> park(Car car);
+	
+	/**
+	 * Unpark and bill a car asynchronously.
+	 * <p>Same as {@link Parking#unparkAndBill(Car)}: the returned future completes with the price to pay.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param car the car to unpark, not null
+	 * @return the future price, not null
+	 */
+	CompletableFuture<Float> unparkAndBill(Car car);
+	
+	/**
+	 * Test asynchronously whether or not a car is parked.
+	 * <p>Same as {@link Parking#isParked(Car)}, once the operations previously submitted for the same registration number have completed.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param car the car, not null
+	 * @return the future test result, not null
+	 */
+	CompletableFuture<Boolean> isParked(Car car);
+}
@@ -0,0 +1,95 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The bill ticket of a car which has left the parking.
+ * <p>Returned by {@link Parking#unpark(Car)} and {@link BillingPipeline#unpark(Car)}: the slot of the car has been released, the ticket records
+ * the arrival and departure instants the car is billed for. The price is delivered by {@link #getPrice()} once the ticket is billed by
+ * {@link Parking#bill(BillTicket)}; register a callback on the future to be notified of it.</p>
+ * <p>A ticket can only be billed by the parking which issued it, and only once: a parking identifies its tickets by an issuer object only known to it,
+ * so that a ticket created by any other code is rejected.</p>
+ * @see Parking#unpark(Car)
+ * @see BillingPipeline
+ */
+public final class BillTicket {
+	private final Object issuer;
+	private final Car car;
+	private final String registrationNumber;
+	private final long arrivalEpochMillis;
+	private final long departureEpochMillis;
+	private final CompletableFuture<Float> price;
+	
+	/**
+	 * Instantiates a new bill ticket, not billed yet.
+	 * <p>Meant to be called by parking implementations only: the ticket is only billed by the parking owning the given issuer.</p>
+	 * @param issuer the issuer of the ticket, compared by identity, an object private to the parking issuing the ticket
+	 * @param car the car, not null
+	 * @param registrationNumber the registration number of the car when it left the parking, can be null
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 */
+	public BillTicket(Object issuer, Car car, String registrationNumber, long arrivalEpochMillis, long departureEpochMillis) {
+		this.issuer = issuer;
+		this.car = car;
+		this.registrationNumber = registrationNumber;
+		this.arrivalEpochMillis = arrivalEpochMillis;
+		this.departureEpochMillis = departureEpochMillis;
+		this.price = new CompletableFuture<Float>();
+	}
+	
+	/**
+	 * Test whether or not the ticket has been issued by the owner of an issuer.
+	 * @param issuer the issuer, compared by identity
+	 * @return true if the ticket has been created with the given issuer
+	 */
+	public boolean isIssuedBy(Object issuer) {
+		return this.issuer == issuer;
+	}
+	
+	/**
+	 * Gets the car.
+	 * @return the car, not null
+	 */
+	public Car getCar() {
+		return this.car;
+	}
+	
+	/**
+	 * Gets the registration number of the car when it left the parking.
+	 * @return the registration number, can be null
+	 */
+	public String getRegistrationNumber() {
+		return this.registrationNumber;
+	}
+	
+	/**
+	 * Gets the arrival instant.
+	 * @return the arrival instant, in milliseconds from the epoch
+	 */
+	public long getArrivalEpochMillis() {
+		return this.arrivalEpochMillis;
+	}
+	
+	/**
+	 * Gets the departure instant.
+	 * @return the departure instant, in milliseconds from the epoch
+	 */
+	public long getDepartureEpochMillis() {
+		return this.departureEpochMillis;
+	}
+	
+	/**
+	 * Gets the future price of the car.
+	 * <p>The future is completed with the price to pay when the ticket is billed, or completed exceptionally with the exception billing has thrown:
+	 * a {@link ParkingException} if the departure occurs before the arrival, or the {@link RuntimeException} thrown by the pricing policy.
+	 * It is meant to be completed by the parking only.</p>
+	 * @return the future price, not null, always the same instance
+	 */
+	public CompletableFuture<Float> getPrice() {
+		return this.price;
+	}
+}
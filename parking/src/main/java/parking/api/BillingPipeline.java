@@ -0,0 +1,65 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.io.Closeable;
+
+/**
+ * The Interface BillingPipeline.
+ * <p>Takes the pricing off the exit gates: {@link #unpark(Car)} releases the slot of the car and hands back its bill ticket at once, the ticket being billed
+ * later by a pricing thread of the pipeline, by batches priced with {@link Parking#billAll(java.util.Collection)}. The price is delivered by {@link BillTicket#getPrice()}, which is also completed exceptionally if the departure
+ * occurs before the arrival or if the pricing policy throws.</p>
+ * <p>Tickets waiting to be billed are held in a bounded queue, which the pricing thread drains by batches: the gates and the pricing thread only meet once
+ * per batch. When the queue is full, {@link #unpark(Car)} waits for the pricing thread to make room: a pricing policy slower than the exit rate
+ * eventually slows down the gates instead of piling up tickets.</p>
+ * <p>The pipeline must be closed once not used anymore so that its pricing thread stops. Creating a pipeline must be done through the static create method.</p>
+ * @see Parking#unpark(Car)
+ * @see Parking#bill(BillTicket)
+ */
+public interface BillingPipeline extends Closeable {
+	/**
+	 * Create a new BillingPipeline object.
+	 * @param parking the parking the cars are unparked from and billed by, not null
+	 * @param capacity the maximum number of tickets waiting to be billed, strictly positive
+	 * @param batchSize the maximum number of tickets billed per batch, strictly positive
+	 * @return the pipeline, not null, its pricing thread started
+	 * @throws IllegalArgumentException if the capacity or the batch size is not strictly positive
+	 */
+	static BillingPipeline create(Parking parking, int capacity, int batchSize) {
+		return ParkingFactory.Singleton.getInstance().createBillingPipeline(parking, capacity, batchSize);
+	}
+	
+	/**
+	 * Get the parking the cars are unparked from and billed by.
+	 * @return the parking, not null
+	 */
+	Parking getParking();
+	
+	/**
+	 * Unpark a car and hand back its bill ticket.
+	 * <p>Same as {@link Parking#unpark(Car)}, the ticket being billed by the pipeline. Waits, after the slot is released, while the pipeline is full.
+	 * If the current thread is interrupted while waiting, the ticket is not billed: its price is completed exceptionally with the {@link InterruptedException}
+	 * and the interrupt status of the current thread is kept.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param car the car, not null
+	 * @return the bill ticket, not null
+	 * @throws ParkingException if the car was not parked
+	 * @throws IllegalStateException if the pipeline is closed
+	 */
+	BillTicket unpark(Car car) throws ParkingException;
+	
+	/**
+	 * Get the number of tickets waiting to be billed.
+	 * <p>Default implementation is thread safe.</p>
+	 * @return the number of pending tickets
+	 */
+	int getPendingTicketsCount();
+	
+	/**
+	 * Close the pipeline.
+	 * <p>Stops accepting cars, bills the pending tickets and waits for the pricing thread to stop. Closing a closed pipeline does nothing.</p>
+	 */
+	@Override
+	void close();
+}
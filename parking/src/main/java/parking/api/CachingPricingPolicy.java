@@ -0,0 +1,164 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A PricingPolicy memoizing the prices billed by another pricing policy.
+ * <p>The decorated policy must declare its billing granularity (see {@link PricingPolicy#getBillingGranularityMillis()}): all the cars of a given type
+ * whose parking durations fall in the same granularity bucket are billed the same price. The first car billed for a car type and a bucket is billed
+ * by the decorated policy, the following ones are billed the memoized price without calling the decorated policy at all.</p>
+ * <p>Memoized prices are kept in a bounded direct mapped table: each (car type, bucket) key is hashed to a single entry of the table, a new key evicting
+ * the key previously held by its entry. Each entry packs the key and the price bits in a single long, so that entries are read and written atomically
+ * without any lock: billing a car never blocks and does not allocate any memory. Hits, misses and evictions are counted.</p>
+ * <p>Exceptions thrown by the decorated policy are propagated and not memoized. Durations whose bucket is too large to be packed in an entry
+ * (more than about a billion granularities) are billed by the decorated policy and counted as misses.</p>
+ * <p>CachingPricingPolicy is thread safe, if the decorated policy is.</p>
+ * @see PricingPolicy#getBillingGranularityMillis()
+ */
+public final class CachingPricingPolicy implements EpochMillisPricingPolicy {
+	/* Car.Type.values() returns a new array on each call */
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	/* Keys are stored plus one in the 32 upper bits of an entry, zero meaning an empty entry */
+	static private final long maxKey = 0xFFFFFFFEL;
+	
+	private final PricingPolicy pricingPolicy;
+	private final EpochMillisPricingPolicy epochMillisPricingPolicy;
+	private final long billingGranularityMillis;
+	
+	/* All members below are safe for concurrent accesses:
+	 *   entries is an atomic array, entries are read and written as a whole
+	 *   counters are long adders */
+	private final AtomicLongArray entries;
+	private final int entryIndexMask;
+	private final LongAdder hitsCount;
+	private final LongAdder missesCount;
+	private final LongAdder evictionsCount;
+	
+	/**
+	 * Instantiates a new caching pricing policy.
+	 * @param pricingPolicy the pricing policy to decorate, not null, declaring its billing granularity
+	 * @param capacity the maximum number of memoized prices, strictly positive, rounded up to a power of two
+	 * @throws IllegalArgumentException if the pricing policy does not declare its billing granularity or the capacity is not strictly positive
+	 */
+	public CachingPricingPolicy(PricingPolicy pricingPolicy, int capacity) {
+		if (pricingPolicy.getBillingGranularityMillis() <= 0L) {
+			throw new IllegalArgumentException("Pricing policy " + pricingPolicy + " does not declare its billing granularity");
+		}
+		if ((capacity <= 0) || (capacity > (1 << 30))) {
+			throw new IllegalArgumentException("Invalid capacity " + capacity);
+		}
+		
+		this.pricingPolicy = pricingPolicy;
+		this.epochMillisPricingPolicy = (pricingPolicy instanceof EpochMillisPricingPolicy ? (EpochMillisPricingPolicy) pricingPolicy : null);
+		this.billingGranularityMillis = pricingPolicy.getBillingGranularityMillis();
+		this.entries = new AtomicLongArray(1 << (Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1)));
+		this.entryIndexMask = this.entries.length() - 1;
+		this.hitsCount = new LongAdder();
+		this.missesCount = new LongAdder();
+		this.evictionsCount = new LongAdder();
+	}
+	
+	/**
+	 * Get the decorated pricing policy.
+	 * @return the pricing policy, not null
+	 */
+	public PricingPolicy getPricingPolicy() {
+		return this.pricingPolicy;
+	}
+	
+	/**
+	 * Get the maximum number of memoized prices.
+	 * @return the capacity, a power of two
+	 */
+	public int getCapacity() {
+		return this.entries.length();
+	}
+	
+	/**
+	 * Get the number of cars billed a memoized price.
+	 * @return the hits count
+	 */
+	public long getHitsCount() {
+		return this.hitsCount.sum();
+	}
+	
+	/**
+	 * Get the number of cars billed by the decorated policy.
+	 * @return the misses count
+	 */
+	public long getMissesCount() {
+		return this.missesCount.sum();
+	}
+	
+	/**
+	 * Get the number of memoized prices evicted by the price of another key.
+	 * @return the evictions count
+	 */
+	public long getEvictionsCount() {
+		return this.evictionsCount.sum();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Returns the billing granularity of the decorated policy.</p>
+	 */
+	@Override
+	public long getBillingGranularityMillis() {
+		return this.billingGranularityMillis;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float bill(Car car, long arrivalEpochMillis, long departureEpochMillis) {
+		long bucket = (departureEpochMillis - arrivalEpochMillis) / this.billingGranularityMillis;
+		
+		if ((bucket < 0L) || (bucket > (maxKey - carTypes.length) / carTypes.length)) {
+			this.missesCount.increment();
+			return billWithPricingPolicy(car, arrivalEpochMillis, departureEpochMillis);
+		}
+		
+		long storedKey = bucket * carTypes.length + car.getType().ordinal() + 1L;
+		// Fibonacci hashing spreads consecutive buckets over the whole table
+		int entryIndex = (int) ((storedKey * 0x9E3779B97F4A7C15L) >>> Integer.SIZE) & this.entryIndexMask;
+		long entry = this.entries.get(entryIndex);
+		
+		if ((entry >>> Integer.SIZE) == storedKey) {
+			this.hitsCount.increment();
+			return Float.intBitsToFloat((int) entry);
+		}
+		
+		this.missesCount.increment();
+		
+		float price = billWithPricingPolicy(car, arrivalEpochMillis, departureEpochMillis);
+		
+		if (entry != 0L) {
+			this.evictionsCount.increment();
+		}
+		this.entries.set(entryIndex, (storedKey << Integer.SIZE) | (Float.floatToRawIntBits(price) & 0xFFFFFFFFL));
+		
+		return price;
+	}
+	
+	/**
+	 * Bill a car with the decorated pricing policy.
+	 * @param car the car to bill
+	 * @param arrivalEpochMillis the arrival instant in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant in milliseconds from the epoch
+	 * @return the price to pay to leave the parking
+	 */
+	private float billWithPricingPolicy(Car car, long arrivalEpochMillis, long departureEpochMillis) {
+		if (this.epochMillisPricingPolicy != null) {
+			return this.epochMillisPricingPolicy.bill(car, arrivalEpochMillis, departureEpochMillis);
+		}
+		
+		return this.pricingPolicy.bill(car, Instant.ofEpochMilli(arrivalEpochMillis), Instant.ofEpochMilli(departureEpochMillis));
+	}
+}
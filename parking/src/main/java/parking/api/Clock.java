@@ -0,0 +1,72 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Instant;
+
+/**
+ * The Interface Clock.
+ * <p>Used by a parking to know how much time a car was parked and bill it accordingly.
+ * <b>You normally do not have to implement this interface</b> as a {@link Parking} instance can be created by {@link Parking#create(java.util.Map, PricingPolicy)}
+ * without providing a clock (a default clock is provided in that case).</p>
+ * @see Parking
+ */
+public interface Clock {
+	/**
+	 * The Enum Mode.
+	 * <p>The time sources the clocks provided by the library rely on. Refer to {@link Clock#create(Mode)}.</p>
+	 */
+	enum Mode {
+		/**
+		 * The system (wall) clock, read on each call. This is the mode of the default clock.
+		 * <p>May go backwards if the system time is adjusted while cars are parked, causing {@link Parking#unparkAndBill(Car)} to throw
+		 * a {@link ParkingException}.</p>
+		 */
+		SYSTEM,
+		
+		/**
+		 * The system (wall) clock, read about every millisecond by a shared background ticker thread and cached in between.
+		 * <p>Reading the clock is a mere memory read, at the cost of being up to a few milliseconds late. Like {@link #SYSTEM}, the cached time may go
+		 * backwards if the system time is adjusted.</p>
+		 */
+		CACHED,
+		
+		/**
+		 * A monotonic clock measuring the time elapsed since its creation with {@link System#nanoTime()}, anchored once on the system clock.
+		 * <p>Never goes backwards, so departures are never billed before arrivals, but it does not follow later adjustments of the system time.</p>
+		 */
+		MONOTONIC
+	}
+	
+	/**
+	 * Get a clock provided by the library.
+	 * <p>Delegates its calls to {@link ParkingFactory#createClock(Mode)} on the factory singleton instance. The returned clock can be given to
+	 * {@link Parking#create(java.util.Map, PricingPolicy, Clock)}; none of the clocks returned by this method allocates memory in {@link #millis()}.</p>
+	 * @param mode the time source mode, not null
+	 * @return the clock, not null
+	 */
+	static Clock create(Mode mode) {
+		return ParkingFactory.Singleton.getInstance().createClock(mode);
+	}
+	
+	/**
+	 * The current instant.
+	 * <p>Returned instant is expected to change and be greater if this method is called again later in time.
+	 * Not complying with this rule will cause {@link Parking#unparkAndBill(Car)} method to throw a {@link ParkingException} exception.</p>
+	 * @return the instant, not null
+	 */
+	Instant instant();
+	
+	/**
+	 * The current instant in milliseconds from the epoch (1970-01-01T00:00:00Z).
+	 * <p>This is the method actually used by the default {@link Parking} implementation, which only keeps track of the arrival and departure instants with
+	 * a millisecond precision. Same rules as {@link #instant()} apply: the returned value is expected to be greater if this method is called again later in time.</p>
+	 * <p>Default implementation converts the value returned by {@link #instant()}. Override it if your clock can give the current time
+	 * without creating an {@link Instant} object, so that parking and unparking a car do not allocate any memory.</p>
+	 * @return the current instant in milliseconds from the epoch
+	 */
+	default long millis() {
+		return instant().toEpochMilli();
+	}
+}
\ No newline at end of file
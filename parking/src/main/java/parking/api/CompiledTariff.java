@@ -0,0 +1,176 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Duration;
+import java.util.TreeSet;
+
+/**
+ * A tariff compiled into a pricing policy.
+ * <p>Created by {@link Tariff#compile()}. The durations from which fees are due and rates apply or stop applying split the parking durations in segments,
+ * over each of which the same rates apply. The compiled tariff keeps the segment bounds in a sorted array along with, for each segment, the price of the fees
+ * due and of the rates ended at the start of the segment, and the rates applying over the segment. Billing a duration binary searches its segment
+ * and adds the periods of the rates applying over it: it runs in constant time for a given tariff and does not allocate any memory.</p>
+ * <p>Instances are immutable.</p>
+ * @see Tariff
+ */
+public final class CompiledTariff extends DurationPricingPolicy {
+	static private final long millisPerDay = 86_400_000L;
+	
+	/* Segment i starts at segmentStartMillis[i] (segmentStartMillis[0] is zero) and ends at the start of segment i + 1, if any.
+	 * Rates applying over segment i are the active rates firstActiveRates[i] (included) to firstActiveRates[i + 1] (excluded).
+	 * Periods of an active rate are counted as completed periods from its origin: the origin of a rate billed per started period is moved
+	 * one millisecond short of a period before the duration the rate applies from */
+	private final long[] segmentStartMillis;
+	private final double[] segmentBasePrices;
+	private final int[] firstActiveRates;
+	private final long[] activeRateOriginMillis;
+	private final long[] activeRatePeriodMillis;
+	private final double[] activeRateAmounts;
+	private final double dailyCap;
+	private final double dailyPrice;
+	
+	/**
+	 * Instantiates a new compiled tariff.
+	 * <p>Refer to {@link Tariff} for the meaning of the arguments, which are not modified.</p>
+	 * @param feeFromMillis the duration from which each fee is due, in milliseconds
+	 * @param feeAmounts the amount of each fee
+	 * @param rateFromMillis the duration from which each rate applies, in milliseconds
+	 * @param rateToMillis the duration until which each rate applies, in milliseconds, Long.MAX_VALUE if the rate always applies afterwards
+	 * @param ratePeriodMillis the period of each rate, in milliseconds
+	 * @param rateAmounts the amount due for each period of each rate
+	 * @param ratePerStartedPeriods true for each rate due for each started period, false for each rate due for each completed period
+	 * @param dailyCap the maximum price of a day, Float.POSITIVE_INFINITY if there is none
+	 */
+	CompiledTariff(long[] feeFromMillis, float[] feeAmounts, long[] rateFromMillis, long[] rateToMillis, long[] ratePeriodMillis, float[] rateAmounts,
+		boolean[] ratePerStartedPeriods, float dailyCap) {
+		TreeSet<Long> segmentBounds = new TreeSet<Long>();
+		
+		segmentBounds.add(0L);
+		for (long fromMillis: feeFromMillis) {
+			segmentBounds.add(fromMillis);
+		}
+		for (int rateIndex = 0; rateIndex < rateFromMillis.length; rateIndex++) {
+			segmentBounds.add(rateFromMillis[rateIndex]);
+			if (rateToMillis[rateIndex] != Long.MAX_VALUE) {
+				segmentBounds.add(rateToMillis[rateIndex]);
+			}
+		}
+		
+		int segmentsCount = segmentBounds.size();
+		int activeRatesCount = 0;
+		
+		this.segmentStartMillis = new long[segmentsCount];
+		this.segmentBasePrices = new double[segmentsCount];
+		this.firstActiveRates = new int[segmentsCount + 1];
+		this.activeRateOriginMillis = new long[segmentsCount * rateFromMillis.length];
+		this.activeRatePeriodMillis = new long[this.activeRateOriginMillis.length];
+		this.activeRateAmounts = new double[this.activeRateOriginMillis.length];
+		
+		int segmentIndex = 0;
+		
+		for (long startMillis: segmentBounds) {
+			double basePrice = 0.0;
+			
+			for (int feeIndex = 0; feeIndex < feeFromMillis.length; feeIndex++) {
+				if (feeFromMillis[feeIndex] <= startMillis) {
+					basePrice += feeAmounts[feeIndex];
+				}
+			}
+			this.firstActiveRates[segmentIndex] = activeRatesCount;
+			for (int rateIndex = 0; rateIndex < rateFromMillis.length; rateIndex++) {
+				if (rateToMillis[rateIndex] <= startMillis) {
+					// The rate has ended before the segment: all its periods are due
+					long periodsCount = (rateToMillis[rateIndex] - rateFromMillis[rateIndex]) / ratePeriodMillis[rateIndex];
+					
+					if (ratePerStartedPeriods[rateIndex] && (periodsCount * ratePeriodMillis[rateIndex] != rateToMillis[rateIndex] - rateFromMillis[rateIndex])) {
+						periodsCount++;
+					}
+					basePrice += rateAmounts[rateIndex] * periodsCount;
+				} else if (rateFromMillis[rateIndex] <= startMillis) {
+					// Rate bounds are segment bounds: the rate applies over the whole segment
+					this.activeRateOriginMillis[activeRatesCount] = rateFromMillis[rateIndex] - (ratePerStartedPeriods[rateIndex] ? ratePeriodMillis[rateIndex] - 1L : 0L);
+					this.activeRatePeriodMillis[activeRatesCount] = ratePeriodMillis[rateIndex];
+					this.activeRateAmounts[activeRatesCount] = rateAmounts[rateIndex];
+					activeRatesCount++;
+				}
+			}
+			this.segmentStartMillis[segmentIndex] = startMillis;
+			this.segmentBasePrices[segmentIndex] = basePrice;
+			segmentIndex++;
+		}
+		this.firstActiveRates[segmentsCount] = activeRatesCount;
+		
+		this.dailyCap = dailyCap;
+		this.dailyPrice = Math.min(uncappedPrice(millisPerDay), this.dailyCap);
+	}
+	
+	/**
+	 * Compute the price of a parking duration, regardless of the daily cap.
+	 * @param parkingDurationMillis the parking duration in milliseconds, positive or zero
+	 * @return the price
+	 */
+	private double uncappedPrice(long parkingDurationMillis) {
+		// Binary search the last segment starting before or at the parking duration, the first segment starting at zero
+		int segmentIndex = 0;
+		int nextSegmentIndex = this.segmentStartMillis.length;
+		
+		while (nextSegmentIndex - segmentIndex > 1) {
+			int middleSegmentIndex = (segmentIndex + nextSegmentIndex) >>> 1;
+			
+			if (this.segmentStartMillis[middleSegmentIndex] <= parkingDurationMillis) {
+				segmentIndex = middleSegmentIndex;
+			} else {
+				nextSegmentIndex = middleSegmentIndex;
+			}
+		}
+		
+		double price = this.segmentBasePrices[segmentIndex];
+		
+		for (int activeRateIndex = this.firstActiveRates[segmentIndex]; activeRateIndex < this.firstActiveRates[segmentIndex + 1]; activeRateIndex++) {
+			price += this.activeRateAmounts[activeRateIndex] * ((parkingDurationMillis - this.activeRateOriginMillis[activeRateIndex]) / this.activeRatePeriodMillis[activeRateIndex]);
+		}
+		
+		return price;
+	}
+	
+	/**
+	 * Get the number of segments the parking durations are split in.
+	 * @return the segments count, at least one
+	 */
+	public int getSegmentsCount() {
+		return this.segmentStartMillis.length;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float bill(Duration parkingDuration) {
+		return bill(parkingDuration.toMillis());
+	}
+	
+	/**
+	 * Bill a car according the duration, in milliseconds, it stayed in the parking.
+	 * <p>Binary searches the compiled segments: no memory is allocated.</p>
+	 * @param parkingDurationMillis the parking duration in milliseconds, always positive or zero
+	 * @return the price to pay to leave the parking
+	 */
+	@Override
+	public float bill(long parkingDurationMillis) {
+		if (this.dailyCap == Double.POSITIVE_INFINITY) {
+			return (float) uncappedPrice(parkingDurationMillis);
+		}
+		
+		long daysCount = parkingDurationMillis / millisPerDay;
+		long remainderMillis = parkingDurationMillis % millisPerDay;
+		
+		// A stay of whole days ends with the last day: an empty remainder is not a new stay, which would be charged the fees due at arrival
+		if ((daysCount > 0) && (remainderMillis == 0)) {
+			return (float) (daysCount * this.dailyPrice);
+		}
+		
+		return (float) (daysCount * this.dailyPrice + Math.min(uncappedPrice(remainderMillis), this.dailyCap));
+	}
+}
@@ -12,6 +12,8 @@ import java.time.Instant;
  * A hour is only due when it is completed.</p>
  */
 public final class DefaultPricingPolicy extends DurationPricingPolicy {
+	static private final long millisPerHour = 3_600_000L;
+	
 	private final float fixedAmount;
 	private final float hourlyAmount;
 	
@@ -39,4 +41,24 @@ public final class DefaultPricingPolicy extends DurationPricingPolicy {
 	public float bill(Duration parkingDuration) {
 		return this.fixedAmount + (parkingDuration.toHours() * this.hourlyAmount);
 	}
+	
+	/**
+	 * Bill a car according the duration, in milliseconds, it stayed in the parking.
+	 * <p>Same algorithm as {@link #bill(Duration)} working on the primitive duration: no memory is allocated.</p>
+	 * @param parkingDurationMillis the parking duration in milliseconds, always positive or zero
+	 * @return the price to pay to leave the parking
+	 */
+	@Override
+	public float bill(long parkingDurationMillis) {
+		return this.fixedAmount + ((parkingDurationMillis / millisPerHour) * this.hourlyAmount);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>A hour is only due when it is completed: the price only depends on the number of completed hours.</p>
+	 */
+	@Override
+	public long getBillingGranularityMillis() {
+		return millisPerHour;
+	}
 }
@@ -0,0 +1,59 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A partial implementation of PricingPolicy.
+ * <p>Bill a car according the duration it stayed in the parking.</p>
+ */
+public abstract class DurationPricingPolicy implements EpochMillisPricingPolicy {
+	/**
+	 * Instantiates a new duration pricing policy, for subclasses only.
+	 */
+	protected DurationPricingPolicy() {
+	}
+	
+	/**
+	 * Replaced by and rely on {@link #bill(Duration)}
+	 */
+	@Override
+	public final float bill(Car car, Instant arrivalInstant, Instant departureInstant) {
+		return bill(Duration.between(arrivalInstant, departureInstant));
+	}
+	
+	/**
+	 * Replaced by and rely on {@link #bill(long)}
+	 */
+	@Override
+	public final float bill(Car car, long arrivalEpochMillis, long departureEpochMillis) {
+		return bill(departureEpochMillis - arrivalEpochMillis);
+	}
+	
+	/**
+	 * Bill a car according the duration it stayed in the parking.
+	 * <p>To be implemented in place of {@link #bill(Car, Instant, Instant)} in subclasses.</p>
+	 * <p>Remark that the car to bill is no longer an argument in this method. If not happy with that, please implement {@link PricingPolicy} directly.</p>
+	 * <p>Returning an invalid (negative) value or throwing a {@link RuntimeException } only affects the billing of car leaving the parking:
+	 * {@link Parking#unparkAndBill(Car)} will release the parking slot (if possible) and propagate the invalid value or the exception.</p>
+	 * @param parkingDuration the parking duration, not null, always positive or zero
+	 * @return the price to pay to leave the parking
+	 */
+	public abstract float bill(Duration parkingDuration);
+	
+	/**
+	 * Bill a car according the duration, in milliseconds, it stayed in the parking.
+	 * <p>This is the method actually called by the default {@link Parking} implementation (through {@link #bill(Car, long, long)}). Default implementation converts the duration to a
+	 * {@link Duration} object and calls {@link #bill(Duration)}. Override it with the same algorithm working on the primitive duration
+	 * if you want unparking a car not to allocate any memory (as {@link DefaultPricingPolicy} does).</p>
+	 * <p>Same rules as {@link #bill(Duration)} apply regarding invalid values and exceptions.</p>
+	 * @param parkingDurationMillis the parking duration in milliseconds, always positive or zero
+	 * @return the price to pay to leave the parking
+	 */
+	public float bill(long parkingDurationMillis) {
+		return bill(Duration.ofMillis(parkingDurationMillis));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Instant;
+
+/**
+ * A PricingPolicy specialization working on primitive instants.
+ * <p>Bill a car according its arrival and departure instants given in milliseconds from the epoch, so that billing neither allocates
+ * {@link Instant} objects nor performs any {@link java.time.Duration} arithmetic. The default {@link Parking} implementation calls
+ * {@link #bill(Car, long, long)} in place of {@link #bill(Car, Instant, Instant)} whenever its pricing policy implements this interface.</p>
+ * <p>{@link DurationPricingPolicy}, and thus {@link DefaultPricingPolicy}, implement this interface.</p>
+ * @see PricingPolicy
+ * @see DurationPricingPolicy
+ */
+public interface EpochMillisPricingPolicy extends PricingPolicy {
+	/**
+	 * Default implementation converts the instants to milliseconds from the epoch (dropping any sub-millisecond precision)
+	 * and relies on {@link #bill(Car, long, long)}.
+	 */
+	@Override
+	default float bill(Car car, Instant arrivalInstant, Instant departureInstant) {
+		return bill(car, arrivalInstant.toEpochMilli(), departureInstant.toEpochMilli());
+	}
+	
+	/**
+	 * Bill a car according its arrival and departure instants, in milliseconds from the epoch.
+	 * <p>To be implemented in place of {@link #bill(Car, Instant, Instant)}. Same rules as {@link PricingPolicy#bill(Car, Instant, Instant)} apply
+	 * regarding invalid values.</p>
+	 * @param car the car to bill
+	 * @param arrivalEpochMillis the arrival instant in milliseconds from the epoch, before the departure instant
+	 * @param departureEpochMillis the departure instant in milliseconds from the epoch, after the arrival instant
+	 * @return the price to pay to leave the parking
+	 */
+	float bill(Car car, long arrivalEpochMillis, long departureEpochMillis);
+}
@@ -0,0 +1,36 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The Interface JournaledParking.
+ * <p>A parking whose state survives crashes: each car parked or unparked is recorded in a write-ahead journal, replayed when the parking is created again
+ * from the same journal file. Refer to {@link Parking#createJournaled(Map, PricingPolicy, Clock, Path)} for a complete documentation.</p>
+ * <p>The parking must be closed once not used anymore so that its journal is committed and its file closed.</p>
+ * @see Parking#createJournaled(Map, PricingPolicy, Clock, Path)
+ */
+public interface JournaledParking extends Parking, Closeable {
+	/**
+	 * Force the journal to the disk.
+	 * <p>Records of the cars parked and unparked so far, which are otherwise committed in the background every millisecond, are forced to the disk
+	 * before the method returns. Parking and unparking cars concurrently is not blocked while committing.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @throws IOException if the journal cannot be forced to the disk
+	 */
+	void commit() throws IOException;
+	
+	/**
+	 * Close the parking.
+	 * <p>Commits the journal and closes its file. Parking or unparking cars afterwards fails with an {@link IllegalStateException}.
+	 * Closing a closed parking does nothing.</p>
+	 * @throws IOException if the journal cannot be forced to the disk or its file cannot be closed
+	 */
+	@Override
+	void close() throws IOException;
+}
@@ -0,0 +1,137 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.util.Arrays;
+
+/**
+ * A latency histogram snapshot.
+ * <p>Latencies are counted in power of two buckets: bucket 0 counts latencies lower than 2 nanoseconds and bucket i, for i &gt; 0, counts latencies
+ * from 2<sup>i</sup> (included) to 2<sup>i+1</sup> (excluded) nanoseconds. Percentiles are therefore approximated by the upper bound of a bucket,
+ * with a relative error lower than 100%.</p>
+ * <p>Instances are immutable.</p>
+ * @see MetricsSnapshot#getLatency(ParkingMetrics.Operation)
+ */
+public final class LatencyHistogram {
+	/** The number of buckets. */
+	static public final int bucketsCount = Long.SIZE;
+	
+	/** The histogram without any recorded latency. */
+	static public final LatencyHistogram empty = new LatencyHistogram(new long[bucketsCount], 0L, 0L);
+	
+	private final long[] bucketCounts;
+	private final long count;
+	private final long totalNanos;
+	private final long maxNanos;
+	
+	/**
+	 * Instantiates a new latency histogram snapshot.
+	 * @param bucketCounts the number of latencies in each bucket, not null, {@link #bucketsCount} items, copied
+	 * @param totalNanos the sum of the latencies in nanoseconds
+	 * @param maxNanos the maximum latency in nanoseconds
+	 */
+	public LatencyHistogram(long[] bucketCounts, long totalNanos, long maxNanos) {
+		long count = 0L;
+		
+		for (long bucketCount: bucketCounts) {
+			count += bucketCount;
+		}
+		
+		this.bucketCounts = Arrays.copyOf(bucketCounts, bucketsCount);
+		this.count = count;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+	}
+	
+	/**
+	 * Get the bucket of a latency.
+	 * @param nanos the latency in nanoseconds, positive or zero
+	 * @return the bucket index
+	 */
+	static public int bucket(long nanos) {
+		return (Long.SIZE - 1) - Long.numberOfLeadingZeros(nanos | 1L);
+	}
+	
+	/**
+	 * Gets the number of latencies in a bucket.
+	 * @param bucket the bucket index, from 0 (included) to {@link #bucketsCount} (excluded)
+	 * @return the count
+	 */
+	public long getBucketCount(int bucket) {
+		return this.bucketCounts[bucket];
+	}
+	
+	/**
+	 * Gets the number of recorded latencies.
+	 * @return the count
+	 */
+	public long getCount() {
+		return this.count;
+	}
+	
+	/**
+	 * Gets the sum of the recorded latencies.
+	 * @return the sum in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return this.totalNanos;
+	}
+	
+	/**
+	 * Gets the mean of the recorded latencies.
+	 * @return the mean in nanoseconds, 0 if no latency was recorded
+	 */
+	public double getMeanNanos() {
+		return (this.count == 0L ? 0.0 : (double) this.totalNanos / this.count);
+	}
+	
+	/**
+	 * Gets the maximum recorded latency.
+	 * @return the maximum in nanoseconds, 0 if no latency was recorded
+	 */
+	public long getMaxNanos() {
+		return this.maxNanos;
+	}
+	
+	/**
+	 * Gets an approximation of a percentile of the recorded latencies.
+	 * <p>Returns the upper bound of the bucket holding the percentile, capped by the maximum latency.</p>
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the percentile approximation in nanoseconds, 0 if no latency was recorded
+	 */
+	public long getPercentileNanos(double percentile) {
+		long rank = (long) Math.ceil(this.count * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0);
+		long cumulatedCount = 0L;
+		
+		for (int bucket = 0; bucket < bucketsCount; bucket++) {
+			cumulatedCount += this.bucketCounts[bucket];
+			if ((cumulatedCount >= rank) && (cumulatedCount > 0L)) {
+				return Math.min((bucket == bucketsCount - 1 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1L), this.maxNanos);
+			}
+		}
+		
+		return 0L;
+	}
+	
+	/**
+	 * Merge this histogram with another one.
+	 * @param other the other histogram, not null
+	 * @return the histogram holding the latencies of both histograms, not null
+	 */
+	public LatencyHistogram merge(LatencyHistogram other) {
+		long[] bucketCounts = new long[bucketsCount];
+		
+		for (int bucket = 0; bucket < bucketsCount; bucket++) {
+			bucketCounts[bucket] = this.bucketCounts[bucket] + other.bucketCounts[bucket];
+		}
+		
+		return new LatencyHistogram(bucketCounts, this.totalNanos + other.totalNanos, Math.max(this.maxNanos, other.maxNanos));
+	}
+	
+	@Override
+	public String toString() {
+		return "count=" + this.count + ", mean=" + Math.round(getMeanNanos()) + "ns, p50=" + getPercentileNanos(50.0) + "ns, p99=" + getPercentileNanos(99.0) +
+			"ns, max=" + this.maxNanos + "ns";
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A snapshot of the metrics of a parking.
+ * <p>Returned by {@link ParkingMetrics#snapshot()} and given to the {@link ParkingMetrics.Exporter} implementations.</p>
+ * <p>Instances are immutable.</p>
+ * @see ParkingMetrics
+ */
+public final class MetricsSnapshot {
+	private final Map<ParkingMetrics.Counter, Long> counterToCount;
+	private final Map<ParkingMetrics.Operation, LatencyHistogram> operationToLatency;
+	
+	/**
+	 * Instantiates a new metrics snapshot.
+	 * <p>Given maps are copied. Missing counters are considered to be zero and missing operations to have an empty histogram.</p>
+	 * @param counterToCount the value of each counter, not null
+	 * @param operationToLatency the latency histogram of each operation, not null
+	 */
+	public MetricsSnapshot(Map<ParkingMetrics.Counter, Long> counterToCount, Map<ParkingMetrics.Operation, LatencyHistogram> operationToLatency) {
+		this.counterToCount = new EnumMap<ParkingMetrics.Counter, Long>(ParkingMetrics.Counter.class);
+		this.counterToCount.putAll(counterToCount);
+		this.operationToLatency = new EnumMap<ParkingMetrics.Operation, LatencyHistogram>(ParkingMetrics.Operation.class);
+		this.operationToLatency.putAll(operationToLatency);
+	}
+	
+	/**
+	 * Gets the value of a counter.
+	 * @param counter the counter, not null
+	 * @return the value
+	 */
+	public long getCount(ParkingMetrics.Counter counter) {
+		return this.counterToCount.getOrDefault(counter, 0L).longValue();
+	}
+	
+	/**
+	 * Gets the latency histogram of an operation.
+	 * @param operation the operation, not null
+	 * @return the histogram, not null
+	 */
+	public LatencyHistogram getLatency(ParkingMetrics.Operation operation) {
+		return this.operationToLatency.getOrDefault(operation, LatencyHistogram.empty);
+	}
+	
+	/**
+	 * Merge this snapshot with another one.
+	 * <p>Counters are summed and histograms are merged, which allows aggregating the metrics of several parkings.</p>
+	 * @param other the other snapshot, not null
+	 * @return the merged snapshot, not null
+	 */
+	public MetricsSnapshot merge(MetricsSnapshot other) {
+		Map<ParkingMetrics.Counter, Long> counterToCount = new EnumMap<ParkingMetrics.Counter, Long>(ParkingMetrics.Counter.class);
+		Map<ParkingMetrics.Operation, LatencyHistogram> operationToLatency = new EnumMap<ParkingMetrics.Operation, LatencyHistogram>(ParkingMetrics.Operation.class);
+		
+		for (ParkingMetrics.Counter counter: ParkingMetrics.Counter.values()) {
+			counterToCount.put(counter, getCount(counter) + other.getCount(counter));
+		}
+		for (ParkingMetrics.Operation operation: ParkingMetrics.Operation.values()) {
+			operationToLatency.put(operation, getLatency(operation).merge(other.getLatency(operation)));
+		}
+		
+		return new MetricsSnapshot(counterToCount, operationToLatency);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		
+		for (ParkingMetrics.Counter counter: ParkingMetrics.Counter.values()) {
+			builder.append(counter).append('=').append(getCount(counter)).append('\n');
+		}
+		for (ParkingMetrics.Operation operation: ParkingMetrics.Operation.values()) {
+			builder.append(operation).append(": ").append(getLatency(operation)).append('\n');
+		}
+		
+		return builder.toString();
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A snapshot of the occupancy of a parking.
+ * <p>Returned by {@link Parking#occupancy()}: gives, for each car type, the number of slots of the parking and the number of them which were available
+ * when the snapshot was taken. Car types for which the parking has no slot have zero slots.</p>
+ * <p>Instances are immutable.</p>
+ * @see Parking#occupancy()
+ */
+public final class Occupancy {
+	private final Map<Car.Type, Integer> carTypeToSlotsCount;
+	private final Map<Car.Type, Integer> carTypeToAvailableSlotsCount;
+	
+	/**
+	 * Instantiates a new occupancy snapshot.
+	 * <p>Given maps are copied. Missing car types are considered to have no slot.</p>
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param carTypeToAvailableSlotsCount the number of available slots for each car type, not null
+	 */
+	public Occupancy(Map<Car.Type, Integer> carTypeToSlotsCount, Map<Car.Type, Integer> carTypeToAvailableSlotsCount) {
+		this.carTypeToSlotsCount = Collections.unmodifiableMap(carTypeToSlotsCount.isEmpty() ?
+			new EnumMap<Car.Type, Integer>(Car.Type.class) : new EnumMap<Car.Type, Integer>(carTypeToSlotsCount));
+		this.carTypeToAvailableSlotsCount = Collections.unmodifiableMap(carTypeToAvailableSlotsCount.isEmpty() ?
+			new EnumMap<Car.Type, Integer>(Car.Type.class) : new EnumMap<Car.Type, Integer>(carTypeToAvailableSlotsCount));
+	}
+	
+	/**
+	 * Gets the number of slots for a car type.
+	 * @param carType the car type, not null
+	 * @return the slots count, zero if the parking has no slot for the car type
+	 */
+	public int getSlotsCount(Car.Type carType) {
+		return this.carTypeToSlotsCount.getOrDefault(carType, 0).intValue();
+	}
+	
+	/**
+	 * Gets the number of available slots for a car type.
+	 * @param carType the car type, not null
+	 * @return the available slots count, zero if the parking has no slot for the car type
+	 */
+	public int getAvailableSlots(Car.Type carType) {
+		return this.carTypeToAvailableSlotsCount.getOrDefault(carType, 0).intValue();
+	}
+	
+	/**
+	 * Gets the number of occupied slots for a car type.
+	 * @param carType the car type, not null
+	 * @return the occupied slots count, zero if the parking has no slot for the car type
+	 */
+	public int getOccupiedSlots(Car.Type carType) {
+		return getSlotsCount(carType) - getAvailableSlots(carType);
+	}
+	
+	/**
+	 * Gets the number of slots for all car types.
+	 * @return the total slots count
+	 */
+	public int getTotalSlotsCount() {
+		int totalSlotsCount = 0;
+		
+		for (Integer slotsCount: this.carTypeToSlotsCount.values()) {
+			totalSlotsCount += slotsCount.intValue();
+		}
+		
+		return totalSlotsCount;
+	}
+	
+	/**
+	 * Gets the number of available slots for all car types.
+	 * @return the total available slots count
+	 */
+	public int getTotalAvailableSlots() {
+		int totalAvailableSlots = 0;
+		
+		for (Integer availableSlots: this.carTypeToAvailableSlotsCount.values()) {
+			totalAvailableSlots += availableSlots.intValue();
+		}
+		
+		return totalAvailableSlots;
+	}
+	
+	/**
+	 * Gets the number of occupied slots for all car types.
+	 * @return the total occupied slots count
+	 */
+	public int getTotalOccupiedSlots() {
+		return getTotalSlotsCount() - getTotalAvailableSlots();
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Occupancy)) {
+			return false;
+		}
+		
+		Occupancy otherOccupancy = (Occupancy) other;
+		
+		return this.carTypeToSlotsCount.equals(otherOccupancy.carTypeToSlotsCount) && this.carTypeToAvailableSlotsCount.equals(otherOccupancy.carTypeToAvailableSlotsCount);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * this.carTypeToSlotsCount.hashCode() + this.carTypeToAvailableSlotsCount.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		
+		for (Map.Entry<Car.Type, Integer> carTypeAndSlotsCount: this.carTypeToSlotsCount.entrySet()) {
+			builder.append(builder.length() == 0 ? "" : ", ").append(carTypeAndSlotsCount.getKey()).append(": ")
+				.append(getAvailableSlots(carTypeAndSlotsCount.getKey())).append('/').append(carTypeAndSlotsCount.getValue()).append(" available");
+		}
+		
+		return builder.toString();
+	}
+}
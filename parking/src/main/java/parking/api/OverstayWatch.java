@@ -0,0 +1,28 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.io.Closeable;
+import java.time.Duration;
+
+/**
+ * The Interface OverstayWatch.
+ * <p>Watches the cars parked for longer than a maximum duration, see {@link Parking#watchOverstays(Duration, java.util.function.Consumer)}.
+ * The watch must be closed once not used anymore so that its thread stops.</p>
+ * @see Parking#watchOverstays(Duration, java.util.function.Consumer)
+ */
+public interface OverstayWatch extends Closeable {
+	/**
+	 * Get the maximum parking duration.
+	 * @return the duration, strictly positive
+	 */
+	Duration getMaxDuration();
+	
+	/**
+	 * Close the watch.
+	 * <p>Stops reporting cars and, unless called by the listener, waits for the watch thread to stop. Closing a closed watch does nothing.</p>
+	 */
+	@Override
+	void close();
+}
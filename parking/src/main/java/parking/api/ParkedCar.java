@@ -0,0 +1,68 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Instant;
+
+/**
+ * A car parked in a parking, as returned by {@link Parking#parkedBefore(Instant)} and reported by {@link Parking#watchOverstays(java.time.Duration, java.util.function.Consumer)}.
+ * <p>Tells which car occupies which slot since when, so that the car can be billed or towed away: {@link #getCar()} is the car to pass to
+ * {@link Parking#unparkAndBill(Car)}. It is a copy of the state of the car when it was read, the car may have left the parking since.</p>
+ * @see Parking#parkedBefore(Instant)
+ */
+public final class ParkedCar {
+	private final String registrationNumber;
+	private final Slot slot;
+	private final long arrivalEpochMillis;
+	
+	/**
+	 * Instantiates a new parked car.
+	 * @param registrationNumber the registration number of the car, can be null
+	 * @param slot the slot of the car, not null
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 */
+	public ParkedCar(String registrationNumber, Slot slot, long arrivalEpochMillis) {
+		this.registrationNumber = registrationNumber;
+		this.slot = slot;
+		this.arrivalEpochMillis = arrivalEpochMillis;
+	}
+	
+	/**
+	 * Gets the registration number of the car.
+	 * @return the registration number, can be null
+	 */
+	public String getRegistrationNumber() {
+		return this.registrationNumber;
+	}
+	
+	/**
+	 * Gets the slot of the car.
+	 * @return the slot, not null
+	 */
+	public Slot getSlot() {
+		return this.slot;
+	}
+	
+	/**
+	 * Gets the car.
+	 * <p>The car type is the type of its slot, that is to say the type of the car when it was parked.</p>
+	 * @return a new car, not null
+	 */
+	public Car getCar() {
+		return new DefaultCar(this.registrationNumber, this.slot.getCarType());
+	}
+	
+	/**
+	 * Gets the arrival instant.
+	 * @return the arrival instant, in milliseconds from the epoch
+	 */
+	public long getArrivalEpochMillis() {
+		return this.arrivalEpochMillis;
+	}
+	
+	@Override
+	public String toString() {
+		return "'" + this.registrationNumber + "' slot " + this.slot.getId() + " since " + Instant.ofEpochMilli(this.arrivalEpochMillis);
+	}
+}
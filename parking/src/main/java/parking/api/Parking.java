@@ -0,0 +1,398 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * The Interface Parking.
+ * <p>This is the core of the 'Parking toll library' API.</p>
+ * <p><b>Implementing this interface is discouraged. This interface only exist in order to decouple the parking API from the implementation.</b></p>
+ * <p>All parking operations must be done through this interface. Creating a parking must be done through one of the static create methods.</p>
+ * </p>
+ */
+public interface Parking {
+	/**
+	 * Create a new Parking object.
+	 * <p>Number of slot/parking capacity for each car type must be specified with the carTypeToSlotsCount parameter:<ul>
+	 * <li>Creation will not fail if invalid (negative) values are provided, the capacity will just be considered to be zero in that case.
+	 * <li>It is not mandatory to give a value for all possible car types but parking (i.e calling {@link #park(Car)}) a car for which the parking capacity
+	 * has not been specified will throw a {@link ParkingException}
+	 * </ul>
+	 * <p>The given pricing policy and the given clock are used to bill the car leaving the parking in {@link #unparkAndBill(Car)} method.</p>
+	 * <p>Given clock be null in which case a real time default clock using is provided.</p>
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @return the parking, not null
+	 */
+	static Parking create(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock) {
+		return ParkingFactory.Singleton.getInstance().create(carTypeToSlotsCount, pricingPolicy, clock);
+	}
+	
+	/**
+	 * Create a new Parking object.
+	 * <p>Just call the other create method with a null clock.</p>
+	 * @see Parking#create(Map, PricingPolicy, Clock)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @return the parking, not null
+	 */
+	static Parking create(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy) {
+		return Parking.create(carTypeToSlotsCount, pricingPolicy, null);
+	}
+	
+	/**
+	 * Create a new Parking object from a snapshot.
+	 * <p>Same as {@link #create(Map, PricingPolicy, Clock)} with the slots counts of the parking the snapshot was taken from, except that the cars
+	 * recorded by the snapshot are parked in the same slots, with their original arrival instants. The snapshot file is entirely loaded at once.</p>
+	 * @see Parking#snapshot(Path)
+	 * @param snapshotPath the path of the snapshot file written by {@link #snapshot(Path)}, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @return the parking, not null
+	 * @throws IOException if the snapshot file cannot be read or is not a valid snapshot
+	 */
+	static Parking restore(Path snapshotPath, PricingPolicy pricingPolicy, Clock clock) throws IOException {
+		return ParkingFactory.Singleton.getInstance().restore(snapshotPath, pricingPolicy, clock);
+	}
+	
+	/**
+	 * Create a new sharded Parking object.
+	 * <p>Same as {@link #create(Map, PricingPolicy, Clock)} except that the slots of each car type are split evenly over several inner parkings, the shards,
+	 * so that gates parking and unparking cars concurrently rarely contend on the same locks. Each registration number has a home shard, where the car is parked
+	 * if a slot of its type is available there; otherwise the car spills to the next shard having one. A car is therefore only refused when the whole
+	 * parking has no slot left for its type, and a car parked in any shard is seen as already parked by all of them.</p>
+	 * <p>Slot ids are unique across shards. Batch operations are applied shard by shard: cars parked or unparked by the same call in different shards
+	 * may get slightly different arrival or departure instants.</p>
+	 * @see Parking#create(Map, PricingPolicy, Clock)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @param shardsCount the number of shards, one per available processor if negative or zero
+	 * @return the parking, not null
+	 */
+	static Parking createSharded(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock, int shardsCount) {
+		return ParkingFactory.Singleton.getInstance().createSharded(carTypeToSlotsCount, pricingPolicy, clock, shardsCount);
+	}
+	
+	/**
+	 * Create a new journaled Parking object.
+	 * <p>Same as {@link #create(Map, PricingPolicy, Clock)} except that each car parked or unparked is recorded in a write-ahead journal file,
+	 * so that the parking can be rebuilt after a crash or a restart by calling this method again with the same journal file and slots counts.</p>
+	 * <p>If the journal file exists, the cars it records as parked are parked again in the same slots, with their original arrival instants;
+	 * the journal file is then compacted so that it only records these cars. Otherwise the journal file is created and the parking is empty.</p>
+	 * <p>The journal file is memory-mapped: a car parked or unparked is recorded before {@link #park(Car)} or {@link #unparkAndBill(Car)} returns,
+	 * without waiting for the disk, and survives a crash of the JVM. Records are forced to the disk in the background every millisecond, all the records
+	 * of the interval at once, so that a crash of the operating system loses at most the last millisecond of records; call {@link JournaledParking#commit()}
+	 * to force them on demand.</p>
+	 * <p>The returned parking must be closed once not used anymore.</p>
+	 * @see Parking#create(Map, PricingPolicy, Clock)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @param journalPath the path of the journal file, not null
+	 * @return the parking, not null
+	 * @throws IOException if the journal file cannot be read or written, is corrupted or records slots not provided by the given slots counts
+	 */
+	static JournaledParking createJournaled(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock, Path journalPath) throws IOException {
+		return ParkingFactory.Singleton.getInstance().createJournaled(carTypeToSlotsCount, pricingPolicy, clock, journalPath);
+	}
+	
+	/**
+	 * Create a new Parking object held off the heap.
+	 * <p>Same as {@link #create(Map, PricingPolicy, Clock)} except that the state of the slots and the index of the parked cars are kept in fixed-width records
+	 * out of the Java heap: the heap size and the garbage collection pauses do not grow with the number of slots and parked cars, which suits parkings
+	 * of millions of slots. The off-heap memory, 32 bytes per slot for the state of the slots plus 32 to 64 bytes per slot for the index of the parked cars,
+	 * is released once the parking is garbage collected. The available slots of each car type stay on the heap, in a single array of 4 bytes per slot.</p>
+	 * <p>Registration numbers of up to 10 letters, digits, spaces or dashes are kept off the heap, other registration numbers stay on the heap.
+	 * {@link Slot} handles are not kept either: {@link #park(Car)} and {@link #parkAndGetSlot(Car)} allocate the handle, short-lived, they return.</p>
+	 * @see Parking#create(Map, PricingPolicy, Clock)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @return the parking, not null
+	 */
+	static Parking createOffHeap(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock) {
+		return ParkingFactory.Singleton.getInstance().createOffHeap(carTypeToSlotsCount, pricingPolicy, clock);
+	}
+	
+	/**
+	 * Park a car.
+	 * <p>Allocates a parking slot according the car type. Returns the slot id if the allocation is successful,
+	 * this returned id is different than the ids previously returned by the method and associated to other cars.
+	 * Null is returned if there is no remaining parking slot/capacity for the car type; in that case the car is not parked.</p>
+	 * <p>Method may also throws a {@link ParkingException} exception if the given car is already parked of if the car type is unknown as
+	 * no slots count/capacity was specified for it at parking creation; if that happens the car won't be parked.</p>
+	 * <p>Method may also involuntary throw or propagate {@link RuntimeException} exceptions maybe thrown by {@link Car#getRegistrationNumber()}, {@link Car#getType()} or
+	 * {@link Clock#instant()}; if that happens, this won't corrupt the internal data of the parking and the car will either be parked or not parked at the end of the method.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#unparkAndBill(Car)
+	 * @param car the car, not null
+	 * @return the parking slot, not null if the car was parked, null if the car was not parked
+	 * @throws ParkingException if the car is already parked or if no capacity was specified for the car type at parking creation 
+	 */
+	String park(Car car) throws ParkingException;
+	
+	/**
+	 * Park a car, waiting for a slot of its type if there is none left.
+	 * <p>Same as {@link #park(Car)} except that a car finding no slot left for its type waits for one, up to the given timeout, instead of being rejected at once.
+	 * Waiting cars are queued per car type: each slot released by an unparked car is given to the first car waiting for it, which is woken and parked
+	 * in the unparking thread; no car waits by polling the parking. While cars are waiting for a slot of a type, {@link #park(Car)} does not give
+	 * a car of that type a slot ahead of them. The arrival instant of a waiting car is the instant it is given a slot.</p>
+	 * <p>If the current thread is interrupted while waiting, the car leaves the queue and an {@link InterruptedException} is thrown; if the car was given
+	 * a slot at the same time, it is parked, its slot id is returned and the interrupt status of the thread is kept.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#parkWhenAvailable(Car, Duration)
+	 * @param car the car, not null
+	 * @param timeout the maximum time to wait for a slot, not null, zero or negative not to wait
+	 * @return the parking slot id, null if no slot was released for the car type before the timeout
+	 * @throws ParkingException if the car is already parked or if no capacity was specified for the car type at parking creation
+	 * @throws InterruptedException if the current thread is interrupted while waiting, in which case the car is not parked
+	 */
+	String park(Car car, Duration timeout) throws ParkingException, InterruptedException;
+	
+	/**
+	 * Park a car when a slot of its type is available, without blocking the current thread.
+	 * <p>Same as {@link #park(Car, Duration)} except that the result is delivered by the returned future: the slot id once the car is parked,
+	 * null if the timeout elapsed first, or a {@link ParkingException} exception if the car cannot be parked. The future is completed by the thread giving the car
+	 * its slot: if a slot is available, by the current thread before the method returns, otherwise by the thread unparking a car, which also runs the callbacks
+	 * registered on the future by its non async methods.</p>
+	 * <p>Cancelling the future withdraws the car from the queue, if it has not been given a slot yet.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#park(Car, Duration)
+	 * @param car the car, not null
+	 * @param timeout the maximum time to wait for a slot, not null, zero or negative not to wait
+	 * @return the future slot id, not null
+	 */
+	CompletableFuture<String> parkWhenAvailable(Car car, Duration timeout);
+	
+	/**
+	 * Park a car and return its slot handle.
+	 * <p>Same as {@link #park(Car)} except that the allocated slot is returned as a {@link Slot} handle instead of a slot id:
+	 * the handles are created once per slot and reused, so calling this method does not allocate any string.
+	 * The id returned by {@link #park(Car)} is given by {@link Slot#getId()}. Parkings created by {@link #createOffHeap(Map, PricingPolicy, Clock)} do not
+	 * keep the handles: they return a new, equal, handle each time.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#park(Car)
+	 * @param car the car, not null
+	 * @return the parking slot, not null if the car was parked, null if the car was not parked
+	 * @throws ParkingException if the car is already parked or if no capacity was specified for the car type at parking creation 
+	 */
+	Slot parkAndGetSlot(Car car) throws ParkingException;
+	
+	/**
+	 * Unpark a car and bill it.
+	 * <p>Release the slot id previously allocated to the car by {@link Parking#park(Car)} and returns the price the driver of the car has to pay.</p>
+	 * <p>Throws a {@link ParkingException} exception if the given car was not parked that is to say if {@link Parking#park(Car)} was never called successfully
+	 * on the given car before. The same type of exception is also thrown if the departure occurs before the arrival, meaning that the parking {@link Clock}
+	 * (passed at its creation) is going backward time. Whatever the reason of the ParkingException, the given car won't be parked anymore at the end of the method.</p>
+	 * <p>Method may also involuntary throw or propagate {@link RuntimeException} exceptions maybe thrown by {@link Car#getRegistrationNumber()}, {@link Car#getType()},
+	 * {@link Clock#instant()} or {@link PricingPolicy#bill(Car, java.time.Instant, java.time.Instant)}; if that happens, this won't corrupt the internal data of
+	 * the parking and the car will either be parked or not parked at the end of the method.</p>
+	 * <p>The car is billed according its departure car type. The car type returned by {@link Car#getType()} when leaving the parking may be different than the arrival
+	 * car type which was used to find a parking slot. Normally this should not happen as the car is not supposed to be transformed while it is parked, but know that this is
+	 * supported. </p>
+	 * <p>This method may return and bill an invalid price if the pricing policy passed to the constructor returns an invalid price.</p> 
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#unparkAndBill(Car)
+	 * @see Parking#park(Car)
+	 * @param car the car, not null
+	 * @return the price the driver of the car has to pay
+	 * @throws ParkingException if the car was not parked or if the departure occurs before the arrival according the parking clock
+	 */
+	float unparkAndBill(Car car) throws ParkingException;
+	
+	/**
+	 * Unpark a car and hand back its bill ticket, without billing it.
+	 * <p>Same as {@link #unparkAndBill(Car)} except that the car is not billed: the slot is released and the ticket records the arrival and departure instants,
+	 * to be billed later by {@link #bill(BillTicket)}, typically by a {@link BillingPipeline}. The pricing policy is therefore not run by the calling thread.</p>
+	 * <p>Throws a {@link ParkingException} exception if the given car was not parked. A departure occurring before the arrival is only reported when billing the ticket.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#bill(BillTicket)
+	 * @param car the car, not null
+	 * @return the bill ticket, not null
+	 * @throws ParkingException if the car was not parked
+	 */
+	BillTicket unpark(Car car) throws ParkingException;
+	
+	/**
+	 * Bill a car unparked by {@link #unpark(Car)}.
+	 * <p>Runs the pricing policy on the ticket car and instants, returns the price and completes the ticket price with it.
+	 * If billing fails, the ticket price is completed exceptionally with the same exception as the one thrown.</p>
+	 * <p>A ticket is billed once: a ticket whose price is already completed, or which has not been issued by this parking, is rejected with a {@link ParkingException}
+	 * exception, its price being left unchanged. The revenue and the billing event of a ticket are therefore only recorded once.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#unpark(Car)
+	 * @param ticket the ticket, not null
+	 * @return the price the driver of the car has to pay
+	 * @throws ParkingException if the departure occurs before the arrival according the parking clock, if the ticket is already billed or if it has not been
+	 *   issued by this parking
+	 */
+	float bill(BillTicket ticket) throws ParkingException;
+	
+	/**
+	 * Bill several cars unparked by {@link #unpark(Car)} at once.
+	 * <p>Same as calling {@link #bill(BillTicket)} on each ticket, in the collection iteration order, except that the whole batch is priced in one pass
+	 * and that its revenue is recorded at once, once all the tickets are priced.</p>
+	 * <p>A result is returned for each ticket, in the collection iteration order: it holds the ticket car with the price or the exception {@link #bill(BillTicket)}
+	 * would have thrown for this ticket.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#bill(BillTicket)
+	 * @param tickets the tickets, not null, none of them null
+	 * @return the results, not null, one per ticket
+	 */
+	List<ParkingResult<Float>> billAll(Collection<BillTicket> tickets);
+	
+	/**
+	 * Park several cars at once.
+	 * <p>Same as calling {@link #park(Car)} on each car, in the collection iteration order, except that a single arrival instant is used for all of them
+	 * and that the parking internal locks are taken once for the whole batch instead of once per car. Cars are served in the collection iteration order
+	 * when there are not enough slots left for all of them, and a car appearing twice in the batch is only parked once.</p>
+	 * <p>A result is returned for each car, in the collection iteration order: it holds the slot id, which is null if the car could not be parked,
+	 * or the exception {@link #park(Car)} would have thrown for this car. An exception thrown by {@link Clock#instant()} is propagated and no car is parked in that case.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#park(Car)
+	 * @param cars the cars, not null, none of them null
+	 * @return the results, not null, one per car
+	 */
+	List<ParkingResult<String>> parkAll(Collection<? extends Car> cars);
+	
+	/**
+	 * Unpark and bill several cars at once.
+	 * <p>Same as calling {@link #unparkAndBill(Car)} on each car, in the collection iteration order, except that a single departure instant is used for all of them,
+	 * that the parking internal locks are taken once for the whole batch instead of once per car and that the cars are only billed once all the slots are released.</p>
+	 * <p>A result is returned for each car, in the collection iteration order: it holds the price or the exception {@link #unparkAndBill(Car)} would have thrown for this car.
+	 * An exception thrown by {@link Clock#instant()} is propagated and no car is unparked in that case.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#unparkAndBill(Car)
+	 * @param cars the cars, not null, none of them null
+	 * @return the results, not null, one per car
+	 */
+	List<ParkingResult<Float>> unparkAndBillAll(Collection<? extends Car> cars);
+	
+	/**
+	 * Test whether or not a car is parked.
+	 * <p>Only the car registration number is taken into account, meaning that changing the car type returned by {@link Car#getType()} has no incidence
+	 * on the result of that method.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param car the car, not null
+	 * @return true if the car is parked, false otherwise
+	 */
+	boolean isParked(Car car);
+	
+	/**
+	 * Get the number of available slots for a car type.
+	 * <p>Meant to be polled frequently, by display boards for instance: the value is read from counters the parking keeps up to date,
+	 * without taking any lock and without slowing down the parking operations. It may thus be outdated as soon as it is returned.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param carType the car type, not null
+	 * @return the number of available slots, zero if no capacity was specified for the car type at parking creation
+	 */
+	int availableSlots(Car.Type carType);
+	
+	/**
+	 * Get the number of occupied slots for a car type.
+	 * <p>Same as {@link #availableSlots(Car.Type)} regarding concurrency. Slots being allocated to or released from cars by concurrent
+	 * operations are counted as occupied.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param carType the car type, not null
+	 * @return the number of occupied slots, zero if no capacity was specified for the car type at parking creation
+	 */
+	int occupiedSlots(Car.Type carType);
+	
+	/**
+	 * Get a snapshot of the parking occupancy for all car types.
+	 * <p>Same as calling {@link #availableSlots(Car.Type)} on each car type: the counters of the different car types are read one after the other
+	 * without locking, so the snapshot is consistent for each car type but not necessarily across car types.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @return the snapshot, not null
+	 */
+	Occupancy occupancy();
+	
+	/**
+	 * Write a snapshot of the parked cars.
+	 * <p>Records in a compact binary file the slots counts of the parking and, for each parked car, its registration number, its slot and its arrival instant.
+	 * The parking can then be rebuilt by {@link #restore(Path, PricingPolicy, Clock)}. Meant to be called periodically, for instance by a
+	 * {@link java.util.concurrent.ScheduledExecutorService}.</p>
+	 * <p>Parking and unparking cars is not stopped while the snapshot is taken: the parked cars are copied part by part, each part being locked only while
+	 * it is copied, and the file is written once the copy is over. A car parked or unparked while the snapshot is taken may therefore be or not be in the snapshot.
+	 * The file is replaced atomically: it always holds a complete snapshot.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param snapshotPath the path of the snapshot file, not null
+	 * @throws IOException if the snapshot file cannot be written
+	 */
+	void snapshot(Path snapshotPath) throws IOException;
+	
+	/**
+	 * Get the instrumentation surface of the parking.
+	 * <p>Instrumentation is disabled when the parking is created: enable it with {@link ParkingMetrics#setEnabled(boolean)}.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @return the metrics, not null, always the same instance
+	 */
+	ParkingMetrics metrics();
+	
+	/**
+	 * Get a snapshot of the revenue and stay aggregates of the parking.
+	 * <p>Meant for the finance dashboards, polled as often as needed. Each billed car adds its price and its parking duration to the totals of its car type
+	 * since the parking was created and to the tumbling window of its departure instant: the last 60 windows of one minute are kept, sliding windows being
+	 * read as sums of the last windows. Average stay and turnover per window are derived from these totals, see {@link RevenueSnapshot}.</p>
+	 * <p>Gates add the billed cars to accumulators striped by thread, each of them being locked only while a car is added to it or while it is copied
+	 * to a snapshot: a billed car is either fully in the snapshot or not at all, so that counts, revenues and stays are always consistent with each other.
+	 * The cost of a snapshot does not depend on the number of cars.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @return the snapshot, not null
+	 */
+	RevenueSnapshot revenue();
+	
+	/**
+	 * Get the stream of the park, unpark and billing events of the parking.
+	 * <p>Meant for the services which must learn about every car, such as billing, analytics or video surveillance. Each subscriber receives the events published
+	 * after it subscribed, in the order the gates published them, from a daemon thread of its own, as many as it requested; the stream never completes.
+	 * Cancel the subscription to stop its thread.</p>
+	 * <p>Gates never wait for subscribers nor call them: they copy each event in a ring of preallocated entries, which the subscribers read behind them.
+	 * A subscriber too slow to keep up misses the events overwritten before it could read them, see {@link ParkingEvent#getSkippedEventsCount()}.
+	 * The ring is allocated by the first call, events are not published before.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @return the publisher, not null, always the same instance
+	 */
+	Flow.Publisher<ParkingEvent> events();
+	
+	/**
+	 * Get the cars parked before a given instant, that is to say parked for longer than the duration elapsed since that instant.
+	 * <p>Meant for the operators looking for the cars parked for too long, to bill or tow them away. The parked cars are kept ordered by arrival
+	 * while they are parked and unparked: the cost of this method is proportional to the number of cars returned, not to the number of parked cars.</p>
+	 * <p>The cars are read car type by car type, the parking of cars of a type being blocked while its cars are read; the list is thus consistent
+	 * for each car type but not necessarily across car types.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @param instant the instant, not null
+	 * @return the cars whose arrival instant is strictly before the given instant, oldest first, not null
+	 */
+	List<ParkedCar> parkedBefore(Instant instant);
+	
+	/**
+	 * Watch the cars parked for longer than a maximum duration.
+	 * <p>The listener is called once for each car whose parking duration exceeds the maximum duration while it is watched, oldest first, from a daemon thread
+	 * of the watch: the parking clock is checked every 100 milliseconds, each check costing in proportion to the number of cars exceeding the duration since
+	 * the previous check. Cars already exceeding the duration when the watch starts are reported by the first check. A car unparked and parked again is
+	 * watched again. A listener throwing an exception closes the watch, the exception being handed to the uncaught exception handler of the watch thread.</p>
+	 * <p>Close the watch to stop its thread.</p>
+	 * <p>Default implementation is thread safe.</p>
+	 * @see Parking#parkedBefore(Instant)
+	 * @param maxDuration the maximum parking duration, strictly positive
+	 * @param listener the listener, not null
+	 * @return the watch, not null, its thread started
+	 * @throws IllegalArgumentException if the maximum duration is not strictly positive
+	 */
+	OverstayWatch watchOverstays(Duration maxDuration, Consumer<? super ParkedCar> listener);
+}
\ No newline at end of file
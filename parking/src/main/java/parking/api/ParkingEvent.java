@@ -0,0 +1,150 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+/**
+ * A park, unpark or billing event, as delivered to the subscribers of {@link Parking#events()}.
+ * <p>Events are numbered in the order the gates published them. A subscriber too slow to keep up with the gates misses the oldest events it has not
+ * received yet: {@link #getSkippedEventsCount()} tells how many events it missed just before this one.</p>
+ * @see Parking#events()
+ */
+public final class ParkingEvent {
+	/**
+	 * The Enum Type.
+	 * <p>What happened to the car.</p>
+	 */
+	public enum Type {
+		/** The car has been parked, its slot is known. */
+		PARKED,
+		
+		/** The car has been unparked, its slot is known. */
+		UNPARKED,
+		
+		/** The car has been billed, its price is known. */
+		BILLED
+	}
+	
+	private final Type type;
+	private final long sequence;
+	private final String registrationNumber;
+	private final Car.Type carType;
+	private final Slot slot;
+	private final long arrivalEpochMillis;
+	private final long departureEpochMillis;
+	private final float amount;
+	private final long skippedEventsCount;
+	
+	/**
+	 * Instantiates a new parking event.
+	 * @param type the event type, not null
+	 * @param sequence the event number, positive or zero
+	 * @param registrationNumber the registration number of the car, can be null
+	 * @param carType the car type: the type of the slot for parked and unparked events, the departure type of the car for billing events, not null
+	 * @param slot the slot of the car, null for billing events
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch, 0 for parked events
+	 * @param amount the price to pay, NaN for parked and unparked events
+	 * @param skippedEventsCount the number of events missed by the subscriber just before this one, positive or zero
+	 */
+	public ParkingEvent(Type type, long sequence, String registrationNumber, Car.Type carType, Slot slot, long arrivalEpochMillis, long departureEpochMillis,
+		float amount, long skippedEventsCount) {
+		this.type = type;
+		this.sequence = sequence;
+		this.registrationNumber = registrationNumber;
+		this.carType = carType;
+		this.slot = slot;
+		this.arrivalEpochMillis = arrivalEpochMillis;
+		this.departureEpochMillis = departureEpochMillis;
+		this.amount = amount;
+		this.skippedEventsCount = skippedEventsCount;
+	}
+	
+	/**
+	 * Gets the event type.
+	 * @return the type, not null
+	 */
+	public Type getType() {
+		return this.type;
+	}
+	
+	/**
+	 * Gets the event number.
+	 * <p>Events are numbered from zero, without gaps, from the first call to {@link Parking#events()}: a subscriber receives increasing numbers.</p>
+	 * @return the sequence, positive or zero
+	 */
+	public long getSequence() {
+		return this.sequence;
+	}
+	
+	/**
+	 * Gets the registration number of the car.
+	 * @return the registration number, can be null
+	 */
+	public String getRegistrationNumber() {
+		return this.registrationNumber;
+	}
+	
+	/**
+	 * Gets the car type.
+	 * <p>The type of the slot for parked and unparked events, the departure type of the car for billing events.</p>
+	 * @return the car type, not null
+	 */
+	public Car.Type getCarType() {
+		return this.carType;
+	}
+	
+	/**
+	 * Gets the slot of the car.
+	 * @return the slot, null for billing events
+	 */
+	public Slot getSlot() {
+		return this.slot;
+	}
+	
+	/**
+	 * Gets the slot id of the car.
+	 * @return the slot id, as returned by {@link Parking#park(Car)}, null for billing events
+	 */
+	public String getSlotId() {
+		return (this.slot == null ? null : this.slot.getId());
+	}
+	
+	/**
+	 * Gets the arrival instant.
+	 * @return the arrival instant, in milliseconds from the epoch
+	 */
+	public long getArrivalEpochMillis() {
+		return this.arrivalEpochMillis;
+	}
+	
+	/**
+	 * Gets the departure instant.
+	 * @return the departure instant, in milliseconds from the epoch, 0 for parked events
+	 */
+	public long getDepartureEpochMillis() {
+		return this.departureEpochMillis;
+	}
+	
+	/**
+	 * Gets the price to pay.
+	 * @return the amount, NaN for parked and unparked events
+	 */
+	public float getAmount() {
+		return this.amount;
+	}
+	
+	/**
+	 * Gets the number of events missed by the subscriber just before this one, because it was too slow to receive them before they were overwritten.
+	 * @return the skipped events count, positive or zero
+	 */
+	public long getSkippedEventsCount() {
+		return this.skippedEventsCount;
+	}
+	
+	@Override
+	public String toString() {
+		return this.type + " #" + this.sequence + " '" + this.registrationNumber + "' (" + this.carType + ")" + (this.slot == null ? "" : " slot " + this.slot.getId()) +
+			(this.type == Type.BILLED ? " " + this.amount : "");
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import parking.impl.ParkingFactoryImpl;
+
+/**
+ * A factory for creating Parking objects.
+ * <p>This factory is used to properly separate the parking API (provided by the {@link Parking} interface) from the implementation or even change the default implementation.
+ * <b>Implementing this interface is normally not needed</b> as a default implementation is provided.
+ * Also <b>you should not call a factory yourself</b> as creating {@link Parking} instances should be done
+ * through {@link Parking#create(Map, PricingPolicy)} or {@link Parking#create(Map, PricingPolicy, Clock)} static methods.
+ * <b><font color=red>In other words playing with parking factories is not something you normally want to do.</font></b></p>
+ */
+public interface ParkingFactory {
+	/**
+	 * The Class Singleton.
+	 * <p>Holds the factory default instance</p>
+	 */
+	static public final class Singleton {
+		static private ParkingFactory instance = ParkingFactoryImpl.instance;
+		
+		/**
+		 * Not to be used
+		 */
+		private Singleton() {
+		}
+		
+		/**
+		 * Get the factory default instance.
+		 * @return the default instance
+		 */
+		static ParkingFactory getInstance() {
+			return Singleton.instance;
+		}
+		
+		/**
+		 * Register/set the factory default instance.
+		 * <p>Doing so will affect the creation of {@link Parking} instances through {@link Parking#create(Map, PricingPolicy)} or
+		 * {@link Parking#create(Map, PricingPolicy, Clock)} static methods which is <b>something you normally do not want to do</b>.</p>
+		 * @param instance the new default instance, not null
+		 * @throws NullPointerException if the given instance is null
+		 */
+		static public void registerInstance(ParkingFactory instance) {
+			if (instance == null) {
+				throw new NullPointerException("Cannot register null as singleton instance");
+			}
+			
+			Singleton.instance = instance;
+		}
+	}
+	
+	/**
+	 * Create a new Parking object.
+	 * <p>Static method {@link Parking#create(Map, PricingPolicy, Clock)} delegates its calls to this method on the singleton instance.
+	 * Refer to this method for a complete documentation.</p>
+	 * @see Parking#create(Map, PricingPolicy, Clock)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @return the parking, not null
+	 */
+	Parking create(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock);
+	
+	/**
+	 * Create a new Parking object from a snapshot.
+	 * <p>Static method {@link Parking#restore(Path, PricingPolicy, Clock)} delegates its calls to this method on the singleton instance.
+	 * Refer to this method for a complete documentation. Default implementation creates the parkings of the default factory.</p>
+	 * @see Parking#restore(Path, PricingPolicy, Clock)
+	 * @param snapshotPath the path of the snapshot file, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @return the parking, not null
+	 * @throws IOException if the snapshot file cannot be read or is not a valid snapshot
+	 */
+	default Parking restore(Path snapshotPath, PricingPolicy pricingPolicy, Clock clock) throws IOException {
+		return ParkingFactoryImpl.instance.restore(snapshotPath, pricingPolicy, clock);
+	}
+	
+	/**
+	 * Create a new sharded Parking object.
+	 * <p>Static method {@link Parking#createSharded(Map, PricingPolicy, Clock, int)} delegates its calls to this method on the singleton instance.
+	 * Refer to this method for a complete documentation. Default implementation creates the parkings of the default factory.</p>
+	 * @see Parking#createSharded(Map, PricingPolicy, Clock, int)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @param shardsCount the number of shards, one per available processor if negative or zero
+	 * @return the parking, not null
+	 */
+	default Parking createSharded(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock, int shardsCount) {
+		return ParkingFactoryImpl.instance.createSharded(carTypeToSlotsCount, pricingPolicy, clock, shardsCount);
+	}
+	
+	/**
+	 * Create a new journaled Parking object.
+	 * <p>Static method {@link Parking#createJournaled(Map, PricingPolicy, Clock, Path)} delegates its calls to this method on the singleton instance.
+	 * Refer to this method for a complete documentation. Default implementation creates the parkings of the default factory.</p>
+	 * @see Parking#createJournaled(Map, PricingPolicy, Clock, Path)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @param journalPath the path of the journal file, not null
+	 * @return the parking, not null
+	 * @throws IOException if the journal file cannot be read or written, is corrupted or does not match the given slots counts
+	 */
+	default JournaledParking createJournaled(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock, Path journalPath) throws IOException {
+		return ParkingFactoryImpl.instance.createJournaled(carTypeToSlotsCount, pricingPolicy, clock, journalPath);
+	}
+	
+	/**
+	 * Create a new Parking object held off the heap.
+	 * <p>Static method {@link Parking#createOffHeap(Map, PricingPolicy, Clock)} delegates its calls to this method on the singleton instance.
+	 * Refer to this method for a complete documentation. Default implementation creates the parkings of the default factory.</p>
+	 * @see Parking#createOffHeap(Map, PricingPolicy, Clock)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @return the parking, not null
+	 */
+	default Parking createOffHeap(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock) {
+		return ParkingFactoryImpl.instance.createOffHeap(carTypeToSlotsCount, pricingPolicy, clock);
+	}
+	
+	/**
+	 * Create a new AsyncParking object.
+	 * <p>Static method {@link AsyncParking#create(Parking, Executor)} delegates its calls to this method on the singleton instance.
+	 * Refer to this method for a complete documentation. Default implementation creates the async parkings of the default factory.</p>
+	 * @see AsyncParking#create(Parking, Executor)
+	 * @param parking the parking the operations are delegated to, not null
+	 * @param executor the executor running the operations, null for the default executor
+	 * @return the async parking, not null
+	 */
+	default AsyncParking createAsync(Parking parking, Executor executor) {
+		return ParkingFactoryImpl.instance.createAsync(parking, executor);
+	}
+	
+	/**
+	 * Create a new BillingPipeline object.
+	 * <p>Static method {@link BillingPipeline#create(Parking, int, int)} delegates its calls to this method on the singleton instance.
+	 * Refer to this method for a complete documentation. Default implementation creates the pipelines of the default factory.</p>
+	 * @see BillingPipeline#create(Parking, int, int)
+	 * @param parking the parking the cars are unparked from and billed by, not null
+	 * @param capacity the maximum number of tickets waiting to be billed, strictly positive
+	 * @param batchSize the maximum number of tickets billed per batch, strictly positive
+	 * @return the pipeline, not null, its pricing thread started
+	 */
+	default BillingPipeline createBillingPipeline(Parking parking, int capacity, int batchSize) {
+		return ParkingFactoryImpl.instance.createBillingPipeline(parking, capacity, batchSize);
+	}
+	
+	/**
+	 * Get a clock provided by the library.
+	 * <p>Static method {@link Clock#create(Clock.Mode)} delegates its calls to this method on the singleton instance.
+	 * Default implementation returns the clocks of the default factory.</p>
+	 * @see Clock.Mode
+	 * @param mode the time source mode, not null
+	 * @return the clock, not null
+	 * @throws NullPointerException if the given mode is null
+	 */
+	default Clock createClock(Clock.Mode mode) {
+		return ParkingFactoryImpl.instance.createClock(mode);
+	}
+}
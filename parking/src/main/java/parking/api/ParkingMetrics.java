@@ -0,0 +1,114 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+/**
+ * The Interface ParkingMetrics.
+ * <p>The instrumentation surface of a parking, returned by {@link Parking#metrics()}: counts the outcomes of the parking operations and records
+ * the latency of the operations in histograms.</p>
+ * <p>Instrumentation is disabled by default. When disabled, the parking operations only pay for reading a volatile flag; when enabled,
+ * counters and histogram buckets are striped (see {@link java.util.concurrent.atomic.LongAdder}) so that concurrent gates do not contend on them.</p>
+ * <p>Metrics are read with {@link #snapshot()} or pushed to an {@link Exporter} with {@link #export(Exporter)}.</p>
+ * <p>Default implementation is thread safe.</p>
+ * @see Parking#metrics()
+ * @see MetricsSnapshot
+ */
+public interface ParkingMetrics {
+	/**
+	 * The Enum Counter.
+	 * <p>The outcomes of the parking operations which are counted. Batch operations count one outcome per car.</p>
+	 */
+	enum Counter {
+		/** Cars parked. */
+		PARKED,
+		
+		/** Cars rejected because there was no slot left for their type. */
+		NO_SLOT,
+		
+		/** Cars rejected because they were already parked. */
+		ALREADY_PARKED,
+		
+		/** Cars rejected because the parking has no slot for their type. */
+		UNKNOWN_CAR_TYPE,
+		
+		/** Cars unparked, whether or not they could be billed. */
+		UNPARKED,
+		
+		/** Cars which could not be unparked because they were not parked. */
+		NOT_PARKED,
+		
+		/** Cars unparked which could not be billed: departure earlier than arrival or pricing policy failure. */
+		BILLING_FAILED
+	}
+	
+	/**
+	 * The Enum Operation.
+	 * <p>The operations whose latency is recorded. Batch operations are not recorded, except for the billing of each car.</p>
+	 */
+	enum Operation {
+		/**
+		 * {@link Parking#park(Car)} and {@link Parking#parkAndGetSlot(Car)}.
+		 * <p>Parks waiting for a slot, {@link Parking#park(Car, java.time.Duration)} and {@link Parking#parkWhenAvailable(Car, java.time.Duration)}, record
+		 * the occupation of the slot they are given, not the time spent waiting for it: a waiting car which is not given a slot records nothing.</p>
+		 */
+		PARK,
+		
+		/** {@link Parking#unparkAndBill(Car)}. */
+		UNPARK_AND_BILL,
+		
+		/** {@link Parking#unpark(Car)}, which does not bill the car. */
+		UNPARK,
+		
+		/** {@link Parking#isParked(Car)}. */
+		IS_PARKED,
+		
+		/** {@link PricingPolicy#bill(Car, java.time.Instant, java.time.Instant)} (or its primitive variants) as called by the parking. */
+		BILL,
+		
+		/** Taking and releasing a slot, including the time spent waiting for the lock of the slots of a car type. */
+		SLOT_ALLOCATOR_LOCK
+	}
+	
+	/**
+	 * The Interface Exporter.
+	 * <p>Implement this interface to push the parking metrics to your monitoring system.</p>
+	 */
+	@FunctionalInterface
+	interface Exporter {
+		/**
+		 * Export a metrics snapshot.
+		 * @param snapshot the snapshot, not null
+		 */
+		void export(MetricsSnapshot snapshot);
+	}
+	
+	/**
+	 * Test whether or not the instrumentation is enabled.
+	 * @return true if enabled, false otherwise
+	 */
+	boolean isEnabled();
+	
+	/**
+	 * Enable or disable the instrumentation.
+	 * <p>Metrics recorded so far are kept when disabling, and recording resumes from them when enabling again.</p>
+	 * @param enabled true to enable the instrumentation, false to disable it
+	 */
+	void setEnabled(boolean enabled);
+	
+	/**
+	 * Take a snapshot of the metrics recorded so far.
+	 * <p>Counters and histograms are read without stopping the parking operations, so the snapshot may not be consistent across counters.</p>
+	 * @return the snapshot, not null
+	 */
+	MetricsSnapshot snapshot();
+	
+	/**
+	 * Export a snapshot of the metrics recorded so far.
+	 * <p>Default implementation takes a snapshot and gives it to the exporter.</p>
+	 * @param exporter the exporter, not null
+	 */
+	default void export(Exporter exporter) {
+		exporter.export(snapshot());
+	}
+}
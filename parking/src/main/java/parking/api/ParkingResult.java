@@ -0,0 +1,108 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+/**
+ * The result of a parking operation on a single car of a batch.
+ * <p>Returned by {@link Parking#parkAll(java.util.Collection)} and {@link Parking#unparkAndBillAll(java.util.Collection)}, one per car:
+ * a result either holds the value the single car operation would have returned or the exception it would have thrown.</p>
+ * @param <V> the type of the value
+ * @see Parking#parkAll(java.util.Collection)
+ * @see Parking#unparkAndBillAll(java.util.Collection)
+ */
+public final class ParkingResult<V> {
+	private final Car car;
+	private final V value;
+	private final Exception exception;
+	
+	/**
+	 * Instantiates a new parking result.
+	 * @param car the car, not null
+	 * @param value the value, can be null
+	 * @param exception the exception, null for a successful result, otherwise either a {@link ParkingException} or a {@link RuntimeException}
+	 */
+	private ParkingResult(Car car, V value, Exception exception) {
+		this.car = car;
+		this.value = value;
+		this.exception = exception;
+	}
+	
+	/**
+	 * Create a successful result.
+	 * @param <V> the type of the value
+	 * @param car the car, not null
+	 * @param value the value, can be null
+	 * @return the result, not null
+	 */
+	static public <V> ParkingResult<V> success(Car car, V value) {
+		return new ParkingResult<V>(car, value, null);
+	}
+	
+	/**
+	 * Create a failed result.
+	 * @param <V> the type of the value
+	 * @param car the car, not null
+	 * @param exception the exception, either a {@link ParkingException} or a {@link RuntimeException}, not null
+	 * @return the result, not null
+	 */
+	static public <V> ParkingResult<V> failure(Car car, Exception exception) {
+		assert((exception instanceof ParkingException) || (exception instanceof RuntimeException));
+		
+		return new ParkingResult<V>(car, null, exception);
+	}
+	
+	/**
+	 * Gets the car the operation was performed on.
+	 * @return the car, not null
+	 */
+	public Car getCar() {
+		return this.car;
+	}
+	
+	/**
+	 * Test whether or not the operation succeeded.
+	 * @return true if the operation did not throw, false otherwise
+	 */
+	public boolean isSuccessful() {
+		return (this.exception == null);
+	}
+	
+	/**
+	 * Gets the value returned by the operation or rethrow the exception it has thrown.
+	 * @return the value, can be null
+	 * @throws ParkingException if the operation has thrown a ParkingException
+	 * @throws RuntimeException if the operation has thrown a RuntimeException
+	 */
+	public V get() throws ParkingException {
+		if (this.exception instanceof ParkingException) {
+			throw (ParkingException) this.exception;
+		}
+		if (this.exception != null) {
+			throw (RuntimeException) this.exception;
+		}
+		
+		return this.value;
+	}
+	
+	/**
+	 * Gets the value returned by the operation, without rethrowing the exception it may have thrown.
+	 * @return the value, null if the operation failed or returned null
+	 */
+	public V getValue() {
+		return this.value;
+	}
+	
+	/**
+	 * Gets the exception thrown by the operation.
+	 * @return the exception, null if the operation succeeded
+	 */
+	public Exception getException() {
+		return this.exception;
+	}
+	
+	@Override
+	public String toString() {
+		return this.car + ": " + (this.exception == null ? String.valueOf(this.value) : this.exception.toString());
+	}
+}
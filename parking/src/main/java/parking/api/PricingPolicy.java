@@ -9,7 +9,7 @@ import java.time.Instant;
  * The Interface PricingPolicy.
  * <p>Used by a {@link Parking} instance to bill a car when it leaves the parking.
  * You have to implement this interface to provide your own bill algorithm when creating a parking.
- * Take a look at {@link DefaultPricingPolicy} for a default pricing policy.</p>
+ * Take a look at {@link DefaultPricingPolicy} for a default pricing policy and at {@link CachingPricingPolicy} to memoize the prices of an expensive policy.</p>
  * @see Parking
  * @see DefaultPricingPolicy
  */
@@ -19,10 +19,23 @@ public interface PricingPolicy {
 	 * <p>You can return whatever value you want. No check is performed on the validity of the value; typically the value may be negative.
 	 * {@link Parking#unparkAndBill(Car)} will return an invalid value if this method returns an invalid value.
 	 * Returning an invalid value has no consequence on releasing the parking spot.</p> 
+	 * <p>The default {@link Parking} implementation gives instants with a millisecond precision (see {@link Clock#millis()}).</p>
 	 * @param car the car to bill
 	 * @param arrivalInstant the arrival instant, not null, before the departure instant
 	 * @param departureInstant the departure instant, not null, after the arrival instant
 	 * @return the price to pay to leave the parking
 	 */
 	float bill(Car car, Instant arrivalInstant, Instant departureInstant);
+	
+	/**
+	 * Get the billing granularity of the policy, in milliseconds.
+	 * <p>A policy declaring a strictly positive granularity promises that its price only depends on the car type and on the parking duration divided
+	 * by the granularity (rounded down): all the cars of a given type whose parking durations fall in the same granularity bucket are billed the same price.
+	 * Such a policy can be decorated by a {@link CachingPricingPolicy}.</p>
+	 * <p>Default implementation returns zero: the price may depend on anything.</p>
+	 * @return the billing granularity in milliseconds, zero if the policy does not declare any
+	 */
+	default long getBillingGranularityMillis() {
+		return 0L;
+	}
 }
@@ -0,0 +1,203 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of the revenue and stay aggregates of a parking.
+ * <p>Returned by {@link Parking#revenue()}. For each car type, holds the totals of the cars billed since the parking was created and the totals
+ * of the cars which departed during each of the last tumbling windows, window 0 being the window of the instant the snapshot was taken.
+ * Sliding windows are read as sums of the last windows, see {@link #getLastWindows(Car.Type, int)}.</p>
+ * <p>Cars are accounted for by their type when they left the parking.</p>
+ * <p>Instances are immutable.</p>
+ * @see Parking#revenue()
+ */
+public final class RevenueSnapshot {
+	private final Duration windowDuration;
+	private final Instant currentWindowStart;
+	private final int windowsCount;
+	private final Map<Car.Type, Integer> carTypeToSlotsCount;
+	private final Map<Car.Type, RevenueTotals> carTypeToTotal;
+	private final Map<Car.Type, List<RevenueTotals>> carTypeToWindows;
+	
+	/**
+	 * Instantiates a new revenue snapshot.
+	 * <p>Given maps and lists are copied. Missing car types are considered to have no slot and no billed car.</p>
+	 * @param windowDuration the duration of the tumbling windows, strictly positive
+	 * @param currentWindowStart the start of window 0, not null
+	 * @param windowsCount the number of windows, strictly positive
+	 * @param carTypeToSlotsCount the number of slots of each car type, not null
+	 * @param carTypeToTotal the totals of each car type since the parking was created, not null
+	 * @param carTypeToWindows the totals of each window, window 0 first, for each car type, not null, lists of the windows count size
+	 */
+	public RevenueSnapshot(Duration windowDuration, Instant currentWindowStart, int windowsCount, Map<Car.Type, Integer> carTypeToSlotsCount,
+		Map<Car.Type, RevenueTotals> carTypeToTotal, Map<Car.Type, List<RevenueTotals>> carTypeToWindows) {
+		this.windowDuration = windowDuration;
+		this.currentWindowStart = currentWindowStart;
+		this.windowsCount = windowsCount;
+		this.carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		this.carTypeToSlotsCount.putAll(carTypeToSlotsCount);
+		this.carTypeToTotal = new EnumMap<Car.Type, RevenueTotals>(Car.Type.class);
+		this.carTypeToTotal.putAll(carTypeToTotal);
+		this.carTypeToWindows = new EnumMap<Car.Type, List<RevenueTotals>>(Car.Type.class);
+		for (Map.Entry<Car.Type, List<RevenueTotals>> carTypeAndWindows: carTypeToWindows.entrySet()) {
+			this.carTypeToWindows.put(carTypeAndWindows.getKey(), Collections.unmodifiableList(new ArrayList<RevenueTotals>(carTypeAndWindows.getValue())));
+		}
+	}
+	
+	/**
+	 * Gets the duration of the tumbling windows.
+	 * @return the duration, strictly positive
+	 */
+	public Duration getWindowDuration() {
+		return this.windowDuration;
+	}
+	
+	/**
+	 * Gets the number of windows.
+	 * @return the count, strictly positive
+	 */
+	public int getWindowsCount() {
+		return this.windowsCount;
+	}
+	
+	/**
+	 * Gets the start of a window.
+	 * @param age the window age, 0 for the window of the instant the snapshot was taken, 1 for the previous one, and so on
+	 * @return the start instant, not null
+	 */
+	public Instant getWindowStart(int age) {
+		return this.currentWindowStart.minus(this.windowDuration.multipliedBy(age));
+	}
+	
+	/**
+	 * Gets the number of slots of a car type.
+	 * @param carType the car type, not null
+	 * @return the slots count, zero if the parking has no slot for the car type
+	 */
+	public int getSlotsCount(Car.Type carType) {
+		return this.carTypeToSlotsCount.getOrDefault(carType, 0).intValue();
+	}
+	
+	/**
+	 * Gets the totals of a car type since the parking was created.
+	 * @param carType the car type, not null
+	 * @return the totals, not null
+	 */
+	public RevenueTotals getTotal(Car.Type carType) {
+		return this.carTypeToTotal.getOrDefault(carType, RevenueTotals.empty);
+	}
+	
+	/**
+	 * Gets the totals of all car types since the parking was created.
+	 * @return the totals, not null
+	 */
+	public RevenueTotals getTotal() {
+		RevenueTotals total = RevenueTotals.empty;
+		
+		for (RevenueTotals carTypeTotal: this.carTypeToTotal.values()) {
+			total = total.plus(carTypeTotal);
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * Gets the totals of a car type over a window.
+	 * @param carType the car type, not null
+	 * @param age the window age, 0 for the window of the instant the snapshot was taken, 1 for the previous one, and so on
+	 * @return the totals, not null
+	 * @throws IndexOutOfBoundsException if the age is negative or not lower than the windows count
+	 */
+	public RevenueTotals getWindow(Car.Type carType, int age) {
+		List<RevenueTotals> windows = this.carTypeToWindows.get(carType);
+		
+		if ((age < 0) || (age >= this.windowsCount)) {
+			throw new IndexOutOfBoundsException("Window age " + age + " is out of [0, " + this.windowsCount + "[");
+		}
+		
+		return (windows == null ? RevenueTotals.empty : windows.get(age));
+	}
+	
+	/**
+	 * Gets the totals of a car type over the last windows, that is to say over a sliding window ending with window 0.
+	 * @param carType the car type, not null
+	 * @param windowsCount the number of windows, from 1 to the windows count
+	 * @return the totals, not null
+	 * @throws IndexOutOfBoundsException if the number of windows is not in the range
+	 */
+	public RevenueTotals getLastWindows(Car.Type carType, int windowsCount) {
+		RevenueTotals total = RevenueTotals.empty;
+		
+		if ((windowsCount < 1) || (windowsCount > this.windowsCount)) {
+			throw new IndexOutOfBoundsException("Windows count " + windowsCount + " is out of [1, " + this.windowsCount + "]");
+		}
+		for (int age = 0; age < windowsCount; age++) {
+			total = total.plus(getWindow(carType, age));
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * Gets the turnover of the slots of a car type over the last windows.
+	 * @param carType the car type, not null
+	 * @param windowsCount the number of windows, from 1 to the windows count
+	 * @return the number of cars billed per slot, NaN if the parking has no slot for the car type
+	 * @throws IndexOutOfBoundsException if the number of windows is not in the range
+	 */
+	public double getTurnover(Car.Type carType, int windowsCount) {
+		int slotsCount = getSlotsCount(carType);
+		
+		return (slotsCount == 0 ? Double.NaN : (double) getLastWindows(carType, windowsCount).getBilledCarsCount() / slotsCount);
+	}
+	
+	/**
+	 * Merge this snapshot with another one taken at the same instant, with the same windows.
+	 * <p>Slots counts, totals and windows are summed, which allows aggregating the revenue of several parkings.</p>
+	 * @param other the other snapshot, not null
+	 * @return the merged snapshot, not null
+	 * @throws IllegalArgumentException if the windows of the snapshots differ
+	 */
+	public RevenueSnapshot merge(RevenueSnapshot other) {
+		if (!this.windowDuration.equals(other.windowDuration) || !this.currentWindowStart.equals(other.currentWindowStart) || (this.windowsCount != other.windowsCount)) {
+			throw new IllegalArgumentException("Cannot merge revenue snapshots with different windows");
+		}
+		
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		Map<Car.Type, RevenueTotals> carTypeToTotal = new EnumMap<Car.Type, RevenueTotals>(Car.Type.class);
+		Map<Car.Type, List<RevenueTotals>> carTypeToWindows = new EnumMap<Car.Type, List<RevenueTotals>>(Car.Type.class);
+		
+		for (Car.Type carType: Car.Type.values()) {
+			List<RevenueTotals> windows = new ArrayList<RevenueTotals>(this.windowsCount);
+			
+			for (int age = 0; age < this.windowsCount; age++) {
+				windows.add(getWindow(carType, age).plus(other.getWindow(carType, age)));
+			}
+			carTypeToSlotsCount.put(carType, getSlotsCount(carType) + other.getSlotsCount(carType));
+			carTypeToTotal.put(carType, getTotal(carType).plus(other.getTotal(carType)));
+			carTypeToWindows.put(carType, windows);
+		}
+		
+		return new RevenueSnapshot(this.windowDuration, this.currentWindowStart, this.windowsCount, carTypeToSlotsCount, carTypeToTotal, carTypeToWindows);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		
+		for (Car.Type carType: Car.Type.values()) {
+			builder.append(carType).append(": ").append(getTotal(carType)).append(", current window ").append(getWindow(carType, 0)).append('\n');
+		}
+		
+		return builder.toString();
+	}
+}
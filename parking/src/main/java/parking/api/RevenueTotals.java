@@ -0,0 +1,80 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Duration;
+
+/**
+ * The revenue and stay totals of the cars billed by a parking over a period.
+ * <p>Returned by {@link RevenueSnapshot}: the count, the revenue and the parking duration of a set of billed cars, always consistent with each other.</p>
+ * <p>Instances are immutable.</p>
+ * @see RevenueSnapshot
+ */
+public final class RevenueTotals {
+	/** The totals of no billed car. */
+	static public final RevenueTotals empty = new RevenueTotals(0L, 0.0, 0L);
+	
+	private final long billedCarsCount;
+	private final double revenue;
+	private final long stayMillis;
+	
+	/**
+	 * Instantiates new revenue totals.
+	 * @param billedCarsCount the number of billed cars, positive or zero
+	 * @param revenue the sum of the prices of the billed cars
+	 * @param stayMillis the sum of the parking durations of the billed cars, in milliseconds, positive or zero
+	 */
+	public RevenueTotals(long billedCarsCount, double revenue, long stayMillis) {
+		this.billedCarsCount = billedCarsCount;
+		this.revenue = revenue;
+		this.stayMillis = stayMillis;
+	}
+	
+	/**
+	 * Gets the number of billed cars.
+	 * @return the count, positive or zero
+	 */
+	public long getBilledCarsCount() {
+		return this.billedCarsCount;
+	}
+	
+	/**
+	 * Gets the sum of the prices of the billed cars.
+	 * @return the revenue
+	 */
+	public double getRevenue() {
+		return this.revenue;
+	}
+	
+	/**
+	 * Gets the sum of the parking durations of the billed cars.
+	 * @return the total stay, in milliseconds, positive or zero
+	 */
+	public long getStayMillis() {
+		return this.stayMillis;
+	}
+	
+	/**
+	 * Gets the average parking duration of the billed cars.
+	 * @return the average stay, rounded down to the millisecond, zero if no car was billed
+	 */
+	public Duration getAverageStay() {
+		return (this.billedCarsCount == 0L ? Duration.ZERO : Duration.ofMillis(this.stayMillis / this.billedCarsCount));
+	}
+	
+	/**
+	 * Add these totals to other totals.
+	 * <p>Used to sum several windows or the totals of several parkings.</p>
+	 * @param other the other totals, not null
+	 * @return the sum, not null
+	 */
+	public RevenueTotals plus(RevenueTotals other) {
+		return new RevenueTotals(this.billedCarsCount + other.billedCarsCount, this.revenue + other.revenue, this.stayMillis + other.stayMillis);
+	}
+	
+	@Override
+	public String toString() {
+		return this.billedCarsCount + " cars, revenue " + this.revenue + ", average stay " + getAverageStay();
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+/**
+ * A parking slot.
+ * <p>Compact identity of a slot: the car type the slot is dedicated to and the slot index among the slots of that type.
+ * Returned by {@link Parking#parkAndGetSlot(Car)} for callers who do not want to pay for a slot id string on each park.</p>
+ * <p>The slot id returned by {@link Parking#park(Car)} is only built the first time {@link #getId()} is called and then cached.</p>
+ * @see Parking#parkAndGetSlot(Car)
+ */
+public final class Slot {
+	private final Car.Type carType;
+	private final int index;
+	
+	/* Lazily built by getId(); racing threads may both build it, which is harmless as strings are immutable */
+	private String id;
+	
+	/**
+	 * Instantiates a new slot.
+	 * @param carType the type of car the slot is dedicated to, not null
+	 * @param index the slot index, positive or zero
+	 */
+	public Slot(Car.Type carType, int index) {
+		this.carType = carType;
+		this.index = index;
+		this.id = null;
+	}
+	
+	/**
+	 * Gets the type of car the slot is dedicated to.
+	 * @return the car type, not null
+	 */
+	public Car.Type getCarType() {
+		return this.carType;
+	}
+	
+	/**
+	 * Gets the slot index.
+	 * <p>Slot indexes of a car type go from zero to the number of slots of that type (excluded).</p>
+	 * @return the index, positive or zero
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+	
+	/**
+	 * Gets the slot id.
+	 * <p>This is the id returned by {@link Parking#park(Car)}: the index alone for gasoline slots, the index prefixed by the car type for the others.</p>
+	 * @return the id, not null
+	 */
+	public String getId() {
+		String id = this.id;
+		
+		if (id == null) {
+			id = (this.carType == Car.Type.GASOLINE ? "" : this.carType + " - ") + this.index;
+			this.id = id;
+		}
+		
+		return id;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Slot)) {
+			return false;
+		}
+		
+		Slot otherSlot = (Slot) other;
+		
+		return (this.carType == otherSlot.carType) && (this.index == otherSlot.index);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * this.carType.hashCode() + this.index;
+	}
+	
+	@Override
+	public String toString() {
+		return getId();
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * A declarative tariff.
+ * <p>A tariff bills a parking duration as the sum of its fees and rates:<ul>
+ * <li>a fee is a fixed amount due once the car has stayed a given duration, the fee due from zero being the fixed amount of the tariff</li>
+ * <li>a rate is an amount due for each started, or completed, period the car stayed between two durations</li>
+ * </ul>
+ * Fees and rates may overlap: a rate from zero adds up to the fees and rates applying afterwards. A daily cap limits the price of each day,
+ * the tariff then restarting each day: a parking duration is billed as its full days, each at the capped price of a day, plus the capped price
+ * of the remaining duration.</p>
+ * <p>A tariff is built from {@link #free} by chaining {@link #withFee(Duration, float)}, {@link #withRate(Duration, Duration, Duration, float, boolean)}
+ * and {@link #withDailyCap(float)}, then compiled by {@link #compile()} into a pricing policy billing in constant time without allocating any memory.
+ * For instance, a tariff whose first 30 minutes are free, then billed 2.5 per started hour during 3 hours and 1.5 per started hour afterwards,
+ * capped to 20 per day:</p><pre>
+ * Tariff.free
+ *     .withRate(Duration.ofMinutes(30), Duration.ofMinutes(210), Duration.ofHours(1), 2.5f, true)
+ *     .withRate(Duration.ofMinutes(210), null, Duration.ofHours(1), 1.5f, true)
+ *     .withDailyCap(20.0f)
+ * </pre>
+ * <p>Instances are immutable.</p>
+ * @see CompiledTariff
+ * @see TariffPricingPolicy
+ */
+public final class Tariff {
+	/** The tariff without any fee or rate: parking is free. */
+	static public final Tariff free = new Tariff(new long[0], new float[0], new long[0], new long[0], new long[0], new float[0], new boolean[0], Float.POSITIVE_INFINITY);
+	
+	/* Fee i is due from feeFromMillis[i], rate i applies from rateFromMillis[i] to rateToMillis[i] (Long.MAX_VALUE if unbounded) */
+	private final long[] feeFromMillis;
+	private final float[] feeAmounts;
+	private final long[] rateFromMillis;
+	private final long[] rateToMillis;
+	private final long[] ratePeriodMillis;
+	private final float[] rateAmounts;
+	private final boolean[] ratePerStartedPeriods;
+	private final float dailyCap;
+	
+	/**
+	 * Instantiates a new tariff.
+	 * <p>Given arrays are not copied.</p>
+	 * @param feeFromMillis the duration from which each fee is due, in milliseconds
+	 * @param feeAmounts the amount of each fee
+	 * @param rateFromMillis the duration from which each rate applies, in milliseconds
+	 * @param rateToMillis the duration until which each rate applies, in milliseconds, Long.MAX_VALUE if the rate always applies afterwards
+	 * @param ratePeriodMillis the period of each rate, in milliseconds
+	 * @param rateAmounts the amount due for each period of each rate
+	 * @param ratePerStartedPeriods true for each rate due for each started period, false for each rate due for each completed period
+	 * @param dailyCap the maximum price of a day, Float.POSITIVE_INFINITY if there is none
+	 */
+	private Tariff(long[] feeFromMillis, float[] feeAmounts, long[] rateFromMillis, long[] rateToMillis, long[] ratePeriodMillis, float[] rateAmounts,
+		boolean[] ratePerStartedPeriods, float dailyCap) {
+		this.feeFromMillis = feeFromMillis;
+		this.feeAmounts = feeAmounts;
+		this.rateFromMillis = rateFromMillis;
+		this.rateToMillis = rateToMillis;
+		this.ratePeriodMillis = ratePeriodMillis;
+		this.rateAmounts = rateAmounts;
+		this.ratePerStartedPeriods = ratePerStartedPeriods;
+		this.dailyCap = dailyCap;
+	}
+	
+	/**
+	 * Return a tariff with an additional fee.
+	 * @param from the parking duration from which the fee is due (included), not null, positive or zero
+	 * @param amount the fee amount
+	 * @return the new tariff, not null
+	 * @throws IllegalArgumentException if the duration is negative
+	 */
+	public Tariff withFee(Duration from, float amount) {
+		long fromMillis = from.toMillis();
+		
+		if (fromMillis < 0L) {
+			throw new IllegalArgumentException("Fee duration " + from + " is negative");
+		}
+		
+		int feesCount = this.feeFromMillis.length;
+		long[] feeFromMillis = Arrays.copyOf(this.feeFromMillis, feesCount + 1);
+		float[] feeAmounts = Arrays.copyOf(this.feeAmounts, feesCount + 1);
+		
+		feeFromMillis[feesCount] = fromMillis;
+		feeAmounts[feesCount] = amount;
+		
+		return new Tariff(feeFromMillis, feeAmounts, this.rateFromMillis, this.rateToMillis, this.ratePeriodMillis, this.rateAmounts,
+			this.ratePerStartedPeriods, this.dailyCap);
+	}
+	
+	/**
+	 * Return a tariff with an additional rate.
+	 * <p>Periods are counted from the duration from which the rate applies. A period started before the duration until which the rate applies
+	 * is due in full when billed per started period; it is not due at all when billed per completed period.</p>
+	 * @param from the parking duration from which the rate applies, not null, positive or zero
+	 * @param to the parking duration until which the rate applies, after the from duration, null if the rate always applies afterwards
+	 * @param period the rate period, not null, at least one millisecond
+	 * @param amount the amount due for each period
+	 * @param perStartedPeriod true if the amount is due for each started period, false if it is only due for each completed period
+	 * @return the new tariff, not null
+	 * @throws IllegalArgumentException if the from duration is negative, the to duration is not after the from duration or the period is shorter than one millisecond
+	 */
+	public Tariff withRate(Duration from, Duration to, Duration period, float amount, boolean perStartedPeriod) {
+		long fromMillis = from.toMillis();
+		long toMillis = (to == null ? Long.MAX_VALUE : to.toMillis());
+		long periodMillis = period.toMillis();
+		
+		if ((fromMillis < 0L) || (toMillis <= fromMillis)) {
+			throw new IllegalArgumentException("Rate durations from " + from + " to " + to + " are negative or not ordered");
+		}
+		if (periodMillis <= 0L) {
+			throw new IllegalArgumentException("Rate period " + period + " is shorter than one millisecond");
+		}
+		
+		int ratesCount = this.rateFromMillis.length;
+		long[] rateFromMillis = Arrays.copyOf(this.rateFromMillis, ratesCount + 1);
+		long[] rateToMillis = Arrays.copyOf(this.rateToMillis, ratesCount + 1);
+		long[] ratePeriodMillis = Arrays.copyOf(this.ratePeriodMillis, ratesCount + 1);
+		float[] rateAmounts = Arrays.copyOf(this.rateAmounts, ratesCount + 1);
+		boolean[] ratePerStartedPeriods = Arrays.copyOf(this.ratePerStartedPeriods, ratesCount + 1);
+		
+		rateFromMillis[ratesCount] = fromMillis;
+		rateToMillis[ratesCount] = toMillis;
+		ratePeriodMillis[ratesCount] = periodMillis;
+		rateAmounts[ratesCount] = amount;
+		ratePerStartedPeriods[ratesCount] = perStartedPeriod;
+		
+		return new Tariff(this.feeFromMillis, this.feeAmounts, rateFromMillis, rateToMillis, ratePeriodMillis, rateAmounts, ratePerStartedPeriods, this.dailyCap);
+	}
+	
+	/**
+	 * Return a tariff with a daily cap.
+	 * <p>With a daily cap, the tariff restarts each day: a parking duration is billed as its full days, each at the price of a day limited to the cap,
+	 * plus the price of the remaining duration limited to the cap.</p>
+	 * @param dailyCap the maximum price of a day, Float.POSITIVE_INFINITY to remove the daily cap
+	 * @return the new tariff, not null
+	 */
+	public Tariff withDailyCap(float dailyCap) {
+		return new Tariff(this.feeFromMillis, this.feeAmounts, this.rateFromMillis, this.rateToMillis, this.ratePeriodMillis, this.rateAmounts,
+			this.ratePerStartedPeriods, dailyCap);
+	}
+	
+	/**
+	 * Compile the tariff into a pricing policy.
+	 * @return the compiled tariff, not null
+	 */
+	public CompiledTariff compile() {
+		return new CompiledTariff(this.feeFromMillis, this.feeAmounts, this.rateFromMillis, this.rateToMillis, this.ratePeriodMillis, this.rateAmounts,
+			this.ratePerStartedPeriods, this.dailyCap);
+	}
+}
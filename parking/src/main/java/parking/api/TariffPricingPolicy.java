@@ -0,0 +1,45 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.api;
+
+import java.util.Map;
+
+/**
+ * A PricingPolicy billing each car type according its own tariff.
+ * <p>Tariffs are compiled when the policy is instantiated: billing a car looks its compiled tariff up by the ordinal of its type
+ * and bills the parking duration in constant time, without allocating any memory.</p>
+ * @see Tariff
+ * @see CompiledTariff
+ */
+public final class TariffPricingPolicy implements EpochMillisPricingPolicy {
+	/* Car.Type.values() returns a new array on each call */
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	private final CompiledTariff[] carTypeOrdinalToTariff;
+	
+	/**
+	 * Instantiates a new tariff pricing policy.
+	 * @param carTypeToTariff the tariff of each car type, not null, holding a tariff for every car type
+	 * @throws IllegalArgumentException if a car type has no tariff
+	 */
+	public TariffPricingPolicy(Map<Car.Type, Tariff> carTypeToTariff) {
+		this.carTypeOrdinalToTariff = new CompiledTariff[carTypes.length];
+		for (Car.Type carType: carTypes) {
+			Tariff tariff = carTypeToTariff.get(carType);
+			
+			if (tariff == null) {
+				throw new IllegalArgumentException("No tariff for car type " + carType);
+			}
+			this.carTypeOrdinalToTariff[carType.ordinal()] = tariff.compile();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float bill(Car car, long arrivalEpochMillis, long departureEpochMillis) {
+		return this.carTypeOrdinalToTariff[car.getType().ordinal()].bill(departureEpochMillis - arrivalEpochMillis);
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import parking.api.AsyncParking;
+import parking.api.Car;
+import parking.api.Parking;
+import parking.api.ParkingException;
+
+/**
+ * The default AsyncParking implementation.
+ * <p>Refer to the {@link AsyncParking} documentation for more details.</p>
+ * <p>Ordering is kept per registration number by chaining the operations: the completion of the last submitted operation of each registration number is kept in a
+ * concurrent map, the next operation on the same registration number is only handed to the executor once it has completed. The completion is a private future, completed
+ * once the operation has run or has been skipped, so that cancelling or completing the future returned to the caller cannot start the next operation early.
+ * An operation removes its completion from the map when it completes and no other operation has been chained after it, so that the map only holds the registration
+ * numbers with pending operations.</p>
+ */
+final class AsyncParkingImpl implements AsyncParking {
+	/* Null cannot be a key of a concurrent map, below key is used in place of the null registration number */
+	static private final Object nullRegistrationNumberKey = new Object();
+	
+	/**
+	 * The Interface Operation.
+	 * <p>A blocking parking operation.</p>
+	 * @param <V> the operation result type
+	 */
+	@FunctionalInterface
+	static private interface Operation<V> {
+		/**
+		 * Run the operation.
+		 * @return the result
+		 * @throws ParkingException if the parking operation fails
+		 */
+		V run() throws ParkingException;
+	}
+	
+	/**
+	 * The Class DefaultExecutorHolder.
+	 * <p>Holds the default executor so that it is only created when an async parking is created without executor.</p>
+	 */
+	static private final class DefaultExecutorHolder {
+		static private final Executor instance = createDefaultExecutor();
+		
+		/**
+		 * Create the default executor.
+		 * <p>Executors.newVirtualThreadPerTaskExecutor() is looked up by reflection as the library is built for Java 11.</p>
+		 * @return the executor, not null
+		 */
+		static private Executor createDefaultExecutor() {
+			try {
+				Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				
+				return (Executor) newVirtualThreadPerTaskExecutor.invoke(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				AtomicInteger threadsCount = new AtomicInteger();
+				ThreadFactory threadFactory = (runnable) -> {
+					Thread thread = new Thread(runnable, "parking-async-" + threadsCount.incrementAndGet());
+					
+					thread.setDaemon(true);
+					
+					return thread;
+				};
+				
+				return Executors.newCachedThreadPool(threadFactory);
+			}
+		}
+	}
+	
+	/* All members below are safe for concurrent accesses:
+	 *   parking and executor are thread safe
+	 *   registrationNumberToLastOperation is a concurrent map, its values are the completions of the operations */
+	private final Parking parking;
+	private final Executor executor;
+	private final ConcurrentMap<Object, CompletableFuture<Void>> registrationNumberToLastOperation;
+	
+	/**
+	 * Instantiates a new async parking implementation.
+	 * <p>Refer to {@link AsyncParking#create(Parking, Executor)} for a complete documentation.</p>
+	 * @see AsyncParking#create(Parking, Executor)
+	 * @param parking the parking the operations are delegated to, not null
+	 * @param executor the executor running the operations, null for the default executor
+	 */
+	AsyncParkingImpl(Parking parking, Executor executor) {
+		this.parking = parking;
+		this.executor = (executor == null ? DefaultExecutorHolder.instance : executor);
+		this.registrationNumberToLastOperation = new ConcurrentHashMap<Object, CompletableFuture<Void>>();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Parking getParking() {
+		return this.parking;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<String> park(Car car) {
+		return submit(car, () -> this.parking.park(car));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<Float> unparkAndBill(Car car) {
+		return submit(car, () -> this.parking.unparkAndBill(car));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<Boolean> isParked(Car car) {
+		return submit(car, () -> this.parking.isParked(car));
+	}
+	
+	/**
+	 * Submit an operation on a car, to be run once the operations previously submitted on the same registration number have completed.
+	 * <p>The operation is skipped if the returned future is completed, by a cancellation for instance, before the operation starts.</p>
+	 * @param <V> the operation result type
+	 * @param car the car, not null
+	 * @param operation the operation, not null
+	 * @return the future result of the operation, not null
+	 */
+	private <V> CompletableFuture<V> submit(Car car, Operation<V> operation) {
+		CompletableFuture<V> result = new CompletableFuture<V>();
+		Object registrationNumberKey;
+		
+		try {
+			String registrationNumber = car.getRegistrationNumber();
+			
+			registrationNumberKey = (registrationNumber == null ? nullRegistrationNumberKey : registrationNumber);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+		
+		CompletableFuture<Void> completion = new CompletableFuture<Void>();
+		Runnable task = () -> {
+			try {
+				if (!result.isDone()) {
+					result.complete(operation.run());
+				}
+			} catch (ParkingException | RuntimeException e) {
+				result.completeExceptionally(e);
+			} finally {
+				completion.complete(null);
+			}
+		};
+		CompletableFuture<Void> previousCompletion = this.registrationNumberToLastOperation.put(registrationNumberKey, completion);
+		
+		completion.whenComplete((value, exception) -> this.registrationNumberToLastOperation.remove(registrationNumberKey, completion));
+		if (previousCompletion == null) {
+			execute(task, result, completion);
+		} else {
+			previousCompletion.whenComplete((value, exception) -> execute(task, result, completion));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Hand a task to the executor.
+	 * @param task the task, completing the completion once run, not null
+	 * @param result the future result of the task, completed exceptionally if the executor rejects the task, not null
+	 * @param completion the completion of the task, completed if the executor rejects the task, not null
+	 */
+	private void execute(Runnable task, CompletableFuture<?> result, CompletableFuture<Void> completion) {
+		try {
+			this.executor.execute(task);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+			completion.complete(null);
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import parking.api.BillTicket;
+import parking.api.BillingPipeline;
+import parking.api.Car;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.ParkingResult;
+
+/**
+ * The default BillingPipeline implementation.
+ * <p>Refer to the {@link BillingPipeline} documentation for more details.</p>
+ * <p>Gates put the tickets in a bounded blocking queue, a single daemon thread takes them by batches and bills each batch with a single call to
+ * {@link Parking#billAll(java.util.Collection)}. Closing the pipeline puts a closing ticket
+ * in the queue: once the pricing thread takes it, it keeps billing the tickets of the gates which were unparking cars when the pipeline was closed, then stops.</p>
+ */
+final class BillingPipelineImpl implements BillingPipeline {
+	/* Interval at which the pricing thread polls the queue once the pipeline is closed, until the last gates have queued their tickets */
+	static private final long closingPollIntervalMillis = 1L;
+	
+	static private final AtomicInteger pipelinesCount = new AtomicInteger();
+	
+	/* All members below are safe for concurrent accesses:
+	 *   parking is thread safe
+	 *   tickets is a blocking queue
+	 *   closed is volatile, submittersCount is atomic, closeTicket is never modified after construction
+	 *   pricingThread is only started by the constructor and joined by close() */
+	private final Parking parking;
+	private final int batchSize;
+	private final BlockingQueue<BillTicket> tickets;
+	private final BillTicket closeTicket;
+	private final AtomicInteger submittersCount;
+	private volatile boolean closed;
+	private final Thread pricingThread;
+	
+	/**
+	 * Instantiates a new billing pipeline implementation and starts its pricing thread.
+	 * <p>Refer to {@link BillingPipeline#create(Parking, int, int)} for a complete documentation.</p>
+	 * @see BillingPipeline#create(Parking, int, int)
+	 * @param parking the parking the cars are unparked from and billed by, not null
+	 * @param capacity the maximum number of tickets waiting to be billed, strictly positive
+	 * @param batchSize the maximum number of tickets billed per batch, strictly positive
+	 * @throws IllegalArgumentException if the capacity or the batch size is not strictly positive
+	 */
+	BillingPipelineImpl(Parking parking, int capacity, int batchSize) {
+		if ((capacity <= 0) || (batchSize <= 0)) {
+			throw new IllegalArgumentException("Invalid capacity " + capacity + " or batch size " + batchSize);
+		}
+		
+		this.parking = parking;
+		this.batchSize = batchSize;
+		this.tickets = new ArrayBlockingQueue<BillTicket>(capacity);
+		this.closeTicket = new BillTicket(null, null, null, 0L, 0L);
+		this.submittersCount = new AtomicInteger();
+		this.closed = false;
+		this.pricingThread = new Thread(this::billTickets, "parking-billing-" + pipelinesCount.incrementAndGet());
+		this.pricingThread.setDaemon(true);
+		this.pricingThread.start();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Parking getParking() {
+		return this.parking;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BillTicket unpark(Car car) throws ParkingException {
+		// Gates are counted before the closed flag is checked, so that the pricing thread waits for the tickets of the gates which passed the check
+		this.submittersCount.incrementAndGet();
+		try {
+			if (this.closed) {
+				throw new IllegalStateException("Billing pipeline is closed");
+			}
+			
+			BillTicket ticket = this.parking.unpark(car);
+			
+			try {
+				this.tickets.put(ticket);
+			} catch (InterruptedException e) {
+				// The gate does not run the pricing policy: the ticket is rejected instead
+				Thread.currentThread().interrupt();
+				ticket.getPrice().completeExceptionally(e);
+			}
+			
+			return ticket;
+		} finally {
+			this.submittersCount.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getPendingTicketsCount() {
+		int pendingTicketsCount = this.tickets.size();
+		
+		return (this.tickets.contains(this.closeTicket) ? pendingTicketsCount - 1 : pendingTicketsCount);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		boolean interrupted = false;
+		
+		synchronized (this) {
+			if (!this.closed) {
+				this.closed = true;
+				// The pricing thread keeps making room in the queue until it takes the close ticket
+				while (true) {
+					try {
+						this.tickets.put(this.closeTicket);
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+		}
+		while (this.pricingThread.isAlive()) {
+			try {
+				this.pricingThread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Bill a batch of tickets at once, completing their prices whatever the parking implementation.
+	 * @param batch the tickets, not null, not empty
+	 */
+	private void billAll(List<BillTicket> batch) {
+		try {
+			List<ParkingResult<Float>> results = this.parking.billAll(batch);
+			
+			for (int position = 0; position < batch.size(); position++) {
+				ParkingResult<Float> result = results.get(position);
+				
+				if (result.isSuccessful()) {
+					batch.get(position).getPrice().complete(result.getValue());
+				} else {
+					batch.get(position).getPrice().completeExceptionally(result.getException());
+				}
+			}
+		} catch (RuntimeException e) {
+			for (BillTicket ticket: batch) {
+				ticket.getPrice().completeExceptionally(e);
+			}
+		}
+	}
+	
+	/**
+	 * Bill the queued tickets by batches until the pipeline is closed.
+	 * <p>Run by the pricing thread.</p>
+	 */
+	private void billTickets() {
+		List<BillTicket> batch = new ArrayList<BillTicket>(this.batchSize);
+		boolean closing = false;
+		
+		while (!closing || (this.submittersCount.get() > 0) || !this.tickets.isEmpty()) {
+			try {
+				BillTicket ticket = (closing ? this.tickets.poll(closingPollIntervalMillis, TimeUnit.MILLISECONDS) : this.tickets.take());
+				
+				if (ticket == null) {
+					continue;
+				}
+				batch.add(ticket);
+				this.tickets.drainTo(batch, this.batchSize - 1);
+			} catch (InterruptedException e) {
+				// Nobody else interrupts the pricing thread: stop as if the pipeline was closed, billing the tickets already queued
+				closing = true;
+				this.tickets.drainTo(batch);
+			}
+			
+			if (batch.remove(this.closeTicket)) {
+				closing = true;
+			}
+			if (!batch.isEmpty()) {
+				billAll(batch);
+			}
+			batch.clear();
+		}
+	}
+}
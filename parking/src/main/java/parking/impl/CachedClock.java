@@ -0,0 +1,81 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import parking.api.Clock;
+
+/**
+ * The cached Clock implementation.
+ * <p>A real time based clock, as {@link DefaultClock}, which does not read the system clock on each call: a background daemon thread, the ticker,
+ * reads it about every millisecond and publishes the value in a volatile field. Reading the clock is thus a mere memory read,
+ * the read value being late by one tick at most (more if the ticker thread is not scheduled in time).</p>
+ * <p>There is a unique instance, and thus a unique ticker thread, created and started on first use.</p>
+ * @see Clock.Mode#CACHED
+ */
+final class CachedClock implements Clock {
+	static private final long tickNanos = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	/**
+	 * The Class Holder.
+	 * <p>Holds the unique instance so that the ticker thread is only started when the cached clock is used.</p>
+	 */
+	static private final class Holder {
+		static private final CachedClock instance = new CachedClock();
+	}
+	
+	private volatile long cachedMillis;
+	
+	/**
+	 * Instantiates a new cached clock and starts its ticker thread.
+	 */
+	private CachedClock() {
+		this.cachedMillis = System.currentTimeMillis();
+		
+		Thread ticker = new Thread(this::tick, "parking-cached-clock-ticker");
+		
+		ticker.setDaemon(true);
+		ticker.start();
+	}
+	
+	/**
+	 * Get the unique instance of this class.
+	 * @return the instance, not null
+	 */
+	static CachedClock getInstance() {
+		return Holder.instance;
+	}
+	
+	/**
+	 * The ticker thread body: refresh the cached time every tick, forever.
+	 */
+	private void tick() {
+		for (;;) {
+			LockSupport.parkNanos(tickNanos);
+			this.cachedMillis = System.currentTimeMillis();
+		}
+	}
+	
+	/**
+	 * The current instant.
+	 * @return the instant, not null
+	 */
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(this.cachedMillis);
+	}
+	
+	/**
+	 * The current instant in milliseconds from the epoch.
+	 * <p>Unlike {@link #instant()}, this method does not allocate any memory.</p>
+	 * @return the current instant in milliseconds from the epoch
+	 */
+	@Override
+	public long millis() {
+		return this.cachedMillis;
+	}
+}
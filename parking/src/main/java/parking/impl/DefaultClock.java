@@ -16,7 +16,8 @@ import parking.api.Clock;
  * </ul>
  * Then the second instant will be older than the first instant by 2 seconds.</p>
  * <p>This default clock is used when calling {@link parking.api.Parking#create(java.util.Map, parking.api.PricingPolicy, Clock)}
- * with a null clock or when calling {@link parking.api.Parking#create(java.util.Map, parking.api.PricingPolicy)}
+ * with a null clock or when calling {@link parking.api.Parking#create(java.util.Map, parking.api.PricingPolicy)}.
+ * This is also the {@link Clock.Mode#SYSTEM} clock.</p>
  */
 final class DefaultClock implements Clock {
 	/** The unique instance of this class. */
@@ -39,4 +40,14 @@ final class DefaultClock implements Clock {
 	public Instant instant() {
 		return this.delegate.instant();
 	}
+	
+	/**
+	 * The current instant in milliseconds from the epoch.
+	 * <p>Unlike {@link #instant()}, this method does not allocate any memory.</p>
+	 * @return the current instant in milliseconds from the epoch
+	 */
+	@Override
+	public long millis() {
+		return this.delegate.millis();
+	}
 }
@@ -0,0 +1,296 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import parking.api.Car;
+import parking.api.ParkingEvent;
+import parking.api.Slot;
+
+/**
+ * The ring of the park, unpark and billing events of a parking, as returned by {@link parking.api.Parking#events()}.
+ * <p>The ring is a fixed array of entries allocated once: the gates publish an event by claiming the next sequence with an atomic increment and copying
+ * the event fields in the entry of that sequence, without allocating anything and without calling any subscriber. Each entry is a sequence lock: its sequence
+ * is set to a writing mark while the fields are written, then to the sequence of the event once they are all written.</p>
+ * <p>Each subscription has its own cursor and its own daemon thread, which reads the entries behind the gates, copies them to {@link ParkingEvent} objects and
+ * delivers them as requested. Gates never wait for subscribers: an entry is overwritten one lap later whether or not it has been read, a subscriber noticing
+ * its entry has been overwritten skips to the oldest event still in the ring. As gates do not signal subscribers either, an idle subscription polls the ring
+ * at a backing off interval.</p>
+ * <p>A gate only waits, in the unlikely case the ring has wrapped around while another gate is still writing the entry, for that gate to finish writing it.</p>
+ */
+final class EventRing implements Flow.Publisher<ParkingEvent> {
+	/* Number of events kept by the ring of a parking */
+	static final int defaultCapacity = 8192;
+	
+	/* Sequence of an entry while an event is written in it */
+	static private final long writingSequence = Long.MIN_VALUE;
+	
+	/* Intervals at which an idle subscription polls the ring, doubling from the minimum up to the maximum while the ring is empty */
+	static private final long minPollIntervalNanos = 1_000L;
+	static private final long maxPollIntervalNanos = 1_000_000L;
+	
+	static private final AtomicInteger subscriptionsCount = new AtomicInteger();
+	
+	/* Gates write the sequence of an entry with release semantics rather than through a volatile write, which would cost a full fence on each write */
+	static private final VarHandle entrySequence;
+	
+	static {
+		try {
+			entrySequence = MethodHandles.lookup().findVarHandle(Entry.class, "sequence", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	/**
+	 * The Class Entry.
+	 * <p>The fields of an event, written by the gate which has claimed its sequence and published by the volatile sequence.</p>
+	 */
+	static private final class Entry {
+		volatile long sequence;
+		ParkingEvent.Type type;
+		String registrationNumber;
+		Car.Type carType;
+		Slot slot;
+		long arrivalEpochMillis;
+		long departureEpochMillis;
+		float amount;
+		
+		/**
+		 * Instantiates a new entry, ready for the event of a given sequence.
+		 * @param sequence the sequence one lap before the first event written in the entry, negative
+		 */
+		Entry(long sequence) {
+			this.sequence = sequence;
+		}
+	}
+	
+	/**
+	 * The Class Subscription.
+	 * <p>Delivers the events of the ring to a subscriber from its own daemon thread, which stops once the subscription is cancelled.</p>
+	 */
+	private final class Subscription implements Flow.Subscription, Runnable {
+		/* All members below are safe for concurrent accesses:
+		 *   subscriber is never modified after construction and only called by the subscription thread
+		 *   demand is atomic, invalidRequest and cancelled are volatile
+		 *   cursor and skippedEventsCount are only accessed by the subscription thread, once started
+		 *   thread is never modified after construction */
+		private final Flow.Subscriber<? super ParkingEvent> subscriber;
+		private final AtomicLong demand;
+		private volatile boolean invalidRequest;
+		private volatile boolean cancelled;
+		private long cursor;
+		private long skippedEventsCount;
+		private final Thread thread;
+		
+		/**
+		 * Instantiates a new subscription, receiving the events published from now on.
+		 * @param subscriber the subscriber, not null
+		 */
+		Subscription(Flow.Subscriber<? super ParkingEvent> subscriber) {
+			this.subscriber = subscriber;
+			this.demand = new AtomicLong();
+			this.invalidRequest = false;
+			this.cancelled = false;
+			this.cursor = EventRing.this.nextSequence.get();
+			this.skippedEventsCount = 0L;
+			this.thread = new Thread(this, "parking-events-" + subscriptionsCount.incrementAndGet());
+			this.thread.setDaemon(true);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void request(long n) {
+			if (n <= 0L) {
+				this.invalidRequest = true;
+			} else {
+				// The demand saturates at Long.MAX_VALUE, which means an unbounded demand
+				this.demand.accumulateAndGet(n, (demand, added) -> (demand + added < 0L ? Long.MAX_VALUE : demand + added));
+			}
+			LockSupport.unpark(this.thread);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void cancel() {
+			this.cancelled = true;
+			LockSupport.unpark(this.thread);
+		}
+		
+		/**
+		 * Deliver the events until the subscription is cancelled.
+		 * <p>Run by the subscription thread.</p>
+		 */
+		@Override
+		public void run() {
+			long pollIntervalNanos = minPollIntervalNanos;
+			
+			try {
+				this.subscriber.onSubscribe(this);
+				while (!this.cancelled) {
+					if (this.invalidRequest) {
+						this.cancelled = true;
+						this.subscriber.onError(new IllegalArgumentException("Number of requested events must be strictly positive"));
+						break;
+					}
+					if (this.demand.get() == 0L) {
+						LockSupport.park(this);
+						continue;
+					}
+					
+					ParkingEvent event = poll();
+					
+					if (event == null) {
+						LockSupport.parkNanos(this, pollIntervalNanos);
+						pollIntervalNanos = Math.min(2L * pollIntervalNanos, maxPollIntervalNanos);
+						continue;
+					}
+					pollIntervalNanos = minPollIntervalNanos;
+					if (this.demand.get() != Long.MAX_VALUE) {
+						this.demand.decrementAndGet();
+					}
+					this.subscriber.onNext(event);
+				}
+			} catch (RuntimeException e) {
+				// A subscriber throwing is considered to have cancelled its subscription, it must not be called anymore (rule 2.13 of the reactive streams):
+				// the exception is left to the uncaught exception handler of the subscription thread
+				this.cancelled = true;
+				throw e;
+			}
+		}
+		
+		/**
+		 * Read the event at the cursor and move the cursor forward.
+		 * <p>Skips to the oldest event still in the ring if the event at the cursor has been overwritten.</p>
+		 * @return the event, null if it has not been published yet
+		 */
+		private ParkingEvent poll() {
+			while (true) {
+				long nextSequence = EventRing.this.nextSequence.get();
+				
+				if (this.cursor >= nextSequence) {
+					return null;
+				}
+				if (nextSequence - this.cursor > EventRing.this.entries.length) {
+					this.skippedEventsCount += nextSequence - EventRing.this.entries.length - this.cursor;
+					this.cursor = nextSequence - EventRing.this.entries.length;
+				}
+				
+				Entry entry = EventRing.this.entries[(int) this.cursor & EventRing.this.mask];
+				long sequence = entry.sequence;
+				
+				if (sequence != this.cursor) {
+					if (sequence > this.cursor) {
+						// Overwritten since the next sequence was read
+						continue;
+					}
+					
+					// Claimed but not written yet, or being overwritten which the next call will notice
+					return null;
+				}
+				
+				ParkingEvent event = new ParkingEvent(entry.type, this.cursor, entry.registrationNumber, entry.carType, entry.slot, entry.arrivalEpochMillis,
+					entry.departureEpochMillis, entry.amount, this.skippedEventsCount);
+				
+				// The fields must be read before the sequence is checked again
+				VarHandle.acquireFence();
+				if (entry.sequence != this.cursor) {
+					continue;
+				}
+				this.cursor++;
+				this.skippedEventsCount = 0L;
+				
+				return event;
+			}
+		}
+	}
+	
+	/* All members below are safe for concurrent accesses:
+	 *   entries and mask are never modified after construction, each entry is written under its own sequence lock
+	 *   nextSequence is atomic */
+	private final Entry[] entries;
+	private final int mask;
+	private final AtomicLong nextSequence;
+	
+	/**
+	 * Instantiates a new event ring.
+	 * @param capacity the minimum number of events kept by the ring, rounded up to a power of two, strictly positive
+	 */
+	EventRing(int capacity) {
+		int entriesCount = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+		
+		this.entries = new Entry[entriesCount];
+		for (int index = 0; index < entriesCount; index++) {
+			this.entries[index] = new Entry(index - entriesCount);
+		}
+		this.mask = entriesCount - 1;
+		this.nextSequence = new AtomicLong();
+	}
+	
+	/**
+	 * Get the number of events kept by the ring.
+	 * @return the capacity, a power of two
+	 */
+	int getCapacity() {
+		return this.entries.length;
+	}
+	
+	/**
+	 * Publish an event.
+	 * <p>Called by the gates, out of any lock. Does not allocate any memory.</p>
+	 * @param type the event type, not null
+	 * @param registrationNumber the registration number of the car, can be null
+	 * @param carType the car type, not null
+	 * @param slot the slot of the car, null for billing events
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch, 0 for parked events
+	 * @param amount the price to pay, NaN for parked and unparked events
+	 */
+	void publish(ParkingEvent.Type type, String registrationNumber, Car.Type carType, Slot slot, long arrivalEpochMillis, long departureEpochMillis, float amount) {
+		long sequence = this.nextSequence.getAndIncrement();
+		Entry entry = this.entries[(int) sequence & this.mask];
+		
+		// Only happens if the ring has wrapped around while the gate of the previous lap is still writing the entry
+		while (entry.sequence != sequence - this.entries.length) {
+			Thread.yield();
+		}
+		entrySequence.setOpaque(entry, writingSequence);
+		// The writing mark must be visible before any field is overwritten
+		VarHandle.storeStoreFence();
+		entry.type = type;
+		entry.registrationNumber = registrationNumber;
+		entry.carType = carType;
+		entry.slot = slot;
+		entry.arrivalEpochMillis = arrivalEpochMillis;
+		entry.departureEpochMillis = departureEpochMillis;
+		entry.amount = amount;
+		entrySequence.setRelease(entry, sequence);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The subscriber receives the events published from now on, from the subscription thread. The subscription never completes.
+	 * A subscriber method throwing cancels the subscription without calling the subscriber again: the exception is reported by the uncaught exception
+	 * handler of the subscription thread.</p>
+	 * @throws NullPointerException if the subscriber is null
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super ParkingEvent> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Cannot subscribe null to parking events");
+		}
+		
+		new Subscription(subscriber).thread.start();
+	}
+}
@@ -0,0 +1,527 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import parking.api.Car;
+
+/**
+ * The write-ahead journal of a parking.
+ * <p>An append-only file of records, one per slot occupation ({@link #appendPark(Car.Type, int, String, long)}) and one per slot release
+ * ({@link #appendUnpark(Car.Type, int)}). The file is memory-mapped by segments of {@link #segmentSize} bytes: appending a record only writes to memory,
+ * which is enough for the record to survive a crash of the JVM. Records are forced to the disk by a background thread every {@link #commitIntervalNanos}
+ * nanoseconds, all the records appended during the interval being committed together (group commit), or on demand by {@link #commit()}.</p>
+ * <p>Records are written as follows, big endian:<ul>
+ * <li>the record size in bytes (int), 0 marking the end of the journal and -1 marking the end of a segment, the next record being at the start of the next segment</li>
+ * <li>the record kind (byte), 1 for a park record and 2 for an unpark record</li>
+ * <li>the car type ordinal of the slot (byte)</li>
+ * <li>the slot index (int)</li>
+ * <li>for park records only: the arrival instant (long, epoch milliseconds), the length of the registration number (int, -1 for a null registration number)
+ * and its chars (char each)</li>
+ * </ul>
+ * The size of a record is written last, after a release fence, so that a record partially written when the JVM crashed is seen as the end of the journal.</p>
+ * <p>The journal keeps an image of the slots up to date with the appended records. Every {@link #compactionSegmentsCount} segments, the journal file is
+ * compacted while running: the records are appended to a new file holding a single park record per occupied slot of the image, which atomically replaces
+ * the journal file once forced to the disk. Segments whose records are committed are not referenced anymore, so that they are unmapped once garbage
+ * collected: the mapped memory is bounded by the segments appended since the last commit, the file by the occupied slots and the compaction interval.</p>
+ * <p>Journal is thread safe: appending and compacting are synchronized on the journal, committing is done outside of this lock.</p>
+ */
+final class Journal implements Closeable {
+	/** The size of the memory-mapped segments of the journal file, in bytes. */
+	static final int segmentSize = 1 << 20;
+	
+	/** The interval between two group commits, in nanoseconds. */
+	static final long commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	/** The number of segments appended to the journal file after which it is compacted, on top of the segments of the last compaction. */
+	static final int compactionSegmentsCount = 8;
+	
+	static private final int endMarker = 0;
+	static private final int nextSegmentMarker = -1;
+	static private final byte parkRecordKind = 1;
+	static private final byte unparkRecordKind = 2;
+	static private final int unparkRecordSize = Integer.BYTES + 2 * Byte.BYTES + Integer.BYTES;
+	static private final int parkRecordHeaderSize = unparkRecordSize + Long.BYTES + Integer.BYTES;
+	
+	/* Car.Type.values() returns a new array on each call */
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	private final Path path;
+	
+	/* Members below are guarded by the journal lock, except closed which is also read without locking by the committer thread:
+	 *   segments are the segments not committed yet, the current segment being the last one
+	 *   image is null for a journal only written once, without compaction */
+	private FileChannel channel;
+	private List<MappedByteBuffer> segments;
+	private MappedByteBuffer segment;
+	private int segmentIndex;
+	private int position;
+	private long appendedRecordsCount;
+	private final ParkingImage image;
+	private int compactionSegmentIndex;
+	private boolean compacting;
+	private volatile boolean closed;
+	
+	/* Members below are guarded by the commit lock */
+	private final Object commitLock;
+	private long committedRecordsCount;
+	
+	private final Thread committer;
+	
+	/**
+	 * Instantiates a new journal, replaying the records of the journal file if it already exists.
+	 * @param path the path of the journal file, not null
+	 * @param image the image the replayed records are applied to, then kept up to date with the appended records and written when compacting,
+	 *   null to only look for the end of the journal and never compact it
+	 * @throws IOException if the journal file cannot be opened or read, is corrupted or does not match the slots of the image
+	 */
+	private Journal(Path path, ParkingImage image) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.segments = new ArrayList<MappedByteBuffer>();
+		this.appendedRecordsCount = 0;
+		this.image = image;
+		this.compacting = false;
+		this.closed = false;
+		this.commitLock = new Object();
+		
+		try {
+			this.segmentIndex = 0;
+			this.segment = map(0);
+			this.segments.add(this.segment);
+			this.position = 0;
+			replay(image);
+		} catch (IOException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+		this.compactionSegmentIndex = this.segmentIndex + compactionSegmentsCount;
+		// The replayed segments are on the disk already
+		this.segments.subList(0, this.segments.size() - 1).clear();
+		this.committedRecordsCount = this.appendedRecordsCount;
+		
+		this.committer = new Thread(this::commitPeriodically, "parking-journal-committer");
+		this.committer.setDaemon(true);
+		this.committer.start();
+	}
+	
+	/**
+	 * Open a journal for appending, after having replayed it.
+	 * <p>The records of the journal file, if it exists, are applied to the given image. The journal file is then compacted: it is replaced,
+	 * atomically, by a journal holding a single park record per occupied slot of the image. The given image is not modified afterwards: the journal
+	 * keeps its own image up to date with the appended records.</p>
+	 * @param path the path of the journal file, not null
+	 * @param image the image the records of the journal are applied to, not null
+	 * @return the journal, positioned after its last record, not null
+	 * @throws IOException if the journal file cannot be opened, read, compacted, is corrupted or does not match the slots of the image
+	 */
+	static Journal open(Path path, ParkingImage image) throws IOException {
+		if (Files.exists(path)) {
+			new Journal(path, image).close();
+		}
+		
+		Path compactedPath = compactedPath(path);
+		
+		Files.deleteIfExists(compactedPath);
+		try (Journal compactedJournal = new Journal(compactedPath, null)) {
+			for (Car.Type carType: carTypes) {
+				for (int slotIndex = 0; slotIndex < image.getSlotsCount(carType); slotIndex++) {
+					if (image.isOccupied(carType, slotIndex)) {
+						compactedJournal.appendPark(carType, slotIndex, image.getRegistrationNumber(carType, slotIndex), image.getArrivalEpochMillis(carType, slotIndex));
+					}
+				}
+			}
+		}
+		Files.move(compactedPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		
+		return new Journal(path, new ParkingImage(image.getCarTypeToSlotsCount(), false));
+	}
+	
+	/**
+	 * Get the path of the file a journal file is compacted to, before it replaces the journal file.
+	 * @param path the path of the journal file, not null
+	 * @return the path of the compacted file, not null
+	 */
+	static private Path compactedPath(Path path) {
+		return path.resolveSibling(path.getFileName() + ".compacted");
+	}
+	
+	/**
+	 * Map a segment of the journal file, extending the file if needed.
+	 * @param segmentIndex the segment index
+	 * @return the mapped segment, not null
+	 * @throws IOException if the segment cannot be mapped
+	 */
+	private MappedByteBuffer map(int segmentIndex) throws IOException {
+		return this.channel.map(FileChannel.MapMode.READ_WRITE, (long) segmentIndex * segmentSize, segmentSize);
+	}
+	
+	/**
+	 * Create the exception thrown when the journal file cannot be replayed.
+	 * @param reason the reason, not null
+	 * @return the exception, not null
+	 */
+	private IOException newCorruptedJournalException(String reason) {
+		return new IOException("Journal '" + this.path + "' is corrupted or does not match the parking slots: " + reason + " at position " +
+			((long) this.segmentIndex * segmentSize + this.position));
+	}
+	
+	/**
+	 * Read the records from the current position up to the end of the journal.
+	 * @param image the image the records are applied to, null to only look for the end of the journal
+	 * @throws IOException if the journal file cannot be read, is corrupted or does not match the slots of the image
+	 */
+	private void replay(ParkingImage image) throws IOException {
+		for (int recordSize = this.segment.getInt(this.position); recordSize != endMarker; recordSize = this.segment.getInt(this.position)) {
+			if (recordSize == nextSegmentMarker) {
+				this.segment = map(++this.segmentIndex);
+				this.segments.add(this.segment);
+				this.position = 0;
+				continue;
+			}
+			if ((recordSize < unparkRecordSize) || (this.position + recordSize + Integer.BYTES > segmentSize)) {
+				throw newCorruptedJournalException("invalid record size " + recordSize);
+			}
+			
+			byte recordKind = this.segment.get(this.position + Integer.BYTES);
+			int carTypeOrdinal = this.segment.get(this.position + Integer.BYTES + Byte.BYTES);
+			int slotIndex = this.segment.getInt(this.position + Integer.BYTES + 2 * Byte.BYTES);
+			
+			if ((carTypeOrdinal < 0) || (carTypeOrdinal >= carTypes.length) || ((image != null) && !image.hasSlot(carTypes[carTypeOrdinal], slotIndex))) {
+				throw newCorruptedJournalException("unknown slot " + slotIndex + " of car type ordinal " + carTypeOrdinal);
+			}
+			
+			if (recordKind == parkRecordKind) {
+				int recordPosition = this.position + unparkRecordSize;
+				long arrivalEpochMillis = this.segment.getLong(recordPosition);
+				int charsCount = this.segment.getInt(recordPosition + Long.BYTES);
+				
+				if ((recordSize < parkRecordHeaderSize) || (recordSize != parkRecordHeaderSize + Character.BYTES * Math.max(charsCount, 0))) {
+					throw newCorruptedJournalException("invalid park record size " + recordSize);
+				}
+				if (image != null) {
+					char[] chars = new char[Math.max(charsCount, 0)];
+					
+					for (int charIndex = 0; charIndex < chars.length; charIndex++) {
+						chars[charIndex] = this.segment.getChar(this.position + parkRecordHeaderSize + Character.BYTES * charIndex);
+					}
+					image.park(carTypes[carTypeOrdinal], slotIndex, (charsCount < 0 ? null : new String(chars)), arrivalEpochMillis);
+				}
+			} else if (recordKind == unparkRecordKind) {
+				if (recordSize != unparkRecordSize) {
+					throw newCorruptedJournalException("invalid unpark record size " + recordSize);
+				}
+				if (image != null) {
+					image.unpark(carTypes[carTypeOrdinal], slotIndex);
+				}
+			} else {
+				throw newCorruptedJournalException("unknown record kind " + recordKind);
+			}
+			
+			this.position += recordSize;
+			this.appendedRecordsCount++;
+		}
+	}
+	
+	/**
+	 * Reserve room for a record, moving to a new segment if the current one is too full.
+	 * <p>Room for a marker is always kept after the record. Moving to a new segment compacts the journal file first if it has grown by
+	 * {@link #compactionSegmentsCount} segments since the last compaction.</p>
+	 * @param recordSize the record size, in bytes
+	 * @return the position of the record in the current segment
+	 * @throws IllegalStateException if the journal is closed
+	 * @throws UncheckedIOException if the journal file cannot be extended
+	 */
+	private int reserve(int recordSize) {
+		if (this.closed) {
+			throw new IllegalStateException("Journal '" + this.path + "' is closed");
+		}
+		if (recordSize + Integer.BYTES > segmentSize) {
+			throw new IllegalArgumentException("Journal record of " + recordSize + " bytes is larger than a journal segment");
+		}
+		
+		if ((this.position + recordSize + Integer.BYTES > segmentSize) && !this.compacting && (this.image != null) &&
+			(this.segmentIndex + 1 >= this.compactionSegmentIndex)) {
+			compact();
+		}
+		if (this.position + recordSize + Integer.BYTES > segmentSize) {
+			MappedByteBuffer nextSegment;
+			
+			try {
+				nextSegment = map(this.segmentIndex + 1);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to extend journal '" + this.path + "'", e);
+			}
+			
+			// The marker is only written once the next segment exists, so that a replay never misses it
+			this.segment.putInt(this.position, nextSegmentMarker);
+			this.segments.add(nextSegment);
+			this.segment = nextSegment;
+			this.segmentIndex++;
+			this.position = 0;
+		}
+		
+		int recordPosition = this.position;
+		
+		this.position += recordSize;
+		this.appendedRecordsCount++;
+		
+		return recordPosition;
+	}
+	
+	/**
+	 * Compact the journal file while running.
+	 * <p>Called with the journal lock held, so that no record is appended meanwhile. The park records of the occupied slots of the image are appended to
+	 * a new file, which atomically replaces the journal file once forced to the disk; appending then goes on in the new file. If the new file cannot be
+	 * written, it is deleted and appending goes on in the current file, the compaction being tried again {@link #compactionSegmentsCount} segments later.</p>
+	 */
+	private void compact() {
+		Path compactedPath = compactedPath(this.path);
+		FileChannel channel = this.channel;
+		List<MappedByteBuffer> segments = this.segments;
+		MappedByteBuffer segment = this.segment;
+		int segmentIndex = this.segmentIndex;
+		int position = this.position;
+		
+		this.compacting = true;
+		try {
+			Files.deleteIfExists(compactedPath);
+			this.channel = FileChannel.open(compactedPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.segments = new ArrayList<MappedByteBuffer>();
+			this.segmentIndex = 0;
+			this.segment = map(0);
+			this.segments.add(this.segment);
+			this.position = 0;
+			for (Car.Type carType: carTypes) {
+				for (int slotIndex = 0; slotIndex < this.image.getSlotsCount(carType); slotIndex++) {
+					if (this.image.isOccupied(carType, slotIndex)) {
+						writePark(carType, slotIndex, this.image.getRegistrationNumber(carType, slotIndex), this.image.getArrivalEpochMillis(carType, slotIndex));
+					}
+				}
+			}
+			for (MappedByteBuffer compactedSegment: this.segments) {
+				compactedSegment.force();
+			}
+			Files.move(compactedPath, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			// Go on with the current file
+			closeQuietly(this.channel == channel ? null : this.channel);
+			this.channel = channel;
+			this.segments = segments;
+			this.segment = segment;
+			this.segmentIndex = segmentIndex;
+			this.position = position;
+			try {
+				Files.deleteIfExists(compactedPath);
+			} catch (IOException deleteException) {
+				e.addSuppressed(deleteException);
+			}
+			return;
+		} finally {
+			this.compacting = false;
+			this.compactionSegmentIndex = this.segmentIndex + compactionSegmentsCount;
+		}
+		
+		// The previous file has been replaced, its segments do not need to be committed anymore
+		closeQuietly(channel);
+	}
+	
+	/**
+	 * Close a channel, ignoring the failure to close it.
+	 * @param channel the channel, can be null
+	 */
+	static private void closeQuietly(FileChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Nothing is left to write to the channel
+			}
+		}
+	}
+	
+	/**
+	 * Append the record of a slot occupation.
+	 * <p>Does not allocate memory, except when moving to a new segment.</p>
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 * @param registrationNumber the registration number of the car parked in the slot, can be null
+	 * @param arrivalEpochMillis the arrival instant of the car, in milliseconds from the epoch
+	 * @throws IllegalStateException if the journal is closed
+	 * @throws UncheckedIOException if the journal file cannot be extended
+	 */
+	synchronized void appendPark(Car.Type carType, int slotIndex, String registrationNumber, long arrivalEpochMillis) {
+		writePark(carType, slotIndex, registrationNumber, arrivalEpochMillis);
+		if (this.image != null) {
+			this.image.park(carType, slotIndex, registrationNumber, arrivalEpochMillis);
+		}
+	}
+	
+	/**
+	 * Write the record of a slot occupation, without updating the image.
+	 * <p>Called with the journal lock held.</p>
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 * @param registrationNumber the registration number of the car parked in the slot, can be null
+	 * @param arrivalEpochMillis the arrival instant of the car, in milliseconds from the epoch
+	 * @throws IllegalStateException if the journal is closed
+	 * @throws UncheckedIOException if the journal file cannot be extended
+	 */
+	private void writePark(Car.Type carType, int slotIndex, String registrationNumber, long arrivalEpochMillis) {
+		int charsCount = (registrationNumber == null ? -1 : registrationNumber.length());
+		int recordSize = parkRecordHeaderSize + Character.BYTES * Math.max(charsCount, 0);
+		int recordPosition = reserve(recordSize);
+		
+		this.segment.put(recordPosition + Integer.BYTES, parkRecordKind);
+		this.segment.put(recordPosition + Integer.BYTES + Byte.BYTES, (byte) carType.ordinal());
+		this.segment.putInt(recordPosition + Integer.BYTES + 2 * Byte.BYTES, slotIndex);
+		this.segment.putLong(recordPosition + unparkRecordSize, arrivalEpochMillis);
+		this.segment.putInt(recordPosition + unparkRecordSize + Long.BYTES, charsCount);
+		for (int charIndex = 0; charIndex < charsCount; charIndex++) {
+			this.segment.putChar(recordPosition + parkRecordHeaderSize + Character.BYTES * charIndex, registrationNumber.charAt(charIndex));
+		}
+		// The fields must be written before the size, which marks the record as complete: plain buffer writes may otherwise be reordered
+		VarHandle.releaseFence();
+		this.segment.putInt(recordPosition, recordSize);
+	}
+	
+	/**
+	 * Append the record of a slot release.
+	 * <p>Does not allocate memory, except when moving to a new segment.</p>
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 * @throws IllegalStateException if the journal is closed
+	 * @throws UncheckedIOException if the journal file cannot be extended
+	 */
+	synchronized void appendUnpark(Car.Type carType, int slotIndex) {
+		int recordPosition = reserve(unparkRecordSize);
+		
+		this.segment.put(recordPosition + Integer.BYTES, unparkRecordKind);
+		this.segment.put(recordPosition + Integer.BYTES + Byte.BYTES, (byte) carType.ordinal());
+		this.segment.putInt(recordPosition + Integer.BYTES + 2 * Byte.BYTES, slotIndex);
+		VarHandle.releaseFence();
+		this.segment.putInt(recordPosition, unparkRecordSize);
+		if (this.image != null) {
+			this.image.unpark(carType, slotIndex);
+		}
+	}
+	
+	/**
+	 * Force the records appended so far to the disk.
+	 * <p>Appending records is not blocked while committing. Does nothing if all the records appended so far are already committed. The full segments
+	 * committed are dropped from the journal, to be unmapped once garbage collected.</p>
+	 * @throws IOException if the records cannot be forced to the disk
+	 */
+	void commit() throws IOException {
+		synchronized (this.commitLock) {
+			long appendedRecordsCount;
+			MappedByteBuffer[] uncommittedSegments;
+			
+			synchronized (this) {
+				appendedRecordsCount = this.appendedRecordsCount;
+				if (appendedRecordsCount == this.committedRecordsCount) {
+					return;
+				}
+				uncommittedSegments = this.segments.toArray(new MappedByteBuffer[0]);
+			}
+			
+			try {
+				for (MappedByteBuffer uncommittedSegment: uncommittedSegments) {
+					uncommittedSegment.force();
+				}
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			
+			// The current segment may still receive records, the previous ones are full; segments of a file replaced by a compaction are already gone
+			synchronized (this) {
+				// Buffers are compared by identity, equals compares their content
+				for (Iterator<MappedByteBuffer> iterator = this.segments.iterator(); iterator.hasNext(); ) {
+					MappedByteBuffer segment = iterator.next();
+					
+					if ((segment != this.segment) && contains(uncommittedSegments, segment)) {
+						iterator.remove();
+					}
+				}
+			}
+			this.committedRecordsCount = appendedRecordsCount;
+		}
+	}
+	
+	/**
+	 * Run the group commits until the journal is closed.
+	 * <p>A failing commit is retried on the next interval: the failure is reported by the next explicit {@link #commit()}, which retries too.</p>
+	 */
+	private void commitPeriodically() {
+		while (!this.closed) {
+			LockSupport.parkNanos(this, commitIntervalNanos);
+			try {
+				commit();
+			} catch (IOException | RuntimeException e) {
+				// Retried on the next interval
+			}
+		}
+	}
+	
+	/**
+	 * Check whether a segment is one of some segments, comparing them by identity.
+	 * @param segments the segments, not null
+	 * @param segment the segment, not null
+	 * @return true if the segment is one of the given segments
+	 */
+	static private boolean contains(MappedByteBuffer[] segments, MappedByteBuffer segment) {
+		for (MappedByteBuffer candidate: segments) {
+			if (candidate == segment) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Close the journal.
+	 * <p>Stops the group commits, commits the records appended so far and closes the journal file. Appending records afterwards fails.
+	 * Closing a closed journal does nothing.</p>
+	 * @throws IOException if the records cannot be forced to the disk or the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+		}
+		
+		LockSupport.unpark(this.committer);
+		try {
+			this.committer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		try {
+			commit();
+		} finally {
+			synchronized (this) {
+				this.channel.close();
+			}
+		}
+	}
+}
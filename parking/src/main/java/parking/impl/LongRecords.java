@@ -0,0 +1,83 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed number of fixed-width records of long fields, held in a byte buffer on or off the heap.
+ * <p>Records are laid out one after the other, each field taking 8 bytes in the native byte order, and are all zero once allocated. Records held off the heap,
+ * in a direct buffer, are a single small object for the garbage collector whatever their number: their memory is released when they are garbage collected.</p>
+ * <p>Records are not thread safe: the caller is in charge of synchronizing the accesses.</p>
+ */
+final class LongRecords {
+	private final ByteBuffer buffer;
+	private final int recordShift;
+	private final int recordsCount;
+	
+	/**
+	 * Instantiates new records, all zero.
+	 * @param recordsCount the number of records, positive or zero
+	 * @param fieldsCount the number of fields per record, a power of two
+	 * @param offHeap true to hold the records off the heap, false to hold them on the heap
+	 * @throws IllegalArgumentException if the records cannot be held in a single buffer
+	 */
+	LongRecords(int recordsCount, int fieldsCount, boolean offHeap) {
+		assert(Integer.bitCount(fieldsCount) == 1);
+		
+		this.recordShift = Integer.numberOfTrailingZeros(fieldsCount * Long.BYTES);
+		if ((long) recordsCount << this.recordShift > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Cannot hold " + recordsCount + " records of " + fieldsCount + " fields in a single buffer");
+		}
+		this.buffer = (offHeap ? ByteBuffer.allocateDirect(recordsCount << this.recordShift) : ByteBuffer.allocate(recordsCount << this.recordShift))
+			.order(ByteOrder.nativeOrder());
+		this.recordsCount = recordsCount;
+	}
+	
+	/**
+	 * Create new records of the same width and on the same side of the heap, all zero.
+	 * @param recordsCount the number of records, positive or zero
+	 * @return the records, not null
+	 */
+	LongRecords newRecords(int recordsCount) {
+		return new LongRecords(recordsCount, (1 << this.recordShift) / Long.BYTES, isOffHeap());
+	}
+	
+	/**
+	 * Get the number of records.
+	 * @return the records count, positive or zero
+	 */
+	int size() {
+		return this.recordsCount;
+	}
+	
+	/**
+	 * Tell whether the records are held off the heap.
+	 * @return true if they are held in a direct buffer
+	 */
+	boolean isOffHeap() {
+		return this.buffer.isDirect();
+	}
+	
+	/**
+	 * Get a field of a record.
+	 * @param record the record index
+	 * @param field the field index in the record
+	 * @return the field value
+	 */
+	long get(int record, int field) {
+		return this.buffer.getLong((record << this.recordShift) + (field << 3));
+	}
+	
+	/**
+	 * Set a field of a record.
+	 * @param record the record index
+	 * @param field the field index in the record
+	 * @param value the field value
+	 */
+	void set(int record, int field, long value) {
+		this.buffer.putLong((record << this.recordShift) + (field << 3), value);
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import parking.api.LatencyHistogram;
+import parking.api.MetricsSnapshot;
+import parking.api.ParkingMetrics;
+
+/**
+ * The default ParkingMetrics implementation.
+ * <p>Each counter and each histogram bucket is a {@link LongAdder}, which stripes its value over several cells under contention.
+ * All the recording methods return immediately, after reading a volatile flag, when the instrumentation is disabled.</p>
+ * <p>Recorder is thread safe.</p>
+ */
+final class MetricsRecorder implements ParkingMetrics {
+	/* Enum values() return a new array on each call */
+	static private final ParkingMetrics.Counter[] counters = ParkingMetrics.Counter.values();
+	static private final ParkingMetrics.Operation[] operations = ParkingMetrics.Operation.values();
+	
+	/* Returned by startNanos() when the instrumentation is disabled, System.nanoTime() returning this very value is not worth caring about */
+	static private final long notRecordingNanos = Long.MIN_VALUE;
+	
+	/**
+	 * The Class Histogram.
+	 * <p>The recording side of a {@link LatencyHistogram}.</p>
+	 */
+	static private final class Histogram {
+		private final LongAdder[] bucketCounts;
+		private final LongAdder totalNanos;
+		private final LongAccumulator maxNanos;
+		
+		/**
+		 * Instantiates a new empty histogram.
+		 */
+		Histogram() {
+			this.bucketCounts = new LongAdder[LatencyHistogram.bucketsCount];
+			for (int bucket = 0; bucket < LatencyHistogram.bucketsCount; bucket++) {
+				this.bucketCounts[bucket] = new LongAdder();
+			}
+			this.totalNanos = new LongAdder();
+			this.maxNanos = new LongAccumulator(Math::max, 0L);
+		}
+		
+		/**
+		 * Record a latency.
+		 * @param nanos the latency in nanoseconds, negative values are considered to be zero
+		 */
+		void record(long nanos) {
+			long positiveNanos = Math.max(nanos, 0L);
+			
+			this.bucketCounts[LatencyHistogram.bucket(positiveNanos)].increment();
+			this.totalNanos.add(positiveNanos);
+			this.maxNanos.accumulate(positiveNanos);
+		}
+		
+		/**
+		 * Take a snapshot of the histogram.
+		 * @return the snapshot, not null
+		 */
+		LatencyHistogram snapshot() {
+			long[] bucketCounts = new long[LatencyHistogram.bucketsCount];
+			
+			for (int bucket = 0; bucket < LatencyHistogram.bucketsCount; bucket++) {
+				bucketCounts[bucket] = this.bucketCounts[bucket].sum();
+			}
+			
+			return new LatencyHistogram(bucketCounts, this.totalNanos.sum(), this.maxNanos.get());
+		}
+	}
+	
+	private volatile boolean enabled;
+	private final LongAdder[] counts;
+	private final Histogram[] histograms;
+	
+	/**
+	 * Instantiates a new disabled recorder.
+	 */
+	MetricsRecorder() {
+		this.enabled = false;
+		this.counts = new LongAdder[counters.length];
+		for (ParkingMetrics.Counter counter: counters) {
+			this.counts[counter.ordinal()] = new LongAdder();
+		}
+		this.histograms = new Histogram[operations.length];
+		for (ParkingMetrics.Operation operation: operations) {
+			this.histograms[operation.ordinal()] = new Histogram();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	/**
+	 * Increment a counter if the instrumentation is enabled.
+	 * @param counter the counter, not null
+	 */
+	void increment(ParkingMetrics.Counter counter) {
+		if (this.enabled) {
+			this.counts[counter.ordinal()].increment();
+		}
+	}
+	
+	/**
+	 * Get the start time of an operation to record.
+	 * @return the current {@link System#nanoTime()} if the instrumentation is enabled, a special value otherwise
+	 */
+	long startNanos() {
+		return (this.enabled ? System.nanoTime() : notRecordingNanos);
+	}
+	
+	/**
+	 * Record the latency of an operation started at {@link #startNanos()}.
+	 * <p>Nothing is recorded if the instrumentation was disabled when the operation started.</p>
+	 * @param operation the operation, not null
+	 * @param startNanos the value returned by {@link #startNanos()} when the operation started
+	 */
+	void recordLatency(ParkingMetrics.Operation operation, long startNanos) {
+		if (startNanos != notRecordingNanos) {
+			this.histograms[operation.ordinal()].record(System.nanoTime() - startNanos);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MetricsSnapshot snapshot() {
+		Map<ParkingMetrics.Counter, Long> counterToCount = new EnumMap<ParkingMetrics.Counter, Long>(ParkingMetrics.Counter.class);
+		Map<ParkingMetrics.Operation, LatencyHistogram> operationToLatency = new EnumMap<ParkingMetrics.Operation, LatencyHistogram>(ParkingMetrics.Operation.class);
+		
+		for (ParkingMetrics.Counter counter: counters) {
+			counterToCount.put(counter, this.counts[counter.ordinal()].sum());
+		}
+		for (ParkingMetrics.Operation operation: operations) {
+			operationToLatency.put(operation, this.histograms[operation.ordinal()].snapshot());
+		}
+		
+		return new MetricsSnapshot(counterToCount, operationToLatency);
+	}
+}
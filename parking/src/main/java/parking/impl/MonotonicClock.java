@@ -0,0 +1,53 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import parking.api.Clock;
+
+/**
+ * The monotonic Clock implementation.
+ * <p>The system clock is only read once, when the class is loaded; the current instant is then computed by adding the time elapsed since then,
+ * measured with {@link System#nanoTime()}. Adjusting the system time does therefore not affect this clock, which never goes backwards:
+ * {@link parking.api.Parking#unparkAndBill(parking.api.Car)} never throws because of a departure earlier than the arrival.</p>
+ * @see Clock.Mode#MONOTONIC
+ */
+final class MonotonicClock implements Clock {
+	/** The unique instance of this class. */
+	static final MonotonicClock instance = new MonotonicClock();
+	
+	private final long originEpochMillis;
+	private final long originNanos;
+	
+	/**
+	 * Instantiates a new monotonic clock anchored on the current system time.
+	 */
+	private MonotonicClock() {
+		this.originEpochMillis = System.currentTimeMillis();
+		this.originNanos = System.nanoTime();
+	}
+	
+	/**
+	 * The current instant.
+	 * @return the instant, not null
+	 */
+	@Override
+	public Instant instant() {
+		long elapsedNanos = System.nanoTime() - this.originNanos;
+		
+		return Instant.ofEpochMilli(this.originEpochMillis).plusNanos(elapsedNanos);
+	}
+	
+	/**
+	 * The current instant in milliseconds from the epoch.
+	 * <p>Unlike {@link #instant()}, this method does not allocate any memory.</p>
+	 * @return the current instant in milliseconds from the epoch
+	 */
+	@Override
+	public long millis() {
+		return this.originEpochMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.originNanos);
+	}
+}
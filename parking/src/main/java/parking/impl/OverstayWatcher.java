@@ -0,0 +1,148 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import parking.api.Clock;
+import parking.api.OverstayWatch;
+import parking.api.ParkedCar;
+
+/**
+ * The watch of the cars parked for longer than a maximum duration, as returned by {@link parking.api.Parking#watchOverstays(Duration, Consumer)}.
+ * <p>A daemon thread checks the parking clock at a fixed interval and reads, from the {@link SessionIndex} of each car type, the cars arrived before
+ * the current instant minus the maximum duration. Each index is read through a {@link SessionIndex.Cursor} resuming after the last car read, so that a check
+ * only visits the cars which have exceeded the duration since the previous check. The listener is called out of the index locks.</p>
+ */
+final class OverstayWatcher implements OverstayWatch, Runnable {
+	/* Interval between two checks of the parking clock */
+	static final long checkIntervalMillis = 100L;
+	
+	static private final AtomicInteger watchersCount = new AtomicInteger();
+	
+	/* All members below are safe for concurrent accesses:
+	 *   sessionIndexes, clock, maxDuration and listener are never modified after construction, the indexes are thread safe
+	 *   cursors are only accessed by the watch thread, under the lock of their index
+	 *   closed is volatile
+	 *   thread is never modified after construction */
+	private final SessionIndex[] sessionIndexes;
+	private final SessionIndex.Cursor[] cursors;
+	private final Clock clock;
+	private final Duration maxDuration;
+	private final Consumer<? super ParkedCar> listener;
+	private volatile boolean closed;
+	private final Thread thread;
+	
+	/**
+	 * Instantiates a new overstay watcher, not started.
+	 * @param sessionIndexes the indexes of the parked cars, not null
+	 * @param clock the parking clock, not null
+	 * @param maxDuration the maximum parking duration, strictly positive
+	 * @param listener the listener, not null
+	 * @throws IllegalArgumentException if the maximum duration is not strictly positive
+	 */
+	OverstayWatcher(List<SessionIndex> sessionIndexes, Clock clock, Duration maxDuration, Consumer<? super ParkedCar> listener) {
+		if (maxDuration.isNegative() || maxDuration.isZero()) {
+			throw new IllegalArgumentException("Maximum parking duration must be strictly positive: " + maxDuration);
+		}
+		if (listener == null) {
+			throw new NullPointerException("Cannot watch overstays without listener");
+		}
+		
+		this.sessionIndexes = sessionIndexes.toArray(new SessionIndex[sessionIndexes.size()]);
+		this.cursors = new SessionIndex.Cursor[this.sessionIndexes.length];
+		for (int index = 0; index < this.cursors.length; index++) {
+			this.cursors[index] = new SessionIndex.Cursor();
+		}
+		this.clock = clock;
+		this.maxDuration = maxDuration;
+		this.listener = listener;
+		this.closed = false;
+		this.thread = new Thread(this, "parking-overstays-" + watchersCount.incrementAndGet());
+		this.thread.setDaemon(true);
+	}
+	
+	/**
+	 * Start the watch thread.
+	 * @return this watcher, not null
+	 */
+	OverstayWatcher start() {
+		this.thread.start();
+		
+		return this;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Duration getMaxDuration() {
+		return this.maxDuration;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		LockSupport.unpark(this.thread);
+		if (Thread.currentThread() != this.thread) {
+			boolean interrupted = false;
+			
+			while (this.thread.isAlive()) {
+				try {
+					this.thread.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Check the parking clock and report the overstaying cars until the watch is closed.
+	 * <p>Run by the watch thread.</p>
+	 */
+	@Override
+	public void run() {
+		long maxDurationMillis = this.maxDuration.toMillis();
+		List<ParkedCar> overstayingCars = new ArrayList<ParkedCar>();
+		
+		try {
+			while (!this.closed) {
+				long untilEpochMillis = this.clock.millis() - maxDurationMillis;
+				
+				for (int index = 0; index < this.sessionIndexes.length; index++) {
+					this.sessionIndexes[index].collectArrivedBefore(this.cursors[index], untilEpochMillis, overstayingCars);
+				}
+				
+				// Cars of each index are already ordered by arrival
+				if (this.sessionIndexes.length > 1) {
+					overstayingCars.sort(Comparator.comparingLong(ParkedCar::getArrivalEpochMillis));
+				}
+				for (ParkedCar overstayingCar: overstayingCars) {
+					if (this.closed) {
+						break;
+					}
+					this.listener.accept(overstayingCar);
+				}
+				overstayingCars.clear();
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis));
+			}
+		} finally {
+			this.closed = true;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import parking.api.AsyncParking;
+import parking.api.BillingPipeline;
+import parking.api.Car.Type;
+import parking.api.Clock;
+import parking.api.JournaledParking;
+import parking.api.Parking;
+import parking.api.ParkingFactory;
+import parking.api.PricingPolicy;
+
+/**
+ * The default factory for creating Parking objects.
+ * <p>This factory is used to properly separate the parking API (provided by the {@link Parking} interface) from the implementation or even change the default implementation.</p>
+ * <p>Creates {@link ParkingImpl}, {@link ShardedParking}, {@link AsyncParkingImpl} and {@link BillingPipelineImpl} objects.</p>
+ */
+public final class ParkingFactoryImpl implements ParkingFactory {
+	/** The unique  instance. */
+	static public final ParkingFactoryImpl instance = new ParkingFactoryImpl();
+	
+	/**
+	 * Instantiates a new parking factory impl.
+	 */
+	private ParkingFactoryImpl() {
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Parking create(Map<Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock) {
+		return new ParkingImpl(carTypeToSlotsCount, pricingPolicy, clock);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The snapshot is read in a {@link ParkingImage} the parking is then restored from.</p>
+	 */
+	@Override
+	public Parking restore(Path snapshotPath, PricingPolicy pricingPolicy, Clock clock) throws IOException {
+		ParkingImage image = Snapshot.read(snapshotPath);
+		
+		return new ParkingImpl(image.getCarTypeToSlotsCount(), Collections.<Type, Integer>emptyMap(), pricingPolicy, clock, image, null, false);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Parking createSharded(Map<Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock, int shardsCount) {
+		return new ShardedParking(carTypeToSlotsCount, pricingPolicy, clock, (shardsCount > 0 ? shardsCount : Runtime.getRuntime().availableProcessors()));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The journal is replayed in a {@link ParkingImage} the parking is then restored from.</p>
+	 */
+	@Override
+	public JournaledParking createJournaled(Map<Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock, Path journalPath) throws IOException {
+		ParkingImage image = new ParkingImage(carTypeToSlotsCount);
+		Journal journal = Journal.open(journalPath, image);
+		
+		try {
+			return new ParkingImpl(carTypeToSlotsCount, Collections.<Type, Integer>emptyMap(), pricingPolicy, clock, image, journal, false);
+		} catch (RuntimeException e) {
+			try {
+				journal.close();
+			} catch (IOException closeException) {
+				e.addSuppressed(closeException);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Parking createOffHeap(Map<Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock) {
+		return new ParkingImpl(carTypeToSlotsCount, Collections.<Type, Integer>emptyMap(), pricingPolicy, clock, null, null, true);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public AsyncParking createAsync(Parking parking, Executor executor) {
+		return new AsyncParkingImpl(parking, executor);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BillingPipeline createBillingPipeline(Parking parking, int capacity, int batchSize) {
+		return new BillingPipelineImpl(parking, capacity, batchSize);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Clock createClock(Clock.Mode mode) {
+		switch (mode) {
+		case CACHED:
+			return CachedClock.getInstance();
+		case MONOTONIC:
+			return MonotonicClock.instance;
+		default: // SYSTEM
+			return DefaultClock.instance;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import parking.api.Car;
+
+/**
+ * The image of the occupied slots of a parking.
+ * <p>Describes, for each slot of each car type, whether the slot is occupied and, if so, the registration number of the car parked in it and its arrival instant.
+ * Used to rebuild a {@link ParkingImpl} from its durable state: the image is filled by replaying a {@link Journal} or by reading a {@link Snapshot}
+ * and then handed to the parking constructor.</p>
+ * <p>A registration number occupies at most one slot: parking a car in a slot while it occupies another one frees the other slot, so that the most recently
+ * parked slot wins.</p>
+ * <p>Image is not thread safe.</p>
+ */
+final class ParkingImage {
+	/* Car.Type.values() returns a new array on each call */
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	private final Map<Car.Type, boolean[]> carTypeToOccupiedSlots;
+	private final Map<Car.Type, String[]> carTypeToRegistrationNumbers;
+	private final Map<Car.Type, long[]> carTypeToArrivalEpochMillis;
+	
+	/* Values are the slots packed as in ParkingImpl, the car type ordinal in the highest bits and the slot index in the lowest bits; null if not tracked */
+	private final Map<String, Long> registrationNumberToSlot;
+	
+	/**
+	 * Instantiates a new image with all the slots available.
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null, negative counts being considered as zero
+	 */
+	ParkingImage(Map<Car.Type, Integer> carTypeToSlotsCount) {
+		this(carTypeToSlotsCount, true);
+	}
+	
+	/**
+	 * Instantiates a new image with all the slots available, tracking or not the slot of each registration number.
+	 * <p>An image which does not track registration numbers never allocates memory when a slot is occupied or freed, but does not free the slot previously
+	 * occupied by the same registration number: it is meant to follow a parking which already rejects the cars parked twice.</p>
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null, negative counts being considered as zero
+	 * @param tracksRegistrationNumbers true to free the slot previously occupied by the registration number of a car occupying a slot, false not to
+	 */
+	ParkingImage(Map<Car.Type, Integer> carTypeToSlotsCount, boolean tracksRegistrationNumbers) {
+		this.carTypeToOccupiedSlots = new EnumMap<Car.Type, boolean[]>(Car.Type.class);
+		this.carTypeToRegistrationNumbers = new EnumMap<Car.Type, String[]>(Car.Type.class);
+		this.carTypeToArrivalEpochMillis = new EnumMap<Car.Type, long[]>(Car.Type.class);
+		this.registrationNumberToSlot = (tracksRegistrationNumbers ? new HashMap<String, Long>() : null);
+		
+		for (Map.Entry<Car.Type, Integer> carTypeAndSlotsCount: carTypeToSlotsCount.entrySet()) {
+			int slotsCount = Math.max(carTypeAndSlotsCount.getValue().intValue(), 0);
+			
+			this.carTypeToOccupiedSlots.put(carTypeAndSlotsCount.getKey(), new boolean[slotsCount]);
+			this.carTypeToRegistrationNumbers.put(carTypeAndSlotsCount.getKey(), new String[slotsCount]);
+			this.carTypeToArrivalEpochMillis.put(carTypeAndSlotsCount.getKey(), new long[slotsCount]);
+		}
+	}
+	
+	/**
+	 * Test whether or not the image has a given slot.
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 * @return true if the image has a slot of this index for this car type, false otherwise
+	 */
+	boolean hasSlot(Car.Type carType, int slotIndex) {
+		boolean[] occupiedSlots = this.carTypeToOccupiedSlots.get(carType);
+		
+		return (occupiedSlots != null) && (slotIndex >= 0) && (slotIndex < occupiedSlots.length);
+	}
+	
+	/**
+	 * Get the number of slots of each car type.
+	 * @return the slots count of each car type the image has slots for, not null
+	 */
+	Map<Car.Type, Integer> getCarTypeToSlotsCount() {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		for (Map.Entry<Car.Type, boolean[]> carTypeAndOccupiedSlots: this.carTypeToOccupiedSlots.entrySet()) {
+			carTypeToSlotsCount.put(carTypeAndOccupiedSlots.getKey(), carTypeAndOccupiedSlots.getValue().length);
+		}
+		
+		return carTypeToSlotsCount;
+	}
+	
+	/**
+	 * Get the number of slots of a car type.
+	 * @param carType the car type, not null
+	 * @return the slots count, zero if the image has no slot for the car type
+	 */
+	int getSlotsCount(Car.Type carType) {
+		boolean[] occupiedSlots = this.carTypeToOccupiedSlots.get(carType);
+		
+		return (occupiedSlots == null ? 0 : occupiedSlots.length);
+	}
+	
+	/**
+	 * Occupy a slot.
+	 * <p>The slot previously occupied by the same registration number, if any, is freed if the image tracks registration numbers.</p>
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index, see {@link #hasSlot(Car.Type, int)}
+	 * @param registrationNumber the registration number of the car, can be null
+	 * @param arrivalEpochMillis the arrival instant of the car, in milliseconds from the epoch
+	 */
+	void park(Car.Type carType, int slotIndex, String registrationNumber, long arrivalEpochMillis) {
+		assert(hasSlot(carType, slotIndex));
+		
+		unpark(carType, slotIndex);
+		
+		Long previousSlot = (this.registrationNumberToSlot == null ? null :
+			this.registrationNumberToSlot.put(registrationNumber, ((long) carType.ordinal() << Integer.SIZE) | slotIndex));
+		
+		if (previousSlot != null) {
+			Car.Type previousCarType = carTypes[(int) (previousSlot.longValue() >>> Integer.SIZE)];
+			int previousSlotIndex = (int) previousSlot.longValue();
+			
+			this.carTypeToOccupiedSlots.get(previousCarType)[previousSlotIndex] = false;
+			this.carTypeToRegistrationNumbers.get(previousCarType)[previousSlotIndex] = null;
+		}
+		
+		this.carTypeToOccupiedSlots.get(carType)[slotIndex] = true;
+		this.carTypeToRegistrationNumbers.get(carType)[slotIndex] = registrationNumber;
+		this.carTypeToArrivalEpochMillis.get(carType)[slotIndex] = arrivalEpochMillis;
+	}
+	
+	/**
+	 * Free a slot.
+	 * <p>Freeing an available slot does nothing.</p>
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index, see {@link #hasSlot(Car.Type, int)}
+	 */
+	void unpark(Car.Type carType, int slotIndex) {
+		assert(hasSlot(carType, slotIndex));
+		
+		boolean[] occupiedSlots = this.carTypeToOccupiedSlots.get(carType);
+		
+		if (occupiedSlots[slotIndex]) {
+			if (this.registrationNumberToSlot != null) {
+				this.registrationNumberToSlot.remove(this.carTypeToRegistrationNumbers.get(carType)[slotIndex]);
+			}
+			occupiedSlots[slotIndex] = false;
+			this.carTypeToRegistrationNumbers.get(carType)[slotIndex] = null;
+		}
+	}
+	
+	/**
+	 * Test whether or not a slot is occupied.
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index, see {@link #hasSlot(Car.Type, int)}
+	 * @return true if the slot is occupied, false otherwise
+	 */
+	boolean isOccupied(Car.Type carType, int slotIndex) {
+		return this.carTypeToOccupiedSlots.get(carType)[slotIndex];
+	}
+	
+	/**
+	 * Get the registration number of the car parked in a slot.
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index, see {@link #hasSlot(Car.Type, int)}
+	 * @return the registration number, can be null, meaningless if the slot is not occupied
+	 */
+	String getRegistrationNumber(Car.Type carType, int slotIndex) {
+		return this.carTypeToRegistrationNumbers.get(carType)[slotIndex];
+	}
+	
+	/**
+	 * Get the arrival instant of the car parked in a slot.
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index, see {@link #hasSlot(Car.Type, int)}
+	 * @return the arrival instant, in milliseconds from the epoch, meaningless if the slot is not occupied
+	 */
+	long getArrivalEpochMillis(Car.Type carType, int slotIndex) {
+		return this.carTypeToArrivalEpochMillis.get(carType)[slotIndex];
+	}
+	
+	/**
+	 * Get the occupied slots of a car type.
+	 * @param carType the car type, not null
+	 * @return the array telling, for each slot index, if the slot is occupied, null if the image has no slot for the car type; not to be modified
+	 */
+	boolean[] getOccupiedSlots(Car.Type carType) {
+		return this.carTypeToOccupiedSlots.get(carType);
+	}
+}
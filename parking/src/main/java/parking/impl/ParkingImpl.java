@@ -0,0 +1,1161 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import parking.api.BillTicket;
+import parking.api.Car;
+import parking.api.Clock;
+import parking.api.DurationPricingPolicy;
+import parking.api.EpochMillisPricingPolicy;
+import parking.api.JournaledParking;
+import parking.api.Occupancy;
+import parking.api.OverstayWatch;
+import parking.api.ParkedCar;
+import parking.api.Parking;
+import parking.api.ParkingEvent;
+import parking.api.ParkingException;
+import parking.api.ParkingMetrics;
+import parking.api.ParkingResult;
+import parking.api.PricingPolicy;
+import parking.api.RevenueSnapshot;
+import parking.api.Slot;
+
+/**
+ * The default Parking implementation.
+ * <p>This should normally be the only Parking implementation. Refer to the {@link Parking} documentation for more details.</p>
+ * <p>There is no global lock: each car type has its own {@link SlotAllocator} guarded by its own lock and the registration numbers of the parked cars
+ * are kept in a striped {@link RegistrationIndex}. Cars of different types therefore never wait on each other.</p>
+ * <p>Occupied slots are not described by objects: the index associates each parked car to its slot (car type and slot index packed in a long)
+ * and the arrival instant of each slot is kept, as epoch milliseconds, in the fixed-width records of the {@link SessionIndex} of its car type, which also keeps
+ * the parked cars ordered by arrival for {@link #parkedBefore(Instant)} and the overstay watches. Once all the slots have been used at least once,
+ * {@link #park(Car)}, {@link #parkAndGetSlot(Car)}, {@link #unparkAndBill(Car)} and {@link #isParked(Car)} do not allocate any memory provided that
+ * the clock {@link Clock#millis()} method and the pricing policy do not allocate either; this is the case of the default clock, of
+ * {@link EpochMillisPricingPolicy} implementations and of {@link DurationPricingPolicy} subclasses implementing {@link DurationPricingPolicy#bill(long)}
+ * such as {@link parking.api.DefaultPricingPolicy}.</p>
+ * <p>A parking may be held off the heap: the arrival records and the encoded registration numbers of the index are then kept in direct buffers and the slot
+ * handles are not kept, so that the heap and the garbage collection pauses do not grow with the number of slots and parked cars. The hot paths then allocate
+ * the slot handle they return.</p>
+ * <p>A parking may be journaled: each slot occupation and release is then appended to a {@link Journal} while the slot is owned by the parking or unparking thread,
+ * that is to say after the slot is acquired and before it is released, so that the records of a slot are in the order of its occupations whatever the
+ * interleaving of the gates. {@link #commit()} and {@link #close()} do nothing if the parking is not journaled.</p>
+ * <p>Once {@link #events()} has been called, each park, unpark and billing is also published to an {@link EventRing}, after the index is updated and out of any lock.</p>
+ */
+final class ParkingImpl implements JournaledParking {
+	/* Car.Type.values() returns a new array on each call */
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	/* All members below are safe for concurrent accesses, none of them has to be protected by a global lock:
+	 *   registrationNumberToSlot is the only source of truth about which car is parked, stripes of the index are synchronized on their own
+	 *   carTypeToSlotAllocator is never modified after construction and each allocator is synchronized on its own
+	 *   carTypeToSessionIndex is never modified after construction and each index is synchronized on its own
+	 *   metrics, revenue and journal are thread safe
+	 *   ticketIssuer is never modified after construction, it is never handed out so that only this parking issues its tickets
+	 *   eventRing is volatile, only set once, and thread safe */
+	private final RegistrationIndex registrationNumberToSlot;
+	private final Map<Car.Type, SlotAllocator> carTypeToSlotAllocator;
+	private final Map<Car.Type, SessionIndex> carTypeToSessionIndex;
+	
+	private final PricingPolicy pricingPolicy;
+	private final EpochMillisPricingPolicy epochMillisPricingPolicy;
+	private final Clock clock;
+	private final MetricsRecorder metrics;
+	private final RevenueRecorder revenue;
+	private final Journal journal;
+	private final Object ticketIssuer;
+	private volatile EventRing eventRing;
+	
+	/**
+	 * Instantiates a new parking implementation.
+	 * <p>Refer to {@link Parking#create(Map, PricingPolicy, Clock)} for a complete documentation.</p>
+	 * @see Parking#create(Map, PricingPolicy, Clock)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 */
+	ParkingImpl(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock) {
+		this(carTypeToSlotsCount, Collections.<Car.Type, Integer>emptyMap(), pricingPolicy, clock);
+	}
+	
+	/**
+	 * Instantiates a new parking implementation whose slots are numbered from given indexes.
+	 * <p>Used by {@link ShardedParking} so that the slot ids of its shards do not collide.</p>
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param carTypeToFirstSlotIndex the index of the first slot for each car type, not null, 0 for the missing car types
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 */
+	ParkingImpl(Map<Car.Type, Integer> carTypeToSlotsCount, Map<Car.Type, Integer> carTypeToFirstSlotIndex, PricingPolicy pricingPolicy, Clock clock) {
+		this(carTypeToSlotsCount, carTypeToFirstSlotIndex, pricingPolicy, clock, null, null, false);
+	}
+	
+	/**
+	 * Instantiates a new parking implementation restored from an image and/or journaled.
+	 * <p>Refer to {@link Parking#createJournaled(Map, PricingPolicy, Clock, java.nio.file.Path)} for a complete documentation.</p>
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param carTypeToFirstSlotIndex the index of the first slot for each car type, not null, 0 for the missing car types
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @param image the image of the slots occupied when the parking is created, built for the same slots counts, null if all the slots are available
+	 * @param journal the journal the slots occupations and releases are appended to, null if the parking is not journaled
+	 * @param offHeap true to hold the slots state and the registration index off the heap, false to hold them on the heap
+	 */
+	ParkingImpl(Map<Car.Type, Integer> carTypeToSlotsCount, Map<Car.Type, Integer> carTypeToFirstSlotIndex, PricingPolicy pricingPolicy, Clock clock,
+		ParkingImage image, Journal journal, boolean offHeap) {
+		int totalSlotsCount = 0;
+		
+		this.carTypeToSlotAllocator = new EnumMap<Car.Type, SlotAllocator>(Car.Type.class);
+		this.carTypeToSessionIndex = new EnumMap<Car.Type, SessionIndex>(Car.Type.class);
+		
+		for (Map.Entry<Car.Type, Integer> catTypeAndSlotsCount: carTypeToSlotsCount.entrySet()) {
+			Car.Type carType = catTypeAndSlotsCount.getKey();
+			int slotsCount = Math.max(catTypeAndSlotsCount.getValue().intValue(), 0);
+			SlotAllocator slotAllocator = new SlotAllocator(carType, carTypeToFirstSlotIndex.getOrDefault(carType, 0).intValue(), slotsCount, !offHeap);
+			
+			this.carTypeToSlotAllocator.put(carType, slotAllocator);
+			this.carTypeToSessionIndex.put(carType, new SessionIndex(slotAllocator, offHeap));
+			totalSlotsCount += slotsCount;
+		}
+		
+		// There cannot be more parked cars than slots
+		this.registrationNumberToSlot = new RegistrationIndex(totalSlotsCount, offHeap);
+		this.pricingPolicy = pricingPolicy;
+		this.epochMillisPricingPolicy = (pricingPolicy instanceof EpochMillisPricingPolicy ? (EpochMillisPricingPolicy) pricingPolicy : null);
+		this.clock = (clock == null ? DefaultClock.instance : clock);
+		this.metrics = new MetricsRecorder();
+		this.revenue = new RevenueRecorder();
+		this.journal = journal;
+		this.ticketIssuer = new Object();
+		this.eventRing = null;
+		
+		if (image != null) {
+			restore(image);
+		}
+	}
+	
+	/**
+	 * Occupy the slots occupied in an image.
+	 * <p>Called by the constructor, before the parking is shared with other threads. The cars are added to the session indexes by arrival,
+	 * so that each of them is linked after the newest one.</p>
+	 * @param image the image, built for the same slots counts, not null
+	 */
+	private void restore(ParkingImage image) {
+		for (Map.Entry<Car.Type, SlotAllocator> carTypeAndSlotAllocator: this.carTypeToSlotAllocator.entrySet()) {
+			Car.Type carType = carTypeAndSlotAllocator.getKey();
+			boolean[] occupiedSlots = image.getOccupiedSlots(carType);
+			SessionIndex sessionIndex = this.carTypeToSessionIndex.get(carType);
+			
+			IntStream.range(0, occupiedSlots.length).filter(slotIndex -> occupiedSlots[slotIndex]).boxed()
+				.sorted(Comparator.comparingLong(slotIndex -> image.getArrivalEpochMillis(carType, slotIndex)))
+				.forEachOrdered(slotIndex -> {
+					String registrationNumber = image.getRegistrationNumber(carType, slotIndex);
+					long registrationCode = RegistrationIndex.encode(registrationNumber);
+					
+					sessionIndex.add(slotIndex, registrationNumber, registrationCode, image.getArrivalEpochMillis(carType, slotIndex));
+					this.registrationNumberToSlot.putIfAbsent(registrationNumber, registrationCode, packSlot(carType, slotIndex));
+				});
+			carTypeAndSlotAllocator.getValue().reserve(occupiedSlots);
+		}
+	}
+	
+	/**
+	 * Pack a slot in a value of the registration index.
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 * @return the value, positive or zero
+	 */
+	static private long packSlot(Car.Type carType, int slotIndex) {
+		return ((long) carType.ordinal() << Integer.SIZE) | slotIndex;
+	}
+	
+	/**
+	 * Get the car type of a slot packed by {@link #packSlot(Car.Type, int)}.
+	 * @param packedSlot the packed slot
+	 * @return the car type, not null
+	 */
+	static private Car.Type unpackCarType(long packedSlot) {
+		return carTypes[(int) (packedSlot >>> Integer.SIZE)];
+	}
+	
+	/**
+	 * Get the slot index of a slot packed by {@link #packSlot(Car.Type, int)}.
+	 * @param packedSlot the packed slot
+	 * @return the slot index
+	 */
+	static private int unpackSlotIndex(long packedSlot) {
+		return (int) packedSlot;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String park(Car car) throws ParkingException {
+		Slot slot = parkAndGetSlot(car);
+		
+		return (slot == null ? null : slot.getId());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Slot parkAndGetSlot(Car car) throws ParkingException {
+		return parkAndGetSlot(car, car.getType());
+	}
+	
+	/**
+	 * Park a car under a given type and get its slot.
+	 * <p>Same as {@link #parkAndGetSlot(Car)}, for callers which have already read the car type, such as a {@link ShardedParking} which reserved a slot
+	 * of that type: the car is placed under the type read once, even if its type changes in the meantime.</p>
+	 * @param car the car, not null
+	 * @param arrivalCarType the car arrival type, can be null
+	 * @return the parking slot, null if no slot is available for the car type
+	 * @throws ParkingException if the car is already parked or if the parking has no slot for the car type
+	 */
+	Slot parkAndGetSlot(Car car, Car.Type arrivalCarType) throws ParkingException {
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			String registrationNumber = car.getRegistrationNumber();
+			long registrationCode = RegistrationIndex.encode(registrationNumber);
+			long arrivalEpochMillis = this.clock.millis();
+			
+			if (this.registrationNumberToSlot.contains(registrationNumber, registrationCode)) {
+				this.metrics.increment(ParkingMetrics.Counter.ALREADY_PARKED);
+				throw newAlreadyParkedException(registrationNumber);
+			}
+			
+			SlotAllocator slotAllocator = this.carTypeToSlotAllocator.get(arrivalCarType);
+			
+			if (slotAllocator == null) {
+				this.metrics.increment(ParkingMetrics.Counter.UNKNOWN_CAR_TYPE);
+				throw newUnknownCarTypeException(arrivalCarType);
+			}
+			
+			long lockStartNanos = this.metrics.startNanos();
+			int slotIndex = slotAllocator.acquire();
+			
+			this.metrics.recordLatency(ParkingMetrics.Operation.SLOT_ALLOCATOR_LOCK, lockStartNanos);
+			if (slotIndex < 0) {
+				this.metrics.increment(ParkingMetrics.Counter.NO_SLOT);
+				return null;
+			}
+			
+			return occupy(registrationNumber, registrationCode, arrivalCarType, slotAllocator, slotIndex, arrivalEpochMillis);
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.PARK, startNanos);
+		}
+	}
+	
+	/**
+	 * Occupy a slot taken for a car and register the car.
+	 * @param registrationNumber the car registration number, can be null
+	 * @param registrationCode the registration number code, as returned by {@link RegistrationIndex#encode(String)}
+	 * @param arrivalCarType the car arrival type, not null
+	 * @param slotAllocator the slot allocator of the arrival car type, not null
+	 * @param slotIndex the index of the slot, owned by the current thread, which is given back if the car cannot be registered
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @return the parking slot, not null
+	 * @throws ParkingException if the car has been parked through another gate in the meantime
+	 */
+	private Slot occupy(String registrationNumber, long registrationCode, Car.Type arrivalCarType, SlotAllocator slotAllocator, int slotIndex, long arrivalEpochMillis)
+		throws ParkingException {
+		SessionIndex sessionIndex = this.carTypeToSessionIndex.get(arrivalCarType);
+		
+		// The slot is owned by this thread until registered, the arrival is published to the unparking thread by the index
+		sessionIndex.add(slotIndex, registrationNumber, registrationCode, arrivalEpochMillis);
+		try {
+			appendParkRecord(arrivalCarType, slotIndex, registrationNumber, arrivalEpochMillis);
+		} catch (RuntimeException e) {
+			sessionIndex.remove(slotIndex);
+			slotAllocator.release(slotIndex);
+			throw e;
+		}
+		
+		// Registering may still fail if the same car is parked concurrently through another gate, give the slot back in that case
+		if (this.registrationNumberToSlot.putIfAbsent(registrationNumber, registrationCode, packSlot(arrivalCarType, slotIndex)) != RegistrationIndex.absentValue) {
+			sessionIndex.remove(slotIndex);
+			try {
+				appendUnparkRecord(arrivalCarType, slotIndex);
+			} finally {
+				slotAllocator.release(slotIndex);
+			}
+			this.metrics.increment(ParkingMetrics.Counter.ALREADY_PARKED);
+			throw newAlreadyParkedException(registrationNumber);
+		}
+		
+		this.metrics.increment(ParkingMetrics.Counter.PARKED);
+		publishSlotEvent(ParkingEvent.Type.PARKED, registrationNumber, arrivalCarType, slotIndex, arrivalEpochMillis, 0L);
+		
+		return slotAllocator.slot(slotIndex);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String park(Car car, Duration timeout) throws ParkingException, InterruptedException {
+		return requestSlot(car).await(timeout);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<String> parkWhenAvailable(Car car, Duration timeout) {
+		try {
+			SlotRequest slotRequest = requestSlot(car);
+			
+			slotRequest.timeOutAfter(timeout);
+			
+			return slotRequest;
+		} catch (ParkingException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+	
+	/**
+	 * Queue the request of a car for a slot of its type.
+	 * <p>The car is given the slot at once if one is available and no other car is waiting. The car arrives when it is given the slot.</p>
+	 * @param car the car, not null
+	 * @return the request, queued or already completed
+	 * @throws ParkingException if the car is already parked or if the parking has no slot for the car type
+	 */
+	private SlotRequest requestSlot(Car car) throws ParkingException {
+		String registrationNumber = car.getRegistrationNumber();
+		long registrationCode = RegistrationIndex.encode(registrationNumber);
+		Car.Type arrivalCarType = car.getType();
+		
+		if (this.registrationNumberToSlot.contains(registrationNumber, registrationCode)) {
+			this.metrics.increment(ParkingMetrics.Counter.ALREADY_PARKED);
+			throw newAlreadyParkedException(registrationNumber);
+		}
+		
+		SlotAllocator slotAllocator = this.carTypeToSlotAllocator.get(arrivalCarType);
+		
+		if (slotAllocator == null) {
+			this.metrics.increment(ParkingMetrics.Counter.UNKNOWN_CAR_TYPE);
+			throw newUnknownCarTypeException(arrivalCarType);
+		}
+		
+		SlotRequest slotRequest = new SlotRequest(slotIndex -> occupyGrantedSlot(registrationNumber, registrationCode, arrivalCarType, slotAllocator, slotIndex),
+			slotAllocator::withdraw, this.metrics);
+		
+		slotAllocator.request(slotRequest);
+		
+		return slotRequest;
+	}
+	
+	/**
+	 * Occupy a slot granted to a waiting car and register the car, the car arriving when it is given the slot.
+	 * @param registrationNumber the car registration number, can be null
+	 * @param registrationCode the registration number code, as returned by {@link RegistrationIndex#encode(String)}
+	 * @param arrivalCarType the car arrival type, not null
+	 * @param slotAllocator the slot allocator of the arrival car type, not null
+	 * @param slotIndex the index of the granted slot, owned by the current thread, which is given back if the car cannot be parked
+	 * @return the slot id, not null
+	 * @throws ParkingException if the car has been parked through another gate in the meantime
+	 */
+	private String occupyGrantedSlot(String registrationNumber, long registrationCode, Car.Type arrivalCarType, SlotAllocator slotAllocator, int slotIndex)
+		throws ParkingException {
+		long arrivalEpochMillis;
+		
+		try {
+			arrivalEpochMillis = this.clock.millis();
+		} catch (RuntimeException e) {
+			slotAllocator.release(slotIndex);
+			throw e;
+		}
+		
+		return occupy(registrationNumber, registrationCode, arrivalCarType, slotAllocator, slotIndex, arrivalEpochMillis).getId();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float unparkAndBill(Car car) throws ParkingException {
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			String registrationNumber = car.getRegistrationNumber();
+			long departureEpochMillis = this.clock.millis();
+			long arrivalEpochMillis = release(registrationNumber, departureEpochMillis);
+			
+			return bill(car, registrationNumber, arrivalEpochMillis, departureEpochMillis);
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.UNPARK_AND_BILL, startNanos);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BillTicket unpark(Car car) throws ParkingException {
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			String registrationNumber = car.getRegistrationNumber();
+			long departureEpochMillis = this.clock.millis();
+			long arrivalEpochMillis = release(registrationNumber, departureEpochMillis);
+			
+			return new BillTicket(this.ticketIssuer, car, registrationNumber, arrivalEpochMillis, departureEpochMillis);
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.UNPARK, startNanos);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float bill(BillTicket ticket) throws ParkingException {
+		float price = price(ticket);
+		
+		account(ticket.getCar(), ticket.getRegistrationNumber(), ticket.getArrivalEpochMillis(), ticket.getDepartureEpochMillis(), price);
+		
+		return price;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The tickets are priced one after the other, then the revenue of the batch is recorded with a single lock and the billing events are published.</p>
+	 */
+	@Override
+	public List<ParkingResult<Float>> billAll(Collection<BillTicket> tickets) {
+		List<BillTicket> ticketsList = new ArrayList<BillTicket>(tickets);
+		int ticketsCount = ticketsList.size();
+		Car.Type[] billedCarTypes = new Car.Type[ticketsCount];
+		long[] arrivalsEpochMillis = new long[ticketsCount];
+		long[] departuresEpochMillis = new long[ticketsCount];
+		float[] prices = new float[ticketsCount];
+		int[] billedPositions = new int[ticketsCount];
+		int billedTicketsCount = 0;
+		List<ParkingResult<Float>> results = new ArrayList<ParkingResult<Float>>(Collections.<ParkingResult<Float>>nCopies(ticketsCount, null));
+		
+		// First pass prices the tickets
+		for (int position = 0; position < ticketsCount; position++) {
+			BillTicket ticket = ticketsList.get(position);
+			
+			try {
+				float price = price(ticket);
+				
+				billedCarTypes[billedTicketsCount] = ticket.getCar().getType();
+				arrivalsEpochMillis[billedTicketsCount] = ticket.getArrivalEpochMillis();
+				departuresEpochMillis[billedTicketsCount] = ticket.getDepartureEpochMillis();
+				prices[billedTicketsCount] = price;
+				billedPositions[billedTicketsCount++] = position;
+				results.set(position, ParkingResult.<Float>success(ticket.getCar(), price));
+			} catch (ParkingException | RuntimeException e) {
+				results.set(position, ParkingResult.<Float>failure(ticket.getCar(), e));
+			}
+		}
+		
+		// Second pass records the revenue of the batch at once and publishes the billing events
+		this.revenue.recordAll(billedCarTypes, arrivalsEpochMillis, departuresEpochMillis, prices, billedTicketsCount);
+		for (int billedIndex = 0; billedIndex < billedTicketsCount; billedIndex++) {
+			BillTicket ticket = ticketsList.get(billedPositions[billedIndex]);
+			
+			publishBilledEvent(ticket.getCar(), ticket.getRegistrationNumber(), arrivalsEpochMillis[billedIndex], departuresEpochMillis[billedIndex], prices[billedIndex]);
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Test whether or not a ticket has been issued by this parking.
+	 * @param ticket the ticket, not null
+	 * @return true if the ticket has been handed back by {@link #unpark(Car)}
+	 */
+	boolean hasIssued(BillTicket ticket) {
+		return ticket.isIssuedBy(this.ticketIssuer);
+	}
+	
+	/**
+	 * Price a ticket and complete its price, without accounting for it.
+	 * <p>Only the thread completing the ticket price may account for the ticket, so that a ticket billed twice, even concurrently, is only accounted once.</p>
+	 * @param ticket the ticket, not null
+	 * @return the price to pay
+	 * @throws ParkingException if the ticket has not been issued by this parking, if it is already billed or if the departure occurs before the arrival
+	 */
+	private float price(BillTicket ticket) throws ParkingException {
+		if (!hasIssued(ticket)) {
+			this.metrics.increment(ParkingMetrics.Counter.BILLING_FAILED);
+			throw newForeignTicketException(ticket.getRegistrationNumber());
+		}
+		if (ticket.getPrice().isDone()) {
+			this.metrics.increment(ParkingMetrics.Counter.BILLING_FAILED);
+			throw newAlreadyBilledException(ticket.getRegistrationNumber());
+		}
+		
+		float price;
+		
+		try {
+			price = price(ticket.getCar(), ticket.getRegistrationNumber(), ticket.getArrivalEpochMillis(), ticket.getDepartureEpochMillis());
+		} catch (ParkingException | RuntimeException e) {
+			ticket.getPrice().completeExceptionally(e);
+			throw e;
+		}
+		if (!ticket.getPrice().complete(price)) {
+			this.metrics.increment(ParkingMetrics.Counter.BILLING_FAILED);
+			throw newAlreadyBilledException(ticket.getRegistrationNumber());
+		}
+		
+		return price;
+	}
+	
+	/**
+	 * Unregister a car and release its slot.
+	 * @param registrationNumber the car registration number, can be null
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @return the arrival instant of the car, in milliseconds from the epoch
+	 * @throws ParkingException if the car was not parked
+	 */
+	private long release(String registrationNumber, long departureEpochMillis) throws ParkingException {
+		long packedSlot = this.registrationNumberToSlot.remove(registrationNumber);
+		
+		if (packedSlot == RegistrationIndex.absentValue) {
+			this.metrics.increment(ParkingMetrics.Counter.NOT_PARKED);
+			throw newNotParkedException(registrationNumber);
+		}
+		
+		Car.Type arrivalCarType = unpackCarType(packedSlot);
+		int slotIndex = unpackSlotIndex(packedSlot);
+		
+		assert(this.carTypeToSlotAllocator.containsKey(arrivalCarType));
+		
+		// The car must be removed, and its arrival read, before the slot is given back to the other threads
+		long arrivalEpochMillis = this.carTypeToSessionIndex.get(arrivalCarType).remove(slotIndex);
+		
+		try {
+			appendUnparkRecord(arrivalCarType, slotIndex);
+		} finally {
+			releaseSlot(this.carTypeToSlotAllocator.get(arrivalCarType), slotIndex);
+		}
+		this.metrics.increment(ParkingMetrics.Counter.UNPARKED);
+		publishSlotEvent(ParkingEvent.Type.UNPARKED, registrationNumber, arrivalCarType, slotIndex, arrivalEpochMillis, departureEpochMillis);
+		
+		return arrivalEpochMillis;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The arrival instant is read once for the whole batch and each slot allocator is locked once for all the cars of its type.</p>
+	 */
+	@Override
+	public List<ParkingResult<String>> parkAll(Collection<? extends Car> cars) {
+		return parkAll(cars, null);
+	}
+	
+	/**
+	 * Park a batch of cars, under given types.
+	 * <p>Same as {@link #parkAll(Collection)}, for callers which have already read the car types, such as a {@link ShardedParking} which reserved slots
+	 * of those types.</p>
+	 * @param cars the cars, not null
+	 * @param givenArrivalCarTypes the arrival type of each car, in the iteration order of the cars, null to read the types of the cars
+	 * @return the result of each car, in the iteration order of the cars, not null
+	 */
+	List<ParkingResult<String>> parkAll(Collection<? extends Car> cars, Car.Type[] givenArrivalCarTypes) {
+		long arrivalEpochMillis = this.clock.millis();
+		List<Car> carsList = new ArrayList<Car>(cars);
+		int carsCount = carsList.size();
+		String[] registrationNumbers = new String[carsCount];
+		long[] registrationCodes = new long[carsCount];
+		Car.Type[] arrivalCarTypes = new Car.Type[carsCount];
+		Set<String> batchRegistrationNumbers = new HashSet<String>();
+		
+		// Results of the cars which may be parked are left to null until a slot is allocated to them
+		List<ParkingResult<String>> results = new ArrayList<ParkingResult<String>>(Collections.<ParkingResult<String>>nCopies(carsCount, null));
+		
+		// First pass rejects, without locking anything, the cars park(Car) would reject
+		for (int position = 0; position < carsCount; position++) {
+			Car car = carsList.get(position);
+			
+			try {
+				registrationNumbers[position] = car.getRegistrationNumber();
+				registrationCodes[position] = RegistrationIndex.encode(registrationNumbers[position]);
+				arrivalCarTypes[position] = (givenArrivalCarTypes == null ? car.getType() : givenArrivalCarTypes[position]);
+				
+				if (this.registrationNumberToSlot.contains(registrationNumbers[position], registrationCodes[position]) ||
+					!batchRegistrationNumbers.add(registrationNumbers[position])) {
+					this.metrics.increment(ParkingMetrics.Counter.ALREADY_PARKED);
+					throw newAlreadyParkedException(registrationNumbers[position]);
+				}
+				if (!this.carTypeToSlotAllocator.containsKey(arrivalCarTypes[position])) {
+					this.metrics.increment(ParkingMetrics.Counter.UNKNOWN_CAR_TYPE);
+					throw newUnknownCarTypeException(arrivalCarTypes[position]);
+				}
+			} catch (ParkingException | RuntimeException e) {
+				results.set(position, ParkingResult.<String>failure(car, e));
+			}
+		}
+		
+		// Second pass allocates the slots type by type, the first cars of the batch being served first
+		int[] slotIndexes = new int[carsCount];
+		
+		for (Map.Entry<Car.Type, SlotAllocator> carTypeAndSlotAllocator: this.carTypeToSlotAllocator.entrySet()) {
+			Car.Type arrivalCarType = carTypeAndSlotAllocator.getKey();
+			SlotAllocator slotAllocator = carTypeAndSlotAllocator.getValue();
+			SessionIndex sessionIndex = this.carTypeToSessionIndex.get(arrivalCarType);
+			int candidatesCount = 0;
+			
+			for (int position = 0; position < carsCount; position++) {
+				if ((results.get(position) == null) && (arrivalCarTypes[position] == arrivalCarType)) {
+					candidatesCount++;
+				}
+			}
+			if (candidatesCount == 0) {
+				continue;
+			}
+			
+			long lockStartNanos = this.metrics.startNanos();
+			int acquiredSlotsCount = slotAllocator.acquire(slotIndexes, candidatesCount);
+			
+			this.metrics.recordLatency(ParkingMetrics.Operation.SLOT_ALLOCATOR_LOCK, lockStartNanos);
+			int releasedSlotsCount = 0;
+			int candidateIndex = 0;
+			
+			for (int position = 0; position < carsCount; position++) {
+				if ((results.get(position) != null) || (arrivalCarTypes[position] != arrivalCarType)) {
+					continue;
+				}
+				
+				Car car = carsList.get(position);
+				
+				if (candidateIndex >= acquiredSlotsCount) {
+					this.metrics.increment(ParkingMetrics.Counter.NO_SLOT);
+					results.set(position, ParkingResult.<String>success(car, null));
+				} else {
+					int slotIndex = slotIndexes[candidateIndex];
+					boolean registered = false;
+					
+					sessionIndex.add(slotIndex, registrationNumbers[position], registrationCodes[position], arrivalEpochMillis);
+					try {
+						appendParkRecord(arrivalCarType, slotIndex, registrationNumbers[position], arrivalEpochMillis);
+						registered = (this.registrationNumberToSlot.putIfAbsent(registrationNumbers[position], registrationCodes[position], packSlot(arrivalCarType, slotIndex)) ==
+							RegistrationIndex.absentValue);
+						if (!registered) {
+							// Parked concurrently through another gate
+							appendUnparkRecord(arrivalCarType, slotIndex);
+							this.metrics.increment(ParkingMetrics.Counter.ALREADY_PARKED);
+							results.set(position, ParkingResult.<String>failure(car, newAlreadyParkedException(registrationNumbers[position])));
+						} else {
+							this.metrics.increment(ParkingMetrics.Counter.PARKED);
+							publishSlotEvent(ParkingEvent.Type.PARKED, registrationNumbers[position], arrivalCarType, slotIndex, arrivalEpochMillis, 0L);
+							results.set(position, ParkingResult.<String>success(car, slotAllocator.slot(slotIndex).getId()));
+						}
+					} catch (RuntimeException e) {
+						results.set(position, ParkingResult.<String>failure(car, e));
+					}
+					if (!registered) {
+						// Slots to give back are stacked at the beginning of the array as they are already consumed
+						sessionIndex.remove(slotIndex);
+						slotIndexes[releasedSlotsCount++] = slotIndex;
+					}
+				}
+				candidateIndex++;
+			}
+			
+			if (releasedSlotsCount > 0) {
+				slotAllocator.release(slotIndexes, releasedSlotsCount);
+			}
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The departure instant is read once for the whole batch, each slot allocator is locked once for all the cars of its type
+	 * and the cars are billed once all the slots are released.</p>
+	 */
+	@Override
+	public List<ParkingResult<Float>> unparkAndBillAll(Collection<? extends Car> cars) {
+		long departureEpochMillis = this.clock.millis();
+		List<Car> carsList = new ArrayList<Car>(cars);
+		int carsCount = carsList.size();
+		String[] registrationNumbers = new String[carsCount];
+		long[] packedSlots = new long[carsCount];
+		long[] arrivalsEpochMillis = new long[carsCount];
+		List<ParkingResult<Float>> results = new ArrayList<ParkingResult<Float>>(Collections.<ParkingResult<Float>>nCopies(carsCount, null));
+		
+		// First pass unregisters the cars without locking anything
+		for (int position = 0; position < carsCount; position++) {
+			Car car = carsList.get(position);
+			
+			packedSlots[position] = RegistrationIndex.absentValue;
+			try {
+				registrationNumbers[position] = car.getRegistrationNumber();
+				packedSlots[position] = this.registrationNumberToSlot.remove(registrationNumbers[position]);
+				
+				if (packedSlots[position] == RegistrationIndex.absentValue) {
+					this.metrics.increment(ParkingMetrics.Counter.NOT_PARKED);
+					throw newNotParkedException(registrationNumbers[position]);
+				}
+				arrivalsEpochMillis[position] = this.carTypeToSessionIndex.get(unpackCarType(packedSlots[position])).remove(unpackSlotIndex(packedSlots[position]));
+				appendUnparkRecord(unpackCarType(packedSlots[position]), unpackSlotIndex(packedSlots[position]));
+			} catch (ParkingException | RuntimeException e) {
+				results.set(position, ParkingResult.<Float>failure(car, e));
+			}
+		}
+		
+		// Second pass releases the slots type by type
+		int[] slotIndexes = new int[carsCount];
+		
+		for (Map.Entry<Car.Type, SlotAllocator> carTypeAndSlotAllocator: this.carTypeToSlotAllocator.entrySet()) {
+			Car.Type arrivalCarType = carTypeAndSlotAllocator.getKey();
+			int releasedSlotsCount = 0;
+			
+			for (long packedSlot: packedSlots) {
+				if ((packedSlot != RegistrationIndex.absentValue) && (unpackCarType(packedSlot) == arrivalCarType)) {
+					slotIndexes[releasedSlotsCount++] = unpackSlotIndex(packedSlot);
+				}
+			}
+			if (releasedSlotsCount > 0) {
+				SlotAllocator slotAllocator = carTypeAndSlotAllocator.getValue();
+				long lockStartNanos = this.metrics.startNanos();
+				boolean released = slotAllocator.releaseIfNoRequest(slotIndexes, releasedSlotsCount);
+				
+				this.metrics.recordLatency(ParkingMetrics.Operation.SLOT_ALLOCATOR_LOCK, lockStartNanos);
+				for (int position = 0; !released && (position < releasedSlotsCount); position++) {
+					releaseSlot(slotAllocator, slotIndexes[position]);
+				}
+			}
+		}
+		
+		// Last pass bills the unparked cars, except the ones whose release could not be journaled
+		for (int position = 0; position < carsCount; position++) {
+			if ((packedSlots[position] == RegistrationIndex.absentValue) || (results.get(position) != null)) {
+				continue;
+			}
+			
+			Car car = carsList.get(position);
+			
+			this.metrics.increment(ParkingMetrics.Counter.UNPARKED);
+			publishSlotEvent(ParkingEvent.Type.UNPARKED, registrationNumbers[position], unpackCarType(packedSlots[position]), unpackSlotIndex(packedSlots[position]),
+				arrivalsEpochMillis[position], departureEpochMillis);
+			try {
+				results.set(position, ParkingResult.<Float>success(car, bill(car, registrationNumbers[position], arrivalsEpochMillis[position], departureEpochMillis)));
+			} catch (ParkingException | RuntimeException e) {
+				results.set(position, ParkingResult.<Float>failure(car, e));
+			}
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Give back a slot to its allocator, timing the allocator lock.
+	 * <p>If a car is waiting for a slot, the slot is granted to it under the allocator lock but occupied out of the lock timing.</p>
+	 * @param slotAllocator the allocator of the slot, not null
+	 * @param slotIndex the slot index
+	 */
+	private void releaseSlot(SlotAllocator slotAllocator, int slotIndex) {
+		long lockStartNanos = this.metrics.startNanos();
+		SlotRequest slotRequest = slotAllocator.releaseOrGrant(slotIndex);
+		
+		this.metrics.recordLatency(ParkingMetrics.Operation.SLOT_ALLOCATOR_LOCK, lockStartNanos);
+		if (slotRequest != null) {
+			slotRequest.occupy(slotIndex);
+		}
+	}
+	
+	/**
+	 * Bill a car which has just been unparked, pricing it then accounting for it.
+	 * @param car the car, not null
+	 * @param registrationNumber the car registration number, can be null
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @return the price to pay
+	 * @throws ParkingException if the departure occurs before the arrival
+	 */
+	private float bill(Car car, String registrationNumber, long arrivalEpochMillis, long departureEpochMillis) throws ParkingException {
+		float price = price(car, registrationNumber, arrivalEpochMillis, departureEpochMillis);
+		
+		account(car, registrationNumber, arrivalEpochMillis, departureEpochMillis, price);
+		
+		return price;
+	}
+	
+	/**
+	 * Price a car which has just been unparked.
+	 * <p>Pricing policies working on primitive instants are given the arrival and departure epoch milliseconds, the other policies are given
+	 * {@link Instant} objects.</p>
+	 * @param car the car, not null
+	 * @param registrationNumber the car registration number, can be null
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @return the price to pay
+	 * @throws ParkingException if the departure occurs before the arrival
+	 */
+	private float price(Car car, String registrationNumber, long arrivalEpochMillis, long departureEpochMillis) throws ParkingException {
+		if (departureEpochMillis < arrivalEpochMillis) {
+			this.metrics.increment(ParkingMetrics.Counter.BILLING_FAILED);
+			throw new ParkingException("Unable to bill car with registration number '" + registrationNumber + "' which has just been unparked as the departure instant '" +
+				Instant.ofEpochMilli(departureEpochMillis) + "' is earlier than arrival instant '" + Instant.ofEpochMilli(arrivalEpochMillis) + "'");
+		}
+		
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			return (this.epochMillisPricingPolicy != null ? this.epochMillisPricingPolicy.bill(car, arrivalEpochMillis, departureEpochMillis) :
+				this.pricingPolicy.bill(car, Instant.ofEpochMilli(arrivalEpochMillis), Instant.ofEpochMilli(departureEpochMillis)));
+		} catch (RuntimeException e) {
+			this.metrics.increment(ParkingMetrics.Counter.BILLING_FAILED);
+			throw e;
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.BILL, startNanos);
+		}
+	}
+	
+	/**
+	 * Account for a priced car, recording its revenue and publishing its billing event.
+	 * <p>Must be called once per released slot.</p>
+	 * @param car the car, not null
+	 * @param registrationNumber the car registration number, can be null
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @param price the price to pay
+	 */
+	private void account(Car car, String registrationNumber, long arrivalEpochMillis, long departureEpochMillis, float price) {
+		this.revenue.record(car.getType(), arrivalEpochMillis, departureEpochMillis, price);
+		publishBilledEvent(car, registrationNumber, arrivalEpochMillis, departureEpochMillis, price);
+	}
+	
+	/**
+	 * Append the record of a slot occupation to the journal, if the parking is journaled.
+	 * <p>Must be called while the slot is owned by the calling thread, after its arrival instant is written.</p>
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 * @param registrationNumber the registration number of the car, can be null
+	 * @param arrivalEpochMillis the arrival instant of the car, in milliseconds from the epoch
+	 */
+	private void appendParkRecord(Car.Type carType, int slotIndex, String registrationNumber, long arrivalEpochMillis) {
+		if (this.journal != null) {
+			this.journal.appendPark(carType, slotIndex, registrationNumber, arrivalEpochMillis);
+		}
+	}
+	
+	/**
+	 * Append the record of a slot release to the journal, if the parking is journaled.
+	 * <p>Must be called while the slot is owned by the calling thread, before it is given back to the slot allocator.</p>
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 */
+	private void appendUnparkRecord(Car.Type carType, int slotIndex) {
+		if (this.journal != null) {
+			this.journal.appendUnpark(carType, slotIndex);
+		}
+	}
+	
+	/**
+	 * Publish a park or unpark event to the event ring, if {@link #events()} has been called.
+	 * <p>The slot handle is only looked up if the event is published.</p>
+	 * @param type the event type, {@link ParkingEvent.Type#PARKED} or {@link ParkingEvent.Type#UNPARKED}
+	 * @param registrationNumber the registration number of the car, can be null
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch, 0 for parked events
+	 */
+	private void publishSlotEvent(ParkingEvent.Type type, String registrationNumber, Car.Type carType, int slotIndex, long arrivalEpochMillis, long departureEpochMillis) {
+		EventRing eventRing = this.eventRing;
+		
+		if (eventRing != null) {
+			eventRing.publish(type, registrationNumber, carType, this.carTypeToSlotAllocator.get(carType).slot(slotIndex), arrivalEpochMillis, departureEpochMillis,
+				Float.NaN);
+		}
+	}
+	
+	/**
+	 * Publish a billing event to the event ring, if {@link #events()} has been called.
+	 * @param car the car, not null
+	 * @param registrationNumber the registration number of the car, can be null
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @param amount the price to pay
+	 */
+	private void publishBilledEvent(Car car, String registrationNumber, long arrivalEpochMillis, long departureEpochMillis, float amount) {
+		EventRing eventRing = this.eventRing;
+		
+		if (eventRing != null) {
+			eventRing.publish(ParkingEvent.Type.BILLED, registrationNumber, car.getType(), null, arrivalEpochMillis, departureEpochMillis, amount);
+		}
+	}
+	
+	/**
+	 * Create the exception thrown when parking a car which is already parked.
+	 * @param registrationNumber the car registration number, can be null
+	 * @return the exception, not null
+	 */
+	static ParkingException newAlreadyParkedException(String registrationNumber) {
+		return new ParkingException("Car with registration number '" + registrationNumber + "' is already parked");
+	}
+	
+	/**
+	 * Create the exception thrown when parking a car of a type for which the parking has no slot.
+	 * @param carType the car type
+	 * @return the exception, not null
+	 */
+	static ParkingException newUnknownCarTypeException(Car.Type carType) {
+		return new ParkingException("Parking does not provide slots for cars of type '" + carType + "'");
+	}
+	
+	/**
+	 * Create the exception thrown when billing a ticket which has already been billed.
+	 * @param registrationNumber the registration number of the ticket car, can be null
+	 * @return the exception, not null
+	 */
+	static ParkingException newAlreadyBilledException(String registrationNumber) {
+		return new ParkingException("Ticket of car with registration number '" + registrationNumber + "' has already been billed");
+	}
+	
+	/**
+	 * Create the exception thrown when billing a ticket which has not been issued by the parking.
+	 * @param registrationNumber the registration number of the ticket car, can be null
+	 * @return the exception, not null
+	 */
+	static ParkingException newForeignTicketException(String registrationNumber) {
+		return new ParkingException("Ticket of car with registration number '" + registrationNumber + "' has not been issued by this parking");
+	}
+	
+	/**
+	 * Create the exception thrown when unparking a car which is not parked.
+	 * @param registrationNumber the car registration number, can be null
+	 * @return the exception, not null
+	 */
+	static ParkingException newNotParkedException(String registrationNumber) {
+		return new ParkingException("Car with registration number '" + registrationNumber + "' has never been parked");
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isParked(Car car) {
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			return this.registrationNumberToSlot.contains(car.getRegistrationNumber());
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.IS_PARKED, startNanos);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Reads the volatile available slots count of the slot allocator of the car type.</p>
+	 */
+	@Override
+	public int availableSlots(Car.Type carType) {
+		SlotAllocator slotAllocator = this.carTypeToSlotAllocator.get(carType);
+		
+		return (slotAllocator == null ? 0 : slotAllocator.getAvailableSlotsCount());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int occupiedSlots(Car.Type carType) {
+		SlotAllocator slotAllocator = this.carTypeToSlotAllocator.get(carType);
+		
+		return (slotAllocator == null ? 0 : slotAllocator.getSlotsCount() - slotAllocator.getAvailableSlotsCount());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Occupancy occupancy() {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		Map<Car.Type, Integer> carTypeToAvailableSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		for (Map.Entry<Car.Type, SlotAllocator> carTypeAndSlotAllocator: this.carTypeToSlotAllocator.entrySet()) {
+			carTypeToSlotsCount.put(carTypeAndSlotAllocator.getKey(), carTypeAndSlotAllocator.getValue().getSlotsCount());
+			carTypeToAvailableSlotsCount.put(carTypeAndSlotAllocator.getKey(), carTypeAndSlotAllocator.getValue().getAvailableSlotsCount());
+		}
+		
+		return new Occupancy(carTypeToSlotsCount, carTypeToAvailableSlotsCount);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ParkingMetrics metrics() {
+		return this.metrics;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RevenueSnapshot revenue() {
+		return revenue(this.clock.millis());
+	}
+	
+	/**
+	 * Take a snapshot of the revenue aggregates at a given instant.
+	 * <p>Used by {@link ShardedParking} so that the windows of its shards are the same.</p>
+	 * @param nowEpochMillis the instant of the snapshot, in milliseconds from the epoch
+	 * @return the snapshot, not null
+	 */
+	RevenueSnapshot revenue(long nowEpochMillis) {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		for (Map.Entry<Car.Type, SlotAllocator> carTypeAndSlotAllocator: this.carTypeToSlotAllocator.entrySet()) {
+			carTypeToSlotsCount.put(carTypeAndSlotAllocator.getKey(), carTypeAndSlotAllocator.getValue().getSlotsCount());
+		}
+		
+		return this.revenue.snapshot(nowEpochMillis, carTypeToSlotsCount);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Flow.Publisher<ParkingEvent> events() {
+		EventRing eventRing = this.eventRing;
+		
+		if (eventRing == null) {
+			synchronized (this) {
+				if (this.eventRing == null) {
+					this.eventRing = new EventRing(EventRing.defaultCapacity);
+				}
+				eventRing = this.eventRing;
+			}
+		}
+		
+		return eventRing;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ParkedCar> parkedBefore(Instant instant) {
+		List<ParkedCar> parkedCars = new ArrayList<ParkedCar>();
+		
+		for (SessionIndex sessionIndex: this.carTypeToSessionIndex.values()) {
+			sessionIndex.collectArrivedBefore(instant.toEpochMilli(), parkedCars);
+		}
+		
+		// Cars of each car type are already ordered by arrival
+		if (this.carTypeToSessionIndex.size() > 1) {
+			parkedCars.sort(Comparator.comparingLong(ParkedCar::getArrivalEpochMillis));
+		}
+		
+		return parkedCars;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OverstayWatch watchOverstays(Duration maxDuration, Consumer<? super ParkedCar> listener) {
+		return new OverstayWatcher(new ArrayList<SessionIndex>(this.carTypeToSessionIndex.values()), this.clock, maxDuration, listener).start();
+	}
+	
+	/**
+	 * Get the session indexes of the parking, one per car type.
+	 * <p>Used by {@link ShardedParking} to read the cars of all its shards.</p>
+	 * @return the indexes, not null
+	 */
+	Collection<SessionIndex> getSessionIndexes() {
+		return this.carTypeToSessionIndex.values();
+	}
+	
+	/**
+	 * Get the clock of the parking.
+	 * @return the clock, not null
+	 */
+	Clock getClock() {
+		return this.clock;
+	}
+	
+	/**
+	 * Publish the events of the parking to a given ring from now on.
+	 * <p>Used by {@link ShardedParking} so that its shards share a single ring, before the ring is handed to any subscriber.</p>
+	 * @param eventRing the ring, not null
+	 */
+	void publishTo(EventRing eventRing) {
+		this.eventRing = eventRing;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void snapshot(Path snapshotPath) throws IOException {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		int occupiedSlotsCount = 0;
+		
+		for (Map.Entry<Car.Type, SlotAllocator> carTypeAndSlotAllocator: this.carTypeToSlotAllocator.entrySet()) {
+			carTypeToSlotsCount.put(carTypeAndSlotAllocator.getKey(), carTypeAndSlotAllocator.getValue().getSlotsCount());
+			occupiedSlotsCount += occupiedSlots(carTypeAndSlotAllocator.getKey());
+		}
+		
+		Snapshot snapshot = new Snapshot(carTypeToSlotsCount, occupiedSlotsCount);
+		
+		addTo(snapshot);
+		snapshot.write(snapshotPath);
+	}
+	
+	/**
+	 * Add the parked cars to a snapshot.
+	 * <p>The registration index is visited stripe by stripe: parking and unparking cars is only blocked, for the cars of the stripe being visited,
+	 * while the cars of this stripe are copied to the snapshot. The arrival instant of a car is read while its stripe is locked, that is to say while its slot
+	 * cannot be released. Slots indexes are offset by the first slot index of their allocator, as the slot ids.</p>
+	 * @param snapshot the snapshot, not null
+	 */
+	void addTo(Snapshot snapshot) {
+		this.registrationNumberToSlot.forEach((registrationNumber, packedSlot) -> {
+			Car.Type carType = unpackCarType(packedSlot);
+			int slotIndex = unpackSlotIndex(packedSlot);
+			
+			snapshot.add(carType, this.carTypeToSlotAllocator.get(carType).getFirstSlotIndex() + slotIndex, registrationNumber,
+				this.carTypeToSessionIndex.get(carType).getArrivalEpochMillis(slotIndex));
+		});
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void commit() throws IOException {
+		if (this.journal != null) {
+			this.journal.commit();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.journal != null) {
+			this.journal.close();
+		}
+	}
+}
@@ -0,0 +1,681 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.util.Arrays;
+
+/**
+ * The index of the parked cars registration numbers.
+ * <p>Associates each registration number (possibly null) to a positive or zero long value.
+ * The index is split in stripes, each stripe being an open addressing hash table (linear probing, backward shift deletion)
+ * synchronized on its own, so that operations on different registration numbers rarely wait on each other.</p>
+ * <p>Typical registration numbers, up to 10 letters, digits, spaces or dashes (e.g. "AI-241-SP" or "8545 TY 68"), and the null registration number
+ * are encoded into a single long code: they are stored with their value in {@link LongRecords}, 16 bytes per position, and compared as longs, the index keeping
+ * no reference to the registration number strings. Other registration numbers are stored as strings in a second table of their stripe, only created when needed.</p>
+ * <p>The records of the encoded registration numbers may be held off the heap, so that an index of millions of cars is a handful of objects for the garbage collector.</p>
+ * <p>Stripes are sized upfront for the given expected number of entries and are only grown if the registration numbers are badly spread:
+ * once the index has warmed up, none of its operations allocates memory.</p>
+ */
+final class RegistrationIndex {
+	/** The value returned by the operations when a registration number is not in the index. */
+	static final long absentValue = -1L;
+	
+	/* Codes hold the registration number length plus one in their 4 upper bits and one 6 bits symbol per character, from the lowest bits */
+	static private final int maxEncodedLength = 10;
+	static private final int bitsPerSymbol = 6;
+	static private final int lengthShift = maxEncodedLength * bitsPerSymbol;
+	static private final String symbolChars = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz -";
+	static private final byte[] charToSymbol = computeCharToSymbol();
+	
+	/** The code of the registration numbers which cannot be encoded: no registration number is encoded as zero, which marks the free positions of the codes records. */
+	static final long noCode = 0L;
+	static private final long nullRegistrationNumberCode = 0xFL << lengthShift;
+	
+	/* Fields of the codes records */
+	static private final int codeField = 0;
+	static private final int valueField = 1;
+	static private final int codeFieldsCount = 2;
+	
+	/* Minimum capacity of a table, a power of two, also the capacity of the tables created on first use */
+	static private final int minCapacity = 8;
+	
+	/**
+	 * The Interface EntryVisitor.
+	 * <p>Visits the entries of the index, see {@link RegistrationIndex#forEach(EntryVisitor)}.</p>
+	 */
+	@FunctionalInterface
+	static interface EntryVisitor {
+		/**
+		 * Visit an entry.
+		 * @param registrationNumber the registration number, can be null
+		 * @param value the value associated to the registration number
+		 */
+		void visit(String registrationNumber, long value);
+	}
+	
+	/**
+	 * The Class Stripe.
+	 * <p>Two open addressing hash tables holding a part of the registration numbers: one for the encoded registration numbers, one for the others.</p>
+	 */
+	static private final class Stripe {
+		private LongRecords codes;
+		private int codesCount;
+		
+		/* Registration numbers which cannot be encoded, created on first use */
+		private String[] registrationNumbers;
+		private int[] hashes;
+		private long[] values;
+		private int registrationNumbersCount;
+		
+		/**
+		 * Instantiates a new empty stripe.
+		 * @param capacity the initial capacity of the encoded registration numbers table, a power of two
+		 * @param offHeap true to hold the encoded registration numbers table off the heap
+		 */
+		Stripe(int capacity, boolean offHeap) {
+			this.codes = new LongRecords(capacity, codeFieldsCount, offHeap);
+			this.codesCount = 0;
+			this.registrationNumbers = null;
+			this.hashes = null;
+			this.values = null;
+			this.registrationNumbersCount = 0;
+		}
+		
+		/**
+		 * Find the position of a registration number.
+		 * @param code the registration number code, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param registrationNumber the registration number, only used if it is not encoded
+		 * @param hash the registration number hash
+		 * @return the position in the table of the registration number, -1 if the registration number is not in the stripe
+		 */
+		private int find(long code, String registrationNumber, int hash) {
+			if (code != noCode) {
+				int mask = this.codes.size() - 1;
+				
+				for (int position = hash & mask; this.codes.get(position, codeField) != noCode; position = (position + 1) & mask) {
+					if (this.codes.get(position, codeField) == code) {
+						return position;
+					}
+				}
+			} else if (this.registrationNumbers != null) {
+				int mask = this.registrationNumbers.length - 1;
+				
+				for (int position = hash & mask; this.registrationNumbers[position] != null; position = (position + 1) & mask) {
+					if ((this.hashes[position] == hash) && this.registrationNumbers[position].equals(registrationNumber)) {
+						return position;
+					}
+				}
+			}
+			
+			return -1;
+		}
+		
+		/**
+		 * Get the value at a position of the table holding a registration number.
+		 * @param code the registration number code, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param position the position of the registration number, which must not be free
+		 * @return the value
+		 */
+		private long value(long code, int position) {
+			return (code != noCode ? this.codes.get(position, valueField) : this.values[position]);
+		}
+		
+		/**
+		 * Set the value at a position of the table holding a registration number.
+		 * @param code the registration number code, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param position the position of the registration number, which must not be free
+		 * @param value the value, positive or zero
+		 */
+		private void setValue(long code, int position, long value) {
+			if (code != noCode) {
+				this.codes.set(position, valueField, value);
+			} else {
+				this.values[position] = value;
+			}
+		}
+		
+		/**
+		 * Get the value associated to a registration number.
+		 * @param code the registration number code, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param registrationNumber the registration number, only used if it is not encoded
+		 * @param hash the registration number hash
+		 * @return the value, {@link RegistrationIndex#absentValue} if the registration number is not in the stripe
+		 */
+		synchronized long get(long code, String registrationNumber, int hash) {
+			int position = find(code, registrationNumber, hash);
+			
+			return (position < 0 ? absentValue : value(code, position));
+		}
+		
+		/**
+		 * Associate a value to a registration number if the registration number is not in the stripe yet.
+		 * @param code the registration number code, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param registrationNumber the registration number, only used if it is not encoded
+		 * @param hash the registration number hash
+		 * @param value the value, positive or zero
+		 * @return the value already associated to the registration number, {@link RegistrationIndex#absentValue} if the registration number
+		 * was not in the stripe and has been added
+		 */
+		synchronized long putIfAbsent(long code, String registrationNumber, int hash, long value) {
+			return (code != noCode ? putCodeIfAbsent(code, hash, value) : putRegistrationNumberIfAbsent(registrationNumber, hash, value));
+		}
+		
+		/**
+		 * Associate a value to an encoded registration number if it is not in the stripe yet.
+		 * @param code the registration number code, not {@link RegistrationIndex#noCode}
+		 * @param hash the registration number hash
+		 * @param value the value, positive or zero
+		 * @return the value already associated to the registration number, {@link RegistrationIndex#absentValue} if it has been added
+		 */
+		private long putCodeIfAbsent(long code, int hash, long value) {
+			int mask = this.codes.size() - 1;
+			int position = hash & mask;
+			
+			for (; this.codes.get(position, codeField) != noCode; position = (position + 1) & mask) {
+				if (this.codes.get(position, codeField) == code) {
+					return this.codes.get(position, valueField);
+				}
+			}
+			
+			this.codes.set(position, codeField, code);
+			this.codes.set(position, valueField, value);
+			if (++this.codesCount > maxSize(this.codes.size())) {
+				growCodes();
+			}
+			
+			return absentValue;
+		}
+		
+		/**
+		 * Associate a value to a registration number which cannot be encoded if it is not in the stripe yet.
+		 * @param registrationNumber the registration number, not null
+		 * @param hash the registration number hash
+		 * @param value the value, positive or zero
+		 * @return the value already associated to the registration number, {@link RegistrationIndex#absentValue} if it has been added
+		 */
+		private long putRegistrationNumberIfAbsent(String registrationNumber, int hash, long value) {
+			if (this.registrationNumbers == null) {
+				this.registrationNumbers = new String[minCapacity];
+				this.hashes = new int[minCapacity];
+				this.values = new long[minCapacity];
+			}
+			
+			int mask = this.registrationNumbers.length - 1;
+			int position = hash & mask;
+			
+			for (; this.registrationNumbers[position] != null; position = (position + 1) & mask) {
+				if ((this.hashes[position] == hash) && this.registrationNumbers[position].equals(registrationNumber)) {
+					return this.values[position];
+				}
+			}
+			
+			this.registrationNumbers[position] = registrationNumber;
+			this.hashes[position] = hash;
+			this.values[position] = value;
+			if (++this.registrationNumbersCount > maxSize(this.registrationNumbers.length)) {
+				growRegistrationNumbers();
+			}
+			
+			return absentValue;
+		}
+		
+		/**
+		 * Remove a registration number.
+		 * @param code the registration number code, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param registrationNumber the registration number, only used if it is not encoded
+		 * @param hash the registration number hash
+		 * @return the value which was associated to the registration number, {@link RegistrationIndex#absentValue} if the registration number
+		 * was not in the stripe
+		 */
+		synchronized long remove(long code, String registrationNumber, int hash) {
+			int position = find(code, registrationNumber, hash);
+			
+			if (position < 0) {
+				return absentValue;
+			}
+			
+			long value = value(code, position);
+			
+			removeAt(code, position);
+			
+			return value;
+		}
+		
+		/**
+		 * Remove a registration number if it is associated to a given value.
+		 * @param code the registration number code, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param registrationNumber the registration number, only used if it is not encoded
+		 * @param hash the registration number hash
+		 * @param expectedValue the value the registration number must be associated to
+		 * @return true if the registration number was associated to the expected value and has been removed, false otherwise
+		 */
+		synchronized boolean remove(long code, String registrationNumber, int hash, long expectedValue) {
+			int position = find(code, registrationNumber, hash);
+			
+			if ((position < 0) || (value(code, position) != expectedValue)) {
+				return false;
+			}
+			
+			removeAt(code, position);
+			
+			return true;
+		}
+		
+		/**
+		 * Associate a new value to a registration number if it is associated to a given value.
+		 * @param code the registration number code, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param registrationNumber the registration number, only used if it is not encoded
+		 * @param hash the registration number hash
+		 * @param expectedValue the value the registration number must be associated to
+		 * @param newValue the new value, positive or zero
+		 * @return true if the registration number was associated to the expected value and is now associated to the new value, false otherwise
+		 */
+		synchronized boolean replace(long code, String registrationNumber, int hash, long expectedValue, long newValue) {
+			int position = find(code, registrationNumber, hash);
+			
+			if ((position < 0) || (value(code, position) != expectedValue)) {
+				return false;
+			}
+			
+			setValue(code, position, newValue);
+			
+			return true;
+		}
+		
+		/**
+		 * Visit all the entries of the stripe.
+		 * <p>Encoded registration numbers are decoded, which allocates their strings.</p>
+		 * @param visitor the visitor, called while the stripe is locked, not null
+		 */
+		synchronized void forEach(EntryVisitor visitor) {
+			for (int position = 0; position < this.codes.size(); position++) {
+				if (this.codes.get(position, codeField) != noCode) {
+					visitor.visit(decode(this.codes.get(position, codeField)), this.codes.get(position, valueField));
+				}
+			}
+			if (this.registrationNumbers != null) {
+				for (int position = 0; position < this.registrationNumbers.length; position++) {
+					if (this.registrationNumbers[position] != null) {
+						visitor.visit(this.registrationNumbers[position], this.values[position]);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Remove the entry at a given position.
+		 * @param code the code of the removed registration number, {@link RegistrationIndex#noCode} if it is not encoded
+		 * @param position the position of the entry, which must not be free
+		 */
+		private void removeAt(long code, int position) {
+			if (code != noCode) {
+				removeCodeAt(position);
+			} else {
+				removeRegistrationNumberAt(position);
+			}
+		}
+		
+		/**
+		 * Remove the entry at a given position of the encoded registration numbers table.
+		 * @param position the position of the entry, which must not be free
+		 */
+		private void removeCodeAt(int position) {
+			int mask = this.codes.size() - 1;
+			int hole = position;
+			
+			// Shift back the following entries of the probe sequence which may move to the hole, so that no tombstone is needed
+			for (int next = (hole + 1) & mask; this.codes.get(next, codeField) != noCode; next = (next + 1) & mask) {
+				if (((next - hash(this.codes.get(next, codeField))) & mask) >= ((next - hole) & mask)) {
+					this.codes.set(hole, codeField, this.codes.get(next, codeField));
+					this.codes.set(hole, valueField, this.codes.get(next, valueField));
+					hole = next;
+				}
+			}
+			this.codes.set(hole, codeField, noCode);
+			this.codesCount--;
+		}
+		
+		/**
+		 * Remove the entry at a given position of the table of the registration numbers which cannot be encoded.
+		 * @param position the position of the entry, which must not be free
+		 */
+		private void removeRegistrationNumberAt(int position) {
+			int mask = this.registrationNumbers.length - 1;
+			int hole = position;
+			
+			// Shift back the following entries of the probe sequence which may move to the hole, so that no tombstone is needed
+			for (int next = (hole + 1) & mask; this.registrationNumbers[next] != null; next = (next + 1) & mask) {
+				if (((next - this.hashes[next]) & mask) >= ((next - hole) & mask)) {
+					this.registrationNumbers[hole] = this.registrationNumbers[next];
+					this.hashes[hole] = this.hashes[next];
+					this.values[hole] = this.values[next];
+					hole = next;
+				}
+			}
+			this.registrationNumbers[hole] = null;
+			this.registrationNumbersCount--;
+		}
+		
+		/**
+		 * Double the capacity of the encoded registration numbers table.
+		 */
+		private void growCodes() {
+			LongRecords oldCodes = this.codes;
+			int mask = (oldCodes.size() << 1) - 1;
+			
+			this.codes = oldCodes.newRecords(oldCodes.size() << 1);
+			
+			for (int oldPosition = 0; oldPosition < oldCodes.size(); oldPosition++) {
+				if (oldCodes.get(oldPosition, codeField) != noCode) {
+					int position = hash(oldCodes.get(oldPosition, codeField)) & mask;
+					
+					while (this.codes.get(position, codeField) != noCode) {
+						position = (position + 1) & mask;
+					}
+					this.codes.set(position, codeField, oldCodes.get(oldPosition, codeField));
+					this.codes.set(position, valueField, oldCodes.get(oldPosition, valueField));
+				}
+			}
+		}
+		
+		/**
+		 * Double the capacity of the table of the registration numbers which cannot be encoded.
+		 */
+		private void growRegistrationNumbers() {
+			String[] oldRegistrationNumbers = this.registrationNumbers;
+			int[] oldHashes = this.hashes;
+			long[] oldValues = this.values;
+			int mask = (oldRegistrationNumbers.length << 1) - 1;
+			
+			this.registrationNumbers = new String[oldRegistrationNumbers.length << 1];
+			this.hashes = new int[oldRegistrationNumbers.length << 1];
+			this.values = new long[oldRegistrationNumbers.length << 1];
+			
+			for (int oldPosition = 0; oldPosition < oldRegistrationNumbers.length; oldPosition++) {
+				if (oldRegistrationNumbers[oldPosition] != null) {
+					int position = oldHashes[oldPosition] & mask;
+					
+					while (this.registrationNumbers[position] != null) {
+						position = (position + 1) & mask;
+					}
+					this.registrationNumbers[position] = oldRegistrationNumbers[oldPosition];
+					this.hashes[position] = oldHashes[oldPosition];
+					this.values[position] = oldValues[oldPosition];
+				}
+			}
+		}
+	}
+	
+	private final Stripe[] stripes;
+	private final int stripeShift;
+	
+	/**
+	 * Instantiates a new empty registration index, held on the heap.
+	 * @param expectedSize the expected maximum number of registration numbers in the index
+	 */
+	RegistrationIndex(int expectedSize) {
+		this(expectedSize, false);
+	}
+	
+	/**
+	 * Instantiates a new empty registration index.
+	 * @param expectedSize the expected maximum number of registration numbers in the index
+	 * @param offHeap true to hold the encoded registration numbers off the heap, false to hold them on the heap
+	 */
+	RegistrationIndex(int expectedSize, boolean offHeap) {
+		int stripesCount = nextPowerOfTwo(Math.max(2, 4 * Runtime.getRuntime().availableProcessors()));
+		int stripeCapacity = nextPowerOfTwo(Math.max(minCapacity, 2 * (expectedSize / stripesCount + 1)));
+		
+		this.stripes = new Stripe[stripesCount];
+		this.stripeShift = Integer.SIZE - Integer.numberOfTrailingZeros(stripesCount);
+		for (int stripeIndex = 0; stripeIndex < stripesCount; stripeIndex++) {
+			this.stripes[stripeIndex] = new Stripe(stripeCapacity, offHeap);
+		}
+	}
+	
+	/**
+	 * Return the smallest power of two greater than or equal to a value.
+	 * @param value the value, strictly positive
+	 * @return the power of two
+	 */
+	static private int nextPowerOfTwo(int value) {
+		return (value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1);
+	}
+	
+	/**
+	 * Return the maximum number of entries of a table before it is grown.
+	 * @param capacity the table capacity
+	 * @return three quarters of the capacity
+	 */
+	static private int maxSize(int capacity) {
+		return (capacity >>> 1) + (capacity >>> 2);
+	}
+	
+	/**
+	 * Compute the symbols of the characters which may be encoded.
+	 * @return the symbols indexed by character, -1 for the characters which cannot be encoded
+	 */
+	static private byte[] computeCharToSymbol() {
+		byte[] charToSymbol = new byte[128];
+		
+		Arrays.fill(charToSymbol, (byte) -1);
+		for (int symbol = 0; symbol < symbolChars.length(); symbol++) {
+			charToSymbol[symbolChars.charAt(symbol)] = (byte) symbol;
+		}
+		
+		return charToSymbol;
+	}
+	
+	/**
+	 * Encode a registration number.
+	 * @param registrationNumber the registration number, can be null
+	 * @return the code, {@link #noCode} if the registration number is too long or has a character which cannot be encoded
+	 */
+	static long encode(String registrationNumber) {
+		if (registrationNumber == null) {
+			return nullRegistrationNumberCode;
+		}
+		
+		int length = registrationNumber.length();
+		
+		if (length > maxEncodedLength) {
+			return noCode;
+		}
+		
+		long code = (long) (length + 1) << lengthShift;
+		
+		for (int charIndex = 0; charIndex < length; charIndex++) {
+			char c = registrationNumber.charAt(charIndex);
+			int symbol = (c < charToSymbol.length ? charToSymbol[c] : -1);
+			
+			if (symbol < 0) {
+				return noCode;
+			}
+			code |= (long) symbol << (charIndex * bitsPerSymbol);
+		}
+		
+		return code;
+	}
+	
+	/**
+	 * Decode a registration number.
+	 * @param code the code, not {@link #noCode}
+	 * @return the registration number, can be null
+	 */
+	static String decode(long code) {
+		if (code == nullRegistrationNumberCode) {
+			return null;
+		}
+		
+		char[] chars = new char[(int) (code >>> lengthShift) - 1];
+		
+		for (int charIndex = 0; charIndex < chars.length; charIndex++) {
+			chars[charIndex] = symbolChars.charAt((int) (code >>> (charIndex * bitsPerSymbol)) & ((1 << bitsPerSymbol) - 1));
+		}
+		
+		return new String(chars);
+	}
+	
+	/**
+	 * Mix the bits of a hash so that both the highest bits (selecting the stripe) and the lowest bits (selecting the position in the stripe) are well spread.
+	 * @param hash the hash
+	 * @return the mixed hash
+	 */
+	static private int mix(int hash) {
+		hash ^= (hash >>> 16);
+		hash *= 0x9E3779B9;
+		
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * Return the hash of an encoded registration number.
+	 * @param code the code, not {@link #noCode}
+	 * @return the hash
+	 */
+	static private int hash(long code) {
+		return mix((int) (code ^ (code >>> Integer.SIZE)));
+	}
+	
+	/**
+	 * Return the hash of a registration number.
+	 * @param code the registration number code, {@link #noCode} if it is not encoded
+	 * @param registrationNumber the registration number, only used if it is not encoded
+	 * @return the hash
+	 */
+	static private int hash(long code, String registrationNumber) {
+		return (code != noCode ? hash(code) : mix(registrationNumber.hashCode()));
+	}
+	
+	/**
+	 * Return the hash of a registration number.
+	 * @param registrationNumber the registration number, can be null
+	 * @return the hash
+	 */
+	static int hash(String registrationNumber) {
+		return hash(encode(registrationNumber), registrationNumber);
+	}
+	
+	/**
+	 * Return the stripe holding a hash.
+	 * @param hash the hash
+	 * @return the stripe, not null
+	 */
+	private Stripe stripe(int hash) {
+		return this.stripes[hash >>> this.stripeShift];
+	}
+	
+	/**
+	 * Test whether or not a registration number is in the index.
+	 * @param registrationNumber the registration number, can be null
+	 * @return true if the registration number is in the index, false otherwise
+	 */
+	boolean contains(String registrationNumber) {
+		return contains(registrationNumber, encode(registrationNumber));
+	}
+	
+	/**
+	 * Test whether or not an already encoded registration number is in the index.
+	 * <p>Saves encoding the registration number again when the caller needs its code anyway.</p>
+	 * @param registrationNumber the registration number, can be null
+	 * @param code the registration number code, as returned by {@link #encode(String)}
+	 * @return true if the registration number is in the index, false otherwise
+	 */
+	boolean contains(String registrationNumber, long code) {
+		int hash = hash(code, registrationNumber);
+		
+		return (stripe(hash).get(code, registrationNumber, hash) != absentValue);
+	}
+	
+	/**
+	 * Get the value associated to a registration number.
+	 * @param registrationNumber the registration number, can be null
+	 * @return the value, {@link #absentValue} if the registration number is not in the index
+	 */
+	long get(String registrationNumber) {
+		long code = encode(registrationNumber);
+		int hash = hash(code, registrationNumber);
+		
+		return stripe(hash).get(code, registrationNumber, hash);
+	}
+	
+	/**
+	 * Associate a value to a registration number if the registration number is not in the index yet.
+	 * @param registrationNumber the registration number, can be null
+	 * @param value the value, positive or zero
+	 * @return the value already associated to the registration number, {@link #absentValue} if the registration number was not in the index and has been added
+	 */
+	long putIfAbsent(String registrationNumber, long value) {
+		return putIfAbsent(registrationNumber, encode(registrationNumber), value);
+	}
+	
+	/**
+	 * Associate a value to an already encoded registration number if the registration number is not in the index yet.
+	 * <p>Saves encoding the registration number again when the caller needs its code anyway.</p>
+	 * @param registrationNumber the registration number, can be null
+	 * @param code the registration number code, as returned by {@link #encode(String)}
+	 * @param value the value, positive or zero
+	 * @return the value already associated to the registration number, {@link #absentValue} if the registration number was not in the index and has been added
+	 */
+	long putIfAbsent(String registrationNumber, long code, long value) {
+		assert(value >= 0);
+		
+		int hash = hash(code, registrationNumber);
+		
+		return stripe(hash).putIfAbsent(code, registrationNumber, hash, value);
+	}
+	
+	/**
+	 * Remove a registration number.
+	 * @param registrationNumber the registration number, can be null
+	 * @return the value which was associated to the registration number, {@link #absentValue} if the registration number was not in the index
+	 */
+	long remove(String registrationNumber) {
+		long code = encode(registrationNumber);
+		int hash = hash(code, registrationNumber);
+		
+		return stripe(hash).remove(code, registrationNumber, hash);
+	}
+	
+	/**
+	 * Remove a registration number if it is associated to a given value.
+	 * @param registrationNumber the registration number, can be null
+	 * @param expectedValue the value the registration number must be associated to
+	 * @return true if the registration number was associated to the expected value and has been removed, false otherwise
+	 */
+	boolean remove(String registrationNumber, long expectedValue) {
+		long code = encode(registrationNumber);
+		int hash = hash(code, registrationNumber);
+		
+		return stripe(hash).remove(code, registrationNumber, hash, expectedValue);
+	}
+	
+	/**
+	 * Associate a new value to a registration number if it is associated to a given value.
+	 * @param registrationNumber the registration number, can be null
+	 * @param expectedValue the value the registration number must be associated to
+	 * @param newValue the new value, positive or zero
+	 * @return true if the registration number was associated to the expected value and is now associated to the new value, false otherwise
+	 */
+	boolean replace(String registrationNumber, long expectedValue, long newValue) {
+		assert(newValue >= 0);
+		
+		long code = encode(registrationNumber);
+		int hash = hash(code, registrationNumber);
+		
+		return stripe(hash).replace(code, registrationNumber, hash, expectedValue, newValue);
+	}
+	
+	/**
+	 * Visit all the entries of the index.
+	 * <p>Stripes are visited one after the other, each of them being locked while its entries are visited: the visitor must be quick and must not
+	 * access the index. Entries added or removed concurrently in a stripe which is not locked may or may not be visited.</p>
+	 * @param visitor the visitor, not null
+	 */
+	void forEach(EntryVisitor visitor) {
+		for (Stripe stripe: this.stripes) {
+			stripe.forEach(visitor);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import parking.api.Car;
+import parking.api.RevenueSnapshot;
+import parking.api.RevenueTotals;
+
+/**
+ * The recorder of the revenue and stay aggregates of a parking, read by {@link parking.api.Parking#revenue()}.
+ * <p>For each car type, keeps the totals since the recorder was created and the totals of the last {@link #windowsCount} tumbling windows of
+ * {@link #windowMillis} milliseconds, the window of a car being given by its departure instant. Windows are kept in a ring: the position of a window is reset
+ * by the first car of a newer window, cars departed in a window which has already left the ring only count in the totals.</p>
+ * <p>Aggregates are striped over cells, one per processor, a gate adding to the cell picked by its thread id. Each cell is synchronized on its own,
+ * so that a billing is either fully in a snapshot or not at all: count, revenue and stay of a snapshot always match the same cars. As a gate mostly uses
+ * the same cell and different gates mostly use different cells, the cell locks are rarely contended.</p>
+ * <p>Recorder is thread safe.</p>
+ */
+final class RevenueRecorder {
+	/** The duration of the tumbling windows, in milliseconds. */
+	static final long windowMillis = 60_000L;
+	
+	/** The number of windows kept. */
+	static final int windowsCount = 60;
+	
+	/* Car.Type.values() returns a new array on each call */
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	/* Aggregates of a car type are its total followed by its windows */
+	static private final int positionsPerCarType = windowsCount + 1;
+	
+	/**
+	 * The Class Cell.
+	 * <p>A stripe of the aggregates, synchronized on its own.</p>
+	 */
+	static private final class Cell {
+		/* All members below are guarded by the cell lock, windowIndexes are indexed as the other arrays, the positions of the totals being unused */
+		private final long[] windowIndexes;
+		private final long[] billedCarsCounts;
+		private final double[] revenues;
+		private final long[] stayMillis;
+		
+		/**
+		 * Instantiates a new empty cell.
+		 */
+		Cell() {
+			this.windowIndexes = new long[carTypes.length * positionsPerCarType];
+			Arrays.fill(this.windowIndexes, Long.MIN_VALUE);
+			this.billedCarsCounts = new long[carTypes.length * positionsPerCarType];
+			this.revenues = new double[carTypes.length * positionsPerCarType];
+			this.stayMillis = new long[carTypes.length * positionsPerCarType];
+		}
+		
+		/**
+		 * Add a billed car to the total of its car type and to the window of its departure.
+		 * @param carType the car type, not null
+		 * @param windowIndex the index of the window of the departure, counted from the epoch
+		 * @param stayMillis the parking duration, in milliseconds
+		 * @param amount the price
+		 */
+		synchronized void add(Car.Type carType, long windowIndex, long stayMillis, float amount) {
+			int totalPosition = carType.ordinal() * positionsPerCarType;
+			int windowPosition = totalPosition + 1 + (int) Math.floorMod(windowIndex, (long) windowsCount);
+			
+			add(totalPosition, stayMillis, amount);
+			if (windowIndex > this.windowIndexes[windowPosition]) {
+				this.windowIndexes[windowPosition] = windowIndex;
+				this.billedCarsCounts[windowPosition] = 0L;
+				this.revenues[windowPosition] = 0.0;
+				this.stayMillis[windowPosition] = 0L;
+			}
+			if (windowIndex == this.windowIndexes[windowPosition]) {
+				add(windowPosition, stayMillis, amount);
+			}
+		}
+		
+		/**
+		 * Add several billed cars at once, the cell being locked once for all of them.
+		 * @param carTypes the car types, not null
+		 * @param arrivalsEpochMillis the arrival instants, in milliseconds from the epoch, not null
+		 * @param departuresEpochMillis the departure instants, in milliseconds from the epoch, not before the arrivals, not null
+		 * @param amounts the prices, not null
+		 * @param billedCarsCount the number of billed cars, at the first positions of the arrays
+		 */
+		synchronized void addAll(Car.Type[] carTypes, long[] arrivalsEpochMillis, long[] departuresEpochMillis, float[] amounts, int billedCarsCount) {
+			for (int position = 0; position < billedCarsCount; position++) {
+				add(carTypes[position], Math.floorDiv(departuresEpochMillis[position], windowMillis), departuresEpochMillis[position] - arrivalsEpochMillis[position],
+					amounts[position]);
+			}
+		}
+		
+		/**
+		 * Add a billed car to the aggregates of a position.
+		 * @param position the position
+		 * @param stayMillis the parking duration, in milliseconds
+		 * @param amount the price
+		 */
+		private void add(int position, long stayMillis, float amount) {
+			this.billedCarsCounts[position]++;
+			this.revenues[position] += amount;
+			this.stayMillis[position] += stayMillis;
+		}
+		
+		/**
+		 * Add the aggregates of the cell to arrays laid out by window age instead of window position.
+		 * @param currentWindowIndex the index of window 0, counted from the epoch
+		 * @param billedCarsCounts the counts, not null
+		 * @param revenues the revenues, not null
+		 * @param stayMillis the stays, not null
+		 */
+		synchronized void addTo(long currentWindowIndex, long[] billedCarsCounts, double[] revenues, long[] stayMillis) {
+			for (int carTypeOrdinal = 0; carTypeOrdinal < carTypes.length; carTypeOrdinal++) {
+				int totalPosition = carTypeOrdinal * positionsPerCarType;
+				
+				billedCarsCounts[totalPosition] += this.billedCarsCounts[totalPosition];
+				revenues[totalPosition] += this.revenues[totalPosition];
+				stayMillis[totalPosition] += this.stayMillis[totalPosition];
+				for (int windowPosition = totalPosition + 1; windowPosition < totalPosition + positionsPerCarType; windowPosition++) {
+					long age = currentWindowIndex - this.windowIndexes[windowPosition];
+					
+					// Windows out of the ring, and windows after window 0 when the clock has gone backward, are ignored
+					if ((age >= 0L) && (age < windowsCount)) {
+						int agePosition = totalPosition + 1 + (int) age;
+						
+						billedCarsCounts[agePosition] += this.billedCarsCounts[windowPosition];
+						revenues[agePosition] += this.revenues[windowPosition];
+						stayMillis[agePosition] += this.stayMillis[windowPosition];
+					}
+				}
+			}
+		}
+	}
+	
+	private final Cell[] cells;
+	
+	/**
+	 * Instantiates a new empty recorder.
+	 */
+	RevenueRecorder() {
+		int cellsCount = Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1)) << 1;
+		
+		this.cells = new Cell[cellsCount];
+		for (int cellIndex = 0; cellIndex < cellsCount; cellIndex++) {
+			this.cells[cellIndex] = new Cell();
+		}
+	}
+	
+	/**
+	 * Record a billed car.
+	 * <p>Does not allocate any memory.</p>
+	 * @param carType the car type when it left the parking, not null
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch, not before the arrival
+	 * @param amount the price
+	 */
+	void record(Car.Type carType, long arrivalEpochMillis, long departureEpochMillis, float amount) {
+		Cell cell = this.cells[(int) Thread.currentThread().getId() & (this.cells.length - 1)];
+		
+		cell.add(carType, Math.floorDiv(departureEpochMillis, windowMillis), departureEpochMillis - arrivalEpochMillis, amount);
+	}
+	
+	/**
+	 * Record several billed cars at once.
+	 * <p>Does not allocate any memory. The cell of the calling thread is locked once for the whole batch.</p>
+	 * @param carTypes the car types when they left the parking, not null
+	 * @param arrivalsEpochMillis the arrival instants, in milliseconds from the epoch, not null
+	 * @param departuresEpochMillis the departure instants, in milliseconds from the epoch, not before the arrivals, not null
+	 * @param amounts the prices, not null
+	 * @param billedCarsCount the number of billed cars, at the first positions of the arrays
+	 */
+	void recordAll(Car.Type[] carTypes, long[] arrivalsEpochMillis, long[] departuresEpochMillis, float[] amounts, int billedCarsCount) {
+		Cell cell = this.cells[(int) Thread.currentThread().getId() & (this.cells.length - 1)];
+		
+		cell.addAll(carTypes, arrivalsEpochMillis, departuresEpochMillis, amounts, billedCarsCount);
+	}
+	
+	/**
+	 * Take a snapshot of the aggregates.
+	 * <p>Cells are copied one after the other, each of them being locked while it is copied.</p>
+	 * @param nowEpochMillis the instant of the snapshot, in milliseconds from the epoch, giving window 0
+	 * @param carTypeToSlotsCount the number of slots of each car type, not null
+	 * @return the snapshot, not null
+	 */
+	RevenueSnapshot snapshot(long nowEpochMillis, Map<Car.Type, Integer> carTypeToSlotsCount) {
+		long currentWindowIndex = Math.floorDiv(nowEpochMillis, windowMillis);
+		long[] billedCarsCounts = new long[carTypes.length * positionsPerCarType];
+		double[] revenues = new double[carTypes.length * positionsPerCarType];
+		long[] stayMillis = new long[carTypes.length * positionsPerCarType];
+		
+		for (Cell cell: this.cells) {
+			cell.addTo(currentWindowIndex, billedCarsCounts, revenues, stayMillis);
+		}
+		
+		Map<Car.Type, RevenueTotals> carTypeToTotal = new EnumMap<Car.Type, RevenueTotals>(Car.Type.class);
+		Map<Car.Type, List<RevenueTotals>> carTypeToWindows = new EnumMap<Car.Type, List<RevenueTotals>>(Car.Type.class);
+		
+		for (Car.Type carType: carTypes) {
+			int totalPosition = carType.ordinal() * positionsPerCarType;
+			List<RevenueTotals> windows = new ArrayList<RevenueTotals>(windowsCount);
+			
+			for (int agePosition = totalPosition + 1; agePosition < totalPosition + positionsPerCarType; agePosition++) {
+				windows.add(new RevenueTotals(billedCarsCounts[agePosition], revenues[agePosition], stayMillis[agePosition]));
+			}
+			carTypeToTotal.put(carType, new RevenueTotals(billedCarsCounts[totalPosition], revenues[totalPosition], stayMillis[totalPosition]));
+			carTypeToWindows.put(carType, windows);
+		}
+		
+		return new RevenueSnapshot(Duration.ofMillis(windowMillis), Instant.ofEpochMilli(currentWindowIndex * windowMillis), windowsCount, carTypeToSlotsCount,
+			carTypeToTotal, carTypeToWindows);
+	}
+}
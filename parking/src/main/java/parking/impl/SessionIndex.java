@@ -0,0 +1,256 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.util.List;
+
+import parking.api.ParkedCar;
+
+/**
+ * The arrival ordered index of the cars parked in the slots of a single car type.
+ * <p>Each slot has a fixed-width record, in {@link LongRecords}, holding the arrival instant of its car, its encoded registration number, its link sequence
+ * and the links of a doubly linked list of the occupied slots ordered by arrival. Cars mostly arrive in order: a car is linked after the newest one, walking back
+ * only past the cars which arrived after it (when the gates read the clock in a different order than they link their cars, or when the clock goes backward).
+ * Linking and unlinking a car are thus O(1) in practice, and reading the cars arrived before an instant only visits those cars.</p>
+ * <p>Each record also holds the link sequence of its car, counting the cars linked so far, so that a {@link Cursor} tells the cars it has not read yet
+ * by the order they were linked in rather than by their arrival instant.</p>
+ * <p>Registration numbers which cannot be encoded by the {@link RegistrationIndex} are kept as strings, in an array only created when needed.</p>
+ * <p>Index is thread safe, each index being synchronized on its own. The record of a slot is only written by the thread owning the slot, while it is
+ * parking or unparking a car, so that {@link #getArrivalEpochMillis(int)} can be read without locking by that thread or by a thread the car registration
+ * has been published to.</p>
+ */
+final class SessionIndex {
+	/* Fields of the slot records, the links field packing the previous and the next links in its highest and lowest 32 bits;
+	 * links hold the slot index plus one so that zero, the initial value, means no slot */
+	static private final int arrivalField = 0;
+	static private final int linksField = 1;
+	static private final int sequenceField = 2;
+	static private final int codeField = 3;
+	static private final int fieldsCount = 4;
+	static private final int previousField = 32;
+	static private final int nextField = 0;
+	
+	static private final int noSlot = -1;
+	
+	/**
+	 * The Class Cursor.
+	 * <p>Where a reader of the cars arriving over time, see {@link SessionIndex#collectArrivedBefore(Cursor, long, List)}, stopped reading an index:
+	 * the last car read, the instant read up to and the number of cars linked to the index at that time.</p>
+	 */
+	static final class Cursor {
+		/* Only accessed under the index lock */
+		private int slotIndex;
+		private long slotSequence;
+		private long untilEpochMillis;
+		private long linksCount;
+		
+		/**
+		 * Instantiates a new cursor, before all the cars.
+		 */
+		Cursor() {
+			this.slotIndex = noSlot;
+			this.slotSequence = 0L;
+			this.untilEpochMillis = Long.MIN_VALUE;
+			this.linksCount = 0L;
+		}
+	}
+	
+	/* All members below are guarded by the index lock, except the arrival field of the records, see the class documentation */
+	private final SlotAllocator slotAllocator;
+	private final LongRecords records;
+	private String[] registrationNumbers;
+	private int oldestSlotIndex;
+	private int newestSlotIndex;
+	private long linksCount;
+	private long lastOutOfOrderLinkSequence;
+	
+	/**
+	 * Instantiates a new empty session index.
+	 * @param slotAllocator the allocator of the slots of the car type, not null
+	 * @param offHeap true to hold the slot records off the heap, false to hold them on the heap
+	 */
+	SessionIndex(SlotAllocator slotAllocator, boolean offHeap) {
+		this.slotAllocator = slotAllocator;
+		this.records = new LongRecords(slotAllocator.getSlotsCount(), fieldsCount, offHeap);
+		this.registrationNumbers = null;
+		this.oldestSlotIndex = noSlot;
+		this.newestSlotIndex = noSlot;
+		this.linksCount = 0L;
+		this.lastOutOfOrderLinkSequence = 0L;
+	}
+	
+	/**
+	 * Add the car parked in a slot.
+	 * <p>Must be called by the thread owning the slot, before the car is registered.</p>
+	 * @param slotIndex the slot index, not in the index
+	 * @param registrationNumber the car registration number, can be null
+	 * @param code the registration number code, as returned by {@link RegistrationIndex#encode(String)}
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 */
+	synchronized void add(int slotIndex, String registrationNumber, long code, long arrivalEpochMillis) {
+		this.records.set(slotIndex, arrivalField, arrivalEpochMillis);
+		this.records.set(slotIndex, codeField, code);
+		this.records.set(slotIndex, sequenceField, ++this.linksCount);
+		if (code == RegistrationIndex.noCode) {
+			if (this.registrationNumbers == null) {
+				this.registrationNumbers = new String[this.records.size()];
+			}
+			this.registrationNumbers[slotIndex] = registrationNumber;
+		}
+		
+		// Cars arrived at the same instant stay in the order they were added
+		int previousSlotIndex = this.newestSlotIndex;
+		
+		while ((previousSlotIndex != noSlot) && (this.records.get(previousSlotIndex, arrivalField) > arrivalEpochMillis)) {
+			previousSlotIndex = getLink(previousSlotIndex, previousField);
+		}
+		
+		int nextSlotIndex = (previousSlotIndex == noSlot ? this.oldestSlotIndex : getLink(previousSlotIndex, nextField));
+		
+		if (nextSlotIndex != noSlot) {
+			this.lastOutOfOrderLinkSequence = this.linksCount;
+		}
+		setLink(slotIndex, previousField, previousSlotIndex);
+		setLink(slotIndex, nextField, nextSlotIndex);
+		if (previousSlotIndex == noSlot) {
+			this.oldestSlotIndex = slotIndex;
+		} else {
+			setLink(previousSlotIndex, nextField, slotIndex);
+		}
+		if (nextSlotIndex == noSlot) {
+			this.newestSlotIndex = slotIndex;
+		} else {
+			setLink(nextSlotIndex, previousField, slotIndex);
+		}
+	}
+	
+	/**
+	 * Remove the car parked in a slot.
+	 * <p>Must be called by the thread owning the slot, after the car is unregistered and before the slot is released.</p>
+	 * @param slotIndex the slot index, in the index
+	 * @return the arrival instant of the car, in milliseconds from the epoch
+	 */
+	synchronized long remove(int slotIndex) {
+		int previousSlotIndex = getLink(slotIndex, previousField);
+		int nextSlotIndex = getLink(slotIndex, nextField);
+		
+		if (previousSlotIndex == noSlot) {
+			this.oldestSlotIndex = nextSlotIndex;
+		} else {
+			setLink(previousSlotIndex, nextField, nextSlotIndex);
+		}
+		if (nextSlotIndex == noSlot) {
+			this.newestSlotIndex = previousSlotIndex;
+		} else {
+			setLink(nextSlotIndex, previousField, previousSlotIndex);
+		}
+		setLink(slotIndex, previousField, noSlot);
+		setLink(slotIndex, nextField, noSlot);
+		if (this.registrationNumbers != null) {
+			this.registrationNumbers[slotIndex] = null;
+		}
+		
+		return this.records.get(slotIndex, arrivalField);
+	}
+	
+	/**
+	 * Get the arrival instant of the car parked in a slot.
+	 * <p>Not synchronized, see the class documentation.</p>
+	 * @param slotIndex the slot index, in the index
+	 * @return the arrival instant, in milliseconds from the epoch
+	 */
+	long getArrivalEpochMillis(int slotIndex) {
+		return this.records.get(slotIndex, arrivalField);
+	}
+	
+	/**
+	 * Collect the cars arrived before an instant, oldest first.
+	 * @param untilEpochMillis the instant, in milliseconds from the epoch, excluded
+	 * @param parkedCars the list the cars are added to, not null
+	 */
+	synchronized void collectArrivedBefore(long untilEpochMillis, List<ParkedCar> parkedCars) {
+		for (int slotIndex = this.oldestSlotIndex; (slotIndex != noSlot) && (this.records.get(slotIndex, arrivalField) < untilEpochMillis);
+			slotIndex = getLink(slotIndex, nextField)) {
+			parkedCars.add(newParkedCar(slotIndex));
+		}
+	}
+	
+	/**
+	 * Collect the cars arrived before an instant and not collected yet by a cursor, oldest first.
+	 * <p>The cars collected are those arrived before the given instant (excluded) which either arrived after the previous instant of the cursor (included),
+	 * or were linked after the previous call, whatever their arrival: a car linked late, because its gate read the clock long before linking it or because
+	 * it waited for a slot, is collected by the next call. Reading resumes after the last car read through the cursor if it is still parked and no car
+	 * has been linked before it since.</p>
+	 * <p>An instant before the previous instant of the cursor, when the clock goes backward, collects nothing and leaves the cursor unchanged.</p>
+	 * @param cursor the cursor, moved forward to the last car read, to the given instant and to the cars linked so far, not null
+	 * @param untilEpochMillis the instant, in milliseconds from the epoch, excluded
+	 * @param parkedCars the list the cars are added to, not null
+	 */
+	synchronized void collectArrivedBefore(Cursor cursor, long untilEpochMillis, List<ParkedCar> parkedCars) {
+		if (untilEpochMillis < cursor.untilEpochMillis) {
+			return;
+		}
+		
+		int slotIndex = this.oldestSlotIndex;
+		
+		// The car of the cursor may have left, or left and been replaced by another car, and cars may have been linked before it
+		if ((cursor.slotIndex != noSlot) && isLinked(cursor.slotIndex) && (this.records.get(cursor.slotIndex, sequenceField) == cursor.slotSequence) &&
+			(this.lastOutOfOrderLinkSequence <= cursor.linksCount)) {
+			slotIndex = getLink(cursor.slotIndex, nextField);
+		}
+		for (; (slotIndex != noSlot) && (this.records.get(slotIndex, arrivalField) < untilEpochMillis); slotIndex = getLink(slotIndex, nextField)) {
+			if ((this.records.get(slotIndex, arrivalField) >= cursor.untilEpochMillis) || (this.records.get(slotIndex, sequenceField) > cursor.linksCount)) {
+				parkedCars.add(newParkedCar(slotIndex));
+			}
+			cursor.slotIndex = slotIndex;
+			cursor.slotSequence = this.records.get(slotIndex, sequenceField);
+		}
+		cursor.untilEpochMillis = untilEpochMillis;
+		cursor.linksCount = this.linksCount;
+	}
+	
+	/**
+	 * Tell whether a slot is linked, that is to say whether its car is in the index.
+	 * @param slotIndex the slot index
+	 * @return true if the car of the slot is in the index
+	 */
+	private boolean isLinked(int slotIndex) {
+		return (slotIndex == this.oldestSlotIndex) || (getLink(slotIndex, previousField) != noSlot);
+	}
+	
+	/**
+	 * Get a link of a slot record.
+	 * @param slotIndex the slot index
+	 * @param linkField the link field, the shift of the link in the links field
+	 * @return the linked slot index, {@link #noSlot} if there is none
+	 */
+	private int getLink(int slotIndex, int linkField) {
+		return (int) (this.records.get(slotIndex, linksField) >>> linkField) - 1;
+	}
+	
+	/**
+	 * Set a link of a slot record.
+	 * @param slotIndex the slot index
+	 * @param linkField the link field, the shift of the link in the links field
+	 * @param linkedSlotIndex the linked slot index, {@link #noSlot} if there is none
+	 */
+	private void setLink(int slotIndex, int linkField, int linkedSlotIndex) {
+		long links = this.records.get(slotIndex, linksField) & ~(0xFFFFFFFFL << linkField);
+		
+		this.records.set(slotIndex, linksField, links | ((linkedSlotIndex + 1L) << linkField));
+	}
+	
+	/**
+	 * Create the parked car of a slot.
+	 * <p>Decodes the registration number and gets the slot handle, which may allocate them.</p>
+	 * @param slotIndex the slot index, in the index
+	 * @return the parked car, not null
+	 */
+	private ParkedCar newParkedCar(int slotIndex) {
+		long code = this.records.get(slotIndex, codeField);
+		String registrationNumber = (code == RegistrationIndex.noCode ? this.registrationNumbers[slotIndex] : RegistrationIndex.decode(code));
+		
+		return new ParkedCar(registrationNumber, this.slotAllocator.slot(slotIndex), this.records.get(slotIndex, arrivalField));
+	}
+}
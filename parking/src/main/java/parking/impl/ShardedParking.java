@@ -0,0 +1,943 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+import parking.api.BillTicket;
+import parking.api.Car;
+import parking.api.Clock;
+import parking.api.LatencyHistogram;
+import parking.api.MetricsSnapshot;
+import parking.api.Occupancy;
+import parking.api.OverstayWatch;
+import parking.api.ParkedCar;
+import parking.api.Parking;
+import parking.api.ParkingEvent;
+import parking.api.ParkingException;
+import parking.api.ParkingMetrics;
+import parking.api.ParkingResult;
+import parking.api.PricingPolicy;
+import parking.api.RevenueSnapshot;
+import parking.api.Slot;
+
+/**
+ * The sharded Parking implementation.
+ * <p>A composite of several {@link ParkingImpl} shards, the slots of each car type being split evenly over the shards.
+ * Refer to {@link Parking#createSharded(Map, PricingPolicy, Clock, int)} for a complete documentation.</p>
+ * <p>Placement is lock-free: the number of available slots of each car type in each shard is kept in an atomic counter and a slot is reserved
+ * by decrementing the counter with a compare-and-set, starting from the home shard of the registration number (given by its hash) and spilling to the next shards
+ * if the counter is zero. The car is then parked in the shard where the slot was reserved, which cannot fail for lack of slot.</p>
+ * <p>A car parked in a shard is not known by the other shards: the parking keeps its own {@link RegistrationIndex} associating each parked car
+ * to its shard (and arrival car type), which is the only source of truth about which car is parked. A car is registered there before being placed,
+ * so that the same car cannot be parked concurrently in two different shards.</p>
+ */
+final class ShardedParking implements Parking {
+	/* Car.Type.values() returns a new array on each call */
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	/* Value associated to a registration number in the index while the car is being placed in a shard */
+	static private final long placingValue = Long.MAX_VALUE;
+	
+	/* All members below are safe for concurrent accesses:
+	 *   shards are thread safe and never modified after construction
+	 *   availableSlotsCounts holds one atomic counter per shard and car type, see availableSlotsCountPosition(int, Car.Type)
+	 *   slotsCarTypes and slotsCounts are never modified after construction
+	 *   registrationNumberToShard is the only source of truth about which car is parked, stripes of the index are synchronized on their own
+	 *   carTypeToSlotRequests is never modified after construction, each queue is synchronized on its own
+	 *   slotRequestsCounts holds one atomic counter per car type, mirroring the size of its queue so that releasing a slot does not lock the queue
+	 *   metrics and shardedMetrics are thread safe
+	 *   eventRing is volatile, only set once, and thread safe */
+	private final ParkingImpl[] shards;
+	private final AtomicIntegerArray availableSlotsCounts;
+	private final boolean[] slotsCarTypes;
+	private final int[] slotsCounts;
+	private final RegistrationIndex registrationNumberToShard;
+	private final Map<Car.Type, Deque<SlotRequest>> carTypeToSlotRequests;
+	private final AtomicIntegerArray slotRequestsCounts;
+	private final MetricsRecorder metrics;
+	private final ParkingMetrics shardedMetrics;
+	private volatile EventRing eventRing;
+	
+	/**
+	 * The Class ShardedMetrics.
+	 * <p>The metrics of the sharded parking: the metrics recorded by the parking itself merged with the ones recorded by its shards.</p>
+	 * <p>The parking records the latency of the {@link ParkingMetrics.Operation#PARK}, {@link ParkingMetrics.Operation#UNPARK_AND_BILL} and
+	 * {@link ParkingMetrics.Operation#IS_PARKED} operations, as well as the rejections it decides by itself; the shards record everything else.
+	 * The latencies of the operations forwarded to the shards are measured by the parking only, so that each call is recorded once.</p>
+	 */
+	private final class ShardedMetrics implements ParkingMetrics {
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isEnabled() {
+			return ShardedParking.this.metrics.isEnabled();
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void setEnabled(boolean enabled) {
+			ShardedParking.this.metrics.setEnabled(enabled);
+			for (ParkingImpl shard: ShardedParking.this.shards) {
+				shard.metrics().setEnabled(enabled);
+			}
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public MetricsSnapshot snapshot() {
+			MetricsSnapshot snapshot = ShardedParking.this.metrics.snapshot();
+			
+			for (ParkingImpl shard: ShardedParking.this.shards) {
+				MetricsSnapshot shardSnapshot = shard.metrics().snapshot();
+				Map<ParkingMetrics.Counter, Long> counterToCount = new EnumMap<ParkingMetrics.Counter, Long>(ParkingMetrics.Counter.class);
+				Map<ParkingMetrics.Operation, LatencyHistogram> operationToLatency = new EnumMap<ParkingMetrics.Operation, LatencyHistogram>(ParkingMetrics.Operation.class);
+				
+				for (ParkingMetrics.Counter counter: ParkingMetrics.Counter.values()) {
+					counterToCount.put(counter, shardSnapshot.getCount(counter));
+				}
+				operationToLatency.put(ParkingMetrics.Operation.BILL, shardSnapshot.getLatency(ParkingMetrics.Operation.BILL));
+				operationToLatency.put(ParkingMetrics.Operation.SLOT_ALLOCATOR_LOCK, shardSnapshot.getLatency(ParkingMetrics.Operation.SLOT_ALLOCATOR_LOCK));
+				snapshot = snapshot.merge(new MetricsSnapshot(counterToCount, operationToLatency));
+			}
+			
+			return snapshot;
+		}
+	}
+	
+	/**
+	 * Instantiates a new sharded parking.
+	 * <p>Refer to {@link Parking#createSharded(Map, PricingPolicy, Clock, int)} for a complete documentation.</p>
+	 * @see Parking#createSharded(Map, PricingPolicy, Clock, int)
+	 * @param carTypeToSlotsCount the number of slots for each car type, not null
+	 * @param pricingPolicy the pricing policy, not null
+	 * @param clock the clock, can be null
+	 * @param shardsCount the number of shards, strictly positive
+	 */
+	ShardedParking(Map<Car.Type, Integer> carTypeToSlotsCount, PricingPolicy pricingPolicy, Clock clock, int shardsCount) {
+		int totalSlotsCount = 0;
+		
+		this.shards = new ParkingImpl[shardsCount];
+		this.availableSlotsCounts = new AtomicIntegerArray(shardsCount * carTypes.length);
+		this.slotsCarTypes = new boolean[carTypes.length];
+		this.slotsCounts = new int[carTypes.length];
+		
+		for (int shardIndex = 0; shardIndex < shardsCount; shardIndex++) {
+			Map<Car.Type, Integer> shardCarTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+			Map<Car.Type, Integer> shardCarTypeToFirstSlotIndex = new EnumMap<Car.Type, Integer>(Car.Type.class);
+			
+			for (Map.Entry<Car.Type, Integer> catTypeAndSlotsCount: carTypeToSlotsCount.entrySet()) {
+				Car.Type carType = catTypeAndSlotsCount.getKey();
+				int slotsCount = Math.max(catTypeAndSlotsCount.getValue().intValue(), 0);
+				
+				// The first shards get one more slot when the slots count is not a multiple of the shards count
+				int shardSlotsCount = slotsCount / shardsCount + (shardIndex < slotsCount % shardsCount ? 1 : 0);
+				int shardFirstSlotIndex = shardIndex * (slotsCount / shardsCount) + Math.min(shardIndex, slotsCount % shardsCount);
+				
+				shardCarTypeToSlotsCount.put(carType, shardSlotsCount);
+				shardCarTypeToFirstSlotIndex.put(carType, shardFirstSlotIndex);
+				this.availableSlotsCounts.set(availableSlotsCountPosition(shardIndex, carType), shardSlotsCount);
+				this.slotsCarTypes[carType.ordinal()] = true;
+				this.slotsCounts[carType.ordinal()] += shardSlotsCount;
+				totalSlotsCount += shardSlotsCount;
+			}
+			
+			this.shards[shardIndex] = new ParkingImpl(shardCarTypeToSlotsCount, shardCarTypeToFirstSlotIndex, pricingPolicy, clock);
+		}
+		
+		// There cannot be more parked cars than slots
+		this.registrationNumberToShard = new RegistrationIndex(totalSlotsCount);
+		this.carTypeToSlotRequests = new EnumMap<Car.Type, Deque<SlotRequest>>(Car.Type.class);
+		for (Car.Type carType: carTypes) {
+			this.carTypeToSlotRequests.put(carType, new ArrayDeque<SlotRequest>());
+		}
+		this.slotRequestsCounts = new AtomicIntegerArray(carTypes.length);
+		this.metrics = new MetricsRecorder();
+		this.shardedMetrics = new ShardedMetrics();
+		this.eventRing = null;
+	}
+	
+	/**
+	 * Get the position of the available slots counter of a shard and a car type.
+	 * @param shardIndex the shard index
+	 * @param carType the car type, not null
+	 * @return the position in the counters array
+	 */
+	static private int availableSlotsCountPosition(int shardIndex, Car.Type carType) {
+		return shardIndex * carTypes.length + carType.ordinal();
+	}
+	
+	/**
+	 * Pack a shard index and an arrival car type in a value of the registration index.
+	 * @param shardIndex the shard index
+	 * @param arrivalCarType the arrival car type, not null
+	 * @return the value, positive or zero
+	 */
+	static private long packShard(int shardIndex, Car.Type arrivalCarType) {
+		return ((long) shardIndex << Integer.SIZE) | arrivalCarType.ordinal();
+	}
+	
+	/**
+	 * Get the shard index of a value packed by {@link #packShard(int, Car.Type)}.
+	 * @param packedShard the packed shard
+	 * @return the shard index
+	 */
+	static private int unpackShardIndex(long packedShard) {
+		return (int) (packedShard >>> Integer.SIZE);
+	}
+	
+	/**
+	 * Get the arrival car type of a value packed by {@link #packShard(int, Car.Type)}.
+	 * @param packedShard the packed shard
+	 * @return the arrival car type, not null
+	 */
+	static private Car.Type unpackCarType(long packedShard) {
+		return carTypes[(int) packedShard];
+	}
+	
+	/**
+	 * Reserve a slot, without locking anything, in the home shard of a registration number or in the next shards if the home shard has no slot left.
+	 * @param registrationNumber the registration number, can be null
+	 * @param carType the car type, not null
+	 * @return the index of the shard in which the slot is reserved, -1 if no shard has a slot left for the car type
+	 */
+	private int reserveSlot(String registrationNumber, Car.Type carType) {
+		int homeShardIndex = (RegistrationIndex.hash(registrationNumber) & Integer.MAX_VALUE) % this.shards.length;
+		
+		for (int shardOffset = 0; shardOffset < this.shards.length; shardOffset++) {
+			int shardIndex = (homeShardIndex + shardOffset) % this.shards.length;
+			int position = availableSlotsCountPosition(shardIndex, carType);
+			
+			for (int availableSlotsCount = this.availableSlotsCounts.get(position); availableSlotsCount > 0; availableSlotsCount = this.availableSlotsCounts.get(position)) {
+				if (this.availableSlotsCounts.compareAndSet(position, availableSlotsCount, availableSlotsCount - 1)) {
+					return shardIndex;
+				}
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Give back a slot reserved by {@link #reserveSlot(String, Car.Type)}, or released by a shard.
+	 * <p>If cars are waiting for a slot of the car type, the slot is reserved again for the first of them, which is parked in the current thread.</p>
+	 * @param shardIndex the shard index
+	 * @param carType the car type, not null
+	 */
+	private void releaseSlot(int shardIndex, Car.Type carType) {
+		this.availableSlotsCounts.incrementAndGet(availableSlotsCountPosition(shardIndex, carType));
+		// Either the waiting car sees the slot when queued, or this thread sees the car once the slot is given back
+		if (this.slotRequestsCounts.get(carType.ordinal()) != 0) {
+			grantSlotRequests(carType);
+		}
+	}
+	
+	/**
+	 * Reserve the available slots of a car type for the cars waiting for them, in the order they have been queued, and park them.
+	 * @param carType the car type, not null
+	 */
+	private void grantSlotRequests(Car.Type carType) {
+		Deque<SlotRequest> slotRequests = this.carTypeToSlotRequests.get(carType);
+		
+		while (true) {
+			SlotRequest slotRequest;
+			int shardIndex;
+			
+			synchronized (slotRequests) {
+				if (slotRequests.isEmpty()) {
+					return;
+				}
+				
+				shardIndex = reserveSlot(null, carType);
+				if (shardIndex < 0) {
+					return;
+				}
+				
+				slotRequest = SlotRequest.pollGranted(slotRequests);
+				this.slotRequestsCounts.set(carType.ordinal(), slotRequests.size());
+				if (slotRequest == null) {
+					this.availableSlotsCounts.incrementAndGet(availableSlotsCountPosition(shardIndex, carType));
+					return;
+				}
+			}
+			slotRequest.occupy(shardIndex);
+		}
+	}
+	
+	/**
+	 * Remove a withdrawn request from the queue of its car type.
+	 * @param carType the car type, not null
+	 * @param slotRequest the request, not null
+	 */
+	private void withdrawSlotRequest(Car.Type carType, SlotRequest slotRequest) {
+		Deque<SlotRequest> slotRequests = this.carTypeToSlotRequests.get(carType);
+		
+		synchronized (slotRequests) {
+			slotRequests.removeFirstOccurrence(slotRequest);
+			this.slotRequestsCounts.set(carType.ordinal(), slotRequests.size());
+		}
+	}
+	
+	/**
+	 * Register a car being placed and reserve a slot for it.
+	 * @param registrationNumber the car registration number, can be null
+	 * @param arrivalCarType the car arrival type, can be null
+	 * @return the index of the shard in which the slot is reserved, -1 if no shard has a slot left for the car type, in which case the car is not registered
+	 * @throws ParkingException if the car is already parked or if the parking has no slot for the car type
+	 */
+	private int registerAndReserveSlot(String registrationNumber, Car.Type arrivalCarType) throws ParkingException {
+		if (this.registrationNumberToShard.putIfAbsent(registrationNumber, placingValue) != RegistrationIndex.absentValue) {
+			this.metrics.increment(ParkingMetrics.Counter.ALREADY_PARKED);
+			throw ParkingImpl.newAlreadyParkedException(registrationNumber);
+		}
+		if ((arrivalCarType == null) || !this.slotsCarTypes[arrivalCarType.ordinal()]) {
+			this.registrationNumberToShard.remove(registrationNumber, placingValue);
+			this.metrics.increment(ParkingMetrics.Counter.UNKNOWN_CAR_TYPE);
+			throw ParkingImpl.newUnknownCarTypeException(arrivalCarType);
+		}
+		
+		// Cars waiting for a slot of the car type are served first
+		int shardIndex = (this.slotRequestsCounts.get(arrivalCarType.ordinal()) == 0 ? reserveSlot(registrationNumber, arrivalCarType) : -1);
+		
+		if (shardIndex < 0) {
+			this.registrationNumberToShard.remove(registrationNumber, placingValue);
+			this.metrics.increment(ParkingMetrics.Counter.NO_SLOT);
+		}
+		
+		return shardIndex;
+	}
+	
+	/**
+	 * Complete the placement of a car registered by {@link #registerAndReserveSlot(String, Car.Type)}.
+	 * @param registrationNumber the car registration number, can be null
+	 * @param arrivalCarType the car arrival type, not null
+	 * @param shardIndex the index of the shard in which the slot is reserved
+	 * @param parked true if the car has been parked in the shard, false if it has not
+	 */
+	private void completePlacement(String registrationNumber, Car.Type arrivalCarType, int shardIndex, boolean parked) {
+		if (parked) {
+			this.registrationNumberToShard.replace(registrationNumber, placingValue, packShard(shardIndex, arrivalCarType));
+		} else {
+			releaseSlot(shardIndex, arrivalCarType);
+			this.registrationNumberToShard.remove(registrationNumber, placingValue);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String park(Car car) throws ParkingException {
+		Slot slot = parkAndGetSlot(car);
+		
+		return (slot == null ? null : slot.getId());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Slot parkAndGetSlot(Car car) throws ParkingException {
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			String registrationNumber = car.getRegistrationNumber();
+			Car.Type arrivalCarType = car.getType();
+			int shardIndex = registerAndReserveSlot(registrationNumber, arrivalCarType);
+			
+			if (shardIndex < 0) {
+				return null;
+			}
+			
+			Slot slot = null;
+			
+			try {
+				// The car is placed under the type its slot has been reserved for, even if its type changes in the meantime
+				slot = this.shards[shardIndex].parkAndGetSlot(car, arrivalCarType);
+			} finally {
+				// The slot is null if the shard has thrown
+				completePlacement(registrationNumber, arrivalCarType, shardIndex, slot != null);
+			}
+			
+			return slot;
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.PARK, startNanos);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String park(Car car, Duration timeout) throws ParkingException, InterruptedException {
+		return requestSlot(car).await(timeout);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<String> parkWhenAvailable(Car car, Duration timeout) {
+		try {
+			SlotRequest slotRequest = requestSlot(car);
+			
+			slotRequest.timeOutAfter(timeout);
+			
+			return slotRequest;
+		} catch (ParkingException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+	
+	/**
+	 * Queue the request of a car for a slot of its type.
+	 * <p>The car is parked at once if a slot is available and no other car is waiting.</p>
+	 * @param car the car, not null
+	 * @return the request, queued or already completed
+	 * @throws ParkingException if the car is already parked or if the parking has no slot for the car type
+	 */
+	private SlotRequest requestSlot(Car car) throws ParkingException {
+		String registrationNumber = car.getRegistrationNumber();
+		Car.Type arrivalCarType = car.getType();
+		
+		if (this.registrationNumberToShard.contains(registrationNumber)) {
+			this.metrics.increment(ParkingMetrics.Counter.ALREADY_PARKED);
+			throw ParkingImpl.newAlreadyParkedException(registrationNumber);
+		}
+		if ((arrivalCarType == null) || !this.slotsCarTypes[arrivalCarType.ordinal()]) {
+			this.metrics.increment(ParkingMetrics.Counter.UNKNOWN_CAR_TYPE);
+			throw ParkingImpl.newUnknownCarTypeException(arrivalCarType);
+		}
+		
+		Deque<SlotRequest> slotRequests = this.carTypeToSlotRequests.get(arrivalCarType);
+		SlotRequest slotRequest = new SlotRequest(shardIndex -> occupyReservedSlot(car, registrationNumber, arrivalCarType, shardIndex),
+			request -> withdrawSlotRequest(arrivalCarType, request), this.metrics);
+		
+		synchronized (slotRequests) {
+			slotRequests.addLast(slotRequest);
+			this.slotRequestsCounts.set(arrivalCarType.ordinal(), slotRequests.size());
+		}
+		grantSlotRequests(arrivalCarType);
+		
+		return slotRequest;
+	}
+	
+	/**
+	 * Register a car waiting for a slot and park it in the shard in which a slot has been reserved for it.
+	 * @param car the car, not null
+	 * @param registrationNumber the car registration number, can be null
+	 * @param arrivalCarType the car arrival type, not null
+	 * @param shardIndex the index of the shard in which the slot is reserved, the slot being given back if the car cannot be parked
+	 * @return the slot id, not null
+	 * @throws ParkingException if the car has been parked through another gate in the meantime
+	 */
+	private String occupyReservedSlot(Car car, String registrationNumber, Car.Type arrivalCarType, int shardIndex) throws ParkingException {
+		if (this.registrationNumberToShard.putIfAbsent(registrationNumber, placingValue) != RegistrationIndex.absentValue) {
+			releaseSlot(shardIndex, arrivalCarType);
+			this.metrics.increment(ParkingMetrics.Counter.ALREADY_PARKED);
+			throw ParkingImpl.newAlreadyParkedException(registrationNumber);
+		}
+		
+		Slot slot = null;
+		
+		try {
+			slot = this.shards[shardIndex].parkAndGetSlot(car, arrivalCarType);
+		} finally {
+			completePlacement(registrationNumber, arrivalCarType, shardIndex, slot != null);
+		}
+		
+		return (slot == null ? null : slot.getId());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float unparkAndBill(Car car) throws ParkingException {
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			String registrationNumber = car.getRegistrationNumber();
+			long packedShard = this.registrationNumberToShard.get(registrationNumber);
+			
+			// A car still being placed is not parked yet
+			if ((packedShard == RegistrationIndex.absentValue) || (packedShard == placingValue) || !this.registrationNumberToShard.remove(registrationNumber, packedShard)) {
+				this.metrics.increment(ParkingMetrics.Counter.NOT_PARKED);
+				throw ParkingImpl.newNotParkedException(registrationNumber);
+			}
+			
+			int shardIndex = unpackShardIndex(packedShard);
+			
+			try {
+				return this.shards[shardIndex].unparkAndBill(car);
+			} finally {
+				// The shard releases the slot even if billing fails
+				releaseSlot(shardIndex, unpackCarType(packedShard));
+			}
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.UNPARK_AND_BILL, startNanos);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BillTicket unpark(Car car) throws ParkingException {
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			String registrationNumber = car.getRegistrationNumber();
+			long packedShard = this.registrationNumberToShard.get(registrationNumber);
+			
+			// A car still being placed is not parked yet
+			if ((packedShard == RegistrationIndex.absentValue) || (packedShard == placingValue) || !this.registrationNumberToShard.remove(registrationNumber, packedShard)) {
+				this.metrics.increment(ParkingMetrics.Counter.NOT_PARKED);
+				throw ParkingImpl.newNotParkedException(registrationNumber);
+			}
+			
+			int shardIndex = unpackShardIndex(packedShard);
+			
+			try {
+				return this.shards[shardIndex].unpark(car);
+			} finally {
+				releaseSlot(shardIndex, unpackCarType(packedShard));
+			}
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.UNPARK, startNanos);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Tickets are billed by the shard which issued them.</p>
+	 */
+	@Override
+	public float bill(BillTicket ticket) throws ParkingException {
+		int shardIndex = issuingShardIndex(ticket);
+		
+		if (shardIndex < 0) {
+			this.metrics.increment(ParkingMetrics.Counter.BILLING_FAILED);
+			throw ParkingImpl.newForeignTicketException(ticket.getRegistrationNumber());
+		}
+		
+		return this.shards[shardIndex].bill(ticket);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Tickets are billed shard by shard, with a single call to {@link ParkingImpl#billAll(Collection)} per shard for the tickets it issued.</p>
+	 */
+	@Override
+	public List<ParkingResult<Float>> billAll(Collection<BillTicket> tickets) {
+		List<BillTicket> ticketsList = new ArrayList<BillTicket>(tickets);
+		int ticketsCount = ticketsList.size();
+		List<List<Integer>> shardToPositions = newShardToPositions();
+		List<ParkingResult<Float>> results = new ArrayList<ParkingResult<Float>>(Collections.<ParkingResult<Float>>nCopies(ticketsCount, null));
+		
+		for (int position = 0; position < ticketsCount; position++) {
+			BillTicket ticket = ticketsList.get(position);
+			int shardIndex = issuingShardIndex(ticket);
+			
+			if (shardIndex < 0) {
+				this.metrics.increment(ParkingMetrics.Counter.BILLING_FAILED);
+				results.set(position, ParkingResult.<Float>failure(ticket.getCar(), ParkingImpl.newForeignTicketException(ticket.getRegistrationNumber())));
+			} else {
+				shardToPositions.get(shardIndex).add(position);
+			}
+		}
+		for (int shardIndex = 0; shardIndex < this.shards.length; shardIndex++) {
+			List<Integer> positions = shardToPositions.get(shardIndex);
+			
+			if (positions.isEmpty()) {
+				continue;
+			}
+			
+			List<BillTicket> shardTickets = new ArrayList<BillTicket>(positions.size());
+			
+			for (int position: positions) {
+				shardTickets.add(ticketsList.get(position));
+			}
+			
+			List<ParkingResult<Float>> shardResults = this.shards[shardIndex].billAll(shardTickets);
+			
+			for (int shardPosition = 0; shardPosition < positions.size(); shardPosition++) {
+				results.set(positions.get(shardPosition), shardResults.get(shardPosition));
+			}
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Find the shard which issued a ticket.
+	 * @param ticket the ticket, not null
+	 * @return the index of the shard, -1 if the ticket has not been issued by any shard
+	 */
+	private int issuingShardIndex(BillTicket ticket) {
+		for (int shardIndex = 0; shardIndex < this.shards.length; shardIndex++) {
+			if (this.shards[shardIndex].hasIssued(ticket)) {
+				return shardIndex;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Cars are placed one by one, then parked shard by shard with a single call to {@link ParkingImpl#parkAll(Collection, Car.Type[])} per shard,
+	 * under the types their slots have been reserved for.</p>
+	 */
+	@Override
+	public List<ParkingResult<String>> parkAll(Collection<? extends Car> cars) {
+		List<Car> carsList = new ArrayList<Car>(cars);
+		int carsCount = carsList.size();
+		String[] registrationNumbers = new String[carsCount];
+		Car.Type[] arrivalCarTypes = new Car.Type[carsCount];
+		List<List<Integer>> shardToPositions = newShardToPositions();
+		List<ParkingResult<String>> results = new ArrayList<ParkingResult<String>>(Collections.<ParkingResult<String>>nCopies(carsCount, null));
+		
+		// First pass registers the cars and reserves their slots without locking anything
+		for (int position = 0; position < carsCount; position++) {
+			Car car = carsList.get(position);
+			
+			try {
+				registrationNumbers[position] = car.getRegistrationNumber();
+				arrivalCarTypes[position] = car.getType();
+				
+				int shardIndex = registerAndReserveSlot(registrationNumbers[position], arrivalCarTypes[position]);
+				
+				if (shardIndex < 0) {
+					results.set(position, ParkingResult.<String>success(car, null));
+				} else {
+					shardToPositions.get(shardIndex).add(position);
+				}
+			} catch (ParkingException | RuntimeException e) {
+				results.set(position, ParkingResult.<String>failure(car, e));
+			}
+		}
+		
+		// Second pass parks the cars shard by shard
+		for (int shardIndex = 0; shardIndex < this.shards.length; shardIndex++) {
+			List<Integer> positions = shardToPositions.get(shardIndex);
+			
+			if (positions.isEmpty()) {
+				continue;
+			}
+			
+			List<ParkingResult<String>> shardResults = null;
+			RuntimeException shardException = null;
+			
+			try {
+				shardResults = this.shards[shardIndex].parkAll(positionsToCars(carsList, positions), positionsToCarTypes(arrivalCarTypes, positions));
+			} catch (RuntimeException e) {
+				shardException = e;
+			}
+			
+			for (int shardPosition = 0; shardPosition < positions.size(); shardPosition++) {
+				int position = positions.get(shardPosition);
+				ParkingResult<String> result = (shardResults == null ? ParkingResult.<String>failure(carsList.get(position), shardException) : shardResults.get(shardPosition));
+				
+				completePlacement(registrationNumbers[position], arrivalCarTypes[position], shardIndex, result.getValue() != null);
+				results.set(position, result);
+			}
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Cars are unregistered one by one, then unparked and billed shard by shard with a single call to {@link ParkingImpl#unparkAndBillAll(Collection)} per shard.</p>
+	 */
+	@Override
+	public List<ParkingResult<Float>> unparkAndBillAll(Collection<? extends Car> cars) {
+		List<Car> carsList = new ArrayList<Car>(cars);
+		int carsCount = carsList.size();
+		String[] registrationNumbers = new String[carsCount];
+		long[] packedShards = new long[carsCount];
+		List<List<Integer>> shardToPositions = newShardToPositions();
+		List<ParkingResult<Float>> results = new ArrayList<ParkingResult<Float>>(Collections.<ParkingResult<Float>>nCopies(carsCount, null));
+		
+		// First pass unregisters the cars
+		for (int position = 0; position < carsCount; position++) {
+			Car car = carsList.get(position);
+			
+			try {
+				registrationNumbers[position] = car.getRegistrationNumber();
+				packedShards[position] = this.registrationNumberToShard.get(registrationNumbers[position]);
+				
+				if ((packedShards[position] == RegistrationIndex.absentValue) || (packedShards[position] == placingValue) ||
+					!this.registrationNumberToShard.remove(registrationNumbers[position], packedShards[position])) {
+					this.metrics.increment(ParkingMetrics.Counter.NOT_PARKED);
+					throw ParkingImpl.newNotParkedException(registrationNumbers[position]);
+				}
+				shardToPositions.get(unpackShardIndex(packedShards[position])).add(position);
+			} catch (ParkingException | RuntimeException e) {
+				results.set(position, ParkingResult.<Float>failure(car, e));
+			}
+		}
+		
+		// Second pass unparks and bills the cars shard by shard
+		for (int shardIndex = 0; shardIndex < this.shards.length; shardIndex++) {
+			List<Integer> positions = shardToPositions.get(shardIndex);
+			
+			if (positions.isEmpty()) {
+				continue;
+			}
+			
+			List<ParkingResult<Float>> shardResults;
+			
+			try {
+				shardResults = this.shards[shardIndex].unparkAndBillAll(positionsToCars(carsList, positions));
+			} catch (RuntimeException e) {
+				// No car has been unparked by the shard, register them back
+				for (int position: positions) {
+					this.registrationNumberToShard.putIfAbsent(registrationNumbers[position], packedShards[position]);
+					results.set(position, ParkingResult.<Float>failure(carsList.get(position), e));
+				}
+				continue;
+			}
+			
+			for (int shardPosition = 0; shardPosition < positions.size(); shardPosition++) {
+				int position = positions.get(shardPosition);
+				
+				releaseSlot(shardIndex, unpackCarType(packedShards[position]));
+				results.set(position, shardResults.get(shardPosition));
+			}
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Create the lists of the batch positions of the cars handled by each shard.
+	 * @return the lists, one empty list per shard
+	 */
+	private List<List<Integer>> newShardToPositions() {
+		List<List<Integer>> shardToPositions = new ArrayList<List<Integer>>(this.shards.length);
+		
+		for (int shardIndex = 0; shardIndex < this.shards.length; shardIndex++) {
+			shardToPositions.add(new ArrayList<Integer>());
+		}
+		
+		return shardToPositions;
+	}
+	
+	/**
+	 * Get the cars at given positions of a batch.
+	 * @param cars the batch cars, not null
+	 * @param positions the positions, not null
+	 * @return the cars, in the positions order
+	 */
+	static private List<Car> positionsToCars(List<Car> cars, List<Integer> positions) {
+		List<Car> positionsCars = new ArrayList<Car>(positions.size());
+		
+		for (int position: positions) {
+			positionsCars.add(cars.get(position));
+		}
+		
+		return positionsCars;
+	}
+	
+	/**
+	 * Get the car types at some positions of a batch.
+	 * @param carTypes the car types of the batch, not null
+	 * @param positions the positions, not null
+	 * @return the car types at the positions, in the same order, not null
+	 */
+	static private Car.Type[] positionsToCarTypes(Car.Type[] carTypes, List<Integer> positions) {
+		Car.Type[] positionsCarTypes = new Car.Type[positions.size()];
+		
+		for (int index = 0; index < positionsCarTypes.length; index++) {
+			positionsCarTypes[index] = carTypes[positions.get(index)];
+		}
+		
+		return positionsCarTypes;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isParked(Car car) {
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			long packedShard = this.registrationNumberToShard.get(car.getRegistrationNumber());
+			
+			return ((packedShard != RegistrationIndex.absentValue) && (packedShard != placingValue));
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.IS_PARKED, startNanos);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Sums the atomic available slots counters of the car type over all the shards.</p>
+	 */
+	@Override
+	public int availableSlots(Car.Type carType) {
+		int availableSlotsCount = 0;
+		
+		for (int shardIndex = 0; shardIndex < this.shards.length; shardIndex++) {
+			availableSlotsCount += this.availableSlotsCounts.get(availableSlotsCountPosition(shardIndex, carType));
+		}
+		
+		return availableSlotsCount;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int occupiedSlots(Car.Type carType) {
+		return this.slotsCounts[carType.ordinal()] - availableSlots(carType);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Occupancy occupancy() {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		Map<Car.Type, Integer> carTypeToAvailableSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		
+		for (Car.Type carType: carTypes) {
+			if (this.slotsCarTypes[carType.ordinal()]) {
+				carTypeToSlotsCount.put(carType, this.slotsCounts[carType.ordinal()]);
+				carTypeToAvailableSlotsCount.put(carType, availableSlots(carType));
+			}
+		}
+		
+		return new Occupancy(carTypeToSlotsCount, carTypeToAvailableSlotsCount);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The shards are copied one after the other. As slot ids are unique across shards, the snapshot holds the slots of the parking as a whole:
+	 * it is restored as a non sharded parking whose cars keep their slot ids.</p>
+	 */
+	@Override
+	public void snapshot(Path snapshotPath) throws IOException {
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		int occupiedSlotsCount = 0;
+		
+		for (Car.Type carType: carTypes) {
+			if (this.slotsCarTypes[carType.ordinal()]) {
+				carTypeToSlotsCount.put(carType, this.slotsCounts[carType.ordinal()]);
+				occupiedSlotsCount += occupiedSlots(carType);
+			}
+		}
+		
+		Snapshot snapshot = new Snapshot(carTypeToSlotsCount, occupiedSlotsCount);
+		
+		for (ParkingImpl shard: this.shards) {
+			shard.addTo(snapshot);
+		}
+		snapshot.write(snapshotPath);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ParkingMetrics metrics() {
+		return this.shardedMetrics;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The snapshots of the shards are taken one after the other, at the same instant, and merged.</p>
+	 */
+	@Override
+	public RevenueSnapshot revenue() {
+		long nowEpochMillis = this.shards[0].getClock().millis();
+		RevenueSnapshot snapshot = this.shards[0].revenue(nowEpochMillis);
+		
+		for (int shardIndex = 1; shardIndex < this.shards.length; shardIndex++) {
+			snapshot = snapshot.merge(this.shards[shardIndex].revenue(nowEpochMillis));
+		}
+		
+		return snapshot;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The shards publish their events to a single ring, so that the events of the parking as a whole are numbered in the order they are published.</p>
+	 */
+	@Override
+	public Flow.Publisher<ParkingEvent> events() {
+		EventRing eventRing = this.eventRing;
+		
+		if (eventRing == null) {
+			synchronized (this) {
+				if (this.eventRing == null) {
+					EventRing newEventRing = new EventRing(EventRing.defaultCapacity);
+					
+					for (ParkingImpl shard: this.shards) {
+						shard.publishTo(newEventRing);
+					}
+					this.eventRing = newEventRing;
+				}
+				eventRing = this.eventRing;
+			}
+		}
+		
+		return eventRing;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>The cars of the shards are read one after the other.</p>
+	 */
+	@Override
+	public List<ParkedCar> parkedBefore(Instant instant) {
+		List<ParkedCar> parkedCars = new ArrayList<ParkedCar>();
+		
+		for (ParkingImpl shard: this.shards) {
+			parkedCars.addAll(shard.parkedBefore(instant));
+		}
+		parkedCars.sort(Comparator.comparingLong(ParkedCar::getArrivalEpochMillis));
+		
+		return parkedCars;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>A single watch thread reads the cars of all the shards, so that the listener is called by a single thread, oldest car first.</p>
+	 */
+	@Override
+	public OverstayWatch watchOverstays(Duration maxDuration, Consumer<? super ParkedCar> listener) {
+		List<SessionIndex> sessionIndexes = new ArrayList<SessionIndex>();
+		
+		for (ParkingImpl shard: this.shards) {
+			sessionIndexes.addAll(shard.getSessionIndexes());
+		}
+		
+		return new OverstayWatcher(sessionIndexes, this.shards[0].getClock(), maxDuration, listener).start();
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import parking.api.Car;
+import parking.api.Slot;
+
+/**
+ * The slot allocator of a single car type.
+ * <p>Slots are identified by their index, from 0 (included) to the number of slots (excluded). The handles of the slots may be numbered from another
+ * first index, so that several allocators (one per shard of a {@link ShardedParking}) can share the same car type without sharing slot ids.
+ * Available slot indexes are kept in an array used as a stack, so that both {@link #acquire()} and {@link #release(int)} are O(1)
+ * whatever the number of slots and however full the parking is. The last released slot is the first one to be acquired again.</p>
+ * <p>{@link Slot} handles are only created the first time a slot is handed out by {@link #slot(int)} and then reused,
+ * so that a large parking does not pay for one object per slot upfront. They may also not be kept at all, a new handle being created on each call,
+ * so that a full parking of millions of slots does not keep millions of handles on the heap.</p>
+ * <p>Cars may wait for a slot: their {@link SlotRequest} is queued by {@link #request(SlotRequest)} when no slot is available, and each released slot
+ * is then granted to the first waiting request instead of being made available, so that waiting cars are served in the order they arrived
+ * and no car arriving later can take their slot. The granted request occupies its slot out of the allocator lock.</p>
+ * <p>Allocator is thread safe, each allocator being synchronized on its own. The number of available slots is a volatile field, only written
+ * under the allocator lock, so that it can be read by {@link #getAvailableSlotsCount()} without locking.</p>
+ */
+final class SlotAllocator {
+	private final Car.Type carType;
+	private final int firstSlotIndex;
+	private final int[] availableSlotIndexes;
+	private volatile int availableSlotsCount;
+	
+	/* Lazily filled by slot(int) without synchronization: this is harmless as Slot is immutable from the outside, null if handles are not kept */
+	private final Slot[] slots;
+	
+	/* Guarded by the allocator lock, only holds requests while no slot is available */
+	private final Deque<SlotRequest> slotRequests;
+	
+	/**
+	 * Instantiates a new slot allocator with all its slots available.
+	 * @param carType the type of car the slots are dedicated to, not null
+	 * @param slotsCount the number of slots, considered to be zero if negative
+	 */
+	SlotAllocator(Car.Type carType, int slotsCount) {
+		this(carType, 0, slotsCount, true);
+	}
+	
+	/**
+	 * Instantiates a new slot allocator with all its slots available and handles numbered from a given index.
+	 * @param carType the type of car the slots are dedicated to, not null
+	 * @param firstSlotIndex the index of the handle of the slot 0, positive or zero
+	 * @param slotsCount the number of slots, considered to be zero if negative
+	 * @param keepSlots true to keep the handles created by {@link #slot(int)}, false to create a new handle on each call
+	 */
+	SlotAllocator(Car.Type carType, int firstSlotIndex, int slotsCount, boolean keepSlots) {
+		this.carType = carType;
+		this.firstSlotIndex = firstSlotIndex;
+		this.availableSlotIndexes = new int[Math.max(slotsCount, 0)];
+		this.availableSlotsCount = this.availableSlotIndexes.length;
+		this.slots = (keepSlots ? new Slot[this.availableSlotIndexes.length] : null);
+		this.slotRequests = new ArrayDeque<SlotRequest>();
+		
+		// Fill the stack so that slot 0 is the first one to be acquired
+		for (int position = 0; position < this.availableSlotsCount; position++) {
+			this.availableSlotIndexes[position] = this.availableSlotsCount - 1 - position;
+		}
+	}
+	
+	/**
+	 * Take an available slot.
+	 * @return the slot index, -1 if there is no available slot
+	 */
+	synchronized int acquire() {
+		if (this.availableSlotsCount == 0) {
+			return -1;
+		}
+		
+		return this.availableSlotIndexes[--this.availableSlotsCount];
+	}
+	
+	/**
+	 * Take several available slots at once.
+	 * <p>Takes as many slots as possible, up to the requested count, while locking the allocator only once.</p>
+	 * @param slotIndexes the array receiving the indexes of the slots taken, from its beginning, not null
+	 * @param count the number of slots to take, not greater than the array length
+	 * @return the number of slots taken, lower than the requested count if there are not enough available slots
+	 */
+	synchronized int acquire(int[] slotIndexes, int count) {
+		int availableSlotsCount = this.availableSlotsCount;
+		int acquiredSlotsCount = Math.min(count, availableSlotsCount);
+		
+		for (int position = 0; position < acquiredSlotsCount; position++) {
+			slotIndexes[position] = this.availableSlotIndexes[--availableSlotsCount];
+		}
+		this.availableSlotsCount = availableSlotsCount;
+		
+		return acquiredSlotsCount;
+	}
+	
+	/**
+	 * Take given slots out of the available ones.
+	 * <p>Used to restore the state of an allocator: must only be called while all the slots are available. The remaining available slots are acquired
+	 * in the order of their indexes, as for a new allocator.</p>
+	 * @param reservedSlots the array telling, for each slot index, whether the slot is taken, not null, of the slots count length
+	 */
+	synchronized void reserve(boolean[] reservedSlots) {
+		assert((this.availableSlotsCount == this.availableSlotIndexes.length) && (reservedSlots.length == this.availableSlotIndexes.length));
+		
+		int availableSlotsCount = 0;
+		
+		for (int slotIndex = reservedSlots.length - 1; slotIndex >= 0; slotIndex--) {
+			if (!reservedSlots[slotIndex]) {
+				this.availableSlotIndexes[availableSlotsCount++] = slotIndex;
+			}
+		}
+		this.availableSlotsCount = availableSlotsCount;
+	}
+	
+	/**
+	 * Give back a slot previously returned by {@link #acquire()}.
+	 * <p>The slot is granted to the first waiting request if any, and occupied by it in the current thread.</p>
+	 * <p>Giving back a slot which is already available corrupts the allocator; this is only checked by assertions.</p>
+	 * @param slotIndex the slot index
+	 */
+	void release(int slotIndex) {
+		SlotRequest slotRequest = releaseOrGrant(slotIndex);
+		
+		if (slotRequest != null) {
+			slotRequest.occupy(slotIndex);
+		}
+	}
+	
+	/**
+	 * Give back a slot previously returned by {@link #acquire()}, or grant it to the first waiting request without occupying it.
+	 * <p>Only the allocator critical section is run: the caller must call {@link SlotRequest#occupy(int)} on the returned request, out of any lock.</p>
+	 * <p>Giving back a slot which is already available corrupts the allocator; this is only checked by assertions.</p>
+	 * @param slotIndex the slot index
+	 * @return the request the slot is granted to, null if the slot is available again
+	 */
+	synchronized SlotRequest releaseOrGrant(int slotIndex) {
+		assert(this.availableSlotsCount < this.availableSlotIndexes.length);
+		
+		SlotRequest slotRequest = SlotRequest.pollGranted(this.slotRequests);
+		
+		if (slotRequest == null) {
+			this.availableSlotIndexes[this.availableSlotsCount++] = slotIndex;
+		}
+		
+		return slotRequest;
+	}
+	
+	/**
+	 * Give back several slots at once.
+	 * <p>Same as calling {@link #release(int)} on each slot while locking the allocator only once if no request is waiting.</p>
+	 * @param slotIndexes the array holding the indexes of the slots to give back from its beginning, not null
+	 * @param count the number of slots to give back, not greater than the array length
+	 */
+	void release(int[] slotIndexes, int count) {
+		if (!releaseIfNoRequest(slotIndexes, count)) {
+			for (int position = 0; position < count; position++) {
+				release(slotIndexes[position]);
+			}
+		}
+	}
+	
+	/**
+	 * Give back several slots at once if no request is waiting.
+	 * <p>Only the allocator critical section is run: if requests are waiting, no slot is given back and the caller must give them back one by one
+	 * through {@link #releaseOrGrant(int)}.</p>
+	 * @param slotIndexes the array holding the indexes of the slots to give back from its beginning, not null
+	 * @param count the number of slots to give back, not greater than the array length
+	 * @return true if the slots have been given back, false if requests are waiting
+	 */
+	synchronized boolean releaseIfNoRequest(int[] slotIndexes, int count) {
+		assert(this.availableSlotsCount + count <= this.availableSlotIndexes.length);
+		
+		if (!this.slotRequests.isEmpty()) {
+			return false;
+		}
+		System.arraycopy(slotIndexes, 0, this.availableSlotIndexes, this.availableSlotsCount, count);
+		this.availableSlotsCount += count;
+		
+		return true;
+	}
+	
+	/**
+	 * Request a slot for a waiting car.
+	 * <p>If a slot is available, it is granted to the request at once and occupied by it in the current thread. Otherwise the request is queued
+	 * until a slot is released or the request is withdrawn through {@link #withdraw(SlotRequest)}.</p>
+	 * @param slotRequest the request, not null, neither granted nor withdrawn
+	 */
+	void request(SlotRequest slotRequest) {
+		int slotIndex;
+		
+		synchronized (this) {
+			// Requests are only queued while no slot is available, so the queue is empty if a slot is available
+			if ((this.availableSlotsCount == 0) || !slotRequest.grant()) {
+				this.slotRequests.addLast(slotRequest);
+				return;
+			}
+			slotIndex = this.availableSlotIndexes[--this.availableSlotsCount];
+		}
+		slotRequest.occupy(slotIndex);
+	}
+	
+	/**
+	 * Remove a withdrawn request from the queue.
+	 * @param slotRequest the request, not null
+	 */
+	synchronized void withdraw(SlotRequest slotRequest) {
+		this.slotRequests.removeFirstOccurrence(slotRequest);
+	}
+	
+	/**
+	 * Get the number of slots.
+	 * @return the slots count, positive or zero
+	 */
+	int getSlotsCount() {
+		return this.availableSlotIndexes.length;
+	}
+	
+	/**
+	 * Get the index of the handle of the slot 0.
+	 * @return the first slot index, positive or zero
+	 */
+	int getFirstSlotIndex() {
+		return this.firstSlotIndex;
+	}
+	
+	/**
+	 * Get the number of available slots, without locking the allocator.
+	 * <p>The returned value may be outdated as soon as it is returned if slots are acquired or released concurrently.</p>
+	 * @return the available slots count, between zero and the slots count
+	 */
+	int getAvailableSlotsCount() {
+		return this.availableSlotsCount;
+	}
+	
+	/**
+	 * Get the handle of a slot, as returned by {@link parking.api.Parking#parkAndGetSlot(Car)}.
+	 * <p>The handle is created on the first call and the same instance is returned afterwards, unless handles are not kept. Its index is offset by
+	 * the first slot index.</p>
+	 * @param slotIndex the slot index
+	 * @return the slot, not null
+	 */
+	Slot slot(int slotIndex) {
+		if (this.slots == null) {
+			return new Slot(this.carType, this.firstSlotIndex + slotIndex);
+		}
+		
+		Slot slot = this.slots[slotIndex];
+		
+		if (slot == null) {
+			slot = new Slot(this.carType, this.firstSlotIndex + slotIndex);
+			this.slots[slotIndex] = slot;
+		}
+		
+		return slot;
+	}
+}
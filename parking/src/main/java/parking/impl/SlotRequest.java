@@ -0,0 +1,224 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import parking.api.ParkingException;
+import parking.api.ParkingMetrics;
+
+/**
+ * The request of a car waiting for a slot of its type, as returned by {@link parking.api.Parking#parkWhenAvailable(parking.api.Car, Duration)}.
+ * <p>Requests are queued in the order they are made by the owner of the slots of a car type, which grants each released slot to the first request of its queue.
+ * The granted request occupies the slot in the thread releasing it, then completes with the slot id. A request which is not granted yet may be withdrawn,
+ * by its timeout or by cancelling it: it is then removed from its queue and completes with null, or is cancelled.</p>
+ * <p>A request is granted or withdrawn only once, whichever comes first: both are decided by a single compare and set of its state.</p>
+ */
+final class SlotRequest extends CompletableFuture<String> {
+	static private final int waitingState = 0;
+	static private final int grantedState = 1;
+	static private final int withdrawnState = 2;
+	
+	/**
+	 * The Interface Occupier.
+	 * <p>Occupies the slot granted to a request.</p>
+	 */
+	@FunctionalInterface
+	static interface Occupier {
+		/**
+		 * Occupy a granted slot.
+		 * <p>The slot must be given back if it cannot be occupied.</p>
+		 * @param slot the granted slot, as identified by the owner of the slots
+		 * @return the slot id, null if the car could not be parked after all
+		 * @throws ParkingException if the car cannot be parked, e.g. because it has been parked through another gate in the meantime
+		 */
+		String occupy(int slot) throws ParkingException;
+	}
+	
+	/**
+	 * The Interface Withdrawer.
+	 * <p>Removes a withdrawn request from its queue.</p>
+	 */
+	@FunctionalInterface
+	static interface Withdrawer {
+		/**
+		 * Remove a request from its queue.
+		 * @param request the withdrawn request, not null
+		 */
+		void withdraw(SlotRequest request);
+	}
+	
+	/* All members below are safe for concurrent accesses:
+	 *   state is atomic
+	 *   occupier, withdrawer and metrics are never modified after construction */
+	private final AtomicInteger state;
+	private final Occupier occupier;
+	private final Withdrawer withdrawer;
+	private final MetricsRecorder metrics;
+	
+	/**
+	 * Instantiates a new slot request, not queued yet.
+	 * @param occupier the occupier of the slot granted to the request, not null
+	 * @param withdrawer the withdrawer removing the request from its queue, not null
+	 * @param metrics the metrics recording the requests which time out and the occupation of the granted slot, not null
+	 */
+	SlotRequest(Occupier occupier, Withdrawer withdrawer, MetricsRecorder metrics) {
+		this.state = new AtomicInteger(waitingState);
+		this.occupier = occupier;
+		this.withdrawer = withdrawer;
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * Poll the first request of a queue which can be granted a slot.
+	 * <p>Withdrawn requests are removed from the queue as well. The returned request is granted: the caller must call {@link #occupy(int)} on it.</p>
+	 * @param requests the queue, not null
+	 * @return the granted request, null if the queue has no request waiting for a slot
+	 */
+	static SlotRequest pollGranted(Deque<SlotRequest> requests) {
+		for (SlotRequest request = requests.pollFirst(); request != null; request = requests.pollFirst()) {
+			if (request.state.compareAndSet(waitingState, grantedState)) {
+				return request;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Grant a slot to the request if it is still waiting.
+	 * <p>The caller must call {@link #occupy(int)} if the request is granted.</p>
+	 * @return true if the request is granted, false if it has been withdrawn
+	 */
+	boolean grant() {
+		return this.state.compareAndSet(waitingState, grantedState);
+	}
+	
+	/**
+	 * Occupy the slot granted to the request and complete it.
+	 * <p>Called once, out of any lock, by the thread which has granted the request. The occupation is recorded as a {@link ParkingMetrics.Operation#PARK}.</p>
+	 * @param slot the granted slot, as identified by the owner of the slots
+	 */
+	void occupy(int slot) {
+		assert(this.state.get() == grantedState);
+		
+		long startNanos = this.metrics.startNanos();
+		
+		try {
+			complete(this.occupier.occupy(slot));
+		} catch (ParkingException | RuntimeException e) {
+			completeExceptionally(e);
+		} finally {
+			this.metrics.recordLatency(ParkingMetrics.Operation.PARK, startNanos);
+		}
+	}
+	
+	/**
+	 * Withdraw the request if it is still waiting.
+	 * @return true if the request has been withdrawn and removed from its queue, false if it was already granted or withdrawn
+	 */
+	private boolean withdraw() {
+		if (!this.state.compareAndSet(waitingState, withdrawnState)) {
+			return false;
+		}
+		
+		this.withdrawer.withdraw(this);
+		
+		return true;
+	}
+	
+	/**
+	 * Withdraw the request if it is still waiting, completing it with null.
+	 */
+	private void timeOut() {
+		if (withdraw()) {
+			this.metrics.increment(ParkingMetrics.Counter.NO_SLOT);
+			complete(null);
+		}
+	}
+	
+	/**
+	 * Withdraw the request after a timeout if it is still waiting then.
+	 * <p>Called once the request is queued.</p>
+	 * @param timeout the timeout, not null, zero or negative to withdraw it at once
+	 */
+	void timeOutAfter(Duration timeout) {
+		if (isDone()) {
+			return;
+		}
+		
+		long timeoutNanos = toNanos(timeout);
+		
+		if (timeoutNanos <= 0L) {
+			timeOut();
+		} else {
+			CompletableFuture.delayedExecutor(timeoutNanos, TimeUnit.NANOSECONDS).execute(this::timeOut);
+		}
+	}
+	
+	/**
+	 * Wait for the request to complete.
+	 * <p>Called once the request is queued. If the current thread is interrupted while the request is waiting, the request is withdrawn; if the request was granted
+	 * in the meantime, the car is parked and its slot id is returned, the interrupt status of the thread being kept.</p>
+	 * @param timeout the timeout, not null, zero or negative not to wait
+	 * @return the slot id, null if the request timed out
+	 * @throws ParkingException if the car could not be parked once granted a slot
+	 * @throws InterruptedException if the current thread has been interrupted while waiting, in which case the car is not parked
+	 */
+	String await(Duration timeout) throws ParkingException, InterruptedException {
+		try {
+			try {
+				return get(Math.max(toNanos(timeout), 0L), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				timeOut();
+			} catch (InterruptedException e) {
+				if (withdraw()) {
+					super.cancel(false);
+					throw e;
+				}
+				Thread.currentThread().interrupt();
+			}
+			
+			// Either timed out or granted while timing out or being interrupted: the request completes without waiting for another slot
+			return join();
+		} catch (ExecutionException | CompletionException e) {
+			if (e.getCause() instanceof ParkingException) {
+				throw (ParkingException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Withdraws the request: only a request still waiting for a slot can be cancelled.</p>
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return withdraw() && super.cancel(mayInterruptIfRunning);
+	}
+	
+	/**
+	 * Convert a timeout to nanoseconds, saturating durations too long to be converted.
+	 * @param timeout the timeout, not null
+	 * @return the timeout in nanoseconds
+	 */
+	static private long toNanos(Duration timeout) {
+		try {
+			return timeout.toNanos();
+		} catch (ArithmeticException e) {
+			return (timeout.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE);
+		}
+	}
+}
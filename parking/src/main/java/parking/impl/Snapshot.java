@@ -0,0 +1,191 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+import parking.api.Car;
+
+/**
+ * The binary snapshot of the occupied slots of a parking.
+ * <p>A snapshot is built in memory by {@link #add(Car.Type, int, String, long)}, one call per parked car, then written at once by {@link #write(Path)}.
+ * It is read back by {@link #read(Path)} in a {@link ParkingImage}, the whole file being loaded by bulk reads.</p>
+ * <p>Snapshots are written as follows, big endian:<ul>
+ * <li>the magic number (int) and the format version (int)</li>
+ * <li>the number of car types (int) followed, for each car type in ordinal order, by its slots count (int, -1 if the parking provides no slot for the car type)</li>
+ * <li>the number of parked cars (int) followed, for each parked car, by the car type ordinal of its slot (byte), its slot index (int), its arrival instant
+ * (long, epoch milliseconds), the length of its registration number (int, -1 for a null registration number) and the chars of the registration number
+ * (char each)</li>
+ * </ul></p>
+ * <p>Snapshot is not thread safe.</p>
+ */
+final class Snapshot {
+	static private final int magicNumber = 0x50524B53;
+	static private final int formatVersion = 1;
+	static private final int carHeaderSize = Byte.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+	
+	/* Car.Type.values() returns a new array on each call */
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	private ByteBuffer buffer;
+	private final int carsCountPosition;
+	private int carsCount;
+	
+	/**
+	 * Instantiates a new empty snapshot.
+	 * @param carTypeToSlotsCount the number of slots for each car type the parking provides slots for, not null
+	 * @param expectedCarsCount the expected number of parked cars, used to size the snapshot upfront
+	 */
+	Snapshot(Map<Car.Type, Integer> carTypeToSlotsCount, int expectedCarsCount) {
+		this.buffer = ByteBuffer.allocate(4 * Integer.BYTES + carTypes.length * Integer.BYTES + Math.max(expectedCarsCount, 0) * (carHeaderSize + 8 * Character.BYTES));
+		this.buffer.putInt(magicNumber);
+		this.buffer.putInt(formatVersion);
+		this.buffer.putInt(carTypes.length);
+		for (Car.Type carType: carTypes) {
+			this.buffer.putInt(carTypeToSlotsCount.getOrDefault(carType, -1).intValue());
+		}
+		this.carsCountPosition = this.buffer.position();
+		this.buffer.putInt(0);
+		this.carsCount = 0;
+	}
+	
+	/**
+	 * Add a parked car.
+	 * @param carType the car type of the slot, not null
+	 * @param slotIndex the slot index
+	 * @param registrationNumber the registration number of the car, can be null
+	 * @param arrivalEpochMillis the arrival instant of the car, in milliseconds from the epoch
+	 */
+	void add(Car.Type carType, int slotIndex, String registrationNumber, long arrivalEpochMillis) {
+		int charsCount = (registrationNumber == null ? -1 : registrationNumber.length());
+		int carSize = carHeaderSize + Character.BYTES * Math.max(charsCount, 0);
+		
+		if (this.buffer.remaining() < carSize) {
+			ByteBuffer grownBuffer = ByteBuffer.allocate(Math.max(2 * this.buffer.capacity(), this.buffer.position() + carSize));
+			
+			this.buffer.flip();
+			grownBuffer.put(this.buffer);
+			this.buffer = grownBuffer;
+		}
+		
+		this.buffer.put((byte) carType.ordinal());
+		this.buffer.putInt(slotIndex);
+		this.buffer.putLong(arrivalEpochMillis);
+		this.buffer.putInt(charsCount);
+		for (int charIndex = 0; charIndex < charsCount; charIndex++) {
+			this.buffer.putChar(registrationNumber.charAt(charIndex));
+		}
+		this.carsCount++;
+	}
+	
+	/**
+	 * Write the snapshot to a file.
+	 * <p>The snapshot is written to a temporary file in the same directory, forced to the disk and then atomically moved to the given path,
+	 * so that the file at the given path is always a complete snapshot.</p>
+	 * @param path the path of the snapshot file, not null
+	 * @throws IOException if the snapshot file cannot be written
+	 */
+	void write(Path path) throws IOException {
+		Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+		ByteBuffer content = this.buffer.duplicate();
+		
+		content.putInt(this.carsCountPosition, this.carsCount);
+		content.flip();
+		try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (content.hasRemaining()) {
+				channel.write(content);
+			}
+			channel.force(false);
+		}
+		Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Read a snapshot file.
+	 * @param path the path of the snapshot file, not null
+	 * @return the image of the parking the snapshot was taken from, not null
+	 * @throws IOException if the snapshot file cannot be read or is not a valid snapshot
+	 */
+	static ParkingImage read(Path path) throws IOException {
+		ByteBuffer buffer;
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Snapshot '" + path + "' is too large");
+			}
+			
+			// A direct buffer is filled by the channel without any intermediate copy
+			buffer = ByteBuffer.allocateDirect((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException("Snapshot '" + path + "' has been truncated while being read");
+				}
+			}
+			buffer.flip();
+		}
+		
+		try {
+			if ((buffer.getInt() != magicNumber) || (buffer.getInt() != formatVersion)) {
+				throw new IOException("File '" + path + "' is not a parking snapshot or has an unsupported format version");
+			}
+			
+			int carTypesCount = buffer.getInt();
+			Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+			
+			if (carTypesCount != carTypes.length) {
+				throw new IOException("Snapshot '" + path + "' has been taken with " + carTypesCount + " car types instead of " + carTypes.length);
+			}
+			for (Car.Type carType: carTypes) {
+				int slotsCount = buffer.getInt();
+				
+				if (slotsCount >= 0) {
+					carTypeToSlotsCount.put(carType, slotsCount);
+				}
+			}
+			
+			ParkingImage image = new ParkingImage(carTypeToSlotsCount);
+			int carsCount = buffer.getInt();
+			char[] chars = new char[16];
+			
+			for (int carIndex = 0; carIndex < carsCount; carIndex++) {
+				int carTypeOrdinal = buffer.get();
+				int slotIndex = buffer.getInt();
+				long arrivalEpochMillis = buffer.getLong();
+				int charsCount = buffer.getInt();
+				
+				if ((carTypeOrdinal < 0) || (carTypeOrdinal >= carTypes.length) || !image.hasSlot(carTypes[carTypeOrdinal], slotIndex)) {
+					throw new IOException("Snapshot '" + path + "' is corrupted: unknown slot " + slotIndex + " of car type ordinal " + carTypeOrdinal);
+				}
+				if ((charsCount < -1) || ((long) Character.BYTES * charsCount > buffer.remaining())) {
+					throw new IOException("Snapshot '" + path + "' is corrupted: invalid registration number length " + charsCount);
+				}
+				
+				if (charsCount > chars.length) {
+					chars = new char[charsCount];
+				}
+				for (int charIndex = 0; charIndex < charsCount; charIndex++) {
+					chars[charIndex] = buffer.getChar();
+				}
+				image.park(carTypes[carTypeOrdinal], slotIndex, (charsCount < 0 ? null : new String(chars, 0, charsCount)), arrivalEpochMillis);
+			}
+			if (buffer.hasRemaining()) {
+				throw new IOException("Snapshot '" + path + "' is corrupted: " + buffer.remaining() + " unexpected trailing bytes");
+			}
+			
+			return image;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Snapshot '" + path + "' is corrupted: unexpected end of file", e);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.util.Arrays;
+
+import parking.api.Car;
+
+/**
+ * The departures scheduled by a simulation, as a binary min-heap on the departure instant.
+ * <p>Only the cars actually parked are queued, so the queue never holds more entries than the parking has slots, however long the simulation.
+ * Departures at the same instant are dequeued in arrival order, which keeps the simulation deterministic. Entries are held in parallel arrays rather than
+ * in one object per departure.</p>
+ * <p>The queue is not thread safe.</p>
+ */
+final class DepartureQueue {
+	private long[] departureEpochMillis;
+	private long[] sequences;
+	private long[] arrivalEpochMillis;
+	private Car[] cars;
+	private int size;
+	
+	/**
+	 * Instantiates a new empty departure queue.
+	 */
+	DepartureQueue() {
+		this.departureEpochMillis = new long[64];
+		this.sequences = new long[64];
+		this.arrivalEpochMillis = new long[64];
+		this.cars = new Car[64];
+		this.size = 0;
+	}
+	
+	/**
+	 * Tell whether there is no departure left.
+	 * @return true if the queue is empty
+	 */
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+	
+	/**
+	 * Get the instant of the next departure.
+	 * @return the departure instant, in milliseconds from the epoch, Long.MAX_VALUE if the queue is empty
+	 */
+	long peekDepartureEpochMillis() {
+		return (this.size == 0 ? Long.MAX_VALUE : this.departureEpochMillis[0]);
+	}
+	
+	/**
+	 * Get the arrival instant of the car of the next departure.
+	 * @return the arrival instant, in milliseconds from the epoch; undefined if the queue is empty
+	 */
+	long peekArrivalEpochMillis() {
+		return this.arrivalEpochMillis[0];
+	}
+	
+	/**
+	 * Schedule a departure.
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @param sequence the number of the visit, increasing with arrivals
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param car the departing car, not null
+	 */
+	void add(long departureEpochMillis, long sequence, long arrivalEpochMillis, Car car) {
+		if (this.size == this.cars.length) {
+			int capacity = 2 * this.size;
+			
+			this.departureEpochMillis = Arrays.copyOf(this.departureEpochMillis, capacity);
+			this.sequences = Arrays.copyOf(this.sequences, capacity);
+			this.arrivalEpochMillis = Arrays.copyOf(this.arrivalEpochMillis, capacity);
+			this.cars = Arrays.copyOf(this.cars, capacity);
+		}
+		
+		int index = this.size++;
+		
+		// Sift up
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			
+			if (!isBefore(departureEpochMillis, sequence, parent)) {
+				break;
+			}
+			move(parent, index);
+			index = parent;
+		}
+		set(index, departureEpochMillis, sequence, arrivalEpochMillis, car);
+	}
+	
+	/**
+	 * Remove the next departure.
+	 * @return the departing car, null if the queue is empty
+	 */
+	Car poll() {
+		if (this.size == 0) {
+			return null;
+		}
+		
+		Car car = this.cars[0];
+		int last = --this.size;
+		long departureEpochMillis = this.departureEpochMillis[last];
+		long sequence = this.sequences[last];
+		long arrivalEpochMillis = this.arrivalEpochMillis[last];
+		Car lastCar = this.cars[last];
+		int index = 0;
+		
+		this.cars[last] = null;
+		// Sift the last entry down from the root
+		while (true) {
+			int child = 2 * index + 1;
+			
+			if (child >= last) {
+				break;
+			}
+			if (child + 1 < last && isBefore(this.departureEpochMillis[child + 1], this.sequences[child + 1], child)) {
+				child++;
+			}
+			if (!isBefore(this.departureEpochMillis[child], this.sequences[child], departureEpochMillis, sequence)) {
+				break;
+			}
+			move(child, index);
+			index = child;
+		}
+		if (last > 0) {
+			set(index, departureEpochMillis, sequence, arrivalEpochMillis, lastCar);
+		}
+		
+		return car;
+	}
+	
+	/**
+	 * Tell whether a departure comes before the departure of an entry.
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @param sequence the number of the visit
+	 * @param index the index of the entry in the heap
+	 * @return true if the departure comes first
+	 */
+	private boolean isBefore(long departureEpochMillis, long sequence, int index) {
+		return isBefore(departureEpochMillis, sequence, this.departureEpochMillis[index], this.sequences[index]);
+	}
+	
+	/**
+	 * Tell whether a departure comes before another one: the earliest one, or the one of the earliest visit at the same instant.
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @param sequence the number of the visit
+	 * @param otherDepartureEpochMillis the other departure instant, in milliseconds from the epoch
+	 * @param otherSequence the number of the other visit
+	 * @return true if the departure comes first
+	 */
+	static private boolean isBefore(long departureEpochMillis, long sequence, long otherDepartureEpochMillis, long otherSequence) {
+		return departureEpochMillis < otherDepartureEpochMillis || departureEpochMillis == otherDepartureEpochMillis && sequence < otherSequence;
+	}
+	
+	/**
+	 * Copy an entry to another index of the heap.
+	 * @param from the index of the entry
+	 * @param to the index to copy it to
+	 */
+	private void move(int from, int to) {
+		set(to, this.departureEpochMillis[from], this.sequences[from], this.arrivalEpochMillis[from], this.cars[from]);
+	}
+	
+	/**
+	 * Set an entry of the heap.
+	 * @param index the index of the entry
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @param sequence the number of the visit
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param car the departing car, not null
+	 */
+	private void set(int index, long departureEpochMillis, long sequence, long arrivalEpochMillis, Car car) {
+		this.departureEpochMillis[index] = departureEpochMillis;
+		this.sequences[index] = sequence;
+		this.arrivalEpochMillis[index] = arrivalEpochMillis;
+		this.cars[index] = car;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import parking.api.Car;
+
+/**
+ * A synthetic traffic: cars arrive as a Poisson process and stay as drawn by a {@link StayDistribution}.
+ * <p>Each car type has its own mean arrival rate, optionally modulated by the hour of the day to model rush hours. Visits are drawn as they are pulled, from
+ * a seeded generator: the same seed gives the same traffic, whatever its length.</p>
+ */
+public final class PoissonTraffic implements Traffic {
+	static private final long millisPerHour = Duration.ofHours(1).toMillis();
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	private final long endEpochMillis;
+	private final double[] cumulativeArrivalsPerMilli;
+	private final double[] hourOfDayRateFactors;
+	private final double maxRateFactor;
+	private final StayDistribution stayDistribution;
+	private final SplittableRandom random;
+	private double epochMillis;
+	
+	/**
+	 * Instantiates a new Poisson traffic, whose arrival rates do not depend on the time of day.
+	 * @param start the instant the traffic starts, not null
+	 * @param duration how long cars keep arriving, not null, positive or zero
+	 * @param carTypeToArrivalsPerHour the mean number of cars arriving per hour for each car type, not null, rates positive or zero
+	 * @param stayDistribution the distribution of the stays, not null
+	 * @param seed the seed of the random generator
+	 * @throws IllegalArgumentException if the duration or a rate is negative, or all rates are zero
+	 */
+	public PoissonTraffic(Instant start, Duration duration, Map<Car.Type, Double> carTypeToArrivalsPerHour, StayDistribution stayDistribution, long seed) {
+		this(start, duration, carTypeToArrivalsPerHour, null, stayDistribution, seed);
+	}
+	
+	/**
+	 * Instantiates a new Poisson traffic, whose arrival rates depend on the time of day.
+	 * @param start the instant the traffic starts, not null
+	 * @param duration how long cars keep arriving, not null, positive or zero
+	 * @param carTypeToArrivalsPerHour the mean number of cars arriving per hour for each car type, not null, rates positive or zero
+	 * @param hourOfDayRateFactors the 24 factors applied to the rates from each hour of the day (UTC) to the next one, positive or zero, null for no factor
+	 * @param stayDistribution the distribution of the stays, not null
+	 * @param seed the seed of the random generator
+	 * @throws IllegalArgumentException if the duration, a rate or a factor is negative, all rates or factors are zero, or there are not 24 factors
+	 */
+	public PoissonTraffic(Instant start, Duration duration, Map<Car.Type, Double> carTypeToArrivalsPerHour, double[] hourOfDayRateFactors,
+		StayDistribution stayDistribution, long seed) {
+		if (duration.isNegative()) {
+			throw new IllegalArgumentException("Traffic duration " + duration + " cannot be negative");
+		}
+		if (hourOfDayRateFactors != null && hourOfDayRateFactors.length != 24) {
+			throw new IllegalArgumentException("Expected 24 hour of day rate factors, got " + hourOfDayRateFactors.length);
+		}
+		
+		this.cumulativeArrivalsPerMilli = new double[carTypes.length];
+		
+		double arrivalsPerMilli = 0.0;
+		
+		for (Car.Type carType: carTypes) {
+			double arrivalsPerHour = carTypeToArrivalsPerHour.getOrDefault(carType, 0.0).doubleValue();
+			
+			if (!(arrivalsPerHour >= 0.0)) {
+				throw new IllegalArgumentException("Arrival rate " + arrivalsPerHour + " of car type '" + carType + "' cannot be negative");
+			}
+			
+			arrivalsPerMilli += arrivalsPerHour / millisPerHour;
+			this.cumulativeArrivalsPerMilli[carType.ordinal()] = arrivalsPerMilli;
+		}
+		this.hourOfDayRateFactors = (hourOfDayRateFactors == null ? null : hourOfDayRateFactors.clone());
+		this.maxRateFactor = (hourOfDayRateFactors == null ? 1.0 : Arrays.stream(hourOfDayRateFactors).max().getAsDouble());
+		if (hourOfDayRateFactors != null && Arrays.stream(hourOfDayRateFactors).anyMatch(factor -> !(factor >= 0.0))) {
+			throw new IllegalArgumentException("Hour of day rate factors " + Arrays.toString(hourOfDayRateFactors) + " cannot be negative");
+		}
+		if (!(arrivalsPerMilli * this.maxRateFactor > 0.0)) {
+			throw new IllegalArgumentException("At least one car type must arrive at a strictly positive rate");
+		}
+		
+		this.endEpochMillis = start.toEpochMilli() + duration.toMillis();
+		this.stayDistribution = stayDistribution;
+		this.random = new SplittableRandom(seed);
+		this.epochMillis = start.toEpochMilli();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Draws the next arrival at the maximum rate and keeps it with the probability of the factor of its hour of day (thinning), then draws the car type
+	 * in proportion to the rates and the stay from the distribution.</p>
+	 */
+	@Override
+	public Visit next() {
+		double totalArrivalsPerMilli = this.cumulativeArrivalsPerMilli[carTypes.length - 1];
+		double maxArrivalsPerMilli = totalArrivalsPerMilli * this.maxRateFactor;
+		double arrivalEpochMillis = this.epochMillis;
+		
+		do {
+			arrivalEpochMillis += -Math.log(1.0 - this.random.nextDouble()) / maxArrivalsPerMilli;
+			if (arrivalEpochMillis >= this.endEpochMillis) {
+				this.epochMillis = this.endEpochMillis;
+				return null;
+			}
+		} while (this.hourOfDayRateFactors != null &&
+			this.random.nextDouble() * this.maxRateFactor >= this.hourOfDayRateFactors[(int) Math.floorMod((long) arrivalEpochMillis / millisPerHour, 24L)]);
+		this.epochMillis = arrivalEpochMillis;
+		
+		double carTypeDraw = this.random.nextDouble() * totalArrivalsPerMilli;
+		int carTypeIndex = 0;
+		
+		while (carTypeIndex < carTypes.length - 1 && carTypeDraw >= this.cumulativeArrivalsPerMilli[carTypeIndex]) {
+			carTypeIndex++;
+		}
+		
+		// Arrivals are kept with a sub-millisecond precision so that high rates are not biased by rounding, but visits are in milliseconds like the parking
+		return new Visit(carTypes[carTypeIndex], null, (long) arrivalEpochMillis, (long) arrivalEpochMillis + this.stayDistribution.sampleMillis(this.random));
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import parking.api.Car;
+import parking.api.Clock;
+import parking.api.DefaultCar;
+import parking.api.Occupancy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.RevenueTotals;
+
+/**
+ * A discrete-event simulation of a parking, replaying a {@link Traffic} on a {@link VirtualClock}.
+ * <p>The simulation merges the arrivals of the traffic with the departures of the cars it has parked, in time order, and replays each of them by moving
+ * the clock to its instant then parking, or unparking and billing, the car: simulated time jumps from one event to the next, so that months of traffic replay
+ * in seconds. Departures are replayed before the arrivals of the same instant. A car finding no available slot is rejected and never comes back.</p>
+ * <p>Any {@link Parking} can be simulated, as long as it takes its time from the given clock: the simulation creates it with a function, so that each run
+ * starts from an empty parking. A run holds in memory one entry per parked car and one occupancy sample per sampling interval, whatever the number of
+ * visits.</p>
+ * <p>A simulation runs on the calling thread; several simulations can run concurrently on distinct threads.</p>
+ */
+public final class Simulation {
+	static private final Car.Type[] carTypes = Car.Type.values();
+	
+	private final Function<? super Clock, ? extends Parking> parkingFactory;
+	private final long samplingIntervalMillis;
+	
+	/**
+	 * Instantiates a new simulation.
+	 * @param parkingFactory the function creating an empty parking from the virtual clock it must use, not null,
+	 *   for instance <code>clock -&gt; Parking.create(carTypeToSlotsCount, pricingPolicy, clock)</code>
+	 * @param samplingInterval the simulated interval at which occupancy is sampled, not null, at least a millisecond
+	 * @throws IllegalArgumentException if the sampling interval is shorter than a millisecond
+	 */
+	public Simulation(Function<? super Clock, ? extends Parking> parkingFactory, Duration samplingInterval) {
+		if (samplingInterval.toMillis() < 1L) {
+			throw new IllegalArgumentException("Sampling interval " + samplingInterval + " must be at least a millisecond");
+		}
+		
+		this.parkingFactory = parkingFactory;
+		this.samplingIntervalMillis = samplingInterval.toMillis();
+	}
+	
+	/**
+	 * Run the simulation on a traffic, from the arrival of its first visit until the departure of the last parked car.
+	 * <p>Visits without registration number are given one made of their number. The traffic is not closed.</p>
+	 * @param traffic the traffic, not null
+	 * @return the report of the simulation, not null
+	 * @throws IOException if the traffic cannot be read
+	 * @throws ParkingException if the parking rejects an arrival or a departure with an exception, for instance a car type it does not provide slots for
+	 *   or a registration number arriving while it is already parked
+	 */
+	public SimulationReport run(Traffic traffic) throws IOException, ParkingException {
+		long startNanos = System.nanoTime();
+		Visit visit = traffic.next();
+		long startEpochMillis = (visit == null ? 0L : visit.getArrivalEpochMillis());
+		VirtualClock clock = new VirtualClock(startEpochMillis);
+		Parking parking = this.parkingFactory.apply(clock);
+		Occupancy occupancy = parking.occupancy();
+		int[] slotsCounts = new int[carTypes.length];
+		int[] occupiedSlots = new int[carTypes.length];
+		int[] peakOccupiedSlots = new int[carTypes.length];
+		long[] arrivalsCounts = new long[carTypes.length];
+		long[] rejectedCounts = new long[carTypes.length];
+		long[] billedCarsCounts = new long[carTypes.length];
+		double[] revenues = new double[carTypes.length];
+		long[] stayMillis = new long[carTypes.length];
+		int[][] occupancyCurves = new int[carTypes.length][64];
+		int samplesCount = 0;
+		long nextSampleEpochMillis = startEpochMillis;
+		DepartureQueue departures = new DepartureQueue();
+		long visitsCount = 0L;
+		long eventsCount = 0L;
+		
+		for (Car.Type carType: carTypes) {
+			slotsCounts[carType.ordinal()] = occupancy.getSlotsCount(carType);
+			occupiedSlots[carType.ordinal()] = occupancy.getOccupiedSlots(carType);
+			peakOccupiedSlots[carType.ordinal()] = occupiedSlots[carType.ordinal()];
+		}
+		while (visit != null || !departures.isEmpty()) {
+			long departureEpochMillis = departures.peekDepartureEpochMillis();
+			boolean departing = (visit == null || departureEpochMillis <= visit.getArrivalEpochMillis());
+			long eventEpochMillis = (departing ? departureEpochMillis : visit.getArrivalEpochMillis());
+			
+			// Sample the occupancy up to the event, from the occupied slots tracked by the simulation rather than by asking the parking
+			while (nextSampleEpochMillis <= eventEpochMillis) {
+				if (samplesCount == occupancyCurves[0].length) {
+					for (int carTypeIndex = 0; carTypeIndex < carTypes.length; carTypeIndex++) {
+						occupancyCurves[carTypeIndex] = Arrays.copyOf(occupancyCurves[carTypeIndex], 2 * samplesCount);
+					}
+				}
+				for (int carTypeIndex = 0; carTypeIndex < carTypes.length; carTypeIndex++) {
+					occupancyCurves[carTypeIndex][samplesCount] = occupiedSlots[carTypeIndex];
+				}
+				samplesCount++;
+				nextSampleEpochMillis += this.samplingIntervalMillis;
+			}
+			clock.advanceTo(eventEpochMillis);
+			if (departing) {
+				long arrivalEpochMillis = departures.peekArrivalEpochMillis();
+				Car car = departures.poll();
+				int carTypeIndex = car.getType().ordinal();
+				
+				revenues[carTypeIndex] += parking.unparkAndBill(car);
+				billedCarsCounts[carTypeIndex]++;
+				stayMillis[carTypeIndex] += departureEpochMillis - arrivalEpochMillis;
+				occupiedSlots[carTypeIndex]--;
+			} else {
+				Car car = new DefaultCar((visit.getRegistrationNumber() == null ? "SIM-" + visitsCount : visit.getRegistrationNumber()), visit.getCarType());
+				int carTypeIndex = car.getType().ordinal();
+				
+				arrivalsCounts[carTypeIndex]++;
+				if (parking.park(car) == null) {
+					rejectedCounts[carTypeIndex]++;
+				} else {
+					departures.add(visit.getDepartureEpochMillis(), visitsCount, visit.getArrivalEpochMillis(), car);
+					peakOccupiedSlots[carTypeIndex] = Math.max(peakOccupiedSlots[carTypeIndex], ++occupiedSlots[carTypeIndex]);
+				}
+				visitsCount++;
+				visit = traffic.next();
+			}
+			eventsCount++;
+		}
+		
+		RevenueTotals[] billed = new RevenueTotals[carTypes.length];
+		
+		for (int carTypeIndex = 0; carTypeIndex < carTypes.length; carTypeIndex++) {
+			billed[carTypeIndex] = new RevenueTotals(billedCarsCounts[carTypeIndex], revenues[carTypeIndex], stayMillis[carTypeIndex]);
+			occupancyCurves[carTypeIndex] = Arrays.copyOf(occupancyCurves[carTypeIndex], Math.max(samplesCount, 1));
+		}
+		
+		return new SimulationReport(startEpochMillis, clock.millis(), this.samplingIntervalMillis, System.nanoTime() - startNanos, eventsCount, slotsCounts,
+			arrivalsCounts, rejectedCounts, billed, peakOccupiedSlots, occupancyCurves);
+	}
+}
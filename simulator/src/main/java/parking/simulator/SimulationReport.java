@@ -0,0 +1,276 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import parking.api.Car;
+import parking.api.RevenueTotals;
+
+/**
+ * The outcome of a {@link Simulation}: rejections, occupancy, revenue and throughput, for each car type.
+ * <p>Occupancy is sampled at a fixed simulated interval from the start of the simulation: the occupancy curve of a car type gives the number of occupied
+ * slots at each sampling instant, just before the events of that instant are replayed.</p>
+ * <p>Instances are immutable.</p>
+ */
+public final class SimulationReport {
+	static private final Car.Type[] carTypes = Car.Type.values();
+	static private final double millisPerHour = Duration.ofHours(1).toMillis();
+	
+	private final long startEpochMillis;
+	private final long endEpochMillis;
+	private final long samplingIntervalMillis;
+	private final long wallNanos;
+	private final long eventsCount;
+	private final int[] slotsCounts;
+	private final long[] arrivalsCounts;
+	private final long[] rejectedCounts;
+	private final RevenueTotals[] billed;
+	private final int[] peakOccupiedSlots;
+	private final int[][] occupancyCurves;
+	
+	/**
+	 * Instantiates a new simulation report.
+	 * <p>Given arrays are indexed by car type ordinal and are not copied.</p>
+	 * @param startEpochMillis the instant the simulation started, in milliseconds from the epoch
+	 * @param endEpochMillis the instant of the last event of the simulation, in milliseconds from the epoch
+	 * @param samplingIntervalMillis the interval at which occupancy was sampled, in milliseconds, strictly positive
+	 * @param wallNanos how long the simulation actually took, in nanoseconds
+	 * @param eventsCount the number of arrivals and departures replayed
+	 * @param slotsCounts the number of slots for each car type, not null
+	 * @param arrivalsCounts the number of arrivals for each car type, not null
+	 * @param rejectedCounts the number of arrivals which found no available slot for each car type, not null
+	 * @param billed the totals of the billed cars for each car type, not null
+	 * @param peakOccupiedSlots the highest number of occupied slots for each car type, not null
+	 * @param occupancyCurves the number of occupied slots at each sampling instant for each car type, not null, all of the same length
+	 */
+	SimulationReport(long startEpochMillis, long endEpochMillis, long samplingIntervalMillis, long wallNanos, long eventsCount, int[] slotsCounts,
+		long[] arrivalsCounts, long[] rejectedCounts, RevenueTotals[] billed, int[] peakOccupiedSlots, int[][] occupancyCurves) {
+		this.startEpochMillis = startEpochMillis;
+		this.endEpochMillis = endEpochMillis;
+		this.samplingIntervalMillis = samplingIntervalMillis;
+		this.wallNanos = wallNanos;
+		this.eventsCount = eventsCount;
+		this.slotsCounts = slotsCounts;
+		this.arrivalsCounts = arrivalsCounts;
+		this.rejectedCounts = rejectedCounts;
+		this.billed = billed;
+		this.peakOccupiedSlots = peakOccupiedSlots;
+		this.occupancyCurves = occupancyCurves;
+	}
+	
+	/**
+	 * Gets the simulated instant the simulation started, the arrival of the first visit.
+	 * @return the start instant, not null
+	 */
+	public Instant getStart() {
+		return Instant.ofEpochMilli(this.startEpochMillis);
+	}
+	
+	/**
+	 * Gets the simulated instant of the last event of the simulation.
+	 * @return the end instant, not null
+	 */
+	public Instant getEnd() {
+		return Instant.ofEpochMilli(this.endEpochMillis);
+	}
+	
+	/**
+	 * Gets the simulated duration, from the first to the last event.
+	 * @return the duration, not null
+	 */
+	public Duration getSimulatedDuration() {
+		return Duration.ofMillis(this.endEpochMillis - this.startEpochMillis);
+	}
+	
+	/**
+	 * Gets how long the simulation actually took to replay.
+	 * @return the duration, not null
+	 */
+	public Duration getWallDuration() {
+		return Duration.ofNanos(this.wallNanos);
+	}
+	
+	/**
+	 * Gets the number of arrivals and departures replayed.
+	 * @return the events count, positive or zero
+	 */
+	public long getEventsCount() {
+		return this.eventsCount;
+	}
+	
+	/**
+	 * Gets the replay throughput of the simulation.
+	 * @return the number of events replayed per second of actual time
+	 */
+	public double getEventsPerSecond() {
+		return this.eventsCount * 1e9 / Math.max(this.wallNanos, 1L);
+	}
+	
+	/**
+	 * Gets the number of slots for a car type.
+	 * @param carType the car type, not null
+	 * @return the slots count, zero if the parking has no slot for the car type
+	 */
+	public int getSlotsCount(Car.Type carType) {
+		return this.slotsCounts[carType.ordinal()];
+	}
+	
+	/**
+	 * Gets the number of cars of a type which arrived.
+	 * @param carType the car type, not null
+	 * @return the arrivals count, positive or zero
+	 */
+	public long getArrivalsCount(Car.Type carType) {
+		return this.arrivalsCounts[carType.ordinal()];
+	}
+	
+	/**
+	 * Gets the number of cars of a type which found no available slot.
+	 * @param carType the car type, not null
+	 * @return the rejected cars count, positive or zero
+	 */
+	public long getRejectedCount(Car.Type carType) {
+		return this.rejectedCounts[carType.ordinal()];
+	}
+	
+	/**
+	 * Gets the share of the cars of a type which found no available slot.
+	 * @param carType the car type, not null
+	 * @return the rejection rate, between 0 and 1, NaN if no car of the type arrived
+	 */
+	public double getRejectionRate(Car.Type carType) {
+		return (double) this.rejectedCounts[carType.ordinal()] / this.arrivalsCounts[carType.ordinal()];
+	}
+	
+	/**
+	 * Gets the share of all the cars which found no available slot.
+	 * @return the rejection rate, between 0 and 1, NaN if no car arrived
+	 */
+	public double getRejectionRate() {
+		long arrivalsCount = 0L;
+		long rejectedCount = 0L;
+		
+		for (Car.Type carType: carTypes) {
+			arrivalsCount += this.arrivalsCounts[carType.ordinal()];
+			rejectedCount += this.rejectedCounts[carType.ordinal()];
+		}
+		
+		return (double) rejectedCount / arrivalsCount;
+	}
+	
+	/**
+	 * Gets the totals of the billed cars of a type: their count, the revenue and their stays.
+	 * @param carType the car type, not null
+	 * @return the totals, not null
+	 */
+	public RevenueTotals getBilled(Car.Type carType) {
+		return this.billed[carType.ordinal()];
+	}
+	
+	/**
+	 * Gets the totals of all the billed cars.
+	 * @return the totals, not null
+	 */
+	public RevenueTotals getBilled() {
+		RevenueTotals total = RevenueTotals.empty;
+		
+		for (RevenueTotals carTypeTotals: this.billed) {
+			total = total.plus(carTypeTotals);
+		}
+		
+		return total;
+	}
+	
+	/**
+	 * Gets the number of cars billed per simulated hour.
+	 * @return the billing throughput, NaN if the simulated duration is zero
+	 */
+	public double getBilledCarsPerHour() {
+		return getBilled().getBilledCarsCount() * millisPerHour / (this.endEpochMillis - this.startEpochMillis);
+	}
+	
+	/**
+	 * Gets the highest number of occupied slots for a car type, over all the events.
+	 * @param carType the car type, not null
+	 * @return the peak occupied slots count, positive or zero
+	 */
+	public int getPeakOccupiedSlots(Car.Type carType) {
+		return this.peakOccupiedSlots[carType.ordinal()];
+	}
+	
+	/**
+	 * Gets the interval at which occupancy was sampled.
+	 * @return the sampling interval, not null
+	 */
+	public Duration getSamplingInterval() {
+		return Duration.ofMillis(this.samplingIntervalMillis);
+	}
+	
+	/**
+	 * Gets the number of occupancy samples.
+	 * @return the samples count, strictly positive
+	 */
+	public int getSamplesCount() {
+		return this.occupancyCurves[0].length;
+	}
+	
+	/**
+	 * Gets the simulated instant of an occupancy sample.
+	 * @param sample the sample index, from 0 to {@link #getSamplesCount()} excluded
+	 * @return the sampling instant, not null
+	 * @throws IndexOutOfBoundsException if the sample index is out of range
+	 */
+	public Instant getSampleInstant(int sample) {
+		if (sample < 0 || sample >= getSamplesCount()) {
+			throw new IndexOutOfBoundsException("Sample " + sample + " is out of range [0, " + getSamplesCount() + "[");
+		}
+		
+		return Instant.ofEpochMilli(this.startEpochMillis + sample * this.samplingIntervalMillis);
+	}
+	
+	/**
+	 * Gets the occupancy curve of a car type.
+	 * @param carType the car type, not null
+	 * @return the number of occupied slots at each sampling instant, a copy, not null
+	 */
+	public int[] getOccupancyCurve(Car.Type carType) {
+		return this.occupancyCurves[carType.ordinal()].clone();
+	}
+	
+	/**
+	 * Gets the average occupancy of the slots of a car type, over the occupancy samples.
+	 * @param carType the car type, not null
+	 * @return the average share of occupied slots, between 0 and 1, NaN if the parking has no slot for the car type
+	 */
+	public double getAverageOccupancy(Car.Type carType) {
+		long occupiedSlotsSum = 0L;
+		
+		for (int occupiedSlots: this.occupancyCurves[carType.ordinal()]) {
+			occupiedSlotsSum += occupiedSlots;
+		}
+		
+		return (double) occupiedSlotsSum / getSamplesCount() / this.slotsCounts[carType.ordinal()];
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		
+		builder.append(String.format("Simulated %s from %s in %d ms: %d events, %.0f events/s, %.1f billed cars/h%n", getSimulatedDuration(), getStart(),
+			getWallDuration().toMillis(), this.eventsCount, getEventsPerSecond(), getBilledCarsPerHour()));
+		builder.append(String.format("%-6s %8s %10s %10s %9s %8s %9s %14s %12s%n", "Type", "Slots", "Arrivals", "Rejected", "Rejection", "Peak", "Average",
+			"Revenue", "Average stay"));
+		for (Car.Type carType: carTypes) {
+			RevenueTotals carTypeBilled = getBilled(carType);
+			
+			builder.append(String.format("%-6s %8d %10d %10d %8.2f%% %8d %8.1f%% %14.2f %12s%n", carType.label, getSlotsCount(carType),
+				getArrivalsCount(carType), getRejectedCount(carType), 100.0 * getRejectionRate(carType), getPeakOccupiedSlots(carType),
+				100.0 * getAverageOccupancy(carType), carTypeBilled.getRevenue(), carTypeBilled.getAverageStay()));
+		}
+		
+		return builder.toString();
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import parking.api.Car;
+import parking.api.DefaultPricingPolicy;
+import parking.api.Parking;
+import parking.api.ParkingException;
+import parking.api.PricingPolicy;
+
+/**
+ * The command line entry point of the simulator, run with <code>java -jar simulator/target/simulator.jar [--option=value]...</code>.
+ * <p>Simulates a default parking on a synthetic or recorded traffic and prints the report. Options are:</p>
+ * <ul>
+ * <li><code>--slots=GASOLINE:100,ELECTRIC_WITH_20kW_POWER_SUPPLY:20</code>: the slots count of each car type (default 100 gasoline slots)</li>
+ * <li><code>--shards=4</code>: simulate a parking sharded over that many shards (default 1, not sharded)</li>
+ * <li><code>--fixed-amount=0</code> and <code>--hourly-amount=0.7</code>: the amounts of the default pricing policy</li>
+ * <li><code>--trace=visits.csv</code>: replay a recorded trace, in the format read by {@link TraceTraffic}, instead of a synthetic traffic</li>
+ * <li><code>--arrivals-per-hour=GASOLINE:60</code>: the mean arrival rate of each car type of the synthetic traffic (default 60 gasoline cars)</li>
+ * <li><code>--hour-of-day-factors=0.1,0.1,...</code>: the 24 factors applied to the rates from each hour of the day, UTC (default none)</li>
+ * <li><code>--median-stay=PT1H30M</code> and <code>--stay-sigma=0.8</code>: the log-normal distribution of the synthetic stays</li>
+ * <li><code>--days=30</code>: how long cars of the synthetic traffic keep arriving, from 2024-01-01</li>
+ * <li><code>--seed=1</code>: the seed of the synthetic traffic</li>
+ * <li><code>--sampling-interval=PT15M</code>: the simulated interval at which occupancy is sampled</li>
+ * <li><code>--occupancy=occupancy.csv</code>: also write the occupancy curves, one line per sample (default none)</li>
+ * </ul>
+ */
+public final class Simulator {
+	static private final Instant syntheticStart = Instant.parse("2024-01-01T00:00:00Z");
+	
+	/**
+	 * Instantiates a new simulator.
+	 * <p>Not used: the simulator only has static members.</p>
+	 */
+	private Simulator() {
+	}
+	
+	/**
+	 * Run the simulation described by the command line.
+	 * @param args the options, each as <code>--option=value</code>, not null
+	 * @throws IOException if the trace cannot be read or the occupancy curves cannot be written
+	 * @throws ParkingException if the parking rejects a visit, for instance of a car type it does not provide slots for
+	 * @throws IllegalArgumentException if an option is unknown or invalid
+	 */
+	static public void main(String[] args) throws IOException, ParkingException {
+		Map<String, String> options = new HashMap<String, String>();
+		
+		for (String arg: args) {
+			int separatorIndex = arg.indexOf('=');
+			
+			if (!arg.startsWith("--") || separatorIndex < 0) {
+				throw new IllegalArgumentException("Expected '--option=value', got '" + arg + "'");
+			}
+			
+			options.put(arg.substring(2, separatorIndex), arg.substring(separatorIndex + 1));
+		}
+		
+		Map<Car.Type, Integer> carTypeToSlotsCount = new EnumMap<Car.Type, Integer>(Car.Type.class);
+		Map<Car.Type, Double> carTypeToArrivalsPerHour = new EnumMap<Car.Type, Double>(Car.Type.class);
+		
+		parseCarTypeValues(options.getOrDefault("slots", "GASOLINE:100")).forEach((carType, value) -> carTypeToSlotsCount.put(carType, Integer.valueOf(value)));
+		parseCarTypeValues(options.getOrDefault("arrivals-per-hour", "GASOLINE:60")).forEach((carType, value) ->
+			carTypeToArrivalsPerHour.put(carType, Double.valueOf(value)));
+		
+		int shardsCount = Integer.parseInt(options.getOrDefault("shards", "1"));
+		PricingPolicy pricingPolicy = new DefaultPricingPolicy(Float.parseFloat(options.getOrDefault("fixed-amount", "0")),
+			Float.parseFloat(options.getOrDefault("hourly-amount", "0.7")));
+		Simulation simulation = new Simulation(clock -> (shardsCount == 1 ? Parking.create(carTypeToSlotsCount, pricingPolicy, clock) :
+			Parking.createSharded(carTypeToSlotsCount, pricingPolicy, clock, shardsCount)), Duration.parse(options.getOrDefault("sampling-interval", "PT15M")));
+		SimulationReport report;
+		
+		try (Traffic traffic = (options.containsKey("trace") ? TraceTraffic.open(Paths.get(options.get("trace"))) :
+			new PoissonTraffic(syntheticStart, Duration.ofDays(Long.parseLong(options.getOrDefault("days", "30"))), carTypeToArrivalsPerHour,
+				parseFactors(options.get("hour-of-day-factors")), StayDistribution.logNormal(Duration.parse(options.getOrDefault("median-stay", "PT1H30M")),
+				Double.parseDouble(options.getOrDefault("stay-sigma", "0.8"))), Long.parseLong(options.getOrDefault("seed", "1"))))) {
+			report = simulation.run(traffic);
+		}
+		System.out.print(report);
+		if (options.containsKey("occupancy")) {
+			writeOccupancyCurves(report, Paths.get(options.get("occupancy")));
+		}
+	}
+	
+	/**
+	 * Parse a list of values per car type.
+	 * @param carTypeValues the values, as <code>CAR_TYPE:value</code> separated by commas, not null
+	 * @return the values for each car type, not null
+	 * @throws IllegalArgumentException if a car type is unknown or a value is missing
+	 */
+	static private Map<Car.Type, String> parseCarTypeValues(String carTypeValues) {
+		Map<Car.Type, String> carTypeToValue = new EnumMap<Car.Type, String>(Car.Type.class);
+		
+		for (String carTypeValue: carTypeValues.split(",")) {
+			String[] fields = carTypeValue.split(":");
+			
+			if (fields.length != 2) {
+				throw new IllegalArgumentException("Expected 'CAR_TYPE:value', got '" + carTypeValue + "'");
+			}
+			
+			carTypeToValue.put(Car.Type.valueOf(fields[0].strip()), fields[1].strip());
+		}
+		
+		return carTypeToValue;
+	}
+	
+	/**
+	 * Parse the hour of day factors.
+	 * @param factors the factors separated by commas, can be null
+	 * @return the factors, null if none are given
+	 */
+	static private double[] parseFactors(String factors) {
+		return (factors == null ? null : Arrays.stream(factors.split(",")).mapToDouble(factor -> Double.parseDouble(factor.strip())).toArray());
+	}
+	
+	/**
+	 * Write the occupancy curves of a simulation as CSV: the sampling instant then the occupied slots of each car type, one line per sample.
+	 * @param report the simulation report, not null
+	 * @param occupancyPath the path of the file to write, not null
+	 * @throws IOException if the file cannot be written
+	 */
+	static private void writeOccupancyCurves(SimulationReport report, Path occupancyPath) throws IOException {
+		Car.Type[] carTypes = Car.Type.values();
+		int[][] occupancyCurves = new int[carTypes.length][];
+		
+		for (Car.Type carType: carTypes) {
+			occupancyCurves[carType.ordinal()] = report.getOccupancyCurve(carType);
+		}
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(occupancyPath, StandardCharsets.UTF_8))) {
+			writer.print("instant");
+			for (Car.Type carType: carTypes) {
+				writer.print("," + carType.name());
+			}
+			writer.println();
+			for (int sample = 0; sample < report.getSamplesCount(); sample++) {
+				writer.print(report.getSampleInstant(sample));
+				for (Car.Type carType: carTypes) {
+					writer.print("," + occupancyCurves[carType.ordinal()][sample]);
+				}
+				writer.println();
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * The Interface StayDistribution.
+ * <p>Draws how long the cars of a {@link PoissonTraffic} stay in the parking. The static methods give the usual distributions.</p>
+ */
+@FunctionalInterface
+public interface StayDistribution {
+	/**
+	 * Get a distribution always giving the same stay.
+	 * @param stay the stay, not null, positive or zero
+	 * @return the distribution, not null
+	 * @throws IllegalArgumentException if the stay is negative
+	 */
+	static StayDistribution constant(Duration stay) {
+		long stayMillis = checkPositive(stay, "stay");
+		
+		return random -> stayMillis;
+	}
+	
+	/**
+	 * Get a distribution giving stays uniformly spread between two durations.
+	 * @param minStay the shortest stay, not null, positive or zero
+	 * @param maxStay the longest stay, not null, not shorter than the shortest stay
+	 * @return the distribution, not null
+	 * @throws IllegalArgumentException if a stay is negative or the longest stay is shorter than the shortest one
+	 */
+	static StayDistribution uniform(Duration minStay, Duration maxStay) {
+		long minStayMillis = checkPositive(minStay, "shortest stay");
+		long maxStayMillis = checkPositive(maxStay, "longest stay");
+		
+		if (maxStayMillis < minStayMillis) {
+			throw new IllegalArgumentException("Longest stay " + maxStay + " cannot be shorter than shortest stay " + minStay);
+		}
+		
+		return random -> random.nextLong(minStayMillis, maxStayMillis + 1L);
+	}
+	
+	/**
+	 * Get a distribution giving exponentially distributed stays: most stays are short, a few are long.
+	 * @param meanStay the mean stay, not null, positive or zero
+	 * @return the distribution, not null
+	 * @throws IllegalArgumentException if the mean stay is negative
+	 */
+	static StayDistribution exponential(Duration meanStay) {
+		long meanStayMillis = checkPositive(meanStay, "mean stay");
+		
+		return random -> Math.round(-meanStayMillis * Math.log(1.0 - random.nextDouble()));
+	}
+	
+	/**
+	 * Get a distribution giving log-normally distributed stays, which is how the stays measured in parkings are usually distributed.
+	 * @param medianStay the median stay, not null, strictly positive
+	 * @param sigma the standard deviation of the logarithm of the stays, positive or zero: the larger, the longer the longest stays
+	 * @return the distribution, not null
+	 * @throws IllegalArgumentException if the median stay is not strictly positive or sigma is negative
+	 */
+	static StayDistribution logNormal(Duration medianStay, double sigma) {
+		long medianStayMillis = checkPositive(medianStay, "median stay");
+		
+		if (medianStayMillis == 0L || !(sigma >= 0.0)) {
+			throw new IllegalArgumentException("Median stay " + medianStay + " must be strictly positive and sigma " + sigma + " positive or zero");
+		}
+		
+		double mu = Math.log(medianStayMillis);
+		
+		return random -> {
+			// Box-Muller transform of two uniform doubles into a standard normal one
+			double normal = Math.sqrt(-2.0 * Math.log(1.0 - random.nextDouble())) * Math.cos(2.0 * Math.PI * random.nextDouble());
+			
+			return Math.round(Math.min(Math.exp(mu + sigma * normal), Long.MAX_VALUE / 4.0));
+		};
+	}
+	
+	/**
+	 * Check a duration is positive or zero.
+	 * @param duration the duration, not null
+	 * @param name the name of the duration, for the exception message
+	 * @return the duration in milliseconds
+	 * @throws IllegalArgumentException if the duration is negative
+	 */
+	static private long checkPositive(Duration duration, String name) {
+		if (duration.isNegative()) {
+			throw new IllegalArgumentException("The " + name + " " + duration + " cannot be negative");
+		}
+		
+		return duration.toMillis();
+	}
+	
+	/**
+	 * Draw a stay.
+	 * @param random the random generator of the traffic, not null
+	 * @return the stay in milliseconds, positive or zero
+	 */
+	long sampleMillis(SplittableRandom random);
+}
@@ -0,0 +1,118 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import parking.api.Car;
+
+/**
+ * A recorded traffic, read line by line from a trace.
+ * <p>Each line of the trace is a visit: its arrival instant, its departure instant, its car type and optionally its registration number, separated by
+ * commas, for instance <code>2024-03-01T08:12:45Z,2024-03-01T10:02:11Z,GASOLINE,AI-241-SP</code>. Instants are either ISO-8601 instants or milliseconds
+ * from the epoch, car types are {@link Car.Type} names. Empty lines and lines starting with <code>#</code> are ignored.</p>
+ * <p>Visits must be sorted by arrival: a trace exported from the billing events of a parking, which come in departure order, has to be sorted first.</p>
+ */
+public final class TraceTraffic implements Traffic {
+	private final BufferedReader reader;
+	private long lineNumber;
+	private long epochMillis;
+	
+	/**
+	 * Instantiates a new trace traffic.
+	 * @param reader the reader of the trace, not null, closed with the traffic
+	 */
+	public TraceTraffic(Reader reader) {
+		this.reader = (reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader));
+		this.lineNumber = 0L;
+		this.epochMillis = Long.MIN_VALUE;
+	}
+	
+	/**
+	 * Open a trace file.
+	 * @param tracePath the path of the trace, in UTF-8, not null
+	 * @return the traffic, not null
+	 * @throws IOException if the trace cannot be opened
+	 */
+	static public TraceTraffic open(Path tracePath) throws IOException {
+		return new TraceTraffic(Files.newBufferedReader(tracePath, StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Format a visit as a line of a trace.
+	 * @param visit the visit, not null
+	 * @return the line, without line separator, not null
+	 */
+	static public String format(Visit visit) {
+		return Instant.ofEpochMilli(visit.getArrivalEpochMillis()) + "," + Instant.ofEpochMilli(visit.getDepartureEpochMillis()) + "," + visit.getCarType() +
+			(visit.getRegistrationNumber() == null ? "" : "," + visit.getRegistrationNumber());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @throws IOException if the trace cannot be read, or a line is malformed or arrives before the previous one
+	 */
+	@Override
+	public Visit next() throws IOException {
+		String line;
+		
+		do {
+			line = this.reader.readLine();
+			this.lineNumber++;
+			if (line == null) {
+				return null;
+			}
+			line = line.strip();
+		} while (line.isEmpty() || line.startsWith("#"));
+		
+		String[] fields = line.split(",", -1);
+		
+		if (fields.length < 3 || fields.length > 4) {
+			throw new IOException("Line " + this.lineNumber + " of trace is not 'arrival,departure,carType[,registrationNumber]': " + line);
+		}
+		
+		Visit visit;
+		
+		try {
+			visit = new Visit(Car.Type.valueOf(fields[2].strip()), (fields.length == 4 && !fields[3].isBlank() ? fields[3].strip() : null),
+				parseEpochMillis(fields[0]), parseEpochMillis(fields[1]));
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new IOException("Line " + this.lineNumber + " of trace is not a valid visit: " + line, e);
+		}
+		if (visit.getArrivalEpochMillis() < this.epochMillis) {
+			throw new IOException("Line " + this.lineNumber + " of trace arrives before the previous line, visits must be sorted by arrival: " + line);
+		}
+		this.epochMillis = visit.getArrivalEpochMillis();
+		
+		return visit;
+	}
+	
+	/**
+	 * Parse an instant of a trace.
+	 * @param field the instant, either milliseconds from the epoch or an ISO-8601 instant, not null
+	 * @return the instant in milliseconds from the epoch
+	 * @throws NumberFormatException if the field is not a number and does not start like an ISO-8601 instant
+	 * @throws DateTimeParseException if the field is not a valid ISO-8601 instant
+	 */
+	static private long parseEpochMillis(String field) {
+		String instant = field.strip();
+		
+		return (instant.indexOf('T') < 0 ? Long.parseLong(instant) : Instant.parse(instant).toEpochMilli());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+}
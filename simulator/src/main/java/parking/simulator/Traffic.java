@@ -0,0 +1,29 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The Interface Traffic.
+ * <p>The visits a {@link Simulation} replays, in arrival order. Visits are pulled one at a time, so that a traffic of millions of visits never has to be
+ * held in memory: {@link PoissonTraffic} draws them as they are pulled, {@link TraceTraffic} reads them from a recorded trace.</p>
+ */
+public interface Traffic extends Closeable {
+	/**
+	 * Get the next visit.
+	 * @return the visit, arriving at or after the previous one, null once there is no more visit
+	 * @throws IOException if the visit cannot be read
+	 */
+	Visit next() throws IOException;
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Default implementation does nothing.</p>
+	 */
+	@Override
+	default void close() throws IOException {
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import java.time.Instant;
+
+import parking.api.Clock;
+
+/**
+ * A clock whose time only moves when a simulation moves it.
+ * <p>Given to the parking driven by a {@link Simulation}, which sets it to the instant of each event before handing the event to the parking:
+ * the parking bills the simulated stays, however fast the events are replayed.</p>
+ * <p>The clock is not meant to be shared between threads: a simulation moves it and calls the parking from a single thread.</p>
+ */
+public final class VirtualClock implements Clock {
+	private long epochMillis;
+	
+	/**
+	 * Instantiates a new virtual clock.
+	 * @param epochMillis the initial instant, in milliseconds from the epoch
+	 */
+	public VirtualClock(long epochMillis) {
+		this.epochMillis = epochMillis;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(this.epochMillis);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>Does not allocate any memory.</p>
+	 */
+	@Override
+	public long millis() {
+		return this.epochMillis;
+	}
+	
+	/**
+	 * Move the clock to an instant.
+	 * @param epochMillis the new instant, in milliseconds from the epoch, not before the current instant
+	 * @throws IllegalArgumentException if the new instant is before the current one
+	 */
+	public void advanceTo(long epochMillis) {
+		if (epochMillis < this.epochMillis) {
+			throw new IllegalArgumentException("Cannot move a virtual clock backward from " + this.epochMillis + " to " + epochMillis);
+		}
+		
+		this.epochMillis = epochMillis;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Part of the 'Parking toll library'
+ */
+package parking.simulator;
+
+import parking.api.Car;
+
+/**
+ * The visit of a car to a parking: when it arrives and when it would leave, should it find a slot.
+ * <p>Returned by a {@link Traffic}. Instances are immutable.</p>
+ */
+public final class Visit {
+	private final Car.Type carType;
+	private final String registrationNumber;
+	private final long arrivalEpochMillis;
+	private final long departureEpochMillis;
+	
+	/**
+	 * Instantiates a new visit.
+	 * @param carType the car type, not null
+	 * @param registrationNumber the registration number of the car, null to let the simulation number the car
+	 * @param arrivalEpochMillis the arrival instant, in milliseconds from the epoch
+	 * @param departureEpochMillis the departure instant, in milliseconds from the epoch
+	 * @throws IllegalArgumentException if the departure is before the arrival
+	 */
+	public Visit(Car.Type carType, String registrationNumber, long arrivalEpochMillis, long departureEpochMillis) {
+		if (departureEpochMillis < arrivalEpochMillis) {
+			throw new IllegalArgumentException("Departure instant " + departureEpochMillis + " of a visit cannot be before its arrival instant " +
+				arrivalEpochMillis);
+		}
+		
+		this.carType = carType;
+		this.registrationNumber = registrationNumber;
+		this.arrivalEpochMillis = arrivalEpochMillis;
+		this.departureEpochMillis = departureEpochMillis;
+	}
+	
+	/**
+	 * Gets the car type.
+	 * @return the car type, not null
+	 */
+	public Car.Type getCarType() {
+		return this.carType;
+	}
+	
+	/**
+	 * Gets the registration number of the car.
+	 * @return the registration number, null if the simulation numbers the car
+	 */
+	public String getRegistrationNumber() {
+		return this.registrationNumber;
+	}
+	
+	/**
+	 * Gets the arrival instant.
+	 * @return the arrival instant, in milliseconds from the epoch
+	 */
+	public long getArrivalEpochMillis() {
+		return this.arrivalEpochMillis;
+	}
+	
+	/**
+	 * Gets the departure instant.
+	 * @return the departure instant, in milliseconds from the epoch, not before the arrival
+	 */
+	public long getDepartureEpochMillis() {
+		return this.departureEpochMillis;
+	}
+	
+	@Override
+	public String toString() {
+		return "'" + this.registrationNumber + "' (" + this.carType + ") from " + this.arrivalEpochMillis + " to " + this.departureEpochMillis;
+	}
+}